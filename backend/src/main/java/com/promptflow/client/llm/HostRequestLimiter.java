@@ -0,0 +1,105 @@
+package com.promptflow.client.llm;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 单个上游主机的并发请求限制
+ * 限制的是同时进行中的请求（HTTP 交换）数，而不是 TCP 连接数：HTTP/2 下同一连接上的多路复用流各占一个许可，
+ * 实际建立多少条连接由 HttpClient 自己的连接池决定。超出时调用方排队等待。
+ * 同时支持阻塞获取和异步获取，异步等待不占用线程
+ */
+class HostRequestLimiter {
+
+    private final int maxRequests;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int inUse;
+
+    HostRequestLimiter(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * 异步获取许可，许可可用时 future 完成
+     * 取消尚未完成的 future 即放弃排队
+     */
+    CompletableFuture<Void> acquireAsync() {
+        if (maxRequests <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (this) {
+            if (inUse < maxRequests) {
+                inUse++;
+                return CompletableFuture.completedFuture(null);
+            }
+            // 取消时先移出队列再完成 future，等待方被唤醒时已不在队列里，放弃排队的调用方也不会堆积
+            CompletableFuture<Void> waiter = new CompletableFuture<>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    synchronized (HostRequestLimiter.this) {
+                        waiters.remove(this);
+                    }
+                    return super.cancel(mayInterruptIfRunning);
+                }
+            };
+            waiters.addLast(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * 阻塞获取许可
+     */
+    void acquire() throws InterruptedException {
+        CompletableFuture<Void> permit = acquireAsync();
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            // 被中断时若许可已经移交给当前调用方，需要归还
+            if (!permit.cancel(false)) {
+                release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 归还许可，直接移交给下一个仍在等待的调用方
+     * 出队与取消可能同时发生，complete 失败的等待者跳过
+     */
+    void release() {
+        if (maxRequests <= 0) {
+            return;
+        }
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    inUse--;
+                    return;
+                }
+            }
+            // 已取消的等待者跳过
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    int getMaxRequests() {
+        return maxRequests;
+    }
+
+    synchronized int getInUse() {
+        return inUse;
+    }
+
+    synchronized int getWaiting() {
+        return waiters.size();
+    }
+}
@@ -0,0 +1,121 @@
+package com.promptflow.client.llm;
+
+import com.promptflow.util.NamedThreads;
+
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 响应体读取的空闲超时
+ * HttpRequest.timeout 只覆盖到收到响应头为止；包装后的 BodyHandler 在两次数据到达之间超过时限时
+ * 取消订阅（断开上游）并以 HttpTimeoutException 结束响应体，与原 HttpURLConnection 读超时的语义一致。
+ * 阻塞的 InputStream 读取、ofString 的完整响应以及异步调用都受此限制
+ */
+class IdleTimeoutBodyHandler<T> implements HttpResponse.BodyHandler<T> {
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+        NamedThreads.daemon("llm-body-watchdog"));
+
+    private final HttpResponse.BodyHandler<T> delegate;
+    private final long idleTimeoutMs;
+
+    IdleTimeoutBodyHandler(HttpResponse.BodyHandler<T> delegate, long idleTimeoutMs) {
+        this.delegate = delegate;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<T> apply(HttpResponse.ResponseInfo responseInfo) {
+        HttpResponse.BodySubscriber<T> subscriber = delegate.apply(responseInfo);
+        return idleTimeoutMs > 0 ? new Subscriber<>(subscriber, idleTimeoutMs) : subscriber;
+    }
+
+    private static final class Subscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final long idleTimeoutNanos;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long lastActivity = System.nanoTime();
+        private volatile Flow.Subscription subscription;
+        private volatile ScheduledFuture<?> check;
+
+        Subscriber(HttpResponse.BodySubscriber<T> delegate, long idleTimeoutMs) {
+            this.delegate = delegate;
+            this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            delegate.onSubscribe(subscription);
+            schedule(idleTimeoutNanos);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            lastActivity = System.nanoTime();
+            if (!finished.get()) {
+                delegate.onNext(item);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (finished.compareAndSet(false, true)) {
+                cancelCheck();
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (finished.compareAndSet(false, true)) {
+                cancelCheck();
+                delegate.onComplete();
+            }
+        }
+
+        /**
+         * 只在到期时检查一次：期间有数据到达则按最后一次到达时间顺延，不为每个分块重新调度
+         */
+        private void schedule(long delayNanos) {
+            if (!finished.get()) {
+                check = WATCHDOG.schedule(this::checkIdle, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void checkIdle() {
+            long idle = System.nanoTime() - lastActivity;
+            if (idle < idleTimeoutNanos) {
+                schedule(idleTimeoutNanos - idle);
+                return;
+            }
+            if (finished.compareAndSet(false, true)) {
+                subscription.cancel();
+                delegate.onError(new HttpTimeoutException("读取响应体超时: "
+                    + TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) + "ms 内未收到数据"));
+            }
+        }
+
+        private void cancelCheck() {
+            ScheduledFuture<?> f = check;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+}
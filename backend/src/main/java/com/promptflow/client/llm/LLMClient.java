@@ -2,7 +2,11 @@ package com.promptflow.client.llm;
 
 import com.promptflow.dto.llm.LLMRequest;
 import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.util.CancellationToken;
+import reactor.core.publisher.Flux;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -25,14 +29,59 @@ public interface LLMClient {
      * @param onComplete 完成回调
      * @param onError 错误回调
      */
-    void callStream(LLMRequest request, 
+    default void callStream(LLMRequest request, 
+                            Consumer<String> onContent,
+                            Runnable onComplete,
+                            Consumer<Throwable> onError) {
+        callStream(request, onContent, onComplete, onError, CancellationToken.NONE);
+    }
+    
+    /**
+     * 可取消的流式调用 LLM
+     * 令牌取消时中断进行中的上游连接，以 {@link java.util.concurrent.CancellationException} 回调 onError
+     * @param cancellation 取消令牌
+     */
+    void callStream(LLMRequest request,
                     Consumer<String> onContent,
                     Runnable onComplete,
-                    Consumer<Throwable> onError);
+                    Consumer<Throwable> onError,
+                    CancellationToken cancellation);
+    
+    /**
+     * 异步调用 LLM，不占用调用线程
+     * @param request LLM 请求
+     * @return 完成时携带 LLM 响应，失败时为 error 响应
+     */
+    default CompletableFuture<LLMResponse> callAsync(LLMRequest request) {
+        return callAsync(request, CancellationToken.NONE);
+    }
+
+    /**
+     * 可取消的异步调用 LLM
+     * 令牌取消或直接取消返回的 future 时，放弃排队或中止进行中的 HTTP 交换并归还并发许可，
+     * 返回的 future 以 {@link java.util.concurrent.CancellationException} 结束
+     * @param cancellation 取消令牌
+     */
+    CompletableFuture<LLMResponse> callAsync(LLMRequest request, CancellationToken cancellation);
+    
+    /**
+     * 响应式流式调用 LLM，不占用调用线程
+     * 订阅时发起请求；取消订阅会放弃排队或中断上游连接，并归还并发许可
+     * @param request LLM 请求
+     * @return 内容增量流
+     */
+    Flux<String> streamReactive(LLMRequest request);
     
     /**
      * 获取客户端类型
      * @return 客户端类型标识
      */
     String getClientType();
+    
+    /**
+     * 运行时指标
+     */
+    default Map<String, Object> getMetrics() {
+        return Map.of();
+    }
 }
\ No newline at end of file
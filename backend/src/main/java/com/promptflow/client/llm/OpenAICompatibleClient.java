@@ -3,21 +3,42 @@ package com.promptflow.client.llm;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.promptflow.dto.llm.LLMRequest;
 import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.util.CancellationToken;
+import com.promptflow.util.TokenEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +52,16 @@ public class OpenAICompatibleClient implements LLMClient {
     
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    private final HttpClient httpClient;
+    
+    /** 按主机划分的并发请求限制 */
+    private final Map<String, HostRequestLimiter> hostLimiters = new ConcurrentHashMap<>();
+    
+    /** 因取消而中断的流式调用，及其已消耗的 token（估算） */
+    private final AtomicLong abortedStreams = new AtomicLong();
+    private final AtomicLong abortedPromptTokens = new AtomicLong();
+    private final AtomicLong abortedCompletionTokens = new AtomicLong();
+    
     @Value("${api.key}")
     private String apiKey;
     
@@ -40,12 +71,16 @@ public class OpenAICompatibleClient implements LLMClient {
     @Value("${api.model}")
     private String defaultModel;
     
-    @Value("${api.connect-timeout:30000}")
-    private int connectTimeout;
-    
     @Value("${api.read-timeout:120000}")
     private int readTimeout;
     
+    @Value("${api.max-requests-per-host:64}")
+    private int maxRequestsPerHost;
+    
+    public OpenAICompatibleClient(HttpClient llmHttpClient) {
+        this.httpClient = llmHttpClient;
+    }
+    
     @Override
     public String getClientType() {
         return "openai-compatible";
@@ -70,19 +105,125 @@ public class OpenAICompatibleClient implements LLMClient {
     public void callStream(LLMRequest request, 
                           Consumer<String> onContent,
                           Runnable onComplete,
-                          Consumer<Throwable> onError) {
+                          Consumer<Throwable> onError,
+                          CancellationToken cancellation) {
         try {
             Map<String, Object> requestBody = buildRequestBody(request, true);
             String jsonBody = objectMapper.writeValueAsString(requestBody);
             
-            executeStreamHttpPost(jsonBody, onContent, onComplete, onError);
+            executeStreamHttpPost(jsonBody, onContent, onComplete, onError, cancellation,
+                () -> estimatePromptTokens(request));
             
         } catch (Exception e) {
             logger.error("LLM stream API call failed", e);
             onError.accept(e);
         }
     }
-    
+
+    @Override
+    public CompletableFuture<LLMResponse> callAsync(LLMRequest request, CancellationToken cancellation) {
+        if (cancellation.isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException("已取消: " + cancellation.getReason()));
+        }
+        HttpRequest httpRequest;
+        try {
+            Map<String, Object> requestBody = buildRequestBody(request, false);
+            httpRequest = buildHttpRequest(objectMapper.writeValueAsString(requestBody), false);
+        } catch (Exception e) {
+            logger.error("LLM async API call failed", e);
+            return CompletableFuture.completedFuture(LLMResponse.error("API调用失败: " + e.getMessage()));
+        }
+
+        AsyncCall call = new AsyncCall(limiterFor(httpRequest));
+        CompletableFuture<LLMResponse> result = new CompletableFuture<>();
+        CancellationToken.Registration registration = cancellation.onCancel(() -> result.cancel(false));
+        // 返回的 future 被取消（令牌取消或调用方直接取消）时中止底层调用
+        result.whenComplete((r, e) -> {
+            registration.close();
+            if (result.isCancelled()) {
+                call.abort();
+            }
+        });
+        call.acquire()
+            .thenCompose(v -> call.send(httpRequest))
+            .whenComplete((response, e) -> {
+                if (e == null) {
+                    result.complete(response.statusCode() != 200
+                        ? LLMResponse.error("API调用失败: " + response.statusCode() + " - " + response.body())
+                        : parseResponse(response.body()));
+                } else if (!result.isDone()) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    logger.error("LLM async API call failed", cause);
+                    result.complete(LLMResponse.error("API调用失败: " + cause.getMessage()));
+                }
+            });
+        return result;
+    }
+
+    /**
+     * 一次异步调用的取消状态
+     * 排队时取消即作废许可等待；已拿到许可时中止 HTTP 交换，交换结束（含被取消）时归还许可
+     */
+    private final class AsyncCall {
+
+        private final HostRequestLimiter limiter;
+        private boolean aborted;
+        private Future<?> pending;
+
+        AsyncCall(HostRequestLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        CompletableFuture<Void> acquire() {
+            CompletableFuture<Void> permit = limiter.acquireAsync();
+            track(permit);
+            return permit;
+        }
+
+        CompletableFuture<HttpResponse<String>> send(HttpRequest httpRequest) {
+            synchronized (this) {
+                if (aborted) {
+                    // 许可刚移交过来调用方就已放弃
+                    limiter.release();
+                    return CompletableFuture.failedFuture(new CancellationException("已取消"));
+                }
+            }
+            CompletableFuture<HttpResponse<String>> sent;
+            try {
+                sent = httpClient.sendAsync(httpRequest,
+                    bodyHandler(HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+            } catch (RuntimeException e) {
+                limiter.release();
+                throw e;
+            }
+            sent.whenComplete((r, e) -> limiter.release());
+            track(sent);
+            return sent;
+        }
+
+        /** 记录当前等待的 future，已取消时立即作废 */
+        private void track(Future<?> future) {
+            synchronized (this) {
+                pending = future;
+                if (!aborted) {
+                    return;
+                }
+            }
+            future.cancel(true);
+        }
+
+        void abort() {
+            Future<?> future;
+            synchronized (this) {
+                aborted = true;
+                future = pending;
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
     /**
      * 构建请求体
      */
@@ -110,131 +251,358 @@ public class OpenAICompatibleClient implements LLMClient {
             .collect(Collectors.toList());
     }
     
+    /**
+     * 构建 HTTP 请求
+     * 超时时间只覆盖到收到响应头为止，响应体读取的空闲超时由 {@link #bodyHandler} 负责
+     */
+    private HttpRequest buildHttpRequest(String jsonBody, boolean stream) {
+        return HttpRequest.newBuilder(URI.create(normalizeUrl(baseUrl) + "/chat/completions"))
+            .timeout(Duration.ofMillis(readTimeout))
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .header("Accept", stream ? "text/event-stream" : "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+            .build();
+    }
+    
+    /**
+     * 为响应体读取加上空闲超时：两次数据到达之间超过 read-timeout 即断开
+     */
+    private <T> HttpResponse.BodyHandler<T> bodyHandler(HttpResponse.BodyHandler<T> handler) {
+        return new IdleTimeoutBodyHandler<>(handler, readTimeout);
+    }
+    
+    /**
+     * 获取请求目标主机的并发请求限制器
+     */
+    private HostRequestLimiter limiterFor(HttpRequest request) {
+        URI uri = request.uri();
+        String hostKey = uri.getScheme() + "://" + uri.getAuthority();
+        return hostLimiters.computeIfAbsent(hostKey, k -> new HostRequestLimiter(maxRequestsPerHost));
+    }
+    
     /**
      * 执行 HTTP POST 请求
      */
     private String executeHttpPost(String jsonBody) throws Exception {
-        URL url = new URL(normalizeUrl(baseUrl) + "/chat/completions");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        conn.setConnectTimeout(connectTimeout);
-        conn.setReadTimeout(readTimeout);
-        
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(jsonBody.getBytes(StandardCharsets.UTF_8));
-        }
-        
-        int responseCode = conn.getResponseCode();
-        if (responseCode != 200) {
-            String errorMsg = readErrorStream(conn);
-            throw new RuntimeException("API调用失败: " + responseCode + " - " + errorMsg);
+        HttpRequest request = buildHttpRequest(jsonBody, false);
+        HostRequestLimiter limiter = limiterFor(request);
+        limiter.acquire();
+        try {
+            HttpResponse<String> response = httpClient.send(request,
+                bodyHandler(HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+            if (response.statusCode() != 200) {
+                throw new RuntimeException("API调用失败: " + response.statusCode() + " - " + response.body());
+            }
+            return response.body();
+        } finally {
+            limiter.release();
         }
-        
-        return readInputStream(conn);
     }
     
     /**
      * 执行流式 HTTP POST 请求
+     * 取消回调在排队等许可之前注册：排队时取消即放弃排队，等待响应头时取消即中止交换，
+     * 读取响应体时取消则关闭响应体并中断读取线程，上游连接随之断开
      */
     private void executeStreamHttpPost(String jsonBody,
                                       Consumer<String> onContent,
                                       Runnable onComplete,
-                                      Consumer<Throwable> onError) {
+                                      Consumer<Throwable> onError,
+                                      CancellationToken cancellation,
+                                      IntSupplier promptTokens) {
+        if (cancellation.isCancelled()) {
+            onError.accept(new CancellationException("已取消: " + cancellation.getReason()));
+            return;
+        }
+        HttpRequest request = buildHttpRequest(jsonBody, true);
+        StreamCall call = new StreamCall(limiterFor(request));
+        CancellationToken.Registration registration = cancellation.onCancel(call::abort);
+        long[] completionTokens = {0};
         try {
-            URL url = new URL(normalizeUrl(baseUrl) + "/chat/completions");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(connectTimeout);
-            conn.setReadTimeout(readTimeout);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(jsonBody.getBytes(StandardCharsets.UTF_8));
+            CompletableFuture<Void> permit = call.acquire();
+            try {
+                permit.get();
+            } catch (InterruptedException e) {
+                // 放弃排队；许可已经移交过来时由 finally 归还
+                call.abort();
+                throw e;
             }
+
+            HttpResponse<InputStream> response = call.send(httpClient.sendAsync(request,
+                bodyHandler(HttpResponse.BodyHandlers.ofInputStream()))).get();
             
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                String errorMsg = readErrorStream(conn);
-                onError.accept(new RuntimeException("API调用失败: " + responseCode + " - " + errorMsg));
+            if (response.statusCode() != 200) {
+                String errorMsg = readErrorBody(response.body());
+                onError.accept(new RuntimeException("API调用失败: " + response.statusCode() + " - " + errorMsg));
                 return;
             }
             
             // 读取流式响应
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    logger.debug("[LLM SSE] 原始行: {}", line);
-                    if (line.startsWith("data: ")) {
-                        String data = line.substring(6);
-                        if ("[DONE]".equals(data)) {
-                            logger.debug("[LLM SSE] 收到 [DONE]");
-                            onComplete.run();
-                            return;
-                        }
-
-                        logger.debug("[LLM SSE] data长度: {}, 内容: {}", data.length(), data);
-                        String content = extractContentFromStream(data);
-                        logger.debug("[LLM SSE] 提取的内容: {}", content);
-                        if (content != null && !content.isEmpty()) {
-                            onContent.accept(content);
-                        }
-                    } else if (line.startsWith("data:")) {
-                        // 没有空格的情况
-                        String data = line.substring(5);
-                        logger.debug("[LLM SSE] data(无空格)长度: {}, 内容: {}", data.length(), data);
-                        String content = extractContentFromStream(data);
-                        if (content != null && !content.isEmpty()) {
-                            onContent.accept(content);
-                        }
+            SseDeltaParser parser = new SseDeltaParser(new SseDeltaParser.Listener() {
+                @Override
+                public void onDelta(String content, String reasoningContent) {
+                    String text = deltaText(content, reasoningContent);
+                    if (text != null && !text.isEmpty()) {
+                        completionTokens[0] += TokenEstimator.estimate(text);
+                        onContent.accept(text);
                     }
                 }
-                logger.info("[LLM SSE] 流读取完成");
-                onComplete.run();
+
+                @Override
+                public void onUsage(int promptTokens, int completionTokens, int totalTokens) {
+                    logger.debug("[LLM SSE] usage: prompt={}, completion={}, total={}",
+                        promptTokens, completionTokens, totalTokens);
+                }
+            });
+            try (InputStream body = response.body()) {
+                call.startReading(body);
+                try {
+                    parser.readFrom(body);
+                } finally {
+                    call.stopReading();
+                }
             }
+            if (cancellation.isCancelled()) {
+                // 读完后才收到的取消，清掉可能残留的中断标记
+                Thread.interrupted();
+            }
+            onComplete.run();
             
         } catch (Exception e) {
-            onError.accept(e);
+            if (cancellation.isCancelled()) {
+                Thread.interrupted();
+                recordAbort(promptTokens.getAsInt(), completionTokens[0]);
+                logger.info("流式调用已取消({})，已接收约 {} token", cancellation.getReason(), completionTokens[0]);
+                onError.accept(new CancellationException("已取消: " + cancellation.getReason()));
+            } else {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                onError.accept(e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e);
+            }
+        } finally {
+            registration.close();
+            call.release();
         }
     }
+
+    @Override
+    public Flux<String> streamReactive(LLMRequest request) {
+        return Flux.defer(() -> {
+            HttpRequest httpRequest;
+            try {
+                Map<String, Object> requestBody = buildRequestBody(request, true);
+                httpRequest = buildHttpRequest(objectMapper.writeValueAsString(requestBody), true);
+            } catch (Exception e) {
+                return Flux.error(e);
+            }
+
+            StreamCall call = new StreamCall(limiterFor(httpRequest));
+            return Mono.fromCompletionStage(call::acquire)
+                .then(Mono.fromCompletionStage(() -> call.send(httpClient.sendAsync(httpRequest,
+                    bodyHandler(HttpResponse.BodyHandlers.ofPublisher())))))
+                .flatMapMany(this::streamBody)
+                .doFinally(signal -> {
+                    // 取消订阅时作废排队或进行中的交换；响应体订阅已随取消信号一并取消
+                    if (signal == SignalType.CANCEL) {
+                        call.abort();
+                    }
+                    call.release();
+                });
+        });
+    }
+
+    /**
+     * 以非阻塞方式读取流式响应体，每个分块解析出的增量作为一批下发，收到 [DONE] 后立即结束并断开上游
+     */
+    private Flux<String> streamBody(HttpResponse<Flow.Publisher<List<ByteBuffer>>> response) {
+        Flux<List<ByteBuffer>> body = JdkFlowAdapter.flowPublisherToFlux(response.body());
+        if (response.statusCode() != 200) {
+            return body.flatMapIterable(buffers -> buffers)
+                .reduce(new ByteArrayOutputStream(), (out, buffer) -> {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    out.write(bytes, 0, bytes.length);
+                    return out;
+                })
+                .flatMapMany(out -> Flux.error(new RuntimeException("API调用失败: "
+                    + response.statusCode() + " - " + out.toString(StandardCharsets.UTF_8))));
+        }
+
+        List<String> deltas = new ArrayList<>();
+        SseDeltaParser parser = new SseDeltaParser((content, reasoningContent) -> {
+            String text = deltaText(content, reasoningContent);
+            if (text != null && !text.isEmpty()) {
+                deltas.add(text);
+            }
+        });
+        return body.map(buffers -> {
+                buffers.forEach(parser::feed);
+                return drain(deltas);
+            })
+            .takeUntil(batch -> parser.isDone())
+            .concatWith(Mono.fromSupplier(() -> {
+                parser.finish();
+                return drain(deltas);
+            }))
+            .concatMapIterable(batch -> batch);
+    }
+
+    private static List<String> drain(List<String> deltas) {
+        if (deltas.isEmpty()) {
+            return List.of();
+        }
+        List<String> batch = new ArrayList<>(deltas);
+        deltas.clear();
+        return batch;
+    }
     
     /**
-     * 从流式响应中提取内容
+     * 一次流式调用的取消状态与并发许可
+     * 排队和等待响应头阶段取消正在等待的 future（许可排队作废、HTTP 交换中止）；
+     * 阻塞读取阶段关闭响应体，读取线程阻塞在等待数据时再中断它。许可无论成功、失败或取消都只归还一次
      */
-    private String extractContentFromStream(String data) {
-        try {
-            Map<String, Object> event = objectMapper.readValue(data, Map.class);
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) event.get("choices");
-            if (choices != null && !choices.isEmpty()) {
-                Map<String, Object> delta = (Map<String, Object>) choices.get(0).get("delta");
-                if (delta != null) {
-                    // 优先获取 content 字段
-                    Object content = delta.get("content");
-                    if (content != null) {
-                        return content.toString();
-                    }
-                    // 有些模型（如 DeepSeek）可能在 thinking 字段返回推理内容
-                    // 如果没有 content，尝试获取其他文本字段并拼接
-                    StringBuilder sb = new StringBuilder();
-                    for (Map.Entry<String, Object> entry : delta.entrySet()) {
-                        if (entry.getValue() != null && !"role".equals(entry.getKey())) {
-                            sb.append(entry.getValue().toString());
-                        }
-                    }
-                    if (sb.length() > 0) {
-                        return sb.toString();
-                    }
+    private static final class StreamCall {
+
+        private final HostRequestLimiter limiter;
+        private Thread reader;
+        private boolean aborted;
+        private boolean reading;
+        private boolean holding;
+        private Future<?> pending;
+        private InputStream body;
+
+        StreamCall(HostRequestLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        /**
+         * 排队获取许可，拿到许可时完成；拿到之前已取消则归还许可并以 CancellationException 结束
+         */
+        CompletableFuture<Void> acquire() {
+            CompletableFuture<Void> permit = limiter.acquireAsync();
+            CompletableFuture<Void> granted = permit.thenRun(this::hold);
+            await(permit);
+            return granted;
+        }
+
+        private void hold() {
+            synchronized (this) {
+                if (!aborted) {
+                    holding = true;
+                    return;
                 }
             }
-        } catch (Exception e) {
-            logger.debug("Failed to parse stream data: {}", data);
+            limiter.release();
+            throw new CancellationException("已取消");
+        }
+
+        /** 记录发出的 HTTP 交换，已取消时立即中止 */
+        <T> CompletableFuture<T> send(CompletableFuture<T> sent) {
+            await(sent);
+            return sent;
+        }
+
+        /** 归还许可，未持有或已归还时忽略 */
+        void release() {
+            synchronized (this) {
+                if (!holding) {
+                    return;
+                }
+                holding = false;
+            }
+            limiter.release();
+        }
+
+        /** 记录当前等待的 future，已取消时立即作废 */
+        private void await(Future<?> future) {
+            synchronized (this) {
+                pending = future;
+                if (!aborted) {
+                    return;
+                }
+            }
+            future.cancel(true);
         }
-        return null;
+
+        void startReading(InputStream body) {
+            synchronized (this) {
+                this.body = body;
+                reader = Thread.currentThread();
+                reading = true;
+                if (!aborted) {
+                    return;
+                }
+            }
+            closeQuietly(body);
+        }
+
+        synchronized void stopReading() {
+            reading = false;
+        }
+
+        void abort() {
+            Future<?> future;
+            InputStream stream;
+            synchronized (this) {
+                aborted = true;
+                future = pending;
+                stream = body;
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+            if (stream != null) {
+                closeQuietly(stream);
+            }
+            synchronized (this) {
+                if (reading) {
+                    reader.interrupt();
+                }
+            }
+        }
+
+        private static void closeQuietly(InputStream stream) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                logger.debug("关闭响应体失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void recordAbort(int promptTokens, long completionTokens) {
+        abortedStreams.incrementAndGet();
+        abortedPromptTokens.addAndGet(promptTokens);
+        abortedCompletionTokens.addAndGet(completionTokens);
+    }
+    
+    private static int estimatePromptTokens(LLMRequest request) {
+        if (request.getMessages() == null) {
+            return 0;
+        }
+        int tokens = 0;
+        for (LLMRequest.Message message : request.getMessages()) {
+            tokens += TokenEstimator.estimate(message.getContent());
+        }
+        return tokens;
+    }
+    
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("abortedStreams", abortedStreams.get());
+        metrics.put("abortedPromptTokens", abortedPromptTokens.get());
+        metrics.put("abortedCompletionTokens", abortedCompletionTokens.get());
+        return metrics;
+    }
+    
+    /**
+     * 取增量文本：优先 content，没有时使用推理内容（如 DeepSeek 的 reasoning_content）
+     */
+    private static String deltaText(String content, String reasoningContent) {
+        return content != null ? content : reasoningContent;
     }
     
     /**
@@ -279,32 +647,11 @@ public class OpenAICompatibleClient implements LLMClient {
     }
     
     /**
-     * 读取输入流
+     * 读取错误响应体
      */
-    private String readInputStream(HttpURLConnection conn) throws Exception {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            return response.toString();
-        }
-    }
-    
-    /**
-     * 读取错误流
-     */
-    private String readErrorStream(HttpURLConnection conn) {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-            StringBuilder error = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                error.append(line);
-            }
-            return error.toString();
+    private String readErrorBody(InputStream body) {
+        try (InputStream is = body) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
         } catch (Exception e) {
             return "无法读取错误信息";
         }
@@ -0,0 +1,240 @@
+package com.promptflow.client.llm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * OpenAI 兼容格式的 SSE 增量解析器
+ * 直接在字节上切分事件行，用 Jackson 流式 token 只提取
+ * choices[0].delta.content / reasoning_content 和 usage，不构建 Map 树，也不为每行创建 String。
+ * 非线程安全，每个流使用一个实例
+ */
+final class SseDeltaParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseDeltaParser.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final byte[] DATA_PREFIX = {'d', 'a', 't', 'a', ':'};
+    private static final byte[] DONE_MARKER = {'[', 'D', 'O', 'N', 'E', ']'};
+
+    /**
+     * 解析结果回调
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * 收到一个 delta 事件，字段缺失时为 null
+         */
+        void onDelta(String content, String reasoningContent);
+
+        default void onUsage(int promptTokens, int completionTokens, int totalTokens) {
+        }
+    }
+
+    private final Listener listener;
+
+    /** 跨分块的未完成行 */
+    private byte[] pending = new byte[512];
+    private int pendingLength;
+    private boolean done;
+
+    SseDeltaParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * 从输入流读取直到 [DONE] 或流结束
+     */
+    void readFrom(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while (!done && (n = in.read(buffer)) != -1) {
+            feed(buffer, 0, n);
+        }
+        finish();
+    }
+
+    void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            feed(chunk, 0, n);
+        }
+    }
+
+    void feed(byte[] buf, int off, int len) {
+        int end = off + len;
+        int lineStart = off;
+        for (int i = off; i < end && !done; i++) {
+            if (buf[i] != '\n') {
+                continue;
+            }
+            if (pendingLength == 0) {
+                // 整行都在当前分块内，直接在原缓冲区上解析
+                handleLine(buf, lineStart, i);
+            } else {
+                append(buf, lineStart, i - lineStart);
+                handleLine(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+            lineStart = i + 1;
+        }
+        if (!done && lineStart < end) {
+            append(buf, lineStart, end - lineStart);
+        }
+    }
+
+    /**
+     * 流结束时处理最后一个没有换行符的行
+     */
+    void finish() {
+        if (!done && pendingLength > 0) {
+            handleLine(pending, 0, pendingLength);
+        }
+        pendingLength = 0;
+    }
+
+    private void append(byte[] buf, int off, int len) {
+        if (pendingLength + len > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + len));
+        }
+        System.arraycopy(buf, off, pending, pendingLength, len);
+        pendingLength += len;
+    }
+
+    private void handleLine(byte[] buf, int from, int to) {
+        if (to > from && buf[to - 1] == '\r') {
+            to--;
+        }
+        if (!startsWith(buf, from, to, DATA_PREFIX)) {
+            return;
+        }
+        int p = from + DATA_PREFIX.length;
+        if (p < to && buf[p] == ' ') {
+            p++;
+        }
+        if (to - p == DONE_MARKER.length && startsWith(buf, p, to, DONE_MARKER)) {
+            done = true;
+            return;
+        }
+        if (p < to) {
+            parseEvent(buf, p, to - p);
+        }
+    }
+
+    private static boolean startsWith(byte[] buf, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parseEvent(byte[] buf, int off, int len) {
+        try (JsonParser parser = JSON_FACTORY.createParser(buf, off, len)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    parseChoices(parser);
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    parseUsage(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to parse stream event: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 只读取第一个 choice 的 delta，其余元素跳过
+     */
+    private void parseChoices(JsonParser parser) throws IOException {
+        boolean first = true;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (first && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("delta".equals(field) && value == JsonToken.START_OBJECT) {
+                        parseDelta(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+    }
+
+    private void parseDelta(JsonParser parser) throws IOException {
+        String content = null;
+        String reasoningContent = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_STRING && "content".equals(field)) {
+                content = parser.getText();
+            } else if (value == JsonToken.VALUE_STRING && "reasoning_content".equals(field)) {
+                reasoningContent = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (content != null || reasoningContent != null) {
+            listener.onDelta(content, reasoningContent);
+        }
+    }
+
+    private void parseUsage(JsonParser parser) throws IOException {
+        int promptTokens = 0;
+        int completionTokens = 0;
+        int totalTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+            } else if ("prompt_tokens".equals(field)) {
+                promptTokens = parser.getIntValue();
+            } else if ("completion_tokens".equals(field)) {
+                completionTokens = parser.getIntValue();
+            } else if ("total_tokens".equals(field)) {
+                totalTokens = parser.getIntValue();
+            }
+        }
+        listener.onUsage(promptTokens, completionTokens, totalTokens);
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * 全局异常处理器
  * 统一处理 Controller 层抛出的所有异常
@@ -27,6 +29,16 @@ public class GlobalExceptionHandler {
             .body(ApiResponse.error(400, e.getMessage()));
     }
     
+    /**
+     * 处理流式任务被拒绝（并发已满或服务关闭中）
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ApiResponse<Void>> handleRejectedExecution(RejectedExecutionException e) {
+        logger.warn("请求被拒绝: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(ApiResponse.error(503, e.getMessage()));
+    }
+    
     /**
      * 处理运行时异常（业务异常）
      */
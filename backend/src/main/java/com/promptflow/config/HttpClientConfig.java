@@ -0,0 +1,47 @@
+package com.promptflow.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * LLM HTTP 传输层配置
+ * 全局共享一个 HttpClient，复用连接池并在服务端支持时使用 HTTP/2 多路复用，
+ * 避免每次调用都重新进行 TCP + TLS 握手。
+ * JDK HttpClient 的连接池大小与空闲保活时间只能通过 JVM 启动参数设置（对进程内所有客户端生效），
+ * 如 -Djdk.httpclient.keepalive.timeout=300 -Djdk.httpclient.connectionPoolSize=0，运行时无法按客户端配置
+ */
+@Configuration
+public class HttpClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientConfig.class);
+
+    @Value("${api.connect-timeout:30000}")
+    private int connectTimeout;
+
+    /** HTTP 协议版本：HTTP_2（默认，不支持时自动降级）/ HTTP_1_1 */
+    @Value("${api.http-version:HTTP_2}")
+    private String httpVersion;
+
+    @Bean
+    public HttpClient llmHttpClient() {
+        HttpClient.Version version = "HTTP_1_1".equalsIgnoreCase(httpVersion)
+            ? HttpClient.Version.HTTP_1_1
+            : HttpClient.Version.HTTP_2;
+
+        logger.info("初始化 LLM HttpClient: version={}, keepAlive={}s, poolSize={}", version,
+            System.getProperty("jdk.httpclient.keepalive.timeout", "1200"),
+            System.getProperty("jdk.httpclient.connectionPoolSize", "unlimited"));
+
+        return HttpClient.newBuilder()
+            .version(version)
+            .connectTimeout(Duration.ofMillis(connectTimeout))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+}
@@ -1,24 +1,36 @@
 package com.promptflow.controller;
 
 import com.promptflow.dto.*;
+import com.promptflow.entity.BackfillJob;
 import com.promptflow.entity.PromptResource;
 import com.promptflow.entity.PromptCategory;
+import com.promptflow.entity.PromptTag;
+import com.promptflow.entity.TaggingJob;
 import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.service.BackfillService;
+import com.promptflow.service.CounterBufferService;
+import com.promptflow.service.HistorySearchService;
 import com.promptflow.service.PromptClassificationService;
 import com.promptflow.service.PromptHistoryService;
+import com.promptflow.service.TaggingQueueService;
 import com.promptflow.util.JsonUtil;
+import com.promptflow.util.PageCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -37,8 +49,23 @@ public class HistoryController {
     @Autowired
     private PromptResourceRepository promptResourceRepository;
 
+    @Autowired
+    private CounterBufferService counterBufferService;
+
+    @Autowired
+    private HistorySearchService historySearchService;
+
+    @Autowired
+    private TaggingQueueService taggingQueueService;
+
+    @Autowired
+    private BackfillService backfillService;
+
     private static final int PROMPT_PREVIEW_LENGTH = 50;
 
+    /** 单页最大条数 */
+    private static final int MAX_PAGE_SIZE = 100;
+
     /**
      * 保存Agent提示词到历史记录
      */
@@ -57,19 +84,14 @@ public class HistoryController {
             resource.setCreatedAt(LocalDateTime.now());
             resource.setUpdatedAt(LocalDateTime.now());
 
-            PromptResource saved = promptResourceRepository.save(resource);
-
-            // 自动生成5个标签
-            try {
-                classificationService.applyFiveTagsToPrompt(saved);
-            } catch (Exception tagEx) {
-                logger.warn("自动打标签失败，不影响保存: {}", tagEx.getMessage());
-            }
+            // 自动生成5个标签：与保存同一事务写入后台队列，结果通过 /{id}/tagging 查询或订阅
+            TaggingJob taggingJob = promptHistoryService.saveWithTagging(resource);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "保存成功");
-            response.put("data", saved.getId());
+            response.put("data", taggingJob.getPromptId());
+            response.put("taggingJobId", taggingJob.getId());
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -101,19 +123,14 @@ public class HistoryController {
             resource.setCreatedAt(LocalDateTime.now());
             resource.setUpdatedAt(LocalDateTime.now());
 
-            PromptResource saved = promptResourceRepository.save(resource);
-
-            // 自动生成5个标签
-            try {
-                classificationService.applyFiveTagsToPrompt(saved);
-            } catch (Exception tagEx) {
-                logger.warn("自动打标签失败，不影响保存: {}", tagEx.getMessage());
-            }
+            // 自动生成5个标签：与保存同一事务写入后台队列，结果通过 /{id}/tagging 查询或订阅
+            TaggingJob taggingJob = promptHistoryService.saveWithTagging(resource);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "保存成功");
-            response.put("data", saved.getId());
+            response.put("data", taggingJob.getPromptId());
+            response.put("taggingJobId", taggingJob.getId());
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -126,54 +143,27 @@ public class HistoryController {
     }
 
     /**
-     * 获取所有历史记录
+     * 按创建时间倒序分页获取历史记录
+     * 第一页传空串；不带 cursor 的旧调用返回第一页，最多 MAX_PAGE_SIZE 条
      */
     @GetMapping("/all")
-    public ResponseEntity<Map<String, Object>> getAllHistory() {
-        try {
-            List<PromptResource> historyList = promptHistoryService.getAllHistory();
-            List<HistoryResponse> responseList = historyList.stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", responseList);
-            response.put("total", responseList.size());
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("获取历史记录失败", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
-            errorResponse.put("message", "获取历史记录失败: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+    public ResponseEntity<Map<String, Object>> getAllHistory(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        int pageSize = cursor != null ? clampSize(size) : MAX_PAGE_SIZE;
+        return cursorPageResponse(promptHistoryService.getHistoryByCursor(
+            null, PageCursor.decode(cursor), pageSize), null);
     }
     
     /**
-     * 获取最近的历史记录
+     * 获取最近的历史记录，可带 cursor 继续翻页
      */
     @GetMapping("/recent")
-    public ResponseEntity<Map<String, Object>> getRecentHistory(@RequestParam(value = "limit", defaultValue = "20") int limit) {
-        try {
-            List<PromptResource> historyList = promptHistoryService.getRecentHistory(limit);
-            List<HistoryResponse> responseList = historyList.stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", responseList);
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("获取最近历史记录失败", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
-            errorResponse.put("message", "获取最近历史记录失败: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+    public ResponseEntity<Map<String, Object>> getRecentHistory(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return cursorPageResponse(promptHistoryService.getHistoryByCursor(
+            null, PageCursor.decode(cursor), clampSize(limit)), null);
     }
     
     /**
@@ -208,20 +198,57 @@ public class HistoryController {
     }
     
     /**
-     * 搜索历史记录
+     * 查询提示词最近一次自动打标签任务的状态
+     */
+    @GetMapping("/{id}/tagging")
+    public ResponseEntity<Map<String, Object>> getTaggingStatus(@PathVariable("id") Long id) {
+        Optional<TaggingJob> job = taggingQueueService.getLatestJob(id);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", job.isPresent());
+        if (job.isPresent()) {
+            response.put("data", taggingQueueService.toView(job.get()));
+        } else {
+            response.put("message", "没有打标签任务");
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 订阅自动打标签结果（SSE，事件名 tagging，任务结束后连接关闭）
+     */
+    @GetMapping(value = "/{id}/tagging/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaggingStatus(@PathVariable("id") Long id) {
+        return taggingQueueService.subscribe(id);
+    }
+
+    /**
+     * 搜索历史记录（按相关度排序，分页，带高亮摘要）
      */
     @GetMapping("/search")
-    public ResponseEntity<Map<String, Object>> searchHistory(@RequestParam(value = "keyword") String keyword) {
+    public ResponseEntity<Map<String, Object>> searchHistory(
+            @RequestParam(value = "keyword") String keyword,
+            @RequestParam(value = "page", defaultValue = "1") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            return cursorPageResponse(promptHistoryService.searchByCursor(
+                keyword, null, PageCursor.decode(cursor), clampSize(size)), keyword);
+        }
         try {
-            List<PromptResource> historyList = promptHistoryService.searchHistory(keyword);
-            List<HistoryResponse> responseList = historyList.stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
+            // 页码按最大偏移量封顶，避免 (page - 1) * size 溢出
+            int pageSize = clampSize(size);
+            int maxPage = HistorySearchService.MAX_OFFSET / pageSize + 1;
+            PagedResult<HistorySummary> result = promptHistoryService.searchHistory(
+                keyword, Math.min(Math.max(1, page), maxPage), pageSize);
+            List<HistoryResponse> responseList = toHistoryResponses(result.getList(), keyword);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", responseList);
-            response.put("total", responseList.size());
+            response.put("total", result.getTotal());
+            response.put("totalPages", result.getTotalPages());
+            response.put("page", result.getPage());
+            response.put("size", result.getSize());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -233,6 +260,43 @@ public class HistoryController {
         }
     }
 
+    /**
+     * 导出历史记录（NDJSON，每行一条完整记录）
+     * 按 id 升序分批 seek 读取并逐批写出，内存占用与总数据量无关
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(value = "categoryId", required = false) Long categoryId) {
+        StreamingResponseBody body = out -> {
+            long exported = promptHistoryService.exportNdjson(categoryId, out);
+            logger.info("导出历史记录完成: {} 条", exported);
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"history-export.ndjson\"")
+            .body(body);
+    }
+
+    /**
+     * 游标分页响应
+     * @param highlightKeyword 检索关键词，非空时附带高亮摘要
+     */
+    private ResponseEntity<Map<String, Object>> cursorPageResponse(CursorPage<HistorySummary> page,
+                                                                   String highlightKeyword) {
+        List<HistoryResponse> responseList = toHistoryResponses(page.getList(), highlightKeyword);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", responseList);
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasMore", page.isHasMore());
+        return ResponseEntity.ok(response);
+    }
+
+    private static int clampSize(int size) {
+        return Math.min(Math.max(1, size), MAX_PAGE_SIZE);
+    }
+
     /**
      * 将PromptResource实体转换为HistoryResponse DTO
      * @param resource 提示词资源实体
@@ -271,7 +335,7 @@ public class HistoryController {
         response.setGeneratedPrompt(generatedPrompt);
         response.setPromptSummary(resource.getPromptSummary());
         response.setCreatedAt(resource.getCreatedAt());
-        response.setLikeCount(resource.getLikeCount());
+        response.setLikeCount(counterBufferService.mergePromptLikes(resource.getId(), resource.getLikeCount()));
         response.setViewCount(resource.getViewCount());
 
         response.setCategoryId(resource.getCategoryId());
@@ -279,43 +343,117 @@ public class HistoryController {
         response.setUsageScenario(resource.getUsageScenario());
         response.setEffectivenessScore(resource.getEffectivenessScore());
 
-        if (resource.getCategory() != null) {
-            PromptCategory category = resource.getCategory();
-            response.setCategory(new HistoryResponse.CategoryResponse(
-                category.getId(),
-                category.getName(),
-                category.getIcon(),
-                category.getColor()
-            ));
-        }
-
-        if (resource.getAiTags() != null && !resource.getAiTags().isEmpty()) {
-            try {
-                response.setAiTags(JsonUtil.parseStringList(resource.getAiTags()));
-            } catch (Exception e) {
-                response.setAiTags(List.of());
-            }
-        } else {
-            response.setAiTags(List.of());
-        }
-
-        if (resource.getTags() != null && !resource.getTags().isEmpty()) {
-            List<HistoryResponse.TagResponse> tagResponses = resource.getTags().stream()
-                .map(tag -> new HistoryResponse.TagResponse(
-                    tag.getId(),
-                    tag.getName(),
-                    tag.getColor(),
-                    tag.getUsageCount()
-                ))
-                .collect(Collectors.toList());
-            response.setTags(tagResponses);
+        response.setCategory(toCategoryResponse(resource.getCategory()));
+        response.setAiTags(parseAiTags(resource.getAiTags()));
+        response.setTags(toTagResponses(resource.getTags()));
+
+        return response;
+    }
+
+    /**
+     * 将一页列表投影转换为HistoryResponse
+     * 标签和分类整页各查一次，不随条数增加查询次数
+     * @param highlightKeyword 检索关键词，非空时附带高亮摘要
+     */
+    private List<HistoryResponse> toHistoryResponses(List<HistorySummary> items, String highlightKeyword) {
+        List<Long> ids = items.stream().map(HistorySummary::getId).collect(Collectors.toList());
+        Map<Long, List<PromptTag>> tags = promptHistoryService.getTagsByPromptIds(ids);
+        Map<Long, PromptCategory> categories = promptHistoryService.getCategoriesByIds(
+            items.stream().map(HistorySummary::getCategoryId).collect(Collectors.toList()));
+        Map<Long, String> highlights = highlightKeyword != null
+            ? historySearchService.highlights(items, highlightKeyword) : Map.of();
+
+        return items.stream()
+            .map(item -> {
+                HistoryResponse response = convertToHistoryResponse(item);
+                response.setCategory(toCategoryResponse(categories.get(item.getCategoryId())));
+                response.setTags(toTagResponses(tags.get(item.getId())));
+                response.setHighlight(highlights.get(item.getId()));
+                return response;
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 将列表投影转换为HistoryResponse（预览模式，不含分类和标签）
+     */
+    private HistoryResponse convertToHistoryResponse(HistorySummary item) {
+        String generatedPrompt;
+        if (item.getPromptSummary() != null && !item.getPromptSummary().isEmpty()) {
+            generatedPrompt = item.getPromptSummary();
+        } else if (item.getPromptPreview() != null && item.getPromptPreview().length() > PROMPT_PREVIEW_LENGTH) {
+            generatedPrompt = item.getPromptPreview().substring(0, PROMPT_PREVIEW_LENGTH) + "...";
         } else {
-            response.setTags(List.of());
+            generatedPrompt = item.getPromptPreview();
         }
 
+        HistoryResponse response = new HistoryResponse();
+        response.setId(item.getId());
+        response.setPromptType(item.getPromptType());
+        response.setName(item.getName());
+        response.setRoleDescription(item.getRoleDescription());
+        response.setCapabilities(item.getCapabilities());
+        response.setBehaviors(item.getBehaviors());
+        response.setCommunicationStyle(item.getCommunicationStyle());
+        response.setDescription(item.getDescription());
+        response.setSkillType(item.getSkillType());
+        response.setMethod(item.getMethod());
+        response.setEndpoint(item.getEndpoint());
+        response.setParameters(item.getParameters());
+        response.setOutputDescription(item.getOutputDescription());
+        response.setGeneratedPrompt(generatedPrompt);
+        response.setPromptSummary(item.getPromptSummary());
+        response.setCreatedAt(item.getCreatedAt());
+        response.setLikeCount(counterBufferService.mergePromptLikes(item.getId(), item.getLikeCount()));
+        response.setViewCount(item.getViewCount());
+
+        response.setCategoryId(item.getCategoryId());
+        response.setIsAutoTagged(item.getIsAutoTagged());
+        response.setUsageScenario(item.getUsageScenario());
+        response.setEffectivenessScore(item.getEffectivenessScore());
+        response.setAiTags(parseAiTags(item.getAiTags()));
+        response.setRatingCount(item.getRatingCount());
+        response.setAverageRating(item.getAverageRating());
         return response;
     }
 
+    private static HistoryResponse.CategoryResponse toCategoryResponse(PromptCategory category) {
+        if (category == null) {
+            return null;
+        }
+        return new HistoryResponse.CategoryResponse(
+            category.getId(),
+            category.getName(),
+            category.getIcon(),
+            category.getColor()
+        );
+    }
+
+    private static List<HistoryResponse.TagResponse> toTagResponses(Collection<PromptTag> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return List.of();
+        }
+        return tags.stream()
+            .map(tag -> new HistoryResponse.TagResponse(
+                tag.getId(),
+                tag.getName(),
+                tag.getColor(),
+                tag.getUsageCount()
+            ))
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> parseAiTags(String aiTags) {
+        if (aiTags == null || aiTags.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return JsonUtil.parseStringList(aiTags);
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
     /**
      * 分页查询历史记录（支持筛选和排序）- GET版本
      */
@@ -325,7 +463,8 @@ public class HistoryController {
             @RequestParam(name = "size", defaultValue = "20") int size,
             @RequestParam(name = "categoryId", required = false) Long categoryId,
             @RequestParam(name = "keyword", required = false) String keyword,
-            @RequestParam(name = "sortBy", defaultValue = "createdAt") String sortBy) {
+            @RequestParam(name = "sortBy", defaultValue = "createdAt") String sortBy,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         try {
             HistoryQueryRequest request = new HistoryQueryRequest();
             request.setPage(page);
@@ -333,6 +472,7 @@ public class HistoryController {
             request.setCategoryId(categoryId);
             request.setKeyword(keyword);
             request.setSortBy(sortBy);
+            request.setCursor(cursor);
             
             return getHistoryPageInternal(request);
         } catch (Exception e) {
@@ -364,11 +504,12 @@ public class HistoryController {
      * 内部方法：分页查询历史记录
      */
     private ResponseEntity<Map<String, Object>> getHistoryPageInternal(HistoryQueryRequest request) {
+        if (request.getCursor() != null) {
+            return getHistoryCursorPage(request);
+        }
         try {
-            PagedResult<PromptResource> result = promptHistoryService.getHistoryPage(request);
-            List<HistoryResponse> responseList = result.getList().stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
+            PagedResult<HistorySummary> result = promptHistoryService.getHistoryPage(request);
+            List<HistoryResponse> responseList = toHistoryResponses(result.getList(), null);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -389,29 +530,36 @@ public class HistoryController {
     }
 
     /**
-     * 根据分类查询历史记录
+     * 内部方法：游标分页查询历史记录，排序与 getHistoryPageInternal 一致
      */
-    @GetMapping("/category/{categoryId}")
-    public ResponseEntity<Map<String, Object>> getHistoryByCategory(@PathVariable("categoryId") Long categoryId) {
-        try {
-            List<PromptResource> historyList = promptHistoryService.getHistoryByCategory(categoryId);
-            List<HistoryResponse> responseList = historyList.stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", responseList);
-            response.put("total", responseList.size());
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("根据分类查询历史记录失败", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
-            errorResponse.put("message", "根据分类查询历史记录失败: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
+    private ResponseEntity<Map<String, Object>> getHistoryCursorPage(HistoryQueryRequest request) {
+        PageCursor cursor = PageCursor.decode(request.getCursor());
+        int size = clampSize(request.getSize());
+        CursorPage<HistorySummary> page;
+        if ("likeCount".equals(request.getSortBy())) {
+            page = promptHistoryService.getByLikeCountCursor(cursor, size, false);
+        } else if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
+            page = promptHistoryService.searchByCursor(request.getKeyword(), request.getCategoryId(), cursor, size);
+        } else {
+            page = promptHistoryService.getHistoryByCursor(request.getCategoryId(), cursor, size);
         }
+        boolean search = !"likeCount".equals(request.getSortBy())
+            && request.getKeyword() != null && !request.getKeyword().trim().isEmpty();
+        return cursorPageResponse(page, search ? request.getKeyword() : null);
+    }
+
+    /**
+     * 根据分类分页查询历史记录
+     * 第一页传空串；不带 cursor 的旧调用返回第一页，最多 MAX_PAGE_SIZE 条
+     */
+    @GetMapping("/category/{categoryId}")
+    public ResponseEntity<Map<String, Object>> getHistoryByCategory(
+            @PathVariable("categoryId") Long categoryId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        int pageSize = cursor != null ? clampSize(size) : MAX_PAGE_SIZE;
+        return cursorPageResponse(promptHistoryService.getHistoryByCursor(
+            categoryId, PageCursor.decode(cursor), pageSize), null);
     }
 
     /**
@@ -420,12 +568,15 @@ public class HistoryController {
     @GetMapping("/top-liked")
     public ResponseEntity<Map<String, Object>> getTopLikedPrompts(
             @RequestParam(value = "page", defaultValue = "1") int page,
-            @RequestParam(value = "size", defaultValue = "20") int size) {
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            return cursorPageResponse(promptHistoryService.getByLikeCountCursor(
+                PageCursor.decode(cursor), clampSize(size), true), null);
+        }
         try {
-            PagedResult<PromptResource> result = promptHistoryService.getTopLikedPromptsPage(page, size);
-            List<HistoryResponse> responseList = result.getList().stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
+            PagedResult<HistorySummary> result = promptHistoryService.getTopLikedPromptsPage(page, size);
+            List<HistoryResponse> responseList = toHistoryResponses(result.getList(), null);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -592,17 +743,26 @@ public class HistoryController {
     }
 
     /**
-     * 批量处理未分类的提示词
+     * 启动未分类提示词的回填任务，已有任务运行时返回该任务
+     * @param batchSize 最多处理条数，不传表示处理全部
      */
     @PostMapping("/batch-classify")
     public ResponseEntity<Map<String, Object>> batchClassifyPrompts(
-            @RequestParam(value = "batchSize", defaultValue = "10") int batchSize) {
+            @RequestParam(value = "batchSize", required = false) Integer batchSize) {
+        if (batchSize != null && batchSize <= 0) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "batchSize 必须大于0");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
         try {
-            classificationService.batchClassifyUnTaggedPrompts(batchSize);
+            BackfillJob job = backfillService.startClassification(batchSize);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "批量分类任务已启动，处理数量: " + batchSize);
+            response.put("message", "批量分类任务已启动");
+            response.put("jobId", job.getId());
+            response.put("data", backfillService.toView(job));
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -614,6 +774,33 @@ public class HistoryController {
         }
     }
 
+    /**
+     * 查询回填任务进度（已处理数、百分比、速率与预计剩余时间）
+     */
+    @GetMapping("/batch-classify/{jobId}")
+    public ResponseEntity<Map<String, Object>> getBatchClassifyProgress(@PathVariable("jobId") Long jobId) {
+        Optional<BackfillJob> job = backfillService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", backfillService.toView(job.get()));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 取消回填任务，当前块处理完后停止；已处理的记录保留
+     */
+    @PostMapping("/batch-classify/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelBatchClassify(@PathVariable("jobId") Long jobId) {
+        boolean cancelled = backfillService.cancel(jobId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", cancelled);
+        response.put("message", cancelled ? "已请求取消" : "任务不存在或已结束");
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 评分提示词
      */
@@ -697,12 +884,15 @@ public class HistoryController {
     @GetMapping("/top-rated")
     public ResponseEntity<Map<String, Object>> getTopRatedPrompts(
             @RequestParam(value = "page", defaultValue = "1") int page,
-            @RequestParam(value = "size", defaultValue = "20") int size) {
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            return cursorPageResponse(promptHistoryService.getTopRatedByCursor(
+                PageCursor.decode(cursor), clampSize(size)), null);
+        }
         try {
-            PagedResult<PromptResource> result = promptHistoryService.getTopRatedPrompts(page, size);
-            List<HistoryResponse> responseList = result.getList().stream()
-                .map(p -> convertToHistoryResponse(p, true))
-                .collect(Collectors.toList());
+            PagedResult<HistorySummary> result = promptHistoryService.getTopRatedPrompts(page, size);
+            List<HistoryResponse> responseList = toHistoryResponses(result.getList(), null);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -126,6 +127,46 @@ public class PromptController {
         }
     }
 
+    /**
+     * 提示词质量分析
+     * POST /api/analyze
+     */
+    @PostMapping("/analyze")
+    public ResponseEntity<Map<String, Object>> analyze(@RequestBody AnalyzeRequest request) {
+        try {
+            AnalyzeResponse result = promptService.analyzePrompt(request.getPrompt());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * 批量质量分析，结果与输入顺序一致
+     * POST /api/analyze/batch
+     */
+    @PostMapping("/analyze/batch")
+    public ResponseEntity<Map<String, Object>> analyzeBatch(@RequestBody AnalyzeBatchRequest request) {
+        try {
+            List<AnalyzeResponse> results = promptService.analyzePrompts(request.getPrompts());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", results);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * 健康检查
      * GET /api/health
@@ -179,4 +220,18 @@ public class PromptController {
         public String getOutputDescription() { return outputDescription; }
         public void setOutputDescription(String outputDescription) { this.outputDescription = outputDescription; }
     }
+
+    public static class AnalyzeRequest {
+        private String prompt;
+
+        public String getPrompt() { return prompt; }
+        public void setPrompt(String prompt) { this.prompt = prompt; }
+    }
+
+    public static class AnalyzeBatchRequest {
+        private List<String> prompts;
+
+        public List<String> getPrompts() { return prompts; }
+        public void setPrompts(List<String> prompts) { this.prompts = prompts; }
+    }
 }
\ No newline at end of file
@@ -1,11 +1,27 @@
 package com.promptflow.controller;
 
+import com.promptflow.client.llm.LLMClient;
 import com.promptflow.dto.ApiResponse;
 import com.promptflow.dto.UsageStatistics;
+import com.promptflow.service.BackfillService;
+import com.promptflow.service.CounterBufferService;
+import com.promptflow.service.HistorySearchService;
+import com.promptflow.service.PromptClassificationService;
+import com.promptflow.service.PromptResourceService;
+import com.promptflow.service.StatisticsRollupService;
 import com.promptflow.service.StatisticsService;
+import com.promptflow.service.StreamCoalescingService;
+import com.promptflow.service.StreamExecutionService;
+import com.promptflow.service.TaggingQueueService;
+import com.promptflow.service.quality.PromptQualityService;
+import com.promptflow.strategy.pipeline.AuditPreGate;
+import com.promptflow.strategy.pipeline.DraftCandidateSelector;
+import com.promptflow.strategy.pipeline.MultiAuditor;
+import com.promptflow.strategy.pipeline.PipelineOrchestrator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -19,6 +35,51 @@ public class StatisticsController {
     @Autowired
     private StatisticsService statisticsService;
     
+    @Autowired
+    private StreamExecutionService streamExecutionService;
+    
+    @Autowired
+    private StreamCoalescingService streamCoalescingService;
+    
+    @Autowired
+    private PromptResourceService promptResourceService;
+    
+    @Autowired
+    private CounterBufferService counterBufferService;
+    
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+    
+    @Autowired
+    private HistorySearchService historySearchService;
+
+    @Autowired
+    private TaggingQueueService taggingQueueService;
+
+    @Autowired
+    private PromptClassificationService classificationService;
+
+    @Autowired
+    private BackfillService backfillService;
+
+    @Autowired
+    private PromptQualityService qualityService;
+
+    @Autowired
+    private AuditPreGate auditPreGate;
+
+    @Autowired
+    private DraftCandidateSelector draftCandidateSelector;
+
+    @Autowired
+    private MultiAuditor multiAuditor;
+
+    @Autowired
+    private PipelineOrchestrator pipelineOrchestrator;
+
+    @Autowired
+    private LLMClient llmClient;
+    
     /**
      * 获取完整的使用统计数据
      */
@@ -44,4 +105,28 @@ public class StatisticsController {
             return ApiResponse.error("获取统计数据失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 获取运行时指标（流式任务并发与排队、请求合并、响应缓存、计数写回、统计汇总、检索索引）
+     */
+    @GetMapping("/runtime")
+    public ApiResponse<Map<String, Object>> getRuntimeStats() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("streamExecutor", streamExecutionService.getMetrics());
+        metrics.put("streamCoalescing", streamCoalescingService.getMetrics());
+        metrics.put("responseCache", promptResourceService.getCacheMetrics());
+        metrics.put("counterBuffer", counterBufferService.getMetrics());
+        metrics.put("statsRollup", statisticsRollupService.getMetrics());
+        metrics.put("search", historySearchService.getMetrics());
+        metrics.put("tagging", taggingQueueService.getMetrics());
+        metrics.put("classification", classificationService.getBatchMetrics());
+        metrics.put("backfill", backfillService.getMetrics());
+        metrics.put("quality", qualityService.getMetrics());
+        metrics.put("auditPreGate", auditPreGate.getMetrics());
+        metrics.put("draftSelection", draftCandidateSelector.getMetrics());
+        metrics.put("multiAudit", multiAuditor.getMetrics());
+        metrics.put("pipeline", pipelineOrchestrator.getMetrics());
+        metrics.put("llmClient", llmClient.getMetrics());
+        return ApiResponse.success(metrics);
+    }
 }
@@ -31,6 +31,8 @@ public class AnalyzeResponse {
         
         public String getCategory() { return category; }
         public void setCategory(String category) { this.category = category; }
+        public String getIssue() { return issue; }
+        public void setIssue(String issue) { this.issue = issue; }
         public String getSuggestion() { return suggestion; }
         public void setSuggestion(String suggestion) { this.suggestion = suggestion; }
         public int getPriority() { return priority; }
@@ -0,0 +1,47 @@
+package com.promptflow.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果封装
+ */
+public class CursorPage<T> {
+
+    private List<T> list;
+    /** 下一页游标，没有更多数据时为空 */
+    private String nextCursor;
+    private boolean hasMore;
+
+    public CursorPage() {}
+
+    public CursorPage(List<T> list, String nextCursor, boolean hasMore) {
+        this.list = list;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
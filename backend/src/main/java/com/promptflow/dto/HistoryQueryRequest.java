@@ -11,6 +11,8 @@ public class HistoryQueryRequest {
     private String keyword;
     private String sortBy = "createdAt";
     private String sortOrder = "DESC";
+    /** 游标分页位置，非空时忽略 page（空串表示第一页） */
+    private String cursor;
 
     public HistoryQueryRequest() {}
 
@@ -61,4 +63,12 @@ public class HistoryQueryRequest {
     public void setSortOrder(String sortOrder) {
         this.sortOrder = sortOrder;
     }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
@@ -46,6 +46,9 @@ public class HistoryResponse {
     private Integer ratingCount;
     private Double averageRating;
 
+    // 搜索高亮摘要（仅搜索接口返回）
+    private String highlight;
+
     public HistoryResponse() {}
 
     // Getters and Setters
@@ -136,6 +139,9 @@ public class HistoryResponse {
     public Double getAverageRating() { return averageRating; }
     public void setAverageRating(Double averageRating) { this.averageRating = averageRating; }
 
+    public String getHighlight() { return highlight; }
+    public void setHighlight(String highlight) { this.highlight = highlight; }
+
     /**
      * 内部类：分类响应
      */
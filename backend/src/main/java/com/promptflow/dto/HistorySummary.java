@@ -0,0 +1,100 @@
+package com.promptflow.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 历史记录列表投影
+ * 由 JPQL 构造表达式直接填充，不进入持久化上下文，不读取 generated_prompt 全文，
+ * 只在没有摘要时带出正文开头一段用于预览
+ */
+public class HistorySummary {
+
+    private final Long id;
+    private final String promptType;
+    private final String name;
+    private final String roleDescription;
+    private final String capabilities;
+    private final String behaviors;
+    private final String communicationStyle;
+    private final String description;
+    private final String skillType;
+    private final String method;
+    private final String endpoint;
+    private final String parameters;
+    private final String outputDescription;
+    private final String promptSummary;
+    /** 正文开头片段，有摘要时为空 */
+    private final String promptPreview;
+    private final LocalDateTime createdAt;
+    private final Integer likeCount;
+    private final Integer viewCount;
+    private final Long categoryId;
+    private final Boolean isAutoTagged;
+    private final String aiTags;
+    private final String usageScenario;
+    private final Integer effectivenessScore;
+    private final Double averageRating;
+    private final Integer ratingCount;
+
+    public HistorySummary(Long id, String promptType, String name,
+                          String roleDescription, String capabilities, String behaviors, String communicationStyle,
+                          String description, String skillType, String method, String endpoint,
+                          String parameters, String outputDescription,
+                          String promptSummary, String promptPreview, LocalDateTime createdAt,
+                          Integer likeCount, Integer viewCount, Long categoryId, Boolean isAutoTagged,
+                          String aiTags, String usageScenario, Integer effectivenessScore,
+                          Double averageRating, Integer ratingCount) {
+        this.id = id;
+        this.promptType = promptType;
+        this.name = name;
+        this.roleDescription = roleDescription;
+        this.capabilities = capabilities;
+        this.behaviors = behaviors;
+        this.communicationStyle = communicationStyle;
+        this.description = description;
+        this.skillType = skillType;
+        this.method = method;
+        this.endpoint = endpoint;
+        this.parameters = parameters;
+        this.outputDescription = outputDescription;
+        this.promptSummary = promptSummary;
+        this.promptPreview = promptPreview;
+        this.createdAt = createdAt;
+        this.likeCount = likeCount;
+        this.viewCount = viewCount;
+        this.categoryId = categoryId;
+        this.isAutoTagged = isAutoTagged;
+        this.aiTags = aiTags;
+        this.usageScenario = usageScenario;
+        this.effectivenessScore = effectivenessScore;
+        this.averageRating = averageRating;
+        this.ratingCount = ratingCount;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getPromptType() { return promptType; }
+    public String getName() { return name; }
+    public String getRoleDescription() { return roleDescription; }
+    public String getCapabilities() { return capabilities; }
+    public String getBehaviors() { return behaviors; }
+    public String getCommunicationStyle() { return communicationStyle; }
+    public String getDescription() { return description; }
+    public String getSkillType() { return skillType; }
+    public String getMethod() { return method; }
+    public String getEndpoint() { return endpoint; }
+    public String getParameters() { return parameters; }
+    public String getOutputDescription() { return outputDescription; }
+    public String getPromptSummary() { return promptSummary; }
+    public String getPromptPreview() { return promptPreview; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Integer getLikeCount() { return likeCount; }
+    public Integer getViewCount() { return viewCount; }
+    public Long getCategoryId() { return categoryId; }
+    public Boolean getIsAutoTagged() { return isAutoTagged; }
+    public String getAiTags() { return aiTags; }
+    public String getUsageScenario() { return usageScenario; }
+    public Integer getEffectivenessScore() { return effectivenessScore; }
+    public Double getAverageRating() { return averageRating; }
+    public Integer getRatingCount() { return ratingCount; }
+}
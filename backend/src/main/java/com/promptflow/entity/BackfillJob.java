@@ -0,0 +1,133 @@
+package com.promptflow.entity;
+
+import com.promptflow.util.TextUtil;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 回填任务（按 id 升序分块处理，每块完成后记录检查点，重启后从检查点继续）
+ */
+@Entity
+@Table(name = "backfill_job", indexes = {
+    @Index(name = "idx_status", columnList = "status"),
+    @Index(name = "idx_status_lease", columnList = "status, lease_until")
+})
+public class BackfillJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 任务类型，目前只有 classify
+    @Column(name = "job_type", length = 30, nullable = false)
+    private String jobType;
+
+    // 状态：RUNNING / COMPLETED / CANCELLED / FAILED
+    @Column(name = "status", length = 20, nullable = false)
+    private String status = RUNNING;
+
+    // 检查点：已处理完的最大记录 id
+    @Column(name = "checkpoint_id")
+    private Long checkpointId = 0L;
+
+    // 最多处理条数，为空表示不限
+    @Column(name = "max_items")
+    private Integer maxItems;
+
+    // 启动时估算的待处理总数
+    @Column(name = "total_items")
+    private Long totalItems = 0L;
+
+    @Column(name = "processed_items")
+    private Long processedItems = 0L;
+
+    @Column(name = "succeeded_items")
+    private Long succeededItems = 0L;
+
+    @Column(name = "failed_items")
+    private Long failedItems = 0L;
+
+    // 执行任务的实例标识
+    @Column(name = "locked_by", length = 64)
+    private String lockedBy;
+
+    // 租约到期时间，执行实例每处理完一块续租；RUNNING 任务过期后可被任意实例领取继续
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // 超出列长度的部分在写入时截断
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public BackfillJob() {}
+
+    public BackfillJob(String jobType, Integer maxItems, Long totalItems) {
+        LocalDateTime now = LocalDateTime.now();
+        this.jobType = jobType;
+        this.maxItems = maxItems;
+        this.totalItems = totalItems;
+        this.createdAt = now;
+        this.updatedAt = now;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getJobType() { return jobType; }
+    public void setJobType(String jobType) { this.jobType = jobType; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Long getCheckpointId() { return checkpointId; }
+    public void setCheckpointId(Long checkpointId) { this.checkpointId = checkpointId; }
+
+    public Integer getMaxItems() { return maxItems; }
+    public void setMaxItems(Integer maxItems) { this.maxItems = maxItems; }
+
+    public Long getTotalItems() { return totalItems; }
+    public void setTotalItems(Long totalItems) { this.totalItems = totalItems; }
+
+    public Long getProcessedItems() { return processedItems; }
+    public void setProcessedItems(Long processedItems) { this.processedItems = processedItems; }
+
+    public Long getSucceededItems() { return succeededItems; }
+    public void setSucceededItems(Long succeededItems) { this.succeededItems = succeededItems; }
+
+    public Long getFailedItems() { return failedItems; }
+    public void setFailedItems(Long failedItems) { this.failedItems = failedItems; }
+
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = TextUtil.truncate(lastError, 500); }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -93,13 +93,13 @@ public class PromptResource {
     @Column(name = "author_nickname", length = 100)
     private String authorNickname;
 
-    @Column(name = "like_count")
+    @Column(name = "like_count", nullable = false)
     private Integer likeCount = 0;
 
     @Column(name = "view_count")
     private Integer viewCount = 0;
 
-    @Column(name = "created_at")
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
@@ -0,0 +1,41 @@
+package com.promptflow.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按分类汇总的提示词数量（增量维护，定期对账）
+ */
+@Entity
+@Table(name = "stats_category_rollup")
+public class StatsCategoryRollup {
+
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "prompt_count")
+    private Long promptCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public StatsCategoryRollup() {}
+
+    public StatsCategoryRollup(Long categoryId, Long promptCount) {
+        this.categoryId = categoryId;
+        this.promptCount = promptCount;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public Long getPromptCount() { return promptCount; }
+    public void setPromptCount(Long promptCount) { this.promptCount = promptCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
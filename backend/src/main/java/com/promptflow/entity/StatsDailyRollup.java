@@ -0,0 +1,72 @@
+package com.promptflow.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 按创建日期汇总的统计（增量维护，定期对账）
+ */
+@Entity
+@Table(name = "stats_daily_rollup")
+public class StatsDailyRollup {
+
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate statDate;
+
+    @Column(name = "prompt_count")
+    private Long promptCount = 0L;
+
+    @Column(name = "like_count")
+    private Long likeCount = 0L;
+
+    @Column(name = "input_tokens")
+    private Long inputTokens = 0L;
+
+    @Column(name = "output_tokens")
+    private Long outputTokens = 0L;
+
+    /** 当天创建、已有评分的提示词的平均分之和 */
+    @Column(name = "rating_sum")
+    private Double ratingSum = 0.0;
+
+    @Column(name = "rated_count")
+    private Long ratedCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public StatsDailyRollup() {}
+
+    public StatsDailyRollup(LocalDate statDate) {
+        this.statDate = statDate;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public LocalDate getStatDate() { return statDate; }
+    public void setStatDate(LocalDate statDate) { this.statDate = statDate; }
+
+    public Long getPromptCount() { return promptCount; }
+    public void setPromptCount(Long promptCount) { this.promptCount = promptCount; }
+
+    public Long getLikeCount() { return likeCount; }
+    public void setLikeCount(Long likeCount) { this.likeCount = likeCount; }
+
+    public Long getInputTokens() { return inputTokens; }
+    public void setInputTokens(Long inputTokens) { this.inputTokens = inputTokens; }
+
+    public Long getOutputTokens() { return outputTokens; }
+    public void setOutputTokens(Long outputTokens) { this.outputTokens = outputTokens; }
+
+    public Double getRatingSum() { return ratingSum; }
+    public void setRatingSum(Double ratingSum) { this.ratingSum = ratingSum; }
+
+    public Long getRatedCount() { return ratedCount; }
+    public void setRatedCount(Long ratedCount) { this.ratedCount = ratedCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,112 @@
+package com.promptflow.entity;
+
+import com.promptflow.util.TextUtil;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 自动打标签任务（持久化队列，重启后继续处理）
+ */
+@Entity
+@Table(name = "tagging_job", indexes = {
+    @Index(name = "idx_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_prompt_id", columnList = "prompt_id"),
+    @Index(name = "idx_status_lease", columnList = "status, lease_until")
+})
+public class TaggingJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "prompt_id", nullable = false)
+    private Long promptId;
+
+    // 状态：PENDING / RUNNING / DONE / FAILED
+    @Column(name = "status", length = 20, nullable = false)
+    private String status = PENDING;
+
+    // 已执行次数（含当前这次）
+    @Column(name = "attempts")
+    private Integer attempts = 0;
+
+    // 最早可执行时间，重试时按退避后移
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // 领取任务的实例标识
+    @Column(name = "locked_by", length = 64)
+    private String lockedBy;
+
+    // 租约到期时间，RUNNING 任务过期后可被任意实例重新入队
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // 生成的标签（JSON数组）
+    @Column(name = "result_tags", columnDefinition = "JSON")
+    private String resultTags;
+
+    // 超出列长度的部分在写入时截断
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public TaggingJob() {}
+
+    public TaggingJob(Long promptId) {
+        LocalDateTime now = LocalDateTime.now();
+        this.promptId = promptId;
+        this.nextAttemptAt = now;
+        this.createdAt = now;
+        this.updatedAt = now;
+    }
+
+    public boolean isFinished() {
+        return DONE.equals(status) || FAILED.equals(status);
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getPromptId() { return promptId; }
+    public void setPromptId(Long promptId) { this.promptId = promptId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public String getResultTags() { return resultTags; }
+    public void setResultTags(String resultTags) { this.resultTags = resultTags; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = TextUtil.truncate(lastError, 500); }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,74 @@
+package com.promptflow.repository;
+
+import com.promptflow.entity.BackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BackfillJobRepository extends JpaRepository<BackfillJob, Long> {
+
+    Optional<BackfillJob> findFirstByJobTypeAndStatusOrderByIdAsc(String jobType, String status);
+
+    /**
+     * 可领取的任务：RUNNING 且无人持有或租约已过期
+     */
+    @Query("SELECT j.id FROM BackfillJob j WHERE j.status = 'RUNNING' " +
+           "AND (j.leaseUntil IS NULL OR j.leaseUntil < :now) ORDER BY j.id")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now);
+
+    /**
+     * 领取任务：仅当仍为 RUNNING 且无人持有或租约已过期时记录持有者和租约，返回 0 表示已被其他实例领取
+     */
+    @Modifying
+    @Query("UPDATE BackfillJob j SET j.lockedBy = :owner, j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND (j.leaseUntil IS NULL OR j.leaseUntil < :now)")
+    int claim(@Param("id") Long id, @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 记录一块的进度并续租：仅当仍为 RUNNING 且由 owner 持有时更新，返回 0 表示租约已失效或任务已取消
+     */
+    @Modifying
+    @Query("UPDATE BackfillJob j SET j.checkpointId = :checkpointId, j.processedItems = :processed, " +
+           "j.succeededItems = :succeeded, j.failedItems = :failed, j.lastError = :lastError, " +
+           "j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :owner")
+    int saveProgress(@Param("id") Long id, @Param("owner") String owner,
+                     @Param("checkpointId") Long checkpointId, @Param("processed") Long processed,
+                     @Param("succeeded") Long succeeded, @Param("failed") Long failed,
+                     @Param("lastError") String lastError,
+                     @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 结束任务并释放租约：条件同 saveProgress
+     */
+    @Modifying
+    @Query("UPDATE BackfillJob j SET j.status = :status, j.lastError = :lastError, j.lockedBy = NULL, " +
+           "j.leaseUntil = NULL, j.updatedAt = :now, j.finishedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :owner")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") String status,
+               @Param("lastError") String lastError, @Param("now") LocalDateTime now);
+
+    /**
+     * 释放本实例持有的租约，任务保持 RUNNING，下次由任一实例立即领取
+     */
+    @Modifying
+    @Query("UPDATE BackfillJob j SET j.lockedBy = NULL, j.leaseUntil = NULL " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :owner")
+    int releaseLease(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * 直接取消仍在运行的任务；持有该任务的实例下次记录进度时发现并停止
+     */
+    @Modifying
+    @Query("UPDATE BackfillJob j SET j.status = 'CANCELLED', j.lockedBy = NULL, j.leaseUntil = NULL, " +
+           "j.updatedAt = :now, j.finishedAt = :now WHERE j.id = :id AND j.status = 'RUNNING'")
+    int cancel(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -1,14 +1,17 @@
 package com.promptflow.repository;
 
+import com.promptflow.dto.HistorySummary;
 import com.promptflow.entity.PromptResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -16,10 +19,36 @@ import java.util.Set;
 @Repository
 public interface PromptResourceRepository extends JpaRepository<PromptResource, Long> {
 
+    /** 正文预览截取长度，比展示长度多取一个字符用于判断是否需要省略号 */
+    int PREVIEW_FETCH_LENGTH = 51;
+
+    /**
+     * 列表投影：只有摘要为空时才截取正文开头，不读取 generated_prompt 全文
+     */
+    String SUMMARY_SELECT = "SELECT new com.promptflow.dto.HistorySummary(p.id, p.promptType, p.name, " +
+           "p.roleDescription, p.capabilities, p.behaviors, p.communicationStyle, " +
+           "p.description, p.skillType, p.method, p.endpoint, p.parameters, p.outputDescription, p.promptSummary, " +
+           "CASE WHEN p.promptSummary IS NULL OR p.promptSummary = '' " +
+           "THEN SUBSTRING(p.generatedPrompt, 1, " + PREVIEW_FETCH_LENGTH + ") ELSE NULL END, " +
+           "p.createdAt, p.likeCount, p.viewCount, p.categoryId, p.isAutoTagged, p.aiTags, " +
+           "p.usageScenario, p.effectivenessScore, p.averageRating, p.ratingCount) FROM PromptResource p ";
+
     Optional<PromptResource> findByRequestHash(String requestHash);
 
     boolean existsByRequestHash(String requestHash);
 
+    @Query("SELECT COALESCE(p.likeCount, 0) FROM PromptResource p WHERE p.id = :id")
+    Optional<Integer> findLikeCountById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE PromptResource p SET p.hitCount = COALESCE(p.hitCount, 0) + :delta WHERE p.requestHash = :requestHash")
+    int incrementHitCount(@Param("requestHash") String requestHash, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE PromptResource p SET p.likeCount = CASE WHEN COALESCE(p.likeCount, 0) + :delta < 0 THEN 0 " +
+           "ELSE COALESCE(p.likeCount, 0) + :delta END WHERE p.id = :id")
+    int addLikeCount(@Param("id") Long id, @Param("delta") int delta);
+
     @Query("SELECT SUM(p.hitCount) FROM PromptResource p")
     Long getTotalHitCount();
 
@@ -29,43 +58,125 @@ public interface PromptResourceRepository extends JpaRepository<PromptResource,
     @Query("SELECT p FROM PromptResource p WHERE p.name LIKE %:name% OR p.generatedPrompt LIKE %:name%")
     List<PromptResource> findByNameContaining(@Param("name") String name);
 
-    List<PromptResource> findAllByOrderByCreatedAtDesc();
+    // ==================== 列表投影 ====================
+
+    @Query(value = SUMMARY_SELECT + "ORDER BY p.createdAt DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM PromptResource p")
+    Page<HistorySummary> findSummaryPage(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.categoryId = :categoryId ORDER BY p.createdAt DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM PromptResource p WHERE p.categoryId = :categoryId")
+    Page<HistorySummary> findSummaryPageByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "ORDER BY p.likeCount DESC, p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM PromptResource p")
+    Page<HistorySummary> findSummariesOrderByLikeCount(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.likeCount > 0 ORDER BY p.likeCount DESC, p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM PromptResource p WHERE p.likeCount > 0")
+    Page<HistorySummary> findLikedSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.averageRating IS NOT NULL ORDER BY p.averageRating DESC, p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM PromptResource p WHERE p.averageRating IS NOT NULL")
+    Page<HistorySummary> findRatedSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<HistorySummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 检索索引未就绪时的 LIKE 回退查询
+     */
+    @Query(value = SUMMARY_SELECT + "WHERE (:categoryId IS NULL OR p.categoryId = :categoryId) " +
+           "AND (p.name LIKE CONCAT('%', :keyword, '%') OR p.generatedPrompt LIKE CONCAT('%', :keyword, '%')) " +
+           "ORDER BY p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM PromptResource p WHERE (:categoryId IS NULL OR p.categoryId = :categoryId) " +
+           "AND (p.name LIKE CONCAT('%', :keyword, '%') OR p.generatedPrompt LIKE CONCAT('%', :keyword, '%'))")
+    Page<HistorySummary> findSummariesByKeyword(@Param("categoryId") Long categoryId,
+                                                @Param("keyword") String keyword,
+                                                Pageable pageable);
+
+    /**
+     * 检索结果高亮用的正文，只对当前页读取
+     * 列顺序: id, generatedPrompt
+     */
+    @Query("SELECT p.id, p.generatedPrompt FROM PromptResource p WHERE p.id IN :ids")
+    List<Object[]> findContentByIds(@Param("ids") Collection<Long> ids);
+
+    // ==================== 游标分页（seek 到上一页最后一行之后） ====================
+    // created_at、like_count 均为 NOT NULL，seek 条件直接比较原始列，可走 (排序列, created_at) 索引的范围扫描；
+    // 有无分类过滤拆成两个查询，不用 (:categoryId IS NULL OR ...) 这类无法利用索引的写法
+
+    @Query(SUMMARY_SELECT + "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<HistorySummary> findPageByCreatedAt(@Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.categoryId = :categoryId " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<HistorySummary> findPageByCategoryIdAndCreatedAt(@Param("categoryId") Long categoryId,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("id") Long id,
+                                                          Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.likeCount >= :minLikes " +
+           "AND (p.likeCount < :likes OR (p.likeCount = :likes " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)))) " +
+           "ORDER BY p.likeCount DESC, p.createdAt DESC, p.id DESC")
+    List<HistorySummary> findPageByLikeCount(@Param("minLikes") Integer minLikes,
+                                             @Param("likes") Integer likes,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.averageRating IS NOT NULL " +
+           "AND (p.averageRating < :rating OR (p.averageRating = :rating " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)))) " +
+           "ORDER BY p.averageRating DESC, p.createdAt DESC, p.id DESC")
+    List<HistorySummary> findPageByAverageRating(@Param("rating") Double rating,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
+
+    /**
+     * 导出用：按 id 升序分批读取标量列，不进入持久化上下文
+     * 列顺序: id, promptType, name, promptSummary, generatedPrompt, categoryId, aiTags, likeCount, viewCount, averageRating, createdAt
+     */
+    @Query("SELECT p.id, p.promptType, p.name, p.promptSummary, p.generatedPrompt, p.categoryId, p.aiTags, " +
+           "p.likeCount, p.viewCount, p.averageRating, p.createdAt FROM PromptResource p " +
+           "WHERE p.id > :afterId AND (:categoryId IS NULL OR p.categoryId = :categoryId) ORDER BY p.id")
+    List<Object[]> findExportRowsAfter(@Param("afterId") Long afterId,
+                                      @Param("categoryId") Long categoryId,
+                                      Pageable pageable);
+
+    /**
+     * 按 id 游标分批读取检索索引所需的列
+     * 列顺序: id, name, categoryId, generatedPrompt
+     */
+    @Query("SELECT p.id, p.name, p.categoryId, p.generatedPrompt FROM PromptResource p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
 
     @Query("SELECT p.id, p.name, p.promptSummary, p.createdAt, p.hitCount, p.categoryId, p.likeCount, p.isAutoTagged, p.usageScenario, p.effectivenessScore, p.aiTags, p.promptType FROM PromptResource p ORDER BY p.createdAt DESC")
     List<Object[]> findRecentHistorySummary(Pageable pageable);
 
-    List<PromptResource> findByCategoryIdOrderByCreatedAtDesc(Long categoryId);
-
-    @Query("SELECT p FROM PromptResource p ORDER BY p.likeCount DESC, p.createdAt DESC")
-    Page<PromptResource> findAllOrderByLikeCountDesc(Pageable pageable);
-
     @Query("SELECT p FROM PromptResource p WHERE p.likeCount > 0 ORDER BY p.likeCount DESC, p.createdAt DESC")
     Page<PromptResource> findByLikeCountGreaterThanZeroOrderByLikeCountDesc(Pageable pageable);
 
     @Query("SELECT DISTINCT p FROM PromptResource p JOIN p.tags t WHERE t.id IN :tagIds ORDER BY p.createdAt DESC")
     Page<PromptResource> findByTagIds(@Param("tagIds") Set<Long> tagIds, Pageable pageable);
 
-    @Query(value = "SELECT * FROM prompt_resource p WHERE " +
-           "(:categoryId IS NULL OR p.category_id = :categoryId) AND " +
-           "(:keyword IS NULL OR p.name LIKE CONCAT('%', :keyword, '%') OR p.generated_prompt LIKE CONCAT('%', :keyword, '%')) " +
-           "ORDER BY CASE WHEN :sortBy = 'likeCount' THEN p.like_count ELSE 0 END DESC, p.created_at DESC",
-           countQuery = "SELECT COUNT(*) FROM prompt_resource p WHERE " +
-           "(:categoryId IS NULL OR p.category_id = :categoryId) AND " +
-           "(:keyword IS NULL OR p.name LIKE CONCAT('%', :keyword, '%') OR p.generated_prompt LIKE CONCAT('%', :keyword, '%'))",
-           nativeQuery = true)
-    Page<PromptResource> findByFilters(@Param("categoryId") Long categoryId,
-                                    @Param("keyword") String keyword,
-                                    @Param("sortBy") String sortBy,
-                                    Pageable pageable);
-
     @Query("SELECT p.categoryId, COUNT(p) FROM PromptResource p WHERE p.categoryId IS NOT NULL GROUP BY p.categoryId")
     List<Object[]> countByCategory();
 
-    @Query("SELECT p FROM PromptResource p WHERE p.isAutoTagged = false OR p.isAutoTagged IS NULL ORDER BY p.createdAt DESC")
-    List<PromptResource> findUnTaggedPrompts();
+    /**
+     * 回填用：按 id 升序 seek 读取一批未分类的记录
+     */
+    @Query("SELECT p FROM PromptResource p WHERE (p.isAutoTagged = false OR p.isAutoTagged IS NULL) AND p.id > :afterId ORDER BY p.id")
+    List<PromptResource> findUnTaggedAfter(@Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT p FROM PromptResource p WHERE p.averageRating IS NOT NULL ORDER BY p.averageRating DESC, p.createdAt DESC")
-    Page<PromptResource> findByAverageRatingIsNotNullOrderByAverageRatingDesc(Pageable pageable);
+    @Query("SELECT COUNT(p) FROM PromptResource p WHERE (p.isAutoTagged = false OR p.isAutoTagged IS NULL) AND p.id > :afterId")
+    long countUnTaggedAfter(@Param("afterId") Long afterId);
 
     @Query(value = "SELECT COUNT(*) FROM prompt_resource WHERE DATE(created_at) = CURDATE()", nativeQuery = true)
     long countToday();
@@ -98,4 +209,17 @@ public interface PromptResourceRepository extends JpaRepository<PromptResource,
 
     @Query("SELECT FUNCTION('DATE', p.createdAt), COUNT(p), COALESCE(SUM(p.likeCount), 0) FROM PromptResource p WHERE p.createdAt >= :startDate GROUP BY FUNCTION('DATE', p.createdAt) ORDER BY FUNCTION('DATE', p.createdAt)")
     List<Object[]> countByDayWithLikesJpql(@Param("startDate") LocalDateTime startDate);
+
+    @Query("SELECT p.id, p.createdAt FROM PromptResource p WHERE p.id IN :ids")
+    List<Object[]> findCreatedAtByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按创建日期全量聚合，供统计汇总对账使用；created_at 为空的记录归入 1970-01-01
+     * 列顺序: day, count, likes, inputTokens, outputTokens, ratingSum, ratedCount
+     */
+    @Query(value = "SELECT CAST(COALESCE(created_at, '1970-01-01') AS DATE) AS day, COUNT(*), COALESCE(SUM(like_count), 0), " +
+           "COALESCE(SUM(input_tokens), 0), COALESCE(SUM(output_tokens), 0), COALESCE(SUM(average_rating), 0), COUNT(average_rating) " +
+           "FROM prompt_resource GROUP BY CAST(COALESCE(created_at, '1970-01-01') AS DATE)",
+           nativeQuery = true)
+    List<Object[]> aggregateByDay();
 }
@@ -2,8 +2,11 @@ package com.promptflow.repository;
 
 import com.promptflow.entity.PromptTag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +16,11 @@ public interface PromptTagRepository extends JpaRepository<PromptTag, Long> {
     Optional<PromptTag> findByName(String name);
 
     List<PromptTag> findByIsSystemTrueOrderByUsageCountDesc();
+
+    /**
+     * 一次查出多条提示词的标签
+     * 列顺序: promptId, tag
+     */
+    @Query("SELECT p.id, t FROM PromptResource p JOIN p.tags t WHERE p.id IN :promptIds")
+    List<Object[]> findTagsByPromptIds(@Param("promptIds") Collection<Long> promptIds);
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -34,4 +35,24 @@ public interface SharedPromptRepository extends JpaRepository<SharedPrompt, Long
     @Modifying
     @Query("UPDATE SharedPrompt s SET s.viewCount = s.viewCount + 1 WHERE s.id = :id")
     void incrementViewCount(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE SharedPrompt s SET s.likeCount = CASE WHEN s.likeCount + :delta < 0 THEN 0 " +
+           "ELSE s.likeCount + :delta END WHERE s.id = :id")
+    int addLikeCount(@Param("id") Long id, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE SharedPrompt s SET s.viewCount = s.viewCount + :delta WHERE s.id = :id")
+    int addViewCount(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * 只查询最近点赞时间，不加载提示词正文
+     * @return 分享不存在时为空列表；存在但从未被点赞时为只含一个 null 的列表
+     */
+    @Query("SELECT s.lastLikeTime FROM SharedPrompt s WHERE s.id = :id")
+    List<LocalDateTime> findLastLikeTime(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE SharedPrompt s SET s.lastLikeTime = :time WHERE s.id = :id")
+    int updateLastLikeTime(@Param("id") Long id, @Param("time") LocalDateTime time);
 }
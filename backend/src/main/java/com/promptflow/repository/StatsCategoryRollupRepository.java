@@ -0,0 +1,18 @@
+package com.promptflow.repository;
+
+import com.promptflow.entity.StatsCategoryRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StatsCategoryRollupRepository extends JpaRepository<StatsCategoryRollup, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO stats_category_rollup (category_id, prompt_count, updated_at) VALUES (:categoryId, :delta, NOW()) " +
+           "ON DUPLICATE KEY UPDATE prompt_count = prompt_count + VALUES(prompt_count), updated_at = NOW()",
+           nativeQuery = true)
+    int addCount(@Param("categoryId") Long categoryId, @Param("delta") long delta);
+}
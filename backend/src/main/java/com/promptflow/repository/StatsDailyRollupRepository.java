@@ -0,0 +1,33 @@
+package com.promptflow.repository;
+
+import com.promptflow.entity.StatsDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface StatsDailyRollupRepository extends JpaRepository<StatsDailyRollup, LocalDate> {
+
+    @Modifying
+    @Query(value = "INSERT INTO stats_daily_rollup (stat_date, prompt_count, like_count, input_tokens, output_tokens, rating_sum, rated_count, updated_at) " +
+           "VALUES (:day, :prompts, :likes, :inputTokens, :outputTokens, :ratingSum, :rated, NOW()) " +
+           "ON DUPLICATE KEY UPDATE prompt_count = prompt_count + VALUES(prompt_count), " +
+           "like_count = like_count + VALUES(like_count), " +
+           "input_tokens = input_tokens + VALUES(input_tokens), " +
+           "output_tokens = output_tokens + VALUES(output_tokens), " +
+           "rating_sum = rating_sum + VALUES(rating_sum), " +
+           "rated_count = rated_count + VALUES(rated_count), " +
+           "updated_at = NOW()",
+           nativeQuery = true)
+    int addDeltas(@Param("day") LocalDate day,
+                  @Param("prompts") long prompts,
+                  @Param("likes") long likes,
+                  @Param("inputTokens") long inputTokens,
+                  @Param("outputTokens") long outputTokens,
+                  @Param("ratingSum") double ratingSum,
+                  @Param("rated") long rated);
+}
@@ -0,0 +1,65 @@
+package com.promptflow.repository;
+
+import com.promptflow.entity.TaggingJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TaggingJobRepository extends JpaRepository<TaggingJob, Long> {
+
+    @Query("SELECT j.id FROM TaggingJob j WHERE j.status = 'PENDING' AND j.nextAttemptAt <= :now ORDER BY j.nextAttemptAt, j.id")
+    List<Long> findDueJobIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * 领取任务：仅当仍为 PENDING 时改为 RUNNING 并记录持有者和租约，返回 0 表示已被其他实例领取
+     */
+    @Modifying
+    @Query("UPDATE TaggingJob j SET j.status = 'RUNNING', j.attempts = COALESCE(j.attempts, 0) + 1, " +
+           "j.lockedBy = :owner, j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 本实例持有的任务放回队列等待重试：仅当仍为 RUNNING 且由 owner 持有时更新，返回 0 表示租约已失效
+     */
+    @Modifying
+    @Query("UPDATE TaggingJob j SET j.status = 'PENDING', j.lockedBy = NULL, j.leaseUntil = NULL, " +
+           "j.nextAttemptAt = :nextAttemptAt, j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :owner")
+    int scheduleRetry(@Param("id") Long id, @Param("owner") String owner,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * 本实例持有的任务标记失败：条件同 scheduleRetry，返回 0 表示租约已失效
+     */
+    @Modifying
+    @Query("UPDATE TaggingJob j SET j.status = 'FAILED', j.resultTags = NULL, j.lockedBy = NULL, j.leaseUntil = NULL, " +
+           "j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = 'RUNNING' AND j.lockedBy = :owner")
+    int markFailed(@Param("id") Long id, @Param("owner") String owner,
+                   @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * 把租约已过期的 RUNNING 任务放回队列（持有实例退出或卡死），仍在租约内的任务不受影响
+     */
+    @Modifying
+    @Query("UPDATE TaggingJob j SET j.status = 'PENDING', j.lockedBy = NULL, j.leaseUntil = NULL, " +
+           "j.nextAttemptAt = :now, j.updatedAt = :now " +
+           "WHERE j.status = 'RUNNING' AND (j.leaseUntil IS NULL OR j.leaseUntil < :now)")
+    int requeueExpired(@Param("now") LocalDateTime now);
+
+    Optional<TaggingJob> findTopByPromptIdOrderByIdDesc(Long promptId);
+
+    @Query("SELECT j.status, COUNT(j) FROM TaggingJob j GROUP BY j.status")
+    List<Object[]> countByStatus();
+}
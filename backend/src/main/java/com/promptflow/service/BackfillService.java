@@ -0,0 +1,435 @@
+package com.promptflow.service;
+
+import com.promptflow.dto.ClassificationResult;
+import com.promptflow.entity.BackfillJob;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.repository.BackfillJobRepository;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.util.LeaseOwner;
+import com.promptflow.util.NamedThreads;
+import com.promptflow.util.TextUtil;
+import com.promptflow.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未分类提示词的回填任务
+ * 按 id 升序分块读取（seek 分页），每块拆成若干小片交给固定大小的工作线程池并行分类，上游调用经令牌桶限流；
+ * 每块处理完把检查点（已处理的最大 id）和计数写回 backfill_job 并续租，进程重启后从检查点继续。
+ * 任务先按租约领取再执行（locked_by / lease_until 条件更新），多实例下同一任务只在一个实例上运行，
+ * 租约过期的 RUNNING 任务由任一实例接手；同一时间只运行一个回填任务
+ */
+@Service
+public class BackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+
+    public static final String TYPE_CLASSIFY = "classify";
+
+    private final BackfillJobRepository jobRepository;
+    private final PromptResourceRepository promptResourceRepository;
+    private final PromptClassificationService classificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 并行处理的工作线程数 */
+    @Value("${backfill.workers:4}")
+    private int workers;
+
+    /** 每块读取条数，每块完成后记录一次检查点 */
+    @Value("${backfill.chunk-size:100}")
+    private int chunkSize;
+
+    /** 每个工作线程一次处理的条数 */
+    @Value("${backfill.slice-size:10}")
+    private int sliceSize;
+
+    /** 上游调用限流：每秒令牌数与突发量 */
+    @Value("${backfill.rate-per-second:2}")
+    private double ratePerSecond;
+
+    @Value("${backfill.rate-burst:4}")
+    private int rateBurst;
+
+    /** 任务租约（毫秒），需大于处理一块的最长时间 */
+    @Value("${backfill.lease-ms:600000}")
+    private long leaseMs;
+
+    /** 本实例标识，写入领取的任务 */
+    private final String owner = LeaseOwner.newId();
+
+    private ScheduledExecutorService scanner;
+    private ExecutorService runner;
+    private ExecutorService workerPool;
+    private TokenBucket rateLimiter;
+
+    /** 已提交给 runner 但尚未结束的任务 */
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+    private final Set<Long> cancelRequested = ConcurrentHashMap.newKeySet();
+    /** jobId -> 本进程内的速率统计起点 */
+    private final Map<Long, RateWindow> rateWindows = new ConcurrentHashMap<>();
+
+    private final AtomicLong chunksProcessed = new AtomicLong();
+    private final AtomicLong itemsSucceeded = new AtomicLong();
+    private final AtomicLong itemsFailed = new AtomicLong();
+
+    public BackfillService(BackfillJobRepository jobRepository,
+                           PromptResourceRepository promptResourceRepository,
+                           PromptClassificationService classificationService,
+                           TransactionTemplate transactionTemplate) {
+        this.jobRepository = jobRepository;
+        this.promptResourceRepository = promptResourceRepository;
+        this.classificationService = classificationService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        scanner = Executors.newSingleThreadScheduledExecutor(NamedThreads.daemon("backfill-lease"));
+        runner = Executors.newSingleThreadExecutor(NamedThreads.daemon("backfill-runner"));
+        workerPool = Executors.newFixedThreadPool(workers, NamedThreads.daemon("backfill-worker"));
+        rateLimiter = new TokenBucket(ratePerSecond, rateBurst);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scanner.scheduleWithFixedDelay(this::resume, 0, Math.max(leaseMs / 2, 1000), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 领取无人持有或租约已过期的任务，从检查点继续
+     */
+    public void resume() {
+        try {
+            for (Long jobId : jobRepository.findClaimableIds(LocalDateTime.now())) {
+                if (activeJobs.contains(jobId) || !claim(jobId)) {
+                    continue;
+                }
+                logger.info("回填任务恢复: jobId={}", jobId);
+                submit(jobId);
+            }
+        } catch (Exception e) {
+            logger.error("恢复回填任务失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanner.shutdownNow();
+        List<Long> interrupted = new ArrayList<>(activeJobs);
+        runner.shutdownNow();
+        workerPool.shutdownNow();
+        try {
+            runner.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 被中断的任务保持 RUNNING 并释放租约，由任一实例从检查点立即接手
+        for (Long jobId : interrupted) {
+            try {
+                transactionTemplate.execute(status -> jobRepository.releaseLease(jobId, owner));
+            } catch (Exception e) {
+                logger.warn("释放回填任务租约失败，等待租约过期: jobId={}, error={}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 启动分类回填任务；已有运行中的任务时直接返回该任务
+     * @param maxItems 最多处理条数，为空表示处理全部未分类记录
+     */
+    public synchronized BackfillJob startClassification(Integer maxItems) {
+        Optional<BackfillJob> running = jobRepository.findFirstByJobTypeAndStatusOrderByIdAsc(TYPE_CLASSIFY, BackfillJob.RUNNING);
+        if (running.isPresent()) {
+            return running.get();
+        }
+        long total = promptResourceRepository.countUnTaggedAfter(0L);
+        if (maxItems != null) {
+            total = Math.min(total, maxItems);
+        }
+        BackfillJob job = jobRepository.save(new BackfillJob(TYPE_CLASSIFY, maxItems, total));
+        // 多个实例同时启动时各自插入一条，只保留 id 最小的一条
+        BackfillJob first = jobRepository.findFirstByJobTypeAndStatusOrderByIdAsc(TYPE_CLASSIFY, BackfillJob.RUNNING).orElse(job);
+        if (!first.getId().equals(job.getId())) {
+            transactionTemplate.execute(status -> jobRepository.cancel(job.getId(), LocalDateTime.now()));
+            logger.info("回填任务已在运行，取消重复任务: jobId={}, running={}", job.getId(), first.getId());
+            return first;
+        }
+        logger.info("回填任务启动: jobId={}, total={}", job.getId(), total);
+        if (claim(job.getId())) {
+            submit(job.getId());
+        }
+        return job;
+    }
+
+    /**
+     * 请求取消任务，当前块处理完后停止
+     * @return 任务不存在或已结束时返回 false
+     */
+    public boolean cancel(Long jobId) {
+        if (activeJobs.contains(jobId)) {
+            cancelRequested.add(jobId);
+            return true;
+        }
+        // 不在本进程中运行，直接标记；持有任务的实例下次记录进度时停止
+        Integer cancelled = transactionTemplate.execute(status -> jobRepository.cancel(jobId, LocalDateTime.now()));
+        return cancelled != null && cancelled > 0;
+    }
+
+    public Optional<BackfillJob> getJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * 领取任务，返回 false 表示已被其他实例领取或已结束
+     */
+    private boolean claim(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> jobRepository.claim(jobId, owner, leaseUntil(now), now));
+        return claimed != null && claimed > 0;
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs));
+    }
+
+    private void submit(Long jobId) {
+        if (!activeJobs.add(jobId)) {
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    activeJobs.remove(jobId);
+                    cancelRequested.remove(jobId);
+                    rateWindows.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(jobId);
+        }
+    }
+
+    private void run(Long jobId) {
+        BackfillJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || !BackfillJob.RUNNING.equals(job.getStatus()) || !owner.equals(job.getLockedBy())) {
+            return;
+        }
+        rateWindows.put(jobId, new RateWindow(System.nanoTime(), job.getProcessedItems()));
+        try {
+            while (true) {
+                if (cancelRequested.contains(jobId)) {
+                    finish(job, BackfillJob.CANCELLED, null);
+                    return;
+                }
+                int limit = chunkSize;
+                if (job.getMaxItems() != null) {
+                    limit = (int) Math.min(limit, job.getMaxItems() - job.getProcessedItems());
+                }
+                List<PromptResource> chunk = limit > 0
+                    ? promptResourceRepository.findUnTaggedAfter(job.getCheckpointId(), PageRequest.of(0, limit))
+                    : List.of();
+                if (chunk.isEmpty()) {
+                    finish(job, BackfillJob.COMPLETED, null);
+                    return;
+                }
+                if (!processChunk(job, chunk)) {
+                    logger.info("回填任务租约已失效或已被取消，停止: jobId={}", jobId);
+                    return;
+                }
+            }
+        } catch (InterruptedException | CancellationException e) {
+            Thread.currentThread().interrupt();
+            logger.info("回填任务中断，下次启动继续: jobId={}, checkpoint={}", jobId, job.getCheckpointId());
+        } catch (Exception e) {
+            logger.error("回填任务失败: jobId={}", jobId, e);
+            finish(job, BackfillJob.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 并行处理一块并记录检查点；分类失败的记录保持未分类，留给下一次回填任务
+     * @return 租约已失效或任务已被取消时返回 false
+     */
+    private boolean processChunk(BackfillJob job, List<PromptResource> chunk) throws InterruptedException {
+        List<Callable<SliceResult>> slices = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<PromptResource> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            slices.add(() -> processSlice(slice));
+        }
+
+        long succeeded = 0;
+        long failed = 0;
+        String lastError = null;
+        for (Future<SliceResult> future : workerPool.invokeAll(slices)) {
+            try {
+                SliceResult result = future.get();
+                succeeded += result.succeeded;
+                failed += result.failed;
+                if (result.error != null) {
+                    lastError = result.error;
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CancellationException) {
+                    throw new InterruptedException(cause.getMessage());
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        Long checkpointId = chunk.get(chunk.size() - 1).getId();
+        long processed = job.getProcessedItems() + chunk.size();
+        long totalSucceeded = job.getSucceededItems() + succeeded;
+        long totalFailed = job.getFailedItems() + failed;
+        String error = TextUtil.truncate(lastError != null ? lastError : job.getLastError(), 500);
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> jobRepository.saveProgress(job.getId(), owner,
+            checkpointId, processed, totalSucceeded, totalFailed, error, leaseUntil(now), now));
+        if (updated == null || updated == 0) {
+            return false;
+        }
+        job.setCheckpointId(checkpointId);
+        job.setProcessedItems(processed);
+        job.setSucceededItems(totalSucceeded);
+        job.setFailedItems(totalFailed);
+        job.setLastError(error);
+        job.setUpdatedAt(now);
+
+        chunksProcessed.incrementAndGet();
+        itemsSucceeded.addAndGet(succeeded);
+        itemsFailed.addAndGet(failed);
+        logger.debug("回填进度: jobId={}, checkpoint={}, processed={}/{}",
+            job.getId(), job.getCheckpointId(), job.getProcessedItems(), job.getTotalItems());
+        return true;
+    }
+
+    private SliceResult processSlice(List<PromptResource> slice) {
+        SliceResult result = new SliceResult();
+        Map<Long, ClassificationResult> classified;
+        try {
+            classified = classificationService.classifyForBackfill(slice, rateLimiter);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.warn("回填分类失败: {} 条, error={}", slice.size(), e.getMessage());
+            result.failed = slice.size();
+            result.error = e.getMessage();
+            return result;
+        }
+        for (PromptResource prompt : slice) {
+            try {
+                ClassificationResult classification = classified.get(prompt.getId());
+                if (classification != null && classificationService.applyClassification(prompt.getId(), classification)) {
+                    result.succeeded++;
+                } else {
+                    result.failed++;
+                }
+            } catch (Exception e) {
+                logger.warn("保存回填分类失败: promptId={}, error={}", prompt.getId(), e.getMessage());
+                result.failed++;
+                result.error = e.getMessage();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 结束任务并释放租约；租约已失效或任务已被取消时不覆盖
+     */
+    private void finish(BackfillJob job, String status, String error) {
+        String lastError = TextUtil.truncate(error != null ? error : job.getLastError(), 500);
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(tx -> jobRepository.finish(job.getId(), owner, status, lastError, now));
+        if (updated == null || updated == 0) {
+            logger.info("回填任务租约已失效或已被取消，不再标记结束: jobId={}, status={}", job.getId(), status);
+            return;
+        }
+        job.setStatus(status);
+        job.setLastError(lastError);
+        job.setLockedBy(null);
+        job.setLeaseUntil(null);
+        job.setUpdatedAt(now);
+        job.setFinishedAt(now);
+        logger.info("回填任务结束: jobId={}, status={}, processed={}, succeeded={}, failed={}",
+            job.getId(), status, job.getProcessedItems(), job.getSucceededItems(), job.getFailedItems());
+    }
+
+    // ==================== 进度与指标 ====================
+
+    /**
+     * 任务进度视图，速率按本进程内本次运行统计
+     */
+    public Map<String, Object> toView(BackfillJob job) {
+        long processed = job.getProcessedItems() != null ? job.getProcessedItems() : 0;
+        long total = Math.max(job.getTotalItems() != null ? job.getTotalItems() : 0, processed);
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getId());
+        view.put("type", job.getJobType());
+        view.put("status", job.getStatus());
+        view.put("processed", processed);
+        view.put("succeeded", job.getSucceededItems());
+        view.put("failed", job.getFailedItems());
+        view.put("total", total);
+        view.put("percent", total > 0 ? Math.round(processed * 1000.0 / total) / 10.0 : 100.0);
+        view.put("checkpointId", job.getCheckpointId());
+
+        RateWindow window = rateWindows.get(job.getId());
+        Double itemsPerSecond = null;
+        Long etaSeconds = null;
+        if (window != null && BackfillJob.RUNNING.equals(job.getStatus())) {
+            double elapsed = (System.nanoTime() - window.startNanos) / 1e9;
+            long done = processed - window.processedAtStart;
+            if (elapsed > 0 && done > 0) {
+                itemsPerSecond = Math.round(done / elapsed * 100) / 100.0;
+                etaSeconds = Math.round((total - processed) / (done / elapsed));
+            }
+        }
+        view.put("itemsPerSecond", itemsPerSecond);
+        view.put("etaSeconds", etaSeconds);
+        view.put("error", job.getLastError());
+        view.put("createdAt", job.getCreatedAt());
+        view.put("updatedAt", job.getUpdatedAt());
+        view.put("finishedAt", job.getFinishedAt());
+        return view;
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("workers", workers);
+        metrics.put("activeJobs", new ArrayList<>(activeJobs));
+        metrics.put("chunksProcessed", chunksProcessed.get());
+        metrics.put("itemsSucceeded", itemsSucceeded.get());
+        metrics.put("itemsFailed", itemsFailed.get());
+        metrics.put("availableTokens", rateLimiter.availableTokens());
+        return metrics;
+    }
+
+    private static class SliceResult {
+        long succeeded;
+        long failed;
+        String error;
+    }
+
+    private record RateWindow(long startNanos, long processedAtStart) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.promptflow.service;
+
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.SharedPromptRepository;
+import com.promptflow.util.WriteBehindCounter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 计数写回服务
+ * 点赞、浏览、缓存命中等高频计数先在内存中累加，定期按 id 合并为
+ * 一条 UPDATE col = col + ? 批量落库，避免热点行上的读-改-写和行锁排队。
+ * 丢失上界：进程崩溃时最多丢失一个写回周期内、且不超过 max-pending 次的累加
+ */
+@Service
+public class CounterBufferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CounterBufferService.class);
+
+    private final PromptResourceRepository promptResourceRepository;
+    private final SharedPromptRepository sharedPromptRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StatisticsRollupService statisticsRollupService;
+
+    private final WriteBehindCounter<Long> promptLikes = new WriteBehindCounter<>();
+    private final WriteBehindCounter<String> promptHits = new WriteBehindCounter<>();
+    private final WriteBehindCounter<Long> sharedLikes = new WriteBehindCounter<>();
+    private final WriteBehindCounter<Long> sharedViews = new WriteBehindCounter<>();
+    private final List<WriteBehindCounter<?>> allCounters =
+        List.of(promptLikes, promptHits, sharedLikes, sharedViews);
+
+    /** 累加次数达到该值时立即触发写回，不等下一个周期 */
+    @Value("${counters.max-pending:1000}")
+    private long maxPending;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final AtomicLong flushedDeltas = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    public CounterBufferService(PromptResourceRepository promptResourceRepository,
+                                SharedPromptRepository sharedPromptRepository,
+                                TransactionTemplate transactionTemplate,
+                                StatisticsRollupService statisticsRollupService) {
+        this.promptResourceRepository = promptResourceRepository;
+        this.sharedPromptRepository = sharedPromptRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.statisticsRollupService = statisticsRollupService;
+    }
+
+    // ==================== 累加 ====================
+
+    public void addPromptLike(Long id, int delta) {
+        promptLikes.add(id, delta);
+        checkPending(promptLikes);
+    }
+
+    public void recordPromptHit(String requestHash) {
+        promptHits.add(requestHash, 1);
+        checkPending(promptHits);
+    }
+
+    public void addSharedLike(Long id, int delta) {
+        sharedLikes.add(id, delta);
+        checkPending(sharedLikes);
+    }
+
+    public void recordSharedView(Long id) {
+        sharedViews.add(id, 1);
+        checkPending(sharedViews);
+    }
+
+    // ==================== 读取合并 ====================
+
+    /**
+     * 数据库中的计数加上尚未落库的增量
+     */
+    public int mergePromptLikes(Long id, Integer stored) {
+        return merge(stored, promptLikes.pending(id));
+    }
+
+    public int mergeSharedLikes(Long id, Integer stored) {
+        return merge(stored, sharedLikes.pending(id));
+    }
+
+    public int mergeSharedViews(Long id, Integer stored) {
+        return merge(stored, sharedViews.pending(id));
+    }
+
+    private int merge(Integer stored, long pending) {
+        long value = (stored != null ? stored : 0) + pending;
+        return (int) Math.max(0, value);
+    }
+
+    // ==================== 写回 ====================
+
+    private void checkPending(WriteBehindCounter<?> counter) {
+        if (counter.pendingOps() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::flush);
+        }
+    }
+
+    /**
+     * 批量写回所有计数，单个事务内每个 id 一条 UPDATE；失败时整批放回
+     */
+    @Scheduled(fixedDelayString = "${counters.flush-interval:1000}")
+    public synchronized void flush() {
+        flushRequested.set(false);
+        Map<Long, Long> likes = promptLikes.drain();
+        Map<String, Long> hits = promptHits.drain();
+        Map<Long, Long> shared = sharedLikes.drain();
+        Map<Long, Long> views = sharedViews.drain();
+        if (likes.isEmpty() && hits.isEmpty() && shared.isEmpty() && views.isEmpty()) {
+            allCounters.forEach(WriteBehindCounter::commit);
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                likes.forEach((id, delta) -> promptResourceRepository.addLikeCount(id, delta.intValue()));
+                statisticsRollupService.onLikesFlushed(likes);
+                hits.forEach((hash, delta) -> promptResourceRepository.incrementHitCount(hash, delta.intValue()));
+                shared.forEach((id, delta) -> {
+                    sharedPromptRepository.addLikeCount(id, delta.intValue());
+                    if (delta > 0) {
+                        sharedPromptRepository.updateLastLikeTime(id, now);
+                    }
+                });
+                views.forEach((id, delta) -> sharedPromptRepository.addViewCount(id, delta.intValue()));
+            });
+            allCounters.forEach(WriteBehindCounter::commit);
+            long total = sum(likes) + sum(hits) + sum(shared) + sum(views);
+            flushedDeltas.addAndGet(total);
+            logger.debug("计数写回完成: likes={}, hits={}, sharedLikes={}, views={}",
+                likes.size(), hits.size(), shared.size(), views.size());
+        } catch (Exception e) {
+            allCounters.forEach(WriteBehindCounter::rollback);
+            failedFlushes.incrementAndGet();
+            logger.warn("计数写回失败，下次重试: {}", e.getMessage());
+        }
+    }
+
+    private static long sum(Map<?, Long> batch) {
+        return batch.values().stream().mapToLong(Math::abs).sum();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("bufferedPromptLikes", promptLikes.size());
+        metrics.put("bufferedPromptHits", promptHits.size());
+        metrics.put("bufferedSharedLikes", sharedLikes.size());
+        metrics.put("bufferedSharedViews", sharedViews.size());
+        metrics.put("flushedDeltas", flushedDeltas.get());
+        metrics.put("failedFlushes", failedFlushes.get());
+        return metrics;
+    }
+}
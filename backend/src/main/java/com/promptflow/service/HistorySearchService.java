@@ -0,0 +1,315 @@
+package com.promptflow.service;
+
+import com.promptflow.dto.HistorySummary;
+import com.promptflow.dto.PagedResult;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.service.search.InvertedSearchIndex;
+import com.promptflow.service.search.SearchHighlighter;
+import com.promptflow.service.search.SearchIndex;
+import com.promptflow.util.NamedThreads;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 历史记录检索服务
+ * 启动后在后台从数据库按 id 游标分批构建倒排索引，之后随保存、删除、改分类增量更新；
+ * 索引就绪前检索回退到数据库 LIKE 查询。检索只返回当前页的 id，再按 id 回表加载列表投影
+ */
+@Service
+public class HistorySearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistorySearchService.class);
+
+    /** 相关度检索允许的最大偏移量，更深的翻页没有意义且会放大堆和回表开销 */
+    public static final int MAX_OFFSET = 10000;
+
+    private final PromptResourceRepository promptResourceRepository;
+
+    /** 正文参与索引的最大字符数 */
+    @Value("${search.max-indexed-chars:4000}")
+    private int maxIndexedChars;
+
+    /** 启动时每批加载的记录数 */
+    @Value("${search.bootstrap-batch-size:1000}")
+    private int bootstrapBatchSize;
+
+    /** 高亮摘要长度 */
+    @Value("${search.snippet-length:120}")
+    private int snippetLength;
+
+    private SearchIndex searchIndex;
+    private volatile boolean ready;
+    private volatile boolean bootstrapping;
+
+    /** 构建期间被增量更新过的 id，防止构建线程把读到的旧数据写回索引 */
+    private final Set<Long> touchedDuringBootstrap = new HashSet<>();
+    /** 构建期间变更的分类（可为空），构建线程写入尚未加载的记录时以此为准 */
+    private final Map<Long, Long> categoryChangedDuringBootstrap = new HashMap<>();
+    /** 保护以上两个集合；构建期间的逐条写入与增量更新互斥，避免检查通过后被增量更新插入 */
+    private final Object bootstrapLock = new Object();
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong fallbackSearches = new AtomicLong();
+
+    public HistorySearchService(PromptResourceRepository promptResourceRepository) {
+        this.promptResourceRepository = promptResourceRepository;
+    }
+
+    @PostConstruct
+    public void initIndex() {
+        searchIndex = new InvertedSearchIndex(maxIndexedChars);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBootstrap() {
+        NamedThreads.daemon("search-index-bootstrap").newThread(this::bootstrap).start();
+    }
+
+    void bootstrap() {
+        long start = System.currentTimeMillis();
+        bootstrapping = true;
+        try {
+            long afterId = 0L;
+            while (true) {
+                List<Object[]> rows = promptResourceRepository.findSearchRowsAfter(afterId, PageRequest.of(0, bootstrapBatchSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    synchronized (bootstrapLock) {
+                        if (!touchedDuringBootstrap.contains(id)) {
+                            Long categoryId = categoryChangedDuringBootstrap.containsKey(id)
+                                ? categoryChangedDuringBootstrap.get(id) : (Long) row[2];
+                            searchIndex.index(id, categoryId, (String) row[1], (String) row[3]);
+                        }
+                    }
+                    afterId = id;
+                }
+            }
+            ready = true;
+            logger.info("检索索引构建完成: {} 条，耗时 {}ms", searchIndex.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("检索索引构建失败，检索将继续使用数据库查询", e);
+        } finally {
+            synchronized (bootstrapLock) {
+                bootstrapping = false;
+                touchedDuringBootstrap.clear();
+                categoryChangedDuringBootstrap.clear();
+            }
+        }
+    }
+
+    // ==================== 增量更新（事务提交后生效） ====================
+
+    public void onSaved(PromptResource prompt) {
+        if (prompt.getId() == null) {
+            return;
+        }
+        long id = prompt.getId();
+        Long categoryId = prompt.getCategoryId();
+        String name = prompt.getName();
+        String content = prompt.getGeneratedPrompt();
+        afterCommit(() -> apply(id, () -> searchIndex.index(id, categoryId, name, content)));
+    }
+
+    public void onDeleted(Long id) {
+        afterCommit(() -> apply(id, () -> searchIndex.remove(id)));
+    }
+
+    public void onCategoryChanged(Long id, Long categoryId) {
+        afterCommit(() -> {
+            if (!bootstrapping) {
+                searchIndex.updateCategory(id, categoryId);
+                return;
+            }
+            synchronized (bootstrapLock) {
+                // 只改分类，记录尚未加载时仍需由构建线程写入正文
+                if (bootstrapping) {
+                    categoryChangedDuringBootstrap.put(id, categoryId);
+                }
+                searchIndex.updateCategory(id, categoryId);
+            }
+        });
+    }
+
+    /**
+     * 应用增量更新；构建未完成时记录 id，构建线程随后跳过该记录
+     */
+    private void apply(Long id, Runnable update) {
+        if (!bootstrapping) {
+            update.run();
+            return;
+        }
+        synchronized (bootstrapLock) {
+            if (bootstrapping) {
+                touchedDuringBootstrap.add(id);
+            }
+            update.run();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ==================== 检索 ====================
+
+    /**
+     * 按相关度分页检索
+     * @param categoryId 分类过滤，可为空
+     * @param page 页码，从 1 开始
+     */
+    public PagedResult<HistorySummary> search(String keyword, Long categoryId, int page, int size) {
+        long offset = (Math.max(1L, page) - 1) * size;
+        return searchFrom(keyword, categoryId, (int) Math.min(offset, MAX_OFFSET), size);
+    }
+
+    /**
+     * 从指定偏移量开始检索，供游标分页使用
+     * @param offset 超出 [0, MAX_OFFSET] 时截断
+     */
+    public PagedResult<HistorySummary> searchFrom(String keyword, Long categoryId, int offset, int size) {
+        String query = keyword != null ? keyword.trim() : "";
+        offset = Math.max(0, Math.min(offset, MAX_OFFSET));
+        int page = offset / size + 1;
+        if (query.isEmpty()) {
+            return new PagedResult<>(List.of(), 0, 0, page, size);
+        }
+
+        if (!ready) {
+            fallbackSearches.incrementAndGet();
+            Page<HistorySummary> result = promptResourceRepository.findSummariesByKeyword(
+                categoryId, query, new OffsetPageRequest(offset, size));
+            return new PagedResult<>(result.getContent(), result.getTotalElements(), result.getTotalPages(), page, size);
+        }
+
+        long start = System.nanoTime();
+        SearchIndex.Result result = searchIndex.search(query, categoryId, offset, size);
+        searches.incrementAndGet();
+        searchNanos.addAndGet(System.nanoTime() - start);
+
+        // 回表只加载当前页，并保持相关度顺序
+        List<Long> ids = result.hits().stream().map(SearchIndex.Hit::id).collect(Collectors.toList());
+        Map<Long, HistorySummary> byId = ids.isEmpty() ? Map.of() : promptResourceRepository.findSummariesByIds(ids).stream()
+            .collect(Collectors.toMap(HistorySummary::getId, Function.identity()));
+        List<HistorySummary> list = ids.stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        int totalPages = (int) ((result.total() + size - 1) / size);
+        return new PagedResult<>(list, result.total(), totalPages, page, size);
+    }
+
+    /**
+     * 批量生成一页结果的高亮摘要，正文一次查询读取
+     * @return id -> 高亮摘要
+     */
+    public Map<Long, String> highlights(List<HistorySummary> items, String keyword) {
+        if (items.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, String> contents = new HashMap<>();
+        for (Object[] row : promptResourceRepository.findContentByIds(
+                items.stream().map(HistorySummary::getId).collect(Collectors.toList()))) {
+            contents.put((Long) row[0], (String) row[1]);
+        }
+        Map<Long, String> highlights = new HashMap<>();
+        for (HistorySummary item : items) {
+            highlights.put(item.getId(), highlight(contents.get(item.getId()), item.getName(), keyword));
+        }
+        return highlights;
+    }
+
+    /**
+     * 生成高亮摘要，优先使用正文，正文未命中时使用名称
+     */
+    private String highlight(String content, String name, String keyword) {
+        String snippet = SearchHighlighter.snippet(content, keyword, snippetLength);
+        if (!snippet.contains("<em>") && name != null) {
+            String nameSnippet = SearchHighlighter.snippet(name, keyword, snippetLength);
+            if (nameSnippet.contains("<em>")) {
+                return nameSnippet;
+            }
+        }
+        return snippet;
+    }
+
+    /**
+     * 按任意偏移量取数的分页参数，游标给出的偏移量不一定是页大小的整数倍
+     */
+    private static final class OffsetPageRequest extends PageRequest {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long offset;
+
+        OffsetPageRequest(long offset, int size) {
+            super((int) (offset / size), size, Sort.unsorted());
+            this.offset = offset;
+        }
+
+        @Override
+        public long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof OffsetPageRequest other && other.offset == offset && super.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * super.hashCode() + Long.hashCode(offset);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long count = searches.get();
+        metrics.put("ready", ready);
+        metrics.put("documents", searchIndex.size());
+        if (searchIndex instanceof InvertedSearchIndex inverted) {
+            metrics.put("terms", inverted.termCount());
+        }
+        metrics.put("searches", count);
+        metrics.put("avgSearchMicros", count > 0 ? searchNanos.get() / count / 1000 : 0);
+        metrics.put("fallbackSearches", fallbackSearches.get());
+        return metrics;
+    }
+}
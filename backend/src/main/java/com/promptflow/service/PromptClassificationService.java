@@ -9,6 +9,9 @@ import com.promptflow.entity.PromptTag;
 import com.promptflow.repository.PromptResourceRepository;
 import com.promptflow.repository.PromptCategoryRepository;
 import com.promptflow.repository.PromptTagRepository;
+import com.promptflow.util.KeywordAutomaton;
+import com.promptflow.util.TokenBucket;
+import com.promptflow.util.TokenEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,8 +26,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +52,12 @@ public class PromptClassificationService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+
+    @Autowired
+    private HistorySearchService historySearchService;
+
     @Value("${api.key}")
     private String apiKey;
 
@@ -57,13 +67,47 @@ public class PromptClassificationService {
     @Value("${api.model}")
     private String model;
 
+    /** 批量分类时单次请求最多包含的提示词条数 */
+    @Value("${classification.batch-size:10}")
+    private int llmBatchSize;
+
+    /** 批量分类时单次请求输入的 token 上限（估算值） */
+    @Value("${classification.batch-max-input-tokens:3000}")
+    private int batchMaxInputTokens;
+
+    /** 批量分类时每条结果预留的输出 token 数 */
+    private static final int BATCH_OUTPUT_TOKENS_PER_ITEM = 80;
+
+    /** 批量分类时每条提示词正文截取长度 */
+    private static final int BATCH_EXCERPT_LENGTH = 300;
+
     private final WebClient webClient;
 
+    private final AtomicLong batchRequests = new AtomicLong();
+    private final AtomicLong batchItems = new AtomicLong();
+    private final AtomicLong fallbackItems = new AtomicLong();
+
     // 分类关键词映射（用于快速规则匹配）
     private final Map<Long, List<String>> categoryKeywords = new HashMap<>();
 
+    // 常见技术标签：关键词 -> 标签
+    private static final Map<String, String> TECH_TAGS = Map.of(
+        "python", "Python",
+        "java", "Java",
+        "javascript", "JavaScript",
+        "js", "JavaScript",
+        "sql", "SQL",
+        "ai", "AI",
+        "人工智能", "AI",
+        "excel", "Excel",
+        "ppt", "PPT");
+
+    // 分类关键词与技术标签编译成的自动机，一次扫描同时得到各分类命中数和标签
+    private volatile KeywordAutomaton<RuleKeyword> ruleAutomaton;
+
     // 提示词模板
     private String classificationPromptTemplate;
+    private String batchClassificationPromptTemplate;
     private String fiveTagsPromptTemplate;
 
     public PromptClassificationService() {
@@ -82,6 +126,7 @@ public class PromptClassificationService {
     private void loadPromptTemplates() {
         try {
             classificationPromptTemplate = loadTemplate("prompts/classification_prompt_template.txt");
+            batchClassificationPromptTemplate = loadTemplate("prompts/batch_classification_prompt_template.txt");
             fiveTagsPromptTemplate = loadTemplate("prompts/five_tags_prompt_template.txt");
             logger.info("分类标签提示词模板加载成功");
         } catch (Exception e) {
@@ -160,6 +205,46 @@ public class PromptClassificationService {
             "助手", "帮助", "建议", "意见", "讨论", "交流", "沟通",
             "心理", "情感", "陪伴", "娱乐", "游戏", "剧本"
         ));
+        ruleAutomaton = buildRuleAutomaton(categoryKeywords);
+    }
+
+    static KeywordAutomaton<RuleKeyword> buildRuleAutomaton(Map<Long, List<String>> categoryKeywords) {
+        KeywordAutomaton.Builder<RuleKeyword> builder = KeywordAutomaton.builder();
+        categoryKeywords.forEach((categoryId, keywords) -> builder.addAll(keywords, RuleKeyword.category(categoryId)));
+        TECH_TAGS.forEach((keyword, tag) -> builder.add(keyword, RuleKeyword.tag(tag)));
+        return builder.build();
+    }
+
+    /**
+     * 自动机关键词的关联值：分类关键词或技术标签
+     */
+    record RuleKeyword(Long categoryId, String tag) {
+        static RuleKeyword category(Long categoryId) {
+            return new RuleKeyword(categoryId, null);
+        }
+
+        static RuleKeyword tag(String tag) {
+            return new RuleKeyword(null, tag);
+        }
+    }
+
+    /**
+     * 单次扫描文本的规则匹配结果
+     */
+    record RuleMatches(Map<Long, Integer> scores, List<String> tags) {
+    }
+
+    static RuleMatches matchRules(KeywordAutomaton<RuleKeyword> automaton, CharSequence text) {
+        Map<Long, Integer> scores = new HashMap<>();
+        Set<String> tags = new LinkedHashSet<>();
+        automaton.scan(text, keyword -> {
+            if (keyword.categoryId() != null) {
+                scores.merge(keyword.categoryId(), 1, Integer::sum);
+            } else {
+                tags.add(keyword.tag());
+            }
+        });
+        return new RuleMatches(scores, new ArrayList<>(tags));
     }
 
     /**
@@ -194,23 +279,9 @@ public class PromptClassificationService {
      * 基于规则的快速分类
      */
     public ClassificationResult classifyByRules(PromptResource prompt) {
-        String text = (prompt.getTaskDescription() + " " + prompt.getGeneratedPrompt()).toLowerCase();
-
-        Map<Long, Integer> scores = new HashMap<>();
-
-        for (Map.Entry<Long, List<String>> entry : categoryKeywords.entrySet()) {
-            int score = 0;
-            for (String keyword : entry.getValue()) {
-                Pattern pattern = Pattern.compile("\\b" + keyword + "\\b");
-                Matcher matcher = pattern.matcher(text);
-                while (matcher.find()) {
-                    score++;
-                }
-            }
-            if (score > 0) {
-                scores.put(entry.getKey(), score);
-            }
-        }
+        String text = prompt.getTaskDescription() + " " + prompt.getGeneratedPrompt();
+        RuleMatches matches = matchRules(ruleAutomaton, text);
+        Map<Long, Integer> scores = matches.scores();
 
         if (scores.isEmpty()) {
             return new ClassificationResult(9L, "其他", Collections.emptyList(), 0.0);
@@ -226,8 +297,8 @@ public class PromptClassificationService {
         int totalScore = scores.values().stream().mapToInt(Integer::intValue).sum();
         double confidence = (double) maxScore / totalScore;
 
-        // 提取标签（基于匹配到的关键词）
-        List<String> tags = extractTagsFromText(text);
+        // 标签取自同一次扫描命中的技术关键词
+        List<String> tags = matches.tags();
 
         Optional<PromptCategory> category = categoryRepository.findById(bestCategoryId);
         String categoryName = category.map(PromptCategory::getName).orElse("其他");
@@ -241,39 +312,10 @@ public class PromptClassificationService {
     public ClassificationResult classifyByLLM(PromptResource prompt) {
         try {
             String classificationPrompt = buildClassificationPrompt(prompt);
-
-            // 构建请求体
-            Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "messages", List.of(
-                    Map.of("role", "user", "content", classificationPrompt)
-                ),
-                "temperature", 0.3,
-                "max_tokens", 500
-            );
-
-            // 调用API
-            Mono<Map> responseMono = webClient.post()
-                .uri(baseUrl + "/chat/completions")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(Map.class);
-
-            Map<String, Object> response = responseMono.block();
-
-            if (response != null && response.containsKey("choices")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-                if (!choices.isEmpty()) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    String result = (String) message.get("content");
-
-                    // 解析 JSON 结果
-                    return parseClassificationResult(result);
-                }
+            String result = chatCompletion(classificationPrompt, 0.3, 500);
+            if (result != null) {
+                // 解析 JSON 结果
+                return parseClassificationResult(result);
             }
 
             return new ClassificationResult(9L, "其他", Collections.emptyList(), 0.0);
@@ -285,6 +327,208 @@ public class PromptClassificationService {
         }
     }
 
+    /**
+     * 调用对话补全接口，返回第一条回复内容，没有回复时返回 null
+     */
+    private String chatCompletion(String content, double temperature, int maxTokens) {
+        Map<String, Object> requestBody = Map.of(
+            "model", model,
+            "messages", List.of(
+                Map.of("role", "user", "content", content)
+            ),
+            "temperature", temperature,
+            "max_tokens", maxTokens
+        );
+
+        Mono<Map> responseMono = webClient.post()
+            .uri(baseUrl + "/chat/completions")
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .bodyValue(requestBody)
+            .retrieve()
+            .bodyToMono(Map.class);
+
+        Map<String, Object> response = responseMono.block();
+
+        if (response != null && response.containsKey("choices")) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
+            if (!choices.isEmpty()) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
+                return (String) message.get("content");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 批量 LLM 分类
+     * 按条数和估算 token 数把多条提示词打包进同一次请求，要求返回 {id, categoryId, tags, confidence} 数组；
+     * 整批解析失败或个别条目缺失、分类无效时，对这些条目逐条调用 {@link #classifyByLLM}
+     * @return id -> 分类结果，包含所有输入条目
+     */
+    public Map<Long, ClassificationResult> classifyBatchByLLM(List<PromptResource> prompts) {
+        return classifyBatchByLLM(prompts, null);
+    }
+
+    /**
+     * 批量 LLM 分类，每次上游调用（含逐条回退）前先从限流器取令牌
+     * @param limiter 限流器，为空时不限流
+     */
+    public Map<Long, ClassificationResult> classifyBatchByLLM(List<PromptResource> prompts, TokenBucket limiter) {
+        Map<Long, ClassificationResult> results = new HashMap<>();
+        if (prompts.isEmpty()) {
+            return results;
+        }
+
+        List<PromptCategory> categories = categoryRepository.findByIsSystemTrueOrderBySortOrderAsc();
+        Map<Long, String> categoryNames = new HashMap<>();
+        categories.forEach(c -> categoryNames.put(c.getId(), c.getName()));
+        String categoryList = categories.stream()
+            .map(c -> c.getId() + ". " + c.getName() + " - " + c.getDescription())
+            .collect(Collectors.joining("\n"));
+
+        int baseTokens = TokenEstimator.estimate(
+            replacePlaceholders(batchClassificationPromptTemplate, "categoryList", categoryList, "items", ""));
+        List<List<PromptResource>> batches = packBatches(prompts,
+            p -> TokenEstimator.estimate(formatBatchItem(p)), llmBatchSize, batchMaxInputTokens - baseTokens);
+
+        for (List<PromptResource> batch : batches) {
+            Map<Long, ClassificationResult> parsed = Map.of();
+            if (batch.size() > 1) {
+                String items = batch.stream().map(this::formatBatchItem).collect(Collectors.joining("\n\n"));
+                String request = replacePlaceholders(batchClassificationPromptTemplate,
+                    "categoryList", categoryList, "items", items);
+                try {
+                    acquire(limiter);
+                    batchRequests.incrementAndGet();
+                    String content = chatCompletion(request, 0.3, BATCH_OUTPUT_TOKENS_PER_ITEM * batch.size() + 100);
+                    if (content != null) {
+                        parsed = parseBatchClassificationResult(content, categoryNames, objectMapper);
+                    }
+                } catch (CancellationException e) {
+                    throw e;
+                } catch (Exception e) {
+                    logger.warn("批量分类请求失败，逐条处理 {} 条: {}", batch.size(), e.getMessage());
+                }
+            }
+
+            for (PromptResource prompt : batch) {
+                ClassificationResult result = parsed.get(prompt.getId());
+                if (result != null) {
+                    batchItems.incrementAndGet();
+                } else {
+                    fallbackItems.incrementAndGet();
+                    acquire(limiter);
+                    result = classifyByLLM(prompt);
+                }
+                results.put(prompt.getId(), result);
+            }
+        }
+        logger.info("批量分类完成: {} 条，{} 次批量请求", prompts.size(), batches.size());
+        return results;
+    }
+
+    private static void acquire(TokenBucket limiter) {
+        if (limiter == null) {
+            return;
+        }
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("等待上游限流时被中断");
+        }
+    }
+
+    private String formatBatchItem(PromptResource prompt) {
+        String generatedPrompt = prompt.getGeneratedPrompt() != null
+            ? prompt.getGeneratedPrompt().substring(0, Math.min(BATCH_EXCERPT_LENGTH, prompt.getGeneratedPrompt().length()))
+            : "";
+        StringBuilder sb = new StringBuilder();
+        sb.append("[id=").append(prompt.getId()).append("]\n");
+        if (prompt.getName() != null) {
+            sb.append("名称：").append(prompt.getName()).append("\n");
+        }
+        if (prompt.getTaskDescription() != null) {
+            sb.append("任务描述：").append(prompt.getTaskDescription()).append("\n");
+        }
+        sb.append("提示词：").append(generatedPrompt);
+        return sb.toString();
+    }
+
+    /**
+     * 按条数上限和 token 预算贪心分组，单条超出预算时单独成组
+     */
+    static <T> List<List<T>> packBatches(List<T> items, ToIntFunction<T> cost, int maxItems, int tokenBudget) {
+        List<List<T>> batches = new ArrayList<>();
+        List<T> current = new ArrayList<>();
+        int used = 0;
+        for (T item : items) {
+            int itemCost = cost.applyAsInt(item);
+            if (!current.isEmpty() && (current.size() >= maxItems || used + itemCost > tokenBudget)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                used = 0;
+            }
+            current.add(item);
+            used += itemCost;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * 解析批量分类结果，跳过缺少字段或分类 ID 无效的条目
+     * @return id -> 分类结果；整体无法解析时返回空
+     */
+    static Map<Long, ClassificationResult> parseBatchClassificationResult(String content, Map<Long, String> categoryNames,
+                                                                       ObjectMapper objectMapper) {
+        Map<Long, ClassificationResult> results = new HashMap<>();
+        int start = content.indexOf('[');
+        int end = content.lastIndexOf(']') + 1;
+        if (start < 0 || end <= start) {
+            logger.warn("批量分类结果不是 JSON 数组: {}", content);
+            return results;
+        }
+        try {
+            List<Map<String, Object>> items = objectMapper.readValue(content.substring(start, end),
+                new TypeReference<List<Map<String, Object>>>() {});
+            for (Map<String, Object> item : items) {
+                if (!(item.get("id") instanceof Number id) || !(item.get("categoryId") instanceof Number categoryId)) {
+                    continue;
+                }
+                String categoryName = categoryNames.get(categoryId.longValue());
+                if (categoryName == null) {
+                    continue;
+                }
+                List<String> tags = new ArrayList<>();
+                if (item.get("tags") instanceof List<?> list) {
+                    list.stream().filter(Objects::nonNull).map(String::valueOf).forEach(tags::add);
+                }
+                double confidence = item.get("confidence") instanceof Number c ? c.doubleValue() : 0.0;
+                results.put(id.longValue(), new ClassificationResult(categoryId.longValue(), categoryName, tags, confidence));
+            }
+        } catch (Exception e) {
+            logger.warn("解析批量分类结果失败: {}", content, e);
+        }
+        return results;
+    }
+
+    /**
+     * 批量分类运行时指标
+     */
+    public Map<String, Object> getBatchMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("batchRequests", batchRequests.get());
+        metrics.put("batchItems", batchItems.get());
+        metrics.put("fallbackItems", fallbackItems.get());
+        return metrics;
+    }
+
     /**
      * 构建分类提示词
      */
@@ -336,88 +580,39 @@ public class PromptClassificationService {
     }
 
     /**
-     * 从文本中提取标签
+     * 生成恰好5个AI标签（用于保存时自动打标签）
+     * 使用LLM分析提示词内容，生成5个精准的标签；不访问数据库，不开启事务，避免等待上游时占用连接
      */
-    private List<String> extractTagsFromText(String text) {
-        Set<String> tags = new HashSet<>();
-
-        // 常见技术标签
-        Map<String, String> techTags = new HashMap<>();
-        techTags.put("python", "Python");
-        techTags.put("java", "Java");
-        techTags.put("javascript", "JavaScript");
-        techTags.put("js", "JavaScript");
-        techTags.put("sql", "SQL");
-        techTags.put("ai", "AI");
-        techTags.put("人工智能", "AI");
-        techTags.put("excel", "Excel");
-        techTags.put("ppt", "PPT");
-
-        for (Map.Entry<String, String> entry : techTags.entrySet()) {
-            if (text.contains(entry.getKey())) {
-                tags.add(entry.getValue());
-            }
+    public List<String> generateAiTagsExactly5(PromptResource prompt) {
+        try {
+            return generateFiveTags(prompt);
+        } catch (Exception e) {
+            // 失败时返回空列表
+            logger.warn("LLM生成标签失败，返回空列表: {}", e.getMessage());
+            return Collections.emptyList();
         }
-
-        return new ArrayList<>(tags);
     }
 
     /**
-     * 生成恰好5个AI标签（用于保存时自动打标签）
-     * 使用LLM分析提示词内容，生成5个精准的标签
+     * 生成恰好5个标签，失败时抛出上游异常或说明原因的 IllegalStateException（异步打标签队列据此记录错误）
      */
-    @Transactional
-    public List<String> generateAiTagsExactly5(PromptResource prompt) {
+    public List<String> generateFiveTags(PromptResource prompt) {
         logger.info("开始为提示词生成5个AI标签: {}", prompt.getName());
 
-        try {
-            // 构建专门生成5个标签的提示词
-            String tagPrompt = buildFiveTagsPrompt(prompt);
-
-            Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "messages", List.of(
-                    Map.of("role", "user", "content", tagPrompt)
-                ),
-                "temperature", 0.7,
-                "max_tokens", 300
-            );
-
-            Mono<Map> responseMono = webClient.post()
-                .uri(baseUrl + "/chat/completions")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(Map.class);
-
-            Map<String, Object> response = responseMono.block();
-
-            if (response != null && response.containsKey("choices")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-                if (!choices.isEmpty()) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    String result = (String) message.get("content");
-
-                    // 解析标签列表
-                    List<String> tags = parseFiveTagsResult(result);
-                    if (tags.size() == 5) {
-                        logger.info("成功生成5个标签: {}", tags);
-                        return tags;
-                    }
-                }
-            }
-
-            // 失败时返回空列表
-            logger.warn("LLM生成标签失败，返回空列表");
-            return Collections.emptyList();
+        // 构建专门生成5个标签的提示词
+        String tagPrompt = buildFiveTagsPrompt(prompt);
 
-        } catch (Exception e) {
-            logger.error("生成AI标签异常", e);
-            return Collections.emptyList();
+        String result = chatCompletion(tagPrompt, 0.7, 300);
+        if (result == null) {
+            throw new IllegalStateException("上游未返回内容");
         }
+        // 解析标签列表
+        List<String> tags = parseFiveTagsResult(result);
+        if (tags.size() != 5) {
+            throw new IllegalStateException("标签数量不符: 期望 5 个，解析到 " + tags.size() + " 个");
+        }
+        logger.info("成功生成5个标签: {}", tags);
+        return tags;
     }
 
     /**
@@ -432,12 +627,32 @@ public class PromptClassificationService {
             return;
         }
 
+        attachFiveTags(prompt, tagNames);
+    }
+
+    /**
+     * 把已生成的标签写入提示词（异步打标签队列调用，LLM 调用在事务外完成）
+     * 已关联的标签不重复计数，重试时再次写入不会抬高 usageCount
+     * @return 提示词不存在时返回 false
+     */
+    @Transactional
+    public boolean applyGeneratedTags(Long promptId, List<String> tagNames) {
+        return promptResourceRepository.findById(promptId)
+            .map(prompt -> {
+                attachFiveTags(prompt, tagNames);
+                return true;
+            })
+            .orElse(false);
+    }
+
+    private void attachFiveTags(PromptResource prompt, List<String> tagNames) {
         // 关联标签
         for (String tagName : tagNames) {
             PromptTag tag = getOrCreateTag(tagName);
-            prompt.addTag(tag);
-            tag.incrementUsageCount();
-            tagRepository.save(tag);
+            if (prompt.getTags().add(tag)) {
+                tag.incrementUsageCount();
+                tagRepository.save(tag);
+            }
         }
 
         // 保存标签到JSON字段
@@ -563,10 +778,13 @@ public class PromptClassificationService {
 
     /**
      * 保存分类和标签结果
+     * 已关联的标签不重复计数，回填任务接手过期租约重做一块时不会抬高 usageCount
      */
     @Transactional
     public void saveClassificationResult(PromptResource prompt, ClassificationResult result) {
         // 保存分类
+        statisticsRollupService.onCategoryChanged(prompt.getCategoryId(), result.getCategoryId());
+        historySearchService.onCategoryChanged(prompt.getId(), result.getCategoryId());
         prompt.setCategoryId(result.getCategoryId());
         prompt.setIsAutoTagged(true);
 
@@ -581,9 +799,10 @@ public class PromptClassificationService {
         // 处理标签关联
         for (String tagName : result.getTags()) {
             PromptTag tag = getOrCreateTag(tagName);
-            prompt.addTag(tag);
-            tag.incrementUsageCount();
-            tagRepository.save(tag);
+            if (prompt.getTags().add(tag)) {
+                tag.incrementUsageCount();
+                tagRepository.save(tag);
+            }
         }
 
         promptResourceRepository.save(prompt);
@@ -617,29 +836,40 @@ public class PromptClassificationService {
     }
 
     /**
-     * 批量处理未分类的提示词
+     * 对一组未分类的提示词分类：先按规则匹配，置信度低的合并为批量 LLM 请求，取置信度较高的结果
+     * 只计算不保存，由调用方逐条调用 {@link #applyClassification} 落库
+     * @param limiter 上游限流器，为空时不限流
+     * @return id -> 分类结果
      */
-    @Transactional
-    public void batchClassifyUnTaggedPrompts(int batchSize) {
-        logger.info("开始批量处理未分类提示词，批次大小: {}", batchSize);
-
-        List<PromptResource> unTaggedPrompts = promptResourceRepository.findUnTaggedPrompts();
-
-        int count = 0;
-        for (PromptResource prompt : unTaggedPrompts) {
-            if (count >= batchSize) break;
-
-            try {
-                autoClassifyAndTag(prompt);
-                count++;
-
-                // 避免请求过快
-                Thread.sleep(200);
-            } catch (Exception e) {
-                logger.error("处理提示词分类失败: id={}", prompt.getId(), e);
+    public Map<Long, ClassificationResult> classifyForBackfill(List<PromptResource> prompts, TokenBucket limiter) {
+        Map<Long, ClassificationResult> results = new HashMap<>();
+        List<PromptResource> needLlm = new ArrayList<>();
+        for (PromptResource prompt : prompts) {
+            ClassificationResult ruleResult = classifyByRules(prompt);
+            results.put(prompt.getId(), ruleResult);
+            if (ruleResult.getConfidence() < 0.7) {
+                needLlm.add(prompt);
             }
         }
+        classifyBatchByLLM(needLlm, limiter).forEach((id, llmResult) -> {
+            if (llmResult.getConfidence() > results.get(id).getConfidence()) {
+                results.put(id, llmResult);
+            }
+        });
+        return results;
+    }
 
-        logger.info("批量处理完成，共处理 {} 条提示词", count);
+    /**
+     * 按 id 重新加载提示词并保存分类结果，每条一个短事务
+     * @return 提示词不存在时返回 false
+     */
+    @Transactional
+    public boolean applyClassification(Long promptId, ClassificationResult result) {
+        return promptResourceRepository.findById(promptId)
+            .map(prompt -> {
+                saveClassificationResult(prompt, result);
+                return true;
+            })
+            .orElse(false);
     }
 }
@@ -1,21 +1,38 @@
 package com.promptflow.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.dto.CursorPage;
 import com.promptflow.dto.HistoryQueryRequest;
+import com.promptflow.dto.HistorySummary;
 import com.promptflow.dto.PagedResult;
+import com.promptflow.entity.PromptCategory;
 import com.promptflow.entity.PromptResource;
+import com.promptflow.entity.PromptTag;
+import com.promptflow.entity.TaggingJob;
+import com.promptflow.repository.PromptCategoryRepository;
 import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.PromptTagRepository;
+import com.promptflow.util.JsonUtil;
+import com.promptflow.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,116 +41,139 @@ public class PromptHistoryService {
     @Autowired
     private PromptResourceRepository promptResourceRepository;
 
-    public List<PromptResource> getAllHistory() {
-        return promptResourceRepository.findAllByOrderByCreatedAtDesc();
-    }
+    @Autowired
+    private PromptTagRepository promptTagRepository;
 
-    public List<PromptResource> getRecentHistory(int limit) {
-        List<Object[]> results = promptResourceRepository.findRecentHistorySummary(PageRequest.of(0, limit));
-        return results.stream()
-            .map(this::convertToPromptResource)
-            .collect(Collectors.toList());
-    }
+    @Autowired
+    private PromptCategoryRepository promptCategoryRepository;
 
-    private PromptResource convertToPromptResource(Object[] row) {
-        PromptResource p = new PromptResource();
-        p.setId((Long) row[0]);
-        p.setName((String) row[1]);
-        p.setPromptSummary((String) row[2]);
-        p.setCreatedAt((LocalDateTime) row[3]);
-        p.setHitCount((Integer) row[4]);
-        p.setCategoryId((Long) row[5]);
-        p.setLikeCount((Integer) row[6]);
-        p.setIsAutoTagged((Boolean) row[7]);
-        p.setUsageScenario((String) row[8]);
-        p.setEffectivenessScore((Integer) row[9]);
-        p.setAiTags((String) row[10]);
-        p.setPromptType((String) row[11]);
-        return p;
-    }
+    @Autowired
+    private CounterBufferService counterBufferService;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+
+    @Autowired
+    private HistorySearchService historySearchService;
+
+    @Autowired
+    private TaggingQueueService taggingQueueService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** 导出时每批读取的记录数 */
+    @Value("${history.export-batch-size:500}")
+    private int exportBatchSize;
 
     public Optional<PromptResource> getHistoryById(Long id) {
         return promptResourceRepository.findById(id);
     }
 
+    @Transactional
     public PromptResource saveHistory(PromptResource promptCache) {
-        return promptResourceRepository.save(promptCache);
+        boolean isNew = promptCache.getId() == null;
+        PromptResource saved = promptResourceRepository.save(promptCache);
+        if (isNew) {
+            statisticsRollupService.onPromptCreated(saved);
+        }
+        historySearchService.onSaved(saved);
+        return saved;
+    }
+
+    /**
+     * 保存新提示词并创建打标签任务，同一事务提交：任务写入失败时保存一并回滚
+     * @return 打标签任务，promptId 即保存后的记录 ID
+     */
+    @Transactional
+    public TaggingJob saveWithTagging(PromptResource prompt) {
+        PromptResource saved = saveHistory(prompt);
+        return taggingQueueService.enqueue(saved.getId());
     }
 
     public long getHistoryCount() {
         return promptResourceRepository.count();
     }
 
-    public List<PromptResource> searchHistory(String keyword) {
-        if (keyword == null || keyword.trim().isEmpty()) {
-            return getAllHistory();
-        }
-        return promptResourceRepository.findByNameContaining(keyword.trim());
+    /**
+     * 按相关度分页搜索
+     */
+    public PagedResult<HistorySummary> searchHistory(String keyword, int page, int size) {
+        return historySearchService.search(keyword, null, page, size);
     }
 
-    public PagedResult<PromptResource> getHistoryPage(HistoryQueryRequest request) {
+    public PagedResult<HistorySummary> getHistoryPage(HistoryQueryRequest request) {
         Pageable pageable = PageRequest.of(request.getPage() - 1, request.getSize());
 
         String sortBy = request.getSortBy();
-        Page<PromptResource> page;
+        Page<HistorySummary> page;
 
         if ("likeCount".equals(sortBy)) {
-            page = promptResourceRepository.findAllOrderByLikeCountDesc(pageable);
+            page = promptResourceRepository.findSummariesOrderByLikeCount(pageable);
+        } else if (request.getKeyword() != null && !request.getKeyword().trim().isEmpty()) {
+            // 带关键词时走检索索引，按相关度排序
+            return historySearchService.search(request.getKeyword(), request.getCategoryId(),
+                    request.getPage(), request.getSize());
         } else {
-            page = promptResourceRepository.findByFilters(
-                request.getCategoryId(),
-                request.getKeyword(),
-                request.getSortBy(),
-                pageable
-            );
+            page = request.getCategoryId() != null
+                    ? promptResourceRepository.findSummaryPageByCategoryId(request.getCategoryId(), pageable)
+                    : promptResourceRepository.findSummaryPage(pageable);
         }
 
-        return new PagedResult<>(
-                page.getContent(),
-                page.getTotalElements(),
-                page.getTotalPages(),
-                request.getPage(),
-                request.getSize()
-        );
+        return toPagedResult(page, request.getPage(), request.getSize());
     }
 
-    public List<PromptResource> getHistoryByCategory(Long categoryId) {
-        return promptResourceRepository.findByCategoryIdOrderByCreatedAtDesc(categoryId);
+    public PagedResult<HistorySummary> getTopLikedPromptsPage(int page, int size) {
+        Page<HistorySummary> result = promptResourceRepository.findLikedSummaries(PageRequest.of(page - 1, size));
+        return toPagedResult(result, page, size);
     }
 
-    public PagedResult<PromptResource> getTopLikedPromptsPage(int page, int size) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<PromptResource> result = promptResourceRepository.findByLikeCountGreaterThanZeroOrderByLikeCountDesc(pageable);
+    /**
+     * 批量加载一页记录的标签，整页只查一次
+     * @return promptId -> 标签列表，没有标签的记录不在结果中
+     */
+    public Map<Long, List<PromptTag>> getTagsByPromptIds(Collection<Long> promptIds) {
+        if (promptIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<PromptTag>> tags = new HashMap<>();
+        for (Object[] row : promptTagRepository.findTagsByPromptIds(promptIds)) {
+            tags.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((PromptTag) row[1]);
+        }
+        return tags;
+    }
 
-        return new PagedResult<>(
-                result.getContent(),
-                result.getTotalElements(),
-                result.getTotalPages(),
-                page,
-                size
-        );
+    /**
+     * 批量加载一页记录涉及的分类，整页只查一次
+     */
+    public Map<Long, PromptCategory> getCategoriesByIds(Collection<Long> categoryIds) {
+        List<Long> ids = categoryIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return promptCategoryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(PromptCategory::getId, Function.identity()));
     }
 
-    @Transactional
+    /**
+     * 点赞：只做存在性检查，计数写入内存缓冲后批量落库
+     */
     public boolean likePrompt(Long id) {
-        return promptResourceRepository.findById(id)
-                .map(prompt -> {
-                    Integer currentCount = prompt.getLikeCount();
-                    prompt.setLikeCount(currentCount == null ? 1 : currentCount + 1);
-                    promptResourceRepository.save(prompt);
-                    return true;
-                })
-                .orElse(false);
+        if (!promptResourceRepository.existsById(id)) {
+            return false;
+        }
+        counterBufferService.addPromptLike(id, 1);
+        return true;
     }
 
-    @Transactional
+    /**
+     * 取消点赞：合并未落库增量后仍大于 0 才递减
+     */
     public boolean unlikePrompt(Long id) {
-        return promptResourceRepository.findById(id)
-                .map(prompt -> {
-                    Integer currentCount = prompt.getLikeCount();
-                    if (currentCount != null && currentCount > 0) {
-                        prompt.setLikeCount(currentCount - 1);
-                        promptResourceRepository.save(prompt);
+        return promptResourceRepository.findLikeCountById(id)
+                .map(stored -> {
+                    if (counterBufferService.mergePromptLikes(id, stored) > 0) {
+                        counterBufferService.addPromptLike(id, -1);
                     }
                     return true;
                 })
@@ -144,6 +184,8 @@ public class PromptHistoryService {
     public boolean updateCategory(Long id, Long categoryId) {
         return promptResourceRepository.findById(id)
                 .map(prompt -> {
+                    statisticsRollupService.onCategoryChanged(prompt.getCategoryId(), categoryId);
+                    historySearchService.onCategoryChanged(id, categoryId);
                     prompt.setCategoryId(categoryId);
                     promptResourceRepository.save(prompt);
                     return true;
@@ -153,11 +195,14 @@ public class PromptHistoryService {
 
     @Transactional
     public boolean deleteHistory(Long id) {
-        if (promptResourceRepository.existsById(id)) {
-            promptResourceRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return promptResourceRepository.findById(id)
+                .map(prompt -> {
+                    statisticsRollupService.onPromptDeleted(prompt);
+                    historySearchService.onDeleted(id);
+                    promptResourceRepository.delete(prompt);
+                    return true;
+                })
+                .orElse(false);
     }
 
     @Transactional
@@ -188,6 +233,7 @@ public class PromptHistoryService {
                         double newAvg = (currentAvg * currentCount + rating) / (currentCount + 1);
                         prompt.setAverageRating(newAvg);
                     }
+                    statisticsRollupService.onPromptRated(prompt.getCreatedAt(), currentAvg, prompt.getAverageRating());
 
                     promptResourceRepository.save(prompt);
                     return true;
@@ -195,16 +241,109 @@ public class PromptHistoryService {
                 .orElse(false);
     }
 
-    public PagedResult<PromptResource> getTopRatedPrompts(int page, int size) {
-        Pageable pageable = PageRequest.of(page - 1, size);
-        Page<PromptResource> result = promptResourceRepository.findByAverageRatingIsNotNullOrderByAverageRatingDesc(pageable);
+    public PagedResult<HistorySummary> getTopRatedPrompts(int page, int size) {
+        Page<HistorySummary> result = promptResourceRepository.findRatedSummaries(PageRequest.of(page - 1, size));
+        return toPagedResult(result, page, size);
+    }
+
+    // ==================== 游标分页 ====================
+
+    /**
+     * 按创建时间倒序的游标分页，可按分类过滤
+     */
+    public CursorPage<HistorySummary> getHistoryByCursor(Long categoryId, PageCursor cursor, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<HistorySummary> rows = categoryId != null
+                ? promptResourceRepository.findPageByCategoryIdAndCreatedAt(categoryId, cursor.getCreatedAt(), cursor.getId(), limit)
+                : promptResourceRepository.findPageByCreatedAt(cursor.getCreatedAt(), cursor.getId(), limit);
+        return toCursorPage(rows, size, p -> PageCursor.of(null, p.getCreatedAt(), p.getId()));
+    }
+
+    /**
+     * 按点赞数倒序的游标分页
+     * @param likedOnly 是否只返回点赞数大于 0 的记录
+     */
+    public CursorPage<HistorySummary> getByLikeCountCursor(PageCursor cursor, int size, boolean likedOnly) {
+        int likes = cursor.getSortValue() != null ? cursor.getSortValue().intValue() : Integer.MAX_VALUE;
+        List<HistorySummary> rows = promptResourceRepository.findPageByLikeCount(
+                likedOnly ? 1 : 0, likes, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size + 1));
+        return toCursorPage(rows, size, p -> PageCursor.of(p.getLikeCount().doubleValue(), p.getCreatedAt(), p.getId()));
+    }
+
+    /**
+     * 按平均评分倒序的游标分页
+     */
+    public CursorPage<HistorySummary> getTopRatedByCursor(PageCursor cursor, int size) {
+        double rating = cursor.getSortValue() != null ? cursor.getSortValue() : Double.MAX_VALUE;
+        List<HistorySummary> rows = promptResourceRepository.findPageByAverageRating(
+                rating, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size + 1));
+        return toCursorPage(rows, size, p -> PageCursor.of(p.getAverageRating(), p.getCreatedAt(), p.getId()));
+    }
+
+    /**
+     * 检索结果按相关度排序，没有可 seek 的列，游标中记录的是偏移量
+     */
+    public CursorPage<HistorySummary> searchByCursor(String keyword, Long categoryId, PageCursor cursor, int size) {
+        int offset = cursor.getSortValue() != null ? cursor.getSortValue().intValue() : 0;
+        offset = Math.max(0, Math.min(offset, HistorySearchService.MAX_OFFSET));
+        PagedResult<HistorySummary> result = historySearchService.searchFrom(keyword, categoryId, offset, size);
+        boolean hasMore = offset + size < result.getTotal() && offset + size <= HistorySearchService.MAX_OFFSET;
+        String next = hasMore ? PageCursor.of((double) (offset + size), null, 0).encode() : null;
+        return new CursorPage<>(result.getList(), next, hasMore);
+    }
+
+    // ==================== 导出 ====================
+
+    /**
+     * 以 NDJSON 格式写出历史记录
+     * 按 id 升序分批 seek，只读标量列，每批写完即 flush，不在内存中累积
+     * @return 导出条数
+     */
+    public long exportNdjson(Long categoryId, OutputStream out) throws IOException {
+        long afterId = 0L;
+        long count = 0;
+        while (true) {
+            List<Object[]> rows = promptResourceRepository.findExportRowsAfter(
+                    afterId, categoryId, PageRequest.of(0, exportBatchSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", id);
+                item.put("promptType", row[1]);
+                item.put("name", row[2]);
+                item.put("promptSummary", row[3]);
+                item.put("generatedPrompt", row[4]);
+                item.put("categoryId", row[5]);
+                item.put("aiTags", JsonUtil.parseStringList((String) row[6]));
+                item.put("likeCount", counterBufferService.mergePromptLikes(id, (Integer) row[7]));
+                item.put("viewCount", row[8]);
+                item.put("averageRating", row[9]);
+                item.put("createdAt", row[10]);
+                out.write(objectMapper.writeValueAsBytes(item));
+                out.write('\n');
+                afterId = id;
+                count++;
+            }
+            out.flush();
+        }
+        return count;
+    }
+
+    /**
+     * 查询时多取一行判断是否还有下一页，游标取自本页最后一行
+     */
+    private CursorPage<HistorySummary> toCursorPage(List<HistorySummary> rows, int size,
+                                                    Function<HistorySummary, PageCursor> cursorOf) {
+        boolean hasMore = rows.size() > size;
+        List<HistorySummary> list = hasMore ? rows.subList(0, size) : rows;
+        String next = hasMore ? cursorOf.apply(list.get(list.size() - 1)).encode() : null;
+        return new CursorPage<>(list, next, hasMore);
+    }
 
-        return new PagedResult<>(
-                result.getContent(),
-                result.getTotalElements(),
-                result.getTotalPages(),
-                page,
-                size
-        );
+    private static <T> PagedResult<T> toPagedResult(Page<T> page, int pageNumber, int size) {
+        return new PagedResult<>(page.getContent(), page.getTotalElements(), page.getTotalPages(), pageNumber, size);
     }
 }
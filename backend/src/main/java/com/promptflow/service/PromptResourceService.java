@@ -3,14 +3,21 @@ package com.promptflow.service;
 import com.promptflow.dto.PromptRequest;
 import com.promptflow.entity.PromptResource;
 import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.util.BoundedCache;
 import com.promptflow.util.HashUtil;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Transactional
@@ -24,25 +31,102 @@ public class PromptResourceService {
     @Autowired
     private PromptClassificationService classificationService;
 
+    @Autowired
+    private CounterBufferService counterBufferService;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+
+    @Autowired
+    private HistorySearchService historySearchService;
+
+    /** 进程内缓存最大条目数 */
+    @Value("${cache.response.max-size:10000}")
+    private int maxSize;
+
+    /** 进程内缓存条目存活时间（毫秒） */
+    @Value("${cache.response.ttl:3600000}")
+    private long ttl;
+
+    /** 一级缓存：requestHash → 生成的提示词 */
+    private BoundedCache<String, String> localCache;
+
+    private final AtomicLong dbHits = new AtomicLong();
+
+    @PostConstruct
+    public void initCache() {
+        localCache = new BoundedCache<>(maxSize, ttl);
+    }
+
+    /**
+     * 两级缓存查询：先查进程内缓存，未命中再查数据库并回填
+     * 命中次数只在内存中累加，由 {@link CounterBufferService} 定期批量写回。
+     * 本方法不开启事务，一级缓存命中时不占用数据库连接；未命中时的查询由仓库方法自带的只读事务完成
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public String getCachedPrompt(PromptRequest request) {
         String requestHash = HashUtil.generateRequestHash(request);
-        logger.debug("查找缓存，请求哈希: {}", requestHash);
-
-        Optional<PromptResource> cachedResult = promptResourceRepository.findByRequestHash(requestHash);
 
-        if (cachedResult.isPresent()) {
-            PromptResource cache = cachedResult.get();
-            cache.incrementHitCount();
-            promptResourceRepository.save(cache);
+        String cached = localCache.get(requestHash);
+        if (cached != null) {
+            recordHit(requestHash);
+            logger.debug("一级缓存命中，哈希: {}", requestHash);
+            return cached;
+        }
 
-            logger.info("缓存命中! 哈希: {}, 命中次数: {}", requestHash, cache.getHitCount());
-            return cache.getGeneratedPrompt();
+        Optional<PromptResource> cachedResult = promptResourceRepository.findByRequestHash(requestHash);
+        if (cachedResult.isPresent() && cachedResult.get().getGeneratedPrompt() != null) {
+            String generatedPrompt = cachedResult.get().getGeneratedPrompt();
+            localCache.put(requestHash, generatedPrompt);
+            dbHits.incrementAndGet();
+            recordHit(requestHash);
+            logger.info("缓存命中! 哈希: {}", requestHash);
+            return generatedPrompt;
         }
 
         logger.debug("缓存未命中，哈希: {}", requestHash);
         return null;
     }
 
+    /**
+     * 仅写入进程内缓存，不落库
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void cacheInMemory(PromptRequest request, String generatedPrompt) {
+        if (generatedPrompt != null) {
+            localCache.put(HashUtil.generateRequestHash(request), generatedPrompt);
+        }
+    }
+
+    private void recordHit(String requestHash) {
+        counterBufferService.recordPromptHit(requestHash);
+    }
+
+    /**
+     * 整体命中率（百分比）：一级命中 + 数据库命中 / 总查询次数
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public double getHitRate() {
+        long lookups = localCache.getHits() + localCache.getMisses();
+        if (lookups == 0) {
+            return 0.0;
+        }
+        long hits = localCache.getHits() + dbHits.get();
+        return Math.round(hits * 1000.0 / lookups) / 10.0;
+    }
+
+    /**
+     * 缓存运行时指标
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<String, Object> getCacheMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("local", localCache.stats());
+        metrics.put("dbHits", dbHits.get());
+        metrics.put("hitRate", getHitRate());
+        return metrics;
+    }
+
     public void saveToCache(PromptRequest request, String generatedPrompt) {
         try {
             String requestHash = HashUtil.generateRequestHash(request);
@@ -70,6 +154,9 @@ public class PromptResourceService {
             cache.setHitCount(0);
 
             PromptResource savedCache = promptResourceRepository.save(cache);
+            localCache.put(requestHash, generatedPrompt);
+            statisticsRollupService.onPromptCreated(savedCache);
+            historySearchService.onSaved(savedCache);
             logger.info("成功保存到缓存，哈希: {}", requestHash);
 
             try {
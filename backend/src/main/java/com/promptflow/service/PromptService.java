@@ -13,6 +13,7 @@ import com.promptflow.strategy.pipeline.dto.PipelineRequest;
 import com.promptflow.strategy.prompt.PromptStrategy;
 import com.promptflow.strategy.prompt.PromptStrategyFactory;
 import com.promptflow.strategy.prompt.StrategyContext;
+import com.promptflow.util.HashUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.annotation.PostConstruct;
@@ -25,8 +26,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -46,6 +46,9 @@ public class PromptService {
     private final PromptQualityService qualityService;
     private final PipelineOrchestrator pipelineOrchestrator;
     private final PipelineConfig pipelineConfig;
+    private final StreamExecutionService streamExecutor;
+    private final StreamCoalescingService streamCoalescer;
+    private final PromptResourceService promptResourceService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // 提示词模板缓存
@@ -62,17 +65,27 @@ public class PromptService {
     @Value("${api.max-tokens:4000}")
     private int maxTokens;
 
+    /** 批量质量分析单次最多条数 */
+    @Value("${quality.batch.max-size:200}")
+    private int analyzeBatchMaxSize;
+
     @Autowired
     public PromptService(LLMClient llmClient,
                         PromptStrategyFactory strategyFactory,
                         PromptQualityService qualityService,
                         PipelineOrchestrator pipelineOrchestrator,
-                        PipelineConfig pipelineConfig) {
+                        PipelineConfig pipelineConfig,
+                        StreamExecutionService streamExecutor,
+                        StreamCoalescingService streamCoalescer,
+                        PromptResourceService promptResourceService) {
         this.llmClient = llmClient;
         this.strategyFactory = strategyFactory;
         this.qualityService = qualityService;
         this.pipelineOrchestrator = pipelineOrchestrator;
         this.pipelineConfig = pipelineConfig;
+        this.streamExecutor = streamExecutor;
+        this.streamCoalescer = streamCoalescer;
+        this.promptResourceService = promptResourceService;
         loadPromptTemplates();
     }
 
@@ -124,6 +137,11 @@ public class PromptService {
     public String generatePrompt(PromptRequest request) {
         validateGenerateRequest(request);
 
+        String cached = promptResourceService.getCachedPrompt(request);
+        if (cached != null) {
+            return cached;
+        }
+
         // 使用策略构建请求
         PromptStrategy strategy = strategyFactory.getStrategy("generate");
         StrategyContext context = StrategyContext.builder()
@@ -139,7 +157,9 @@ public class PromptService {
             throw new RuntimeException("生成失败: " + (response.getError() != null ? response.getError().getMessage() : "未知错误"));
         }
 
-        return (String) strategy.parseResponse(response.getContent());
+        String result = (String) strategy.parseResponse(response.getContent());
+        promptResourceService.cacheInMemory(request, result);
+        return result;
     }
 
     /**
@@ -163,10 +183,16 @@ public class PromptService {
                                           boolean saveAfterComplete) {
         validateGenerateRequest(request);
 
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-        ExecutorService executor = Executors.newSingleThreadExecutor();
+        String cached = promptResourceService.getCachedPrompt(request);
+        if (cached != null) {
+            return replayCachedPrompt(cached, onComplete);
+        }
+
+        // 回调与单个调用方绑定，带回调的请求不参与合并
+        String coalesceKey = onComplete == null && onError == null
+            ? "generate:" + HashUtil.generateRequestHash(request) : null;
 
-        executor.execute(() -> {
+        return streamCoalescer.coalesce(coalesceKey, SSE_TIMEOUT, (emitter, cancellation) -> streamExecutor.submit(() -> {
             try {
                 // 使用策略构建请求
                 PromptStrategy strategy = strategyFactory.getStrategy("generate");
@@ -192,23 +218,21 @@ public class PromptService {
                         emitter.complete();
 
                         if (onComplete != null) onComplete.accept(fullContent.toString());
+                        if (saveAfterComplete) {
+                            promptResourceService.saveToCache(request, fullContent.toString());
+                        }
                     },
                     error -> {
                         // 错误
                         handleStreamError(emitter, error, onError);
-                    }
+                    },
+                    cancellation
                 );
 
             } catch (Exception e) {
                 handleStreamError(emitter, e, onError);
             }
-        });
-
-        emitter.onCompletion(executor::shutdown);
-        emitter.onTimeout(executor::shutdown);
-        emitter.onError(e -> executor.shutdown());
-
-        return emitter;
+        }));
     }
     
     /**
@@ -267,6 +291,24 @@ public class PromptService {
         }
         return qualityService.analyze(prompt);
     }
+
+    /**
+     * 批量分析提示词质量，结果与输入顺序一致
+     */
+    public List<AnalyzeResponse> analyzePrompts(List<String> prompts) {
+        if (prompts == null || prompts.isEmpty()) {
+            throw new IllegalArgumentException("提示词列表不能为空");
+        }
+        if (prompts.size() > analyzeBatchMaxSize) {
+            throw new IllegalArgumentException("单次最多分析 " + analyzeBatchMaxSize + " 条提示词");
+        }
+        for (int i = 0; i < prompts.size(); i++) {
+            if (prompts.get(i) == null || prompts.get(i).trim().isEmpty()) {
+                throw new IllegalArgumentException("第 " + (i + 1) + " 条提示词内容为空");
+            }
+        }
+        return qualityService.analyzeBatch(prompts);
+    }
     
     // ========== 私有辅助方法 ==========
     
@@ -288,6 +330,18 @@ public class PromptService {
         }
     }
 
+    /**
+     * 缓存命中时直接以单个事件返回完整内容
+     */
+    private SseEmitter replayCachedPrompt(String cached, Consumer<String> onComplete) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        sendEvent(emitter, "message", cached);
+        sendEvent(emitter, "done", "{\"done\": true}");
+        emitter.complete();
+        if (onComplete != null) onComplete.accept(cached);
+        return emitter;
+    }
+
     private void sendEvent(SseEmitter emitter, String event, String data) {
         try {
             emitter.send(SseEmitter.event()
@@ -299,6 +353,13 @@ public class PromptService {
     }
     
     private void handleStreamError(SseEmitter emitter, Throwable error, Consumer<Throwable> onError) {
+        if (error instanceof CancellationException) {
+            // 客户端已断开，上游调用已中断，无需再推送错误事件
+            logger.info("流式生成已取消: {}", error.getMessage());
+            emitter.complete();
+            if (onError != null) onError.accept(error);
+            return;
+        }
         logger.error("流式处理失败", error);
         try {
             sendEvent(emitter, "error", "{\"error\": \"" + error.getMessage() + "\"}");
@@ -319,7 +380,11 @@ public class PromptService {
         validatePipelineRequest(pipelineReq);
 
         PipelineContext ctx = buildPipelineContext(pipelineReq);
-        return pipelineOrchestrator.executeStream(ctx);
+        return streamCoalescer.coalesce("pipeline:" + HashUtil.generatePipelineRequestHash(pipelineReq),
+            SSE_TIMEOUT, (emitter, cancellation) -> {
+                ctx.setCancellation(cancellation);
+                pipelineOrchestrator.executeStream(ctx, emitter);
+            });
     }
 
     /**
@@ -430,15 +495,15 @@ public class PromptService {
      * 直接流式调用 LLM，绕过策略模式
      */
     private SseEmitter directStreamCall(String prompt, Consumer<String> onComplete, Consumer<Throwable> onError) {
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-        ExecutorService executor = Executors.newSingleThreadExecutor();
+        String coalesceKey = onComplete == null && onError == null
+            ? "direct:" + HashUtil.md5Hex(prompt) : null;
 
         StringBuilder fullContent = new StringBuilder();
         StringBuilder pendingContent = new StringBuilder();
         AtomicBoolean foundPromptStart = new AtomicBoolean(false);
         AtomicInteger lastSentIndex = new AtomicInteger(0);
 
-        executor.execute(() -> {
+        return streamCoalescer.coalesce(coalesceKey, SSE_TIMEOUT, (emitter, cancellation) -> streamExecutor.submit(() -> {
             try {
                 // 直接构建 LLM 请求，不走策略模式
                 LLMRequest llmRequest = LLMRequest.builder()
@@ -524,19 +589,14 @@ public class PromptService {
                     },
                     error -> {
                         handleStreamError(emitter, error, onError);
-                    }
+                    },
+                    cancellation
                 );
 
             } catch (Exception e) {
                 handleStreamError(emitter, e, onError);
             }
-        });
-
-        emitter.onCompletion(executor::shutdown);
-        emitter.onTimeout(executor::shutdown);
-        emitter.onError(e -> executor.shutdown());
-
-        return emitter;
+        }));
     }
 
     private String buildAgentPromptRequest(String name, String roleDescription, String capabilities,
@@ -12,9 +12,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,9 +27,19 @@ public class SharedPromptService {
     private static final long LIKE_COOLDOWN_SECONDS = 60;
 
     private final SharedPromptRepository repository;
+    private final CounterBufferService counterBufferService;
 
-    public SharedPromptService(SharedPromptRepository repository) {
+    /** 超过该条目数时清理已过冷却期的点赞时间 */
+    private static final int PRUNE_THRESHOLD = 1024;
+
+    /** 每个分享最近一次点赞时间（毫秒），用于冷却判断；只需保留冷却期内的条目 */
+    private final Map<Long, Long> lastLikeMillis = new ConcurrentHashMap<>();
+    private final AtomicLong lastPruneMillis = new AtomicLong();
+
+    public SharedPromptService(SharedPromptRepository repository,
+                               CounterBufferService counterBufferService) {
         this.repository = repository;
+        this.counterBufferService = counterBufferService;
     }
 
     @Transactional
@@ -44,14 +58,10 @@ public class SharedPromptService {
         return new PublishResponse(saved.getId(), saved.getDeleteToken());
     }
 
-    @Transactional
     public Optional<SharedPromptResponse> getById(Long id) {
         Optional<SharedPrompt> optional = repository.findById(id);
-        if (optional.isPresent()) {
-            repository.incrementViewCount(id);
-            return optional.map(this::toResponse);
-        }
-        return Optional.empty();
+        optional.ifPresent(prompt -> counterBufferService.recordSharedView(id));
+        return optional.map(this::toResponse);
     }
 
     public Page<SharedPromptResponse> getAll(int page, int size) {
@@ -97,35 +107,59 @@ public class SharedPromptService {
         return true;
     }
 
-    @Transactional
+    /**
+     * 点赞：冷却判断在内存中完成，计数写入缓冲后批量落库
+     * 只查询最近点赞时间判断分享是否存在，不加载整行
+     */
     public boolean like(Long id) {
-        Optional<SharedPrompt> optional = repository.findById(id);
-        if (optional.isEmpty()) {
+        List<LocalDateTime> stored = repository.findLastLikeTime(id);
+        if (stored.isEmpty()) {
             return false;
         }
-        SharedPrompt prompt = optional.get();
 
-        if (prompt.getLastLikeTime() != null) {
-            long secondsSinceLastLike = java.time.Duration.between(
-                    prompt.getLastLikeTime(), LocalDateTime.now()).getSeconds();
-            if (secondsSinceLastLike < LIKE_COOLDOWN_SECONDS) {
-                return false;
+        LocalDateTime storedLastLike = stored.get(0);
+        long storedMillis = storedLastLike != null
+                ? storedLastLike.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+        long now = System.currentTimeMillis();
+        pruneLastLikes(now);
+        boolean[] allowed = {false};
+        lastLikeMillis.compute(id, (key, last) -> {
+            long previous = Math.max(last != null ? last : 0L, storedMillis);
+            if (now - previous < LIKE_COOLDOWN_SECONDS * 1000) {
+                return previous;
             }
+            allowed[0] = true;
+            return now;
+        });
+        if (!allowed[0]) {
+            return false;
         }
 
-        repository.incrementLikeCount(id);
-        prompt.setLastLikeTime(LocalDateTime.now());
-        repository.save(prompt);
+        counterBufferService.addSharedLike(id, 1);
         return true;
     }
 
-    @Transactional
+    /**
+     * 过了冷却期的条目不再影响判断，条目较多时每个冷却期最多清理一次，内存占用以一个冷却期内被点赞的分享数为上限
+     */
+    private void pruneLastLikes(long now) {
+        long cooldownMillis = LIKE_COOLDOWN_SECONDS * 1000;
+        long last = lastPruneMillis.get();
+        if (lastLikeMillis.size() > PRUNE_THRESHOLD && now - last >= cooldownMillis
+                && lastPruneMillis.compareAndSet(last, now)) {
+            lastLikeMillis.values().removeIf(time -> now - time >= cooldownMillis);
+        }
+    }
+
     public boolean unlike(Long id) {
         Optional<SharedPrompt> optional = repository.findById(id);
         if (optional.isEmpty()) {
             return false;
         }
-        repository.decrementLikeCount(id);
+        if (counterBufferService.mergeSharedLikes(id, optional.get().getLikeCount()) > 0) {
+            counterBufferService.addSharedLike(id, -1);
+        }
         return true;
     }
 
@@ -136,8 +170,8 @@ public class SharedPromptService {
         response.setPromptContent(prompt.getPromptContent());
         response.setAuthorNickname(prompt.getAuthorNickname());
         response.setAuthorContact(prompt.getAuthorContact());
-        response.setLikeCount(prompt.getLikeCount());
-        response.setViewCount(prompt.getViewCount());
+        response.setLikeCount(counterBufferService.mergeSharedLikes(prompt.getId(), prompt.getLikeCount()));
+        response.setViewCount(counterBufferService.mergeSharedViews(prompt.getId(), prompt.getViewCount()));
         response.setSourcePromptId(prompt.getSourcePromptId());
         response.setCreatedAt(prompt.getCreatedAt());
         response.setUpdatedAt(prompt.getUpdatedAt());
@@ -0,0 +1,274 @@
+package com.promptflow.service;
+
+import com.promptflow.entity.PromptResource;
+import com.promptflow.entity.StatsCategoryRollup;
+import com.promptflow.entity.StatsDailyRollup;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.StatsCategoryRollupRepository;
+import com.promptflow.repository.StatsDailyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计汇总服务
+ * 在新增、删除、改分类、点赞、评分时增量维护按天和按分类的汇总表，
+ * 统计接口只读这两张小表，不再对 prompt_resource 做全表聚合。
+ * 增量更新与对账并发时可能产生少量偏差，由后台对账任务定期从基表重算纠正
+ */
+@Service
+public class StatisticsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsRollupService.class);
+
+    /** created_at 为空的记录归入该日期，只计入总量，不落入任何近期窗口 */
+    static final LocalDate UNKNOWN_DAY = LocalDate.EPOCH;
+
+    private final PromptResourceRepository promptResourceRepository;
+    private final StatsDailyRollupRepository dailyRollupRepository;
+    private final StatsCategoryRollupRepository categoryRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 汇总数据版本号，每次变更提交后递增，快照据此判断是否需要重建 */
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong reconcileCount = new AtomicLong();
+    private volatile long lastDriftRows;
+    private volatile LocalDateTime lastReconcileAt;
+
+    public StatisticsRollupService(PromptResourceRepository promptResourceRepository,
+                                   StatsDailyRollupRepository dailyRollupRepository,
+                                   StatsCategoryRollupRepository categoryRollupRepository,
+                                   TransactionTemplate transactionTemplate) {
+        this.promptResourceRepository = promptResourceRepository;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.categoryRollupRepository = categoryRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // ==================== 增量事件 ====================
+
+    @Transactional
+    public void onPromptCreated(PromptResource prompt) {
+        applyPrompt(prompt, 1);
+    }
+
+    @Transactional
+    public void onPromptDeleted(PromptResource prompt) {
+        applyPrompt(prompt, -1);
+    }
+
+    @Transactional
+    public void onCategoryChanged(Long oldCategoryId, Long newCategoryId) {
+        if (Objects.equals(oldCategoryId, newCategoryId)) {
+            return;
+        }
+        if (oldCategoryId != null) {
+            categoryRollupRepository.addCount(oldCategoryId, -1);
+        }
+        if (newCategoryId != null) {
+            categoryRollupRepository.addCount(newCategoryId, 1);
+        }
+        bumpVersion();
+    }
+
+    /**
+     * 提示词平均分变化，oldAverage 为空表示首次评分
+     */
+    @Transactional
+    public void onPromptRated(LocalDateTime createdAt, Double oldAverage, double newAverage) {
+        double ratingDelta = newAverage - (oldAverage != null ? oldAverage : 0.0);
+        dailyRollupRepository.addDeltas(dayOf(createdAt), 0, 0, 0, 0, ratingDelta, oldAverage == null ? 1 : 0);
+        bumpVersion();
+    }
+
+    /**
+     * 点赞计数写回时同步汇总，按提示词的创建日期归并后每天一条 upsert
+     */
+    @Transactional
+    public void onLikesFlushed(Map<Long, Long> likeDeltas) {
+        if (likeDeltas.isEmpty()) {
+            return;
+        }
+        Map<LocalDate, Long> byDay = new HashMap<>();
+        for (Object[] row : promptResourceRepository.findCreatedAtByIds(likeDeltas.keySet())) {
+            Long delta = likeDeltas.get((Long) row[0]);
+            if (delta != null && delta != 0) {
+                byDay.merge(dayOf((LocalDateTime) row[1]), delta, Long::sum);
+            }
+        }
+        byDay.forEach((day, delta) -> dailyRollupRepository.addDeltas(day, 0, delta, 0, 0, 0.0, 0));
+        bumpVersion();
+    }
+
+    private void applyPrompt(PromptResource prompt, int sign) {
+        long likes = prompt.getLikeCount() != null ? prompt.getLikeCount() : 0;
+        long inputTokens = prompt.getInputTokens() != null ? prompt.getInputTokens() : 0;
+        long outputTokens = prompt.getOutputTokens() != null ? prompt.getOutputTokens() : 0;
+        Double average = prompt.getAverageRating();
+        dailyRollupRepository.addDeltas(dayOf(prompt.getCreatedAt()), sign, sign * likes,
+            sign * inputTokens, sign * outputTokens,
+            average != null ? sign * average : 0.0, average != null ? sign : 0);
+        if (prompt.getCategoryId() != null) {
+            categoryRollupRepository.addCount(prompt.getCategoryId(), sign);
+        }
+        bumpVersion();
+    }
+
+    private static LocalDate dayOf(LocalDateTime createdAt) {
+        return createdAt != null ? createdAt.toLocalDate() : UNKNOWN_DAY;
+    }
+
+    /**
+     * 事务提交后再递增版本号，避免快照读到未提交前的汇总
+     */
+    private void bumpVersion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // ==================== 读取 ====================
+
+    public List<StatsDailyRollup> getDailyRollups() {
+        return dailyRollupRepository.findAll();
+    }
+
+    public List<StatsCategoryRollup> getCategoryRollups() {
+        return categoryRollupRepository.findAll();
+    }
+
+    // ==================== 对账 ====================
+
+    /**
+     * 从基表全量重算汇总并整表替换，纠正增量维护中的偏差
+     * 启动后先执行一次，为已有数据建立初始汇总
+     */
+    @Scheduled(initialDelayString = "${stats.reconcile-initial-delay:0}",
+               fixedDelayString = "${stats.reconcile-interval:3600000}")
+    public void reconcile() {
+        try {
+            long drift = transactionTemplate.execute(status -> {
+                Map<LocalDate, StatsDailyRollup> daily = new HashMap<>();
+                for (Object[] row : promptResourceRepository.aggregateByDay()) {
+                    StatsDailyRollup rollup = new StatsDailyRollup(toLocalDate(row[0]));
+                    rollup.setPromptCount(toLong(row[1]));
+                    rollup.setLikeCount(toLong(row[2]));
+                    rollup.setInputTokens(toLong(row[3]));
+                    rollup.setOutputTokens(toLong(row[4]));
+                    rollup.setRatingSum(row[5] != null ? ((Number) row[5]).doubleValue() : 0.0);
+                    rollup.setRatedCount(toLong(row[6]));
+                    daily.put(rollup.getStatDate(), rollup);
+                }
+                List<StatsCategoryRollup> categories = new ArrayList<>();
+                for (Object[] row : promptResourceRepository.countByCategory()) {
+                    categories.add(new StatsCategoryRollup((Long) row[0], toLong(row[1])));
+                }
+
+                long changed = countDrift(dailyRollupRepository.findAll(), daily)
+                    + countCategoryDrift(categoryRollupRepository.findAll(), categories);
+
+                dailyRollupRepository.deleteAllInBatch();
+                categoryRollupRepository.deleteAllInBatch();
+                dailyRollupRepository.saveAll(daily.values());
+                categoryRollupRepository.saveAll(categories);
+                return changed;
+            });
+            lastDriftRows = drift;
+            lastReconcileAt = LocalDateTime.now();
+            reconcileCount.incrementAndGet();
+            version.incrementAndGet();
+            if (drift > 0) {
+                logger.info("统计汇总对账完成，修正 {} 行偏差", drift);
+            } else {
+                logger.debug("统计汇总对账完成，无偏差");
+            }
+        } catch (Exception e) {
+            logger.warn("统计汇总对账失败: {}", e.getMessage());
+        }
+    }
+
+    private static long countDrift(List<StatsDailyRollup> current, Map<LocalDate, StatsDailyRollup> expected) {
+        Map<LocalDate, StatsDailyRollup> remaining = new HashMap<>(expected);
+        long drift = 0;
+        for (StatsDailyRollup row : current) {
+            StatsDailyRollup e = remaining.remove(row.getStatDate());
+            if (e == null) {
+                if (row.getPromptCount() != 0 || row.getLikeCount() != 0) {
+                    drift++;
+                }
+            } else if (!Objects.equals(row.getPromptCount(), e.getPromptCount())
+                    || !Objects.equals(row.getLikeCount(), e.getLikeCount())
+                    || !Objects.equals(row.getInputTokens(), e.getInputTokens())
+                    || !Objects.equals(row.getOutputTokens(), e.getOutputTokens())
+                    || !Objects.equals(row.getRatedCount(), e.getRatedCount())
+                    || Math.abs(row.getRatingSum() - e.getRatingSum()) > 1e-6) {
+                drift++;
+            }
+        }
+        return drift + remaining.size();
+    }
+
+    private static long countCategoryDrift(List<StatsCategoryRollup> current, List<StatsCategoryRollup> expected) {
+        Map<Long, Long> remaining = new HashMap<>();
+        expected.forEach(c -> remaining.put(c.getCategoryId(), c.getPromptCount()));
+        long drift = 0;
+        for (StatsCategoryRollup row : current) {
+            Long count = remaining.remove(row.getCategoryId());
+            if (!Objects.equals(count != null ? count : 0L, row.getPromptCount())) {
+                drift++;
+            }
+        }
+        return drift + remaining.size();
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toLocalDate();
+        }
+        return value != null ? LocalDate.parse(String.valueOf(value).substring(0, 10)) : UNKNOWN_DAY;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("version", version.get());
+        metrics.put("reconcileCount", reconcileCount.get());
+        metrics.put("lastDriftRows", lastDriftRows);
+        metrics.put("lastReconcileAt", lastReconcileAt != null ? lastReconcileAt.toString() : null);
+        return metrics;
+    }
+}
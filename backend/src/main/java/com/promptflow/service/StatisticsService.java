@@ -3,70 +3,141 @@ package com.promptflow.service;
 import com.promptflow.dto.UsageStatistics;
 import com.promptflow.entity.PromptResource;
 import com.promptflow.entity.PromptCategory;
+import com.promptflow.entity.StatsCategoryRollup;
+import com.promptflow.entity.StatsDailyRollup;
 import com.promptflow.repository.PromptResourceRepository;
 import com.promptflow.repository.PromptCategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * 使用统计服务
+ * 统计数据由汇总表构建为只读快照，请求直接返回快照；
+ * 汇总版本变化、跨天或超过最长存活时间时由后台任务重建
+ */
 @Service
 public class StatisticsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsService.class);
+
     @Autowired
     private PromptResourceRepository promptResourceRepository;
 
     @Autowired
     private PromptCategoryRepository promptCategoryRepository;
 
+    @Autowired
+    private PromptResourceService promptResourceService;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollupService;
+
+    /** 快照最长存活时间（毫秒），用于刷新榜单和缓存命中率 */
+    @Value("${stats.snapshot-max-age:60000}")
+    private long snapshotMaxAge;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
     /**
      * 获取完整的使用统计数据
      */
     public UsageStatistics getUsageStatistics() {
-        UsageStatistics stats = new UsageStatistics();
+        return currentSnapshot().stats();
+    }
 
-        // 基础统计
-        stats.setTotalPrompts(promptResourceRepository.count());
-        stats.setTodayCount(promptResourceRepository.countToday());
-        stats.setWeekCount(promptResourceRepository.countThisWeek());
-        stats.setMonthCount(promptResourceRepository.countThisMonth());
+    /**
+     * 按需重建快照，供后台定时调用
+     */
+    @Scheduled(fixedDelayString = "${stats.snapshot-refresh-interval:5000}")
+    public void refreshIfStale() {
+        Snapshot current = snapshot.get();
+        if (current == null
+                || current.version() != statisticsRollupService.getVersion()
+                || !current.day().equals(LocalDate.now())
+                || System.currentTimeMillis() - current.builtAt() > snapshotMaxAge) {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.warn("重建统计快照失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot.get();
+        return current != null ? current : rebuild();
+    }
+
+    private synchronized Snapshot rebuild() {
+        long version = statisticsRollupService.getVersion();
+        Snapshot built = new Snapshot(buildStatistics(), version, LocalDate.now(), System.currentTimeMillis());
+        snapshot.set(built);
+        return built;
+    }
+
+    /**
+     * 从汇总表构建统计数据，只有两个榜单仍查询基表（均为 LIMIT 10）
+     */
+    private UsageStatistics buildStatistics() {
+        UsageStatistics stats = new UsageStatistics();
+        List<StatsDailyRollup> daily = statisticsRollupService.getDailyRollups();
 
-        // 总点赞数（处理null）
-        Long totalLikes = promptResourceRepository.sumTotalLikes();
-        stats.setTotalLikes(totalLikes != null ? totalLikes : 0L);
+        // 基础统计（与原口径一致：本周/本月为今天往前 7/30 天起）
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.minusDays(7);
+        LocalDate monthStart = today.minusDays(30);
+        long total = 0, todayCount = 0, weekCount = 0, monthCount = 0;
+        long totalLikes = 0, inputTokens = 0, outputTokens = 0, ratedCount = 0;
+        double ratingSum = 0;
+        for (StatsDailyRollup row : daily) {
+            long count = row.getPromptCount();
+            LocalDate day = row.getStatDate();
+            total += count;
+            if (day.equals(today)) todayCount += count;
+            if (!day.isBefore(weekStart)) weekCount += count;
+            if (!day.isBefore(monthStart)) monthCount += count;
+            totalLikes += row.getLikeCount();
+            inputTokens += row.getInputTokens();
+            outputTokens += row.getOutputTokens();
+            ratingSum += row.getRatingSum();
+            ratedCount += row.getRatedCount();
+        }
+        stats.setTotalPrompts(total);
+        stats.setTodayCount(todayCount);
+        stats.setWeekCount(weekCount);
+        stats.setMonthCount(monthCount);
+        stats.setTotalLikes(Math.max(0, totalLikes));
         stats.setTotalRatings(0L);
 
         // 平均评分
-        Double avgRating = promptResourceRepository.getAverageRating();
-        stats.setAverageRating(avgRating != null ? Math.round(avgRating * 10) / 10.0 : 0.0);
-
-        // 缓存命中率
-        Long totalHits = promptResourceRepository.sumTotalHits();
-        long totalPrompts = promptResourceRepository.count();
-        if (totalHits != null && totalHits > 0 && totalPrompts > 0) {
-            double hitRate = (double) totalHits / (totalPrompts + totalHits) * 100;
-            stats.setCacheHitRate(Math.round(hitRate * 10) / 10.0);
-        } else {
-            stats.setCacheHitRate(0.0);
-        }
+        double avgRating = ratedCount > 0 ? ratingSum / ratedCount : 0.0;
+        stats.setAverageRating(Math.round(avgRating * 10) / 10.0);
+
+        // 缓存命中率（来自两级响应缓存的实时统计）
+        stats.setCacheHitRate(promptResourceService.getHitRate());
 
         // Tokens 统计
-        Long totalInputTokens = promptResourceRepository.sumTotalInputTokens();
-        Long totalOutputTokens = promptResourceRepository.sumTotalOutputTokens();
-        stats.setTotalInputTokens(totalInputTokens != null ? totalInputTokens : 0L);
-        stats.setTotalOutputTokens(totalOutputTokens != null ? totalOutputTokens : 0L);
-        stats.setTotalTokens(stats.getTotalInputTokens() + stats.getTotalOutputTokens());
+        stats.setTotalInputTokens(inputTokens);
+        stats.setTotalOutputTokens(outputTokens);
+        stats.setTotalTokens(inputTokens + outputTokens);
 
         // 分类统计
         stats.setCategoryStats(getCategoryStats());
 
         // 每日趋势（最近30天）
-        stats.setDailyTrends(getDailyTrends(30));
+        stats.setDailyTrends(getDailyTrends(daily, 30));
 
         // 最热提示词（按点赞数）
         List<PromptResource> topPrompts = promptResourceRepository.findByLikeCountGreaterThanZeroOrderByLikeCountDesc(PageRequest.of(0, 10)).getContent();
@@ -83,15 +154,13 @@ public class StatisticsService {
      * 获取分类统计
      */
     private List<UsageStatistics.CategoryStat> getCategoryStats() {
-        List<Object[]> results = promptResourceRepository.countByCategory();
         Map<Long, Long> categoryCountMap = new HashMap<>();
 
         long total = 0;
-        for (Object[] row : results) {
-            Long categoryId = (Long) row[0];
-            Long count = (Long) row[1];
-            categoryCountMap.put(categoryId, count);
-            total += count;
+        for (StatsCategoryRollup row : statisticsRollupService.getCategoryRollups()) {
+            if (row.getPromptCount() <= 0) continue;
+            categoryCountMap.put(row.getCategoryId(), row.getPromptCount());
+            total += row.getPromptCount();
         }
 
         // 获取所有分类
@@ -120,64 +189,24 @@ public class StatisticsService {
     }
 
     /**
-     * 获取每日趋势
+     * 获取每日趋势，缺失的日期补 0
      */
-    private List<UsageStatistics.DailyTrend> getDailyTrends(int days) {
-        // 计算起始日期
-        LocalDateTime startDate = LocalDateTime.now().minusDays(days);
-        List<Object[]> results;
-
-        try {
-            // 尝试使用原生SQL查询
-            results = promptResourceRepository.countByDayWithLikes(startDate);
-        } catch (Exception e) {
-            // 如果失败，使用JPQL查询
-            try {
-                results = promptResourceRepository.countByDayWithLikesJpql(startDate);
-            } catch (Exception ex) {
-                // 如果都失败，返回空数据
-                results = new ArrayList<>();
-            }
-        }
-
-        // 补全缺失的日期
+    private List<UsageStatistics.DailyTrend> getDailyTrends(List<StatsDailyRollup> daily, int days) {
         LocalDate today = LocalDate.now();
-        Map<String, UsageStatistics.DailyTrend> trendMap = new LinkedHashMap<>();
+        Map<LocalDate, StatsDailyRollup> byDay = new HashMap<>();
+        for (StatsDailyRollup row : daily) {
+            byDay.put(row.getStatDate(), row);
+        }
 
-        // 初始化最近N天
+        List<UsageStatistics.DailyTrend> trends = new ArrayList<>(days);
         for (int i = days - 1; i >= 0; i--) {
             LocalDate date = today.minusDays(i);
-            String dateStr = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
-            trendMap.put(dateStr, new UsageStatistics.DailyTrend(dateStr, 0, 0));
+            StatsDailyRollup row = byDay.get(date);
+            long count = row != null ? row.getPromptCount() : 0;
+            long likes = row != null ? Math.max(0, row.getLikeCount()) : 0;
+            trends.add(new UsageStatistics.DailyTrend(date.format(DateTimeFormatter.ISO_LOCAL_DATE), count, likes));
         }
-
-        // 填充数据
-        for (Object[] row : results) {
-            if (row[0] == null) continue;
-            String dateStr = String.valueOf(row[0]);
-            long count = ((Number) row[1]).longValue();
-            long likes = row.length > 2 && row[2] != null ? ((Number) row[2]).longValue() : 0;
-
-            // 处理日期格式 - 支持多种格式
-            // 1. ISO格式: 2026-03-04T16:47:49.190167 -> 2026-03-04
-            if (dateStr.contains("T")) {
-                dateStr = dateStr.substring(0, dateStr.indexOf("T"));
-            }
-            // 2. 带时间格式: 2026-03-04 16:47:49 -> 2026-03-04
-            else if (dateStr.contains(" ")) {
-                dateStr = dateStr.substring(0, dateStr.indexOf(" "));
-            }
-            // 3. yyyyMMdd格式
-            else if (dateStr.length() == 8 && !dateStr.contains("-")) {
-                dateStr = dateStr.substring(0, 4) + "-" + dateStr.substring(4, 6) + "-" + dateStr.substring(6);
-            }
-
-            if (trendMap.containsKey(dateStr)) {
-                trendMap.put(dateStr, new UsageStatistics.DailyTrend(dateStr, count, likes));
-            }
-        }
-
-        return new ArrayList<>(trendMap.values());
+        return trends;
     }
 
     /**
@@ -232,15 +261,17 @@ public class StatisticsService {
      * 获取简化的统计数据（用于首页展示）
      */
     public Map<String, Object> getSimpleStats() {
+        UsageStatistics snapshotStats = currentSnapshot().stats();
         Map<String, Object> stats = new HashMap<>();
 
-        Long totalLikes = promptResourceRepository.sumTotalLikes();
-
-        stats.put("totalPrompts", promptResourceRepository.count());
+        stats.put("totalPrompts", snapshotStats.getTotalPrompts());
         stats.put("todayCount", 0L);
         stats.put("weekCount", 0L);
-        stats.put("totalLikes", totalLikes != null ? totalLikes : 0L);
+        stats.put("totalLikes", snapshotStats.getTotalLikes());
 
         return stats;
     }
+
+    private record Snapshot(UsageStatistics stats, long version, LocalDate day, long builtAt) {
+    }
 }
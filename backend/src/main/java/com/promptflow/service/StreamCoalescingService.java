@@ -0,0 +1,346 @@
+package com.promptflow.service;
+
+import com.promptflow.util.CancellationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 流式请求合并服务（single-flight）
+ * 相同 key 的并发流式请求只向上游发起一次调用，增量事件广播给所有订阅者；
+ * 中途加入的订阅者先回放已产生的事件，再接收后续事件。
+ * 所有订阅者都断开（回调通知或发送失败）后取消上游，生产者通过取消令牌中断进行中的 LLM 调用；
+ * 不参与合并的请求同样经过这一层，以便断开时取消。
+ * 每个订阅者有自己的待发送队列，由 {@link StreamExecutionService#fanoutExecutor()} 按序写出：
+ * 慢客户端只拖慢它自己，不会阻塞生产者和其他订阅者，积压超过 subscriber-backlog 即被断开
+ */
+@Service
+public class StreamCoalescingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamCoalescingService.class);
+
+    @Value("${stream.coalescing-enabled:true}")
+    private boolean enabled;
+
+    /** 单个订阅者允许积压的事件数，超出视为断开 */
+    @Value("${stream.subscriber-backlog:10000}")
+    private int subscriberBacklog;
+
+    private final Map<String, SharedStream> inFlight = new ConcurrentHashMap<>();
+    private final Executor fanout;
+    private final AtomicLong upstreamStarted = new AtomicLong();
+    private final AtomicLong coalescedJoins = new AtomicLong();
+    private final AtomicLong cancelledUpstreams = new AtomicLong();
+
+    public StreamCoalescingService(StreamExecutionService streamExecutor) {
+        this.fanout = streamExecutor.fanoutExecutor();
+    }
+
+    /**
+     * 获取某个 key 的流式响应，已有进行中的相同请求时直接加入
+     * @param key 请求归一化后的哈希
+     * @param timeout 订阅者 SseEmitter 超时时间
+     * @param producer 首个请求的生产逻辑，向传入的 emitter 写事件并在结束时 complete；
+     *                 令牌在所有订阅者断开后取消，生产者应据此停止上游调用
+     * @param key 为 null 时不参与合并
+     * @return 当前调用方的 SseEmitter
+     */
+    public SseEmitter coalesce(String key, long timeout, BiConsumer<SseEmitter, CancellationToken> producer) {
+        SseEmitter subscriber = new SseEmitter(timeout);
+        if (!enabled || key == null) {
+            SharedStream stream = new SharedStream(false, subscriberBacklog, fanout, null);
+            stream.subscribe(subscriber);
+            start(stream, producer);
+            return subscriber;
+        }
+
+        while (true) {
+            SharedStream created = new SharedStream(true, subscriberBacklog, fanout,
+                stream -> inFlight.remove(key, stream));
+            SharedStream existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                created.subscribe(subscriber);
+                upstreamStarted.incrementAndGet();
+                start(created, producer);
+                return subscriber;
+            }
+            if (existing.subscribe(subscriber)) {
+                coalescedJoins.incrementAndGet();
+                logger.info("合并进行中的流式请求: key={}, subscribers={}", key, existing.subscriberCount());
+                return subscriber;
+            }
+            // 已结束但尚未移除，清理后重试
+            inFlight.remove(key, existing);
+        }
+    }
+
+    private void start(SharedStream stream, BiConsumer<SseEmitter, CancellationToken> producer) {
+        stream.cancellation.onCancel(() -> {
+            cancelledUpstreams.incrementAndGet();
+            logger.info("流式请求的订阅者已全部断开，取消上游: {}", stream.cancellation.getReason());
+        });
+        try {
+            producer.accept(stream, stream.cancellation);
+        } catch (RuntimeException e) {
+            // 生产者未能启动（如执行器拒绝），已加入的订阅者一并结束
+            stream.completeWithError(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("upstreamStarted", upstreamStarted.get());
+        metrics.put("coalescedJoins", coalescedJoins.get());
+        metrics.put("cancelledUpstreams", cancelledUpstreams.get());
+        return metrics;
+    }
+
+    /**
+     * 共享的上游流
+     * 生产者把它当作普通 SseEmitter 使用，所有写入都被记录（参与合并时）并放入各订阅者的队列，
+     * 持有监视器时只做入队，实际写出在锁外由分发线程完成
+     */
+    static class SharedStream extends SseEmitter {
+
+        /** 队列中表示正常结束的标记，异常结束时放入对应的 Throwable */
+        private static final Object COMPLETE = new Object();
+
+        private final boolean keepHistory;
+        private final int backlog;
+        private final Executor fanout;
+        private final Consumer<SharedStream> onFinish;
+        private final List<Set<DataWithMediaType>> history = new ArrayList<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private final CancellationToken cancellation = new CancellationToken();
+        private boolean finished;
+
+        /**
+         * @param onFinish 流结束时的回调，可为 null
+         */
+        SharedStream(boolean keepHistory, int backlog, Executor fanout, Consumer<SharedStream> onFinish) {
+            this.keepHistory = keepHistory;
+            this.backlog = backlog;
+            this.fanout = fanout;
+            this.onFinish = onFinish;
+        }
+
+        /**
+         * 加入订阅，回放历史事件
+         * @return 流已结束或已取消时返回 false
+         */
+        boolean subscribe(SseEmitter emitter) {
+            Subscriber subscriber = new Subscriber(emitter);
+            synchronized (this) {
+                if (finished || cancellation.isCancelled()) {
+                    return false;
+                }
+                history.forEach(subscriber::offer);
+                subscribers.add(subscriber);
+            }
+            emitter.onCompletion(() -> unsubscribe(subscriber));
+            emitter.onTimeout(() -> unsubscribe(subscriber));
+            emitter.onError(e -> unsubscribe(subscriber));
+            subscriber.schedule();
+            return true;
+        }
+
+        synchronized int subscriberCount() {
+            return subscribers.size();
+        }
+
+        private void unsubscribe(Subscriber subscriber) {
+            subscriber.closed = true;
+            boolean abandoned;
+            synchronized (this) {
+                abandoned = subscribers.remove(subscriber) && subscribers.isEmpty() && !finished;
+            }
+            if (abandoned) {
+                cancellation.cancel("客户端断开");
+            }
+        }
+
+        /**
+         * SseEmitter.send(SseEventBuilder) 直接调用父类的 send(Set)，不经过下面的重写，需单独转发
+         */
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            send(builder.build());
+        }
+
+        @Override
+        public void send(Object object) throws IOException {
+            send(event().data(object));
+        }
+
+        @Override
+        public void send(Object object, MediaType mediaType) throws IOException {
+            send(event().data(object, mediaType));
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> event) throws IOException {
+            List<Subscriber> targets;
+            List<Subscriber> overflowed = new ArrayList<>();
+            boolean abandoned;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (keepHistory) {
+                    history.add(event);
+                }
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.size.get() >= backlog) {
+                        overflowed.add(subscriber);
+                    } else {
+                        subscriber.offer(event);
+                    }
+                }
+                subscribers.removeAll(overflowed);
+                abandoned = !overflowed.isEmpty() && subscribers.isEmpty();
+                targets = new ArrayList<>(subscribers);
+            }
+            for (Subscriber subscriber : overflowed) {
+                logger.warn("订阅者积压超过 {} 个事件，断开该订阅者", backlog);
+                subscriber.abandon();
+            }
+            if (abandoned) {
+                cancellation.cancel("订阅者积压过多，已断开");
+            }
+            targets.forEach(Subscriber::schedule);
+        }
+
+        @Override
+        public void complete() {
+            finish(COMPLETE);
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            finish(ex);
+        }
+
+        private void finish(Object terminal) {
+            List<Subscriber> targets;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                targets = new ArrayList<>(subscribers);
+                targets.forEach(subscriber -> subscriber.offer(terminal));
+                subscribers.clear();
+                history.clear();
+            }
+            if (onFinish != null) {
+                onFinish.accept(this);
+            }
+            targets.forEach(Subscriber::schedule);
+        }
+
+        /**
+         * 单个订阅者：事件按入队顺序写出，同一时刻最多一个分发任务在写
+         */
+        private final class Subscriber {
+
+            private final SseEmitter emitter;
+            private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+            private final AtomicInteger size = new AtomicInteger();
+            private final AtomicBoolean draining = new AtomicBoolean();
+            private volatile boolean closed;
+
+            Subscriber(SseEmitter emitter) {
+                this.emitter = emitter;
+            }
+
+            void offer(Object item) {
+                pending.offer(item);
+                size.incrementAndGet();
+            }
+
+            /**
+             * 丢弃积压的事件并结束该订阅者；结束由分发线程在当前写入返回后执行，不阻塞调用方
+             */
+            void abandon() {
+                pending.clear();
+                size.set(0);
+                offer(COMPLETE);
+                schedule();
+            }
+
+            void schedule() {
+                if (pending.isEmpty() || draining.get()) {
+                    return;
+                }
+                try {
+                    fanout.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 服务关闭中，在当前线程写出
+                    drain();
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            private void drain() {
+                while (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+                    try {
+                        Object item;
+                        while ((item = pending.poll()) != null) {
+                            size.decrementAndGet();
+                            if (closed) {
+                                continue;
+                            }
+                            if (item == COMPLETE) {
+                                emitter.complete();
+                            } else if (item instanceof Throwable error) {
+                                emitter.completeWithError(error);
+                            } else if (!deliver(emitter, (Set<DataWithMediaType>) item)) {
+                                unsubscribe(this);
+                            }
+                        }
+                    } finally {
+                        draining.set(false);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 向单个订阅者发送事件，订阅者已断开时返回 false
+         */
+        private static boolean deliver(SseEmitter subscriber, Set<DataWithMediaType> event) {
+            try {
+                subscriber.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.promptflow.service;
+
+import com.promptflow.util.NamedThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式任务执行服务
+ * 所有 SSE 接口共享的受控执行器：运行时支持虚拟线程（JDK 21+）时每个任务一个虚拟线程，并发上限为 max-concurrent；
+ * 否则退化为固定大小的平台线程池，并发上限只有 platform-pool-size（默认 200），再加 queue-capacity 个排队，
+ * 超出即拒绝（接口返回 503）。生产镜像使用 JDK 21 运行时，JDK 17 下应按实际并发调大 platform-pool-size。
+ * 另提供向订阅者写出事件的分发执行器：虚拟线程模式下同样每个任务一个虚拟线程，否则为 fanout-pool-size 大小的独立线程池。
+ * 关闭时等待进行中的流结束
+ */
+@Service
+public class StreamExecutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamExecutionService.class);
+
+    /** 最大同时执行的流式任务数 */
+    @Value("${stream.max-concurrent:10000}")
+    private int maxConcurrent;
+
+    /** 达到并发上限后允许排队的任务数 */
+    @Value("${stream.queue-capacity:1000}")
+    private int queueCapacity;
+
+    /** 不支持虚拟线程时的平台线程池大小 */
+    @Value("${stream.platform-pool-size:200}")
+    private int platformPoolSize;
+
+    /** 不支持虚拟线程时，分发事件的平台线程池大小 */
+    @Value("${stream.fanout-pool-size:32}")
+    private int fanoutPoolSize;
+
+    /** 关闭时等待进行中任务结束的最长时间（毫秒） */
+    @Value("${stream.shutdown-timeout:30000}")
+    private long shutdownTimeout;
+
+    private ExecutorService executor;
+    private ExecutorService fanout;
+    private Semaphore permits;
+    private int concurrencyLimit;
+    private boolean virtualThreads;
+    private volatile boolean shuttingDown;
+
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        executor = createVirtualThreadExecutor();
+        virtualThreads = executor != null;
+        if (virtualThreads) {
+            concurrencyLimit = maxConcurrent;
+            fanout = createVirtualThreadExecutor();
+        } else {
+            // 平台线程模式下并发数不能超过线程数，否则许可会在线程池内部排队
+            concurrencyLimit = Math.min(maxConcurrent, platformPoolSize);
+            executor = Executors.newFixedThreadPool(platformPoolSize, NamedThreads.daemon("stream-exec"));
+            fanout = Executors.newFixedThreadPool(fanoutPoolSize, NamedThreads.daemon("stream-fanout"));
+            logger.warn("当前运行时不支持虚拟线程，流式任务并发上限为 {}（stream.platform-pool-size），另可排队 {} 个，超出将拒绝",
+                concurrencyLimit, queueCapacity);
+        }
+        permits = new Semaphore(concurrencyLimit);
+        logger.info("流式执行服务初始化: mode={}, maxConcurrent={}, queueCapacity={}",
+            virtualThreads ? "virtual" : "platform", concurrencyLimit, queueCapacity);
+    }
+
+    /**
+     * 提交流式任务
+     * @throws RejectedExecutionException 并发和排队均已满，或服务正在关闭
+     */
+    public void submit(Runnable task) {
+        if (shuttingDown) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("服务正在关闭，暂不接受新的生成请求");
+        }
+        submitted.incrementAndGet();
+        if (permits.tryAcquire()) {
+            start(task);
+            return;
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("当前生成请求过多，请稍后重试");
+        }
+        waiting.offer(task);
+        // 入队期间可能有任务结束并归还了许可
+        drainWaiting();
+    }
+
+    private void start(Runnable task) {
+        int now = active.incrementAndGet();
+        peakActive.accumulateAndGet(now, Math::max);
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    completed.incrementAndGet();
+                } catch (Throwable t) {
+                    failed.incrementAndGet();
+                    logger.error("流式任务执行异常", t);
+                } finally {
+                    active.decrementAndGet();
+                    permits.release();
+                    drainWaiting();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            active.decrementAndGet();
+            permits.release();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void drainWaiting() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                permits.release();
+                return;
+            }
+            queued.decrementAndGet();
+            start(next);
+        }
+    }
+
+    /**
+     * 向订阅者写出事件的分发执行器
+     * 写出是阻塞的 SseEmitter.send，虚拟线程模式下慢客户端不占用平台线程；平台线程模式下线程数有上限，
+     * 超出的分发任务排队，积压由调用方按订阅者限制
+     */
+    public Executor fanoutExecutor() {
+        return fanout;
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mode", virtualThreads ? "virtual" : "platform");
+        metrics.put("maxConcurrent", concurrencyLimit);
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("active", active.get());
+        metrics.put("peakActive", peakActive.get());
+        metrics.put("queued", queued.get());
+        metrics.put("submitted", submitted.get());
+        metrics.put("completed", completed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("shuttingDown", shuttingDown);
+        return metrics;
+    }
+
+    /**
+     * 优雅关闭：停止接收新任务，等待进行中和排队中的任务完成
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        long deadline = System.currentTimeMillis() + shutdownTimeout;
+        logger.info("流式执行服务关闭中: active={}, queued={}", active.get(), queued.get());
+
+        try {
+            while ((active.get() > 0 || !waiting.isEmpty()) && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            executor.shutdown();
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!executor.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                logger.warn("流式任务未在 {}ms 内结束，强制中断: active={}, queued={}",
+                    shutdownTimeout, active.get(), queued.get());
+                executor.shutdownNow();
+            }
+            // 流结束后把已入队的事件写完
+            fanout.shutdown();
+            remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!fanout.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                fanout.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            fanout.shutdownNow();
+        }
+    }
+
+    /**
+     * JDK 21+ 时创建虚拟线程执行器，低版本运行时返回 null
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.promptflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.entity.TaggingJob;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.TaggingJobRepository;
+import com.promptflow.util.JsonUtil;
+import com.promptflow.util.LeaseOwner;
+import com.promptflow.util.NamedThreads;
+import com.promptflow.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步打标签队列
+ * 保存提示词时只写入一条任务记录即返回；单个调度线程按到期时间领取任务，交给固定大小的工作线程池执行，
+ * 上游调用经令牌桶限流，失败按指数退避重试，超过次数标记失败。任务持久化在 tagging_job 表，
+ * 领取时记录持有实例和租约，租约过期的 RUNNING 任务（实例退出或卡死）由任意实例重新入队。
+ * 写入标签与标记完成在同一事务中提交，重试不会重复打标签。结果可通过状态接口查询或 SSE 订阅推送
+ */
+@Service
+public class TaggingQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaggingQueueService.class);
+
+    private final TaggingJobRepository jobRepository;
+    private final PromptResourceRepository promptResourceRepository;
+    private final PromptClassificationService classificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    /** 工作线程数，即同时进行的上游调用数上限 */
+    @Value("${tagging.workers:2}")
+    private int workers;
+
+    /** 最多执行次数（含首次） */
+    @Value("${tagging.max-attempts:3}")
+    private int maxAttempts;
+
+    /** 首次重试的等待时间（毫秒），之后每次翻倍 */
+    @Value("${tagging.retry-backoff:5000}")
+    private long retryBackoff;
+
+    /** 没有新任务通知时的轮询周期（毫秒），用于拾取到期的重试任务 */
+    @Value("${tagging.poll-interval:2000}")
+    private long pollInterval;
+
+    /** 上游调用限流：每秒令牌数与突发量 */
+    @Value("${tagging.rate-per-second:2}")
+    private double ratePerSecond;
+
+    @Value("${tagging.rate-burst:2}")
+    private int rateBurst;
+
+    /** 任务租约（毫秒），需大于单个任务的最长执行时间 */
+    @Value("${tagging.lease-ms:600000}")
+    private long leaseMs;
+
+    /** SSE 订阅超时（毫秒） */
+    @Value("${tagging.sse-timeout:120000}")
+    private long sseTimeout;
+
+    /** 本实例标识，写入领取的任务 */
+    private final String owner = LeaseOwner.newId();
+
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService workerPool;
+    private TokenBucket rateLimiter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    /** promptId -> 等待结果的 SSE 订阅 */
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public TaggingQueueService(TaggingJobRepository jobRepository,
+                               PromptResourceRepository promptResourceRepository,
+                               PromptClassificationService classificationService,
+                               TransactionTemplate transactionTemplate,
+                               ObjectMapper objectMapper) {
+        this.jobRepository = jobRepository;
+        this.promptResourceRepository = promptResourceRepository;
+        this.classificationService = classificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(NamedThreads.daemon("tagging-dispatcher"));
+        workerPool = Executors.newFixedThreadPool(workers, NamedThreads.daemon("tagging-worker"));
+        rateLimiter = new TokenBucket(ratePerSecond, rateBurst);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        dispatcher.scheduleWithFixedDelay(this::requeueExpired, 0, Math.max(leaseMs / 2, pollInterval), TimeUnit.MILLISECONDS);
+        dispatcher.scheduleWithFixedDelay(this::dispatch, 0, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        workerPool.shutdown();
+        try {
+            // 被中断的任务保持 RUNNING，租约到期后重新入队
+            if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 为提示词创建打标签任务，事务提交后唤醒调度线程
+     */
+    public TaggingJob enqueue(Long promptId) {
+        TaggingJob job = jobRepository.save(new TaggingJob(promptId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+        return job;
+    }
+
+    private void wake() {
+        try {
+            dispatcher.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            // 正在关闭，任务留在表中下次启动处理
+        }
+    }
+
+    /**
+     * 租约过期的任务重新入队，只在调度线程上执行
+     */
+    void requeueExpired() {
+        try {
+            Integer requeued = transactionTemplate.execute(status -> jobRepository.requeueExpired(LocalDateTime.now()));
+            if (requeued != null && requeued > 0) {
+                logger.info("打标签任务恢复: {} 个租约过期的任务重新入队", requeued);
+            }
+        } catch (Exception e) {
+            logger.error("恢复打标签任务失败", e);
+        }
+    }
+
+    /**
+     * 按空闲工作线程数领取到期任务，只在调度线程上执行
+     */
+    void dispatch() {
+        try {
+            int free = workers - inFlight.get();
+            if (free <= 0) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (Long jobId : jobRepository.findDueJobIds(now, PageRequest.of(0, free))) {
+                LocalDateTime leaseUntil = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs));
+                Integer claimed = transactionTemplate.execute(status -> jobRepository.claim(jobId, owner, leaseUntil, now));
+                if (claimed != null && claimed == 1) {
+                    inFlight.incrementAndGet();
+                    workerPool.execute(() -> process(jobId));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+        } catch (Exception e) {
+            logger.error("调度打标签任务失败", e);
+        }
+    }
+
+    void process(Long jobId) {
+        TaggingJob job = null;
+        try {
+            job = jobRepository.findById(jobId).orElse(null);
+            if (job == null) {
+                return;
+            }
+            Optional<PromptResource> prompt = promptResourceRepository.findById(job.getPromptId());
+            if (prompt.isEmpty()) {
+                fail(job, "记录不存在");
+                return;
+            }
+
+            rateLimiter.acquire();
+            List<String> tags = classificationService.generateFiveTags(prompt.get());
+            String resultTags = objectMapper.writeValueAsString(tags);
+            // 写标签与标记完成同一事务提交，失败重试时两者都未生效
+            TaggingJob finished = transactionTemplate.execute(status -> {
+                TaggingJob current = jobRepository.findById(jobId).orElse(null);
+                if (current == null || !TaggingJob.RUNNING.equals(current.getStatus()) || !owner.equals(current.getLockedBy())) {
+                    return null;
+                }
+                if (classificationService.applyGeneratedTags(current.getPromptId(), tags)) {
+                    complete(current, TaggingJob.DONE, resultTags, null);
+                } else {
+                    complete(current, TaggingJob.FAILED, null, "记录不存在");
+                }
+                return current;
+            });
+            if (finished == null) {
+                logger.warn("打标签任务租约已失效，丢弃本次结果: jobId={}", jobId);
+                return;
+            }
+            onFinished(finished);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (job != null) {
+                retryOrFail(job, e);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            wake();
+        }
+    }
+
+    /**
+     * 放回队列重试或标记失败；与 claim 一样以条件 UPDATE 写入，租约已被其他实例接手时不覆盖其状态
+     */
+    private void retryOrFail(TaggingJob job, Exception error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        int attempts = job.getAttempts() != null ? job.getAttempts() : 1;
+        try {
+            if (attempts >= maxAttempts) {
+                logger.warn("打标签任务失败: jobId={}, promptId={}, attempts={}, error={}",
+                    job.getId(), job.getPromptId(), attempts, message);
+                fail(job, message);
+                return;
+            }
+            long delay = retryBackoff << Math.min(attempts - 1, 16);
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime nextAttemptAt = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(delay));
+            Integer updated = transactionTemplate.execute(status ->
+                jobRepository.scheduleRetry(job.getId(), owner, nextAttemptAt, message, now));
+            if (updated == null || updated == 0) {
+                logger.warn("打标签任务租约已失效，不再安排重试: jobId={}", job.getId());
+                return;
+            }
+            retried.incrementAndGet();
+            logger.info("打标签任务将在 {}ms 后重试: jobId={}, attempts={}, error={}", delay, job.getId(), attempts, message);
+        } catch (Exception e) {
+            logger.error("更新打标签任务状态失败: jobId={}", job.getId(), e);
+        }
+    }
+
+    private void fail(TaggingJob job, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> jobRepository.markFailed(job.getId(), owner, error, now));
+        if (updated == null || updated == 0) {
+            logger.warn("打标签任务租约已失效，不再标记失败: jobId={}", job.getId());
+            return;
+        }
+        job.setStatus(TaggingJob.FAILED);
+        job.setResultTags(null);
+        job.setLastError(error);
+        job.setLockedBy(null);
+        job.setLeaseUntil(null);
+        job.setUpdatedAt(now);
+        onFinished(job);
+    }
+
+    private void complete(TaggingJob job, String status, String resultTags, String error) {
+        job.setStatus(status);
+        job.setResultTags(resultTags);
+        job.setLastError(error);
+        job.setLockedBy(null);
+        job.setLeaseUntil(null);
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+    }
+
+    private void onFinished(TaggingJob job) {
+        if (TaggingJob.DONE.equals(job.getStatus())) {
+            succeeded.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        notifySubscribers(job);
+    }
+
+    // ==================== 结果查询与推送 ====================
+
+    public Optional<TaggingJob> getLatestJob(Long promptId) {
+        return jobRepository.findTopByPromptIdOrderByIdDesc(promptId);
+    }
+
+    /**
+     * 订阅提示词的打标签结果：先推送当前状态，任务结束时推送最终状态并关闭连接
+     */
+    public SseEmitter subscribe(Long promptId) {
+        SseEmitter emitter = new SseEmitter(sseTimeout);
+        subscribers.computeIfAbsent(promptId, k -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> unsubscribe(promptId, emitter));
+        emitter.onTimeout(() -> unsubscribe(promptId, emitter));
+
+        Optional<TaggingJob> job = getLatestJob(promptId);
+        if (job.isEmpty() || job.get().isFinished()) {
+            // 已经结束：由订阅方自己推送，避免与完成通知重复
+            if (unsubscribe(promptId, emitter)) {
+                send(emitter, job.map(this::toView).orElseGet(() -> Map.of("promptId", promptId, "status", "NONE")));
+                emitter.complete();
+            }
+        } else {
+            send(emitter, toView(job.get()));
+        }
+        return emitter;
+    }
+
+    private void notifySubscribers(TaggingJob job) {
+        List<SseEmitter> emitters = subscribers.remove(job.getPromptId());
+        if (emitters == null) {
+            return;
+        }
+        Map<String, Object> view = toView(job);
+        for (SseEmitter emitter : emitters) {
+            send(emitter, view);
+            emitter.complete();
+        }
+    }
+
+    private boolean unsubscribe(Long promptId, SseEmitter emitter) {
+        boolean[] removed = {false};
+        subscribers.computeIfPresent(promptId, (k, list) -> {
+            removed[0] = list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+        return removed[0];
+    }
+
+    private void send(SseEmitter emitter, Map<String, Object> view) {
+        try {
+            emitter.send(SseEmitter.event().name("tagging").data(view, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("推送打标签状态失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 任务状态视图
+     */
+    public Map<String, Object> toView(TaggingJob job) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getId());
+        view.put("promptId", job.getPromptId());
+        view.put("status", job.getStatus());
+        view.put("attempts", job.getAttempts());
+        view.put("tags", JsonUtil.parseStringList(job.getResultTags()));
+        view.put("error", job.getLastError());
+        view.put("updatedAt", job.getUpdatedAt());
+        return view;
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        try {
+            for (Object[] row : jobRepository.countByStatus()) {
+                byStatus.put((String) row[0], ((Number) row[1]).longValue());
+            }
+        } catch (Exception e) {
+            logger.debug("统计打标签任务失败: {}", e.getMessage());
+        }
+        metrics.put("workers", workers);
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("jobs", byStatus);
+        metrics.put("succeeded", succeeded.get());
+        metrics.put("failed", failed.get());
+        metrics.put("retried", retried.get());
+        metrics.put("subscribers", subscribers.values().stream().mapToInt(List::size).sum());
+        return metrics;
+    }
+}
@@ -9,28 +9,35 @@ import java.util.List;
  */
 public class ConstraintAnalyzer extends AbstractQualityAnalyzer {
     
+    private static final KeywordGroup[] GROUPS = {
+        // 中文约束关键词
+        new KeywordGroup(new String[]{"不能", "不要", "避免", "禁止"}, 15),
+        new KeywordGroup(new String[]{"必须", "需要", "应该", "务必"}, 10),
+        new KeywordGroup(new String[]{"限制", "约束", "范围", "条件"}, 10),
+        new KeywordGroup(new String[]{"只", "仅", "不超过", "至少", "最多"}, 10),
+        // 英文约束关键词
+        new KeywordGroup(new String[]{"don't", "must not", "avoid", "never"}, 15),
+        new KeywordGroup(new String[]{"must", "should", "need to", "have to"}, 10),
+        new KeywordGroup(new String[]{"limit", "only", "maximum", "minimum", "at most"}, 10)
+    };
+    
     @Override
     public Dimension getDimension() {
         return Dimension.CONSTRAINT;
     }
     
     @Override
-    public int analyze(String prompt) {
-        return calculateKeywordScore(prompt,
-            // 中文约束关键词
-            new KeywordGroup(new String[]{"不能", "不要", "避免", "禁止"}, 15),
-            new KeywordGroup(new String[]{"必须", "需要", "应该", "务必"}, 10),
-            new KeywordGroup(new String[]{"限制", "约束", "范围", "条件"}, 10),
-            new KeywordGroup(new String[]{"只", "仅", "不超过", "至少", "最多"}, 10),
-            // 英文约束关键词
-            new KeywordGroup(new String[]{"don't", "must not", "avoid", "never"}, 15),
-            new KeywordGroup(new String[]{"must", "should", "need to", "have to"}, 10),
-            new KeywordGroup(new String[]{"limit", "only", "maximum", "minimum", "at most"}, 10)
-        );
+    public List<KeywordGroup> keywordGroups() {
+        return List.of(GROUPS);
+    }
+    
+    @Override
+    public int analyze(PromptFeatures features) {
+        return calculateKeywordScore(features, GROUPS);
     }
     
     @Override
-    public void addImprovement(String prompt, int score, List<AnalyzeResponse.Improvement> improvements) {
+    public void addImprovement(PromptFeatures features, int score, List<AnalyzeResponse.Improvement> improvements) {
         if (score < SCORE_THRESHOLD) {
             improvements.add(new AnalyzeResponse.Improvement(
                 "约束条件",
@@ -42,7 +49,7 @@ public class ConstraintAnalyzer extends AbstractQualityAnalyzer {
     }
     
     @Override
-    public void addStrength(String prompt, int score, List<String> strengths) {
+    public void addStrength(PromptFeatures features, int score, List<String> strengths) {
         if (score >= STRENGTH_THRESHOLD) {
             strengths.add("✅ 包含约束条件");
         }
@@ -0,0 +1,41 @@
+package com.promptflow.service.quality;
+
+/**
+ * 增量质量评分器
+ * 流式生成时逐块追加文本，只处理新增部分（O(块长)），随时可取当前的本地评分；
+ * 追加完整文本后的评分与 {@link PromptQualityService#evaluate(String)} 一致。非线程安全，每个流一个实例
+ */
+public class IncrementalQualityScorer {
+
+    private final PromptQualityService qualityService;
+    private final PromptFeatures.Accumulator accumulator;
+
+    IncrementalQualityScorer(PromptQualityService qualityService, PromptFeatures.Accumulator accumulator) {
+        this.qualityService = qualityService;
+        this.accumulator = accumulator;
+    }
+
+    public void append(CharSequence chunk) {
+        if (chunk != null && chunk.length() > 0) {
+            accumulator.append(chunk);
+        }
+    }
+
+    /**
+     * 已追加的字符数
+     */
+    public int length() {
+        return accumulator.length();
+    }
+
+    public PromptFeatures features() {
+        return accumulator.snapshot();
+    }
+
+    /**
+     * 当前文本的评分（0-100），空文本为 0
+     */
+    public int score() {
+        return qualityService.evaluate(accumulator.snapshot());
+    }
+}
@@ -9,27 +9,34 @@ import java.util.List;
  */
 public class OutputFormatAnalyzer extends AbstractQualityAnalyzer {
     
+    private static final KeywordGroup[] GROUPS = {
+        // 中文格式关键词
+        new KeywordGroup(new String[]{"格式", "输出", "返回"}, 15),
+        new KeywordGroup(new String[]{"json", "markdown", "md", "xml", "yaml", "表格", "列表"}, 15),
+        new KeywordGroup(new String[]{"包含", "包括", "字段", "属性", "键"}, 10),
+        // 英文格式关键词
+        new KeywordGroup(new String[]{"format", "output", "return"}, 15),
+        new KeywordGroup(new String[]{"json", "markdown", "md", "xml", "yaml"}, 15),
+        new KeywordGroup(new String[]{"list", "table", "array", "include"}, 10)
+    };
+    
     @Override
     public Dimension getDimension() {
         return Dimension.OUTPUT_FORMAT;
     }
     
     @Override
-    public int analyze(String prompt) {
-        return calculateKeywordScore(prompt,
-            // 中文格式关键词
-            new KeywordGroup(new String[]{"格式", "输出", "返回"}, 15),
-            new KeywordGroup(new String[]{"json", "markdown", "md", "xml", "yaml", "表格", "列表"}, 15),
-            new KeywordGroup(new String[]{"包含", "包括", "字段", "属性", "键"}, 10),
-            // 英文格式关键词
-            new KeywordGroup(new String[]{"format", "output", "return"}, 15),
-            new KeywordGroup(new String[]{"json", "markdown", "md", "xml", "yaml"}, 15),
-            new KeywordGroup(new String[]{"list", "table", "array", "include"}, 10)
-        );
+    public List<KeywordGroup> keywordGroups() {
+        return List.of(GROUPS);
+    }
+    
+    @Override
+    public int analyze(PromptFeatures features) {
+        return calculateKeywordScore(features, GROUPS);
     }
     
     @Override
-    public void addImprovement(String prompt, int score, List<AnalyzeResponse.Improvement> improvements) {
+    public void addImprovement(PromptFeatures features, int score, List<AnalyzeResponse.Improvement> improvements) {
         if (score < SCORE_THRESHOLD) {
             improvements.add(new AnalyzeResponse.Improvement(
                 "输出格式",
@@ -41,7 +48,7 @@ public class OutputFormatAnalyzer extends AbstractQualityAnalyzer {
     }
     
     @Override
-    public void addStrength(String prompt, int score, List<String> strengths) {
+    public void addStrength(PromptFeatures features, int score, List<String> strengths) {
         if (score >= STRENGTH_THRESHOLD) {
             strengths.add("✅ 输出格式规范");
         }
@@ -0,0 +1,125 @@
+package com.promptflow.service.quality;
+
+import com.promptflow.util.KeywordAutomaton;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 提示词特征
+ * 每个提示词只提取一次，各维度分析器都基于它打分：关键词组命中由共享自动机一次扫描得到，
+ * 长度、行数、段落分隔和编号列表由一次逐字符遍历得到，整体为线性时间，不复制文本；
+ * 流式生成时由 {@link Accumulator} 按块增量更新
+ */
+public final class PromptFeatures {
+
+    private final int length;
+    private final int lineCount;
+    private final int paragraphBreaks;
+    private final int numberedItems;
+    private final boolean blank;
+    private final Set<QualityAnalyzer.KeywordGroup> matchedGroups;
+
+    private PromptFeatures(int length, int lineCount, int paragraphBreaks, int numberedItems, boolean blank,
+                           Set<QualityAnalyzer.KeywordGroup> matchedGroups) {
+        this.length = length;
+        this.lineCount = lineCount;
+        this.paragraphBreaks = paragraphBreaks;
+        this.numberedItems = numberedItems;
+        this.blank = blank;
+        this.matchedGroups = matchedGroups;
+    }
+
+    /**
+     * 提取特征
+     * @param automaton 所有分析器关键词组编译成的自动机（不区分大小写，按子串匹配）
+     */
+    static PromptFeatures extract(String prompt, KeywordAutomaton<QualityAnalyzer.KeywordGroup> automaton) {
+        Accumulator accumulator = new Accumulator(automaton);
+        accumulator.append(prompt);
+        return accumulator.snapshot();
+    }
+
+    /**
+     * 特征累加器：文本分块追加时只处理新增部分，随时可取当前特征快照。非线程安全
+     */
+    static final class Accumulator {
+
+        private final KeywordAutomaton<QualityAnalyzer.KeywordGroup>.Matcher matcher;
+        private final Set<QualityAnalyzer.KeywordGroup> matched = new HashSet<>();
+        private int length;
+        private int newlines;
+        private int paragraphBreaks;
+        private int numberedItems;
+        private boolean blank = true;
+        private char prev;
+
+        Accumulator(KeywordAutomaton<QualityAnalyzer.KeywordGroup> automaton) {
+            this.matcher = automaton.matcher();
+        }
+
+        void append(CharSequence chunk) {
+            matcher.feed(chunk, matched::add);
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                if (c == '\n') {
+                    newlines++;
+                    // 空行或以句号结尾的行视为段落分隔
+                    if (prev == '\n' || prev == '。') {
+                        paragraphBreaks++;
+                    }
+                } else if ((c == '.' || c == '、') && prev >= '0' && prev <= '9') {
+                    // 数字后跟 . 或 、 视为编号
+                    numberedItems++;
+                }
+                if (c > ' ') {
+                    // 与 String.trim() 的空白判断一致
+                    blank = false;
+                }
+                prev = c;
+            }
+            length += chunk.length();
+        }
+
+        int length() {
+            return length;
+        }
+
+        /**
+         * 以当前已追加的文本为完整文本计算特征
+         */
+        PromptFeatures snapshot() {
+            Set<QualityAnalyzer.KeywordGroup> groups = new HashSet<>(matched);
+            matcher.forEachPending(groups::add);
+            int lines = length > 0 ? newlines + 1 : 0;
+            return new PromptFeatures(length, lines, paragraphBreaks, numberedItems, blank, groups);
+        }
+    }
+
+    public boolean matches(QualityAnalyzer.KeywordGroup group) {
+        return matchedGroups.contains(group);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int paragraphBreaks() {
+        return paragraphBreaks;
+    }
+
+    public int numberedItems() {
+        return numberedItems;
+    }
+
+    /**
+     * 是否为空或只含空白
+     */
+    public boolean isBlank() {
+        return blank;
+    }
+}
@@ -1,22 +1,54 @@
 package com.promptflow.service.quality;
 
 import com.promptflow.dto.AnalyzeResponse;
+import com.promptflow.util.BoundedCache;
+import com.promptflow.util.KeywordAutomaton;
+import com.promptflow.util.Murmur3;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 提示词质量评估服务
- * 基于规则引擎评估提示词质量
+ * 基于规则引擎评估提示词质量；评估结果只取决于文本内容，按内容的 128 位哈希缓存
  */
 @Service
 public class PromptQualityService {
     
     private final List<QualityAnalyzer> analyzers;
     
+    // 所有分析器的关键词组编译成一个自动机，每个提示词只扫描一次
+    private final KeywordAutomaton<QualityAnalyzer.KeywordGroup> keywordAutomaton;
+    
+    // 内容哈希 -> 分析结果，evaluate 的评分也由它推导
+    private final BoundedCache<Murmur3.Hash128, AnalyzeResponse> analysisCache;
+    
+    // 批量分析使用的并行池
+    private final ForkJoinPool batchPool;
+    
+    private final AtomicLong batchRequests = new AtomicLong();
+    private final AtomicLong batchItems = new AtomicLong();
+    
     public PromptQualityService() {
+        this(5000, 4);
+    }
+    
+    /**
+     * @param cacheSize 分析结果缓存条目数
+     * @param parallelism 批量分析的并行度
+     */
+    @Autowired
+    public PromptQualityService(@Value("${quality.cache.max-size:5000}") int cacheSize,
+                                @Value("${quality.batch.parallelism:4}") int parallelism) {
         // 初始化所有质量分析器
         this.analyzers = List.of(
             new StructureAnalyzer(),
@@ -25,6 +57,29 @@ public class PromptQualityService {
             new ConstraintAnalyzer(),
             new OutputFormatAnalyzer()
         );
+        
+        KeywordAutomaton.Builder<QualityAnalyzer.KeywordGroup> builder = KeywordAutomaton.<QualityAnalyzer.KeywordGroup>builder()
+            .asciiWordBoundary(false);
+        for (QualityAnalyzer analyzer : analyzers) {
+            for (QualityAnalyzer.KeywordGroup group : analyzer.keywordGroups()) {
+                builder.addAll(List.of(group.keywords()), group);
+            }
+        }
+        this.keywordAutomaton = builder.build();
+        this.analysisCache = new BoundedCache<>(cacheSize, 0);
+        this.batchPool = new ForkJoinPool(parallelism);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        batchPool.shutdownNow();
+    }
+    
+    /**
+     * 提取提示词特征，供各分析器共用
+     */
+    public PromptFeatures extractFeatures(String prompt) {
+        return PromptFeatures.extract(prompt, keywordAutomaton);
     }
     
     /**
@@ -37,31 +92,77 @@ public class PromptQualityService {
             return 0;
         }
         
+        // 各维度评估的平均分，即详细分析的总分
+        return combineScore(prompt.length(), analyze(prompt).getTotalScore());
+    }
+    
+    /**
+     * 按特征评分，与 {@link #evaluate} 结果一致，用于增量评分（不经过缓存）
+     */
+    int evaluate(PromptFeatures features) {
+        if (features.isBlank()) {
+            return 0;
+        }
+        int sum = 0;
+        for (QualityAnalyzer analyzer : analyzers) {
+            sum += analyzer.analyze(features);
+        }
+        return combineScore(features.length(), sum / analyzers.size());
+    }
+    
+    /**
+     * 创建增量评分器，用于流式生成时逐块评分
+     */
+    public IncrementalQualityScorer newIncrementalScorer() {
+        return new IncrementalQualityScorer(this, new PromptFeatures.Accumulator(keywordAutomaton));
+    }
+    
+    private int combineScore(int length, int dimensionScore) {
         // 基础分数
         int baseScore = 50;
         
         // 长度评估
-        int lengthScore = evaluateLength(prompt);
-        
-        // 各维度评估的平均分
-        int dimensionScore = (int) analyzers.stream()
-            .mapToInt(a -> a.analyze(prompt))
-            .average()
-            .orElse(0);
+        int lengthScore = evaluateLength(length);
         
         int totalScore = baseScore + lengthScore + (dimensionScore / 5);
         return Math.min(totalScore, 100);
     }
     
     /**
-     * 详细分析提示词质量
+     * 详细分析提示词质量，相同内容直接返回缓存结果
      * @param prompt 提示词内容
-     * @return 详细分析报告
+     * @return 详细分析报告（缓存共享，调用方不应修改）
      */
     public AnalyzeResponse analyze(String prompt) {
+        return analysisCache.get(Murmur3.hash128(prompt), key -> computeAnalysis(prompt));
+    }
+    
+    /**
+     * 批量分析，在专用并行池中并行执行，结果与输入顺序一致
+     */
+    public List<AnalyzeResponse> analyzeBatch(List<String> prompts) {
+        batchRequests.incrementAndGet();
+        batchItems.addAndGet(prompts.size());
+        return batchPool.submit(() -> prompts.parallelStream().map(this::analyze).toList()).join();
+    }
+    
+    /**
+     * 缓存与批量分析指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cache", analysisCache.stats());
+        metrics.put("batchRequests", batchRequests.get());
+        metrics.put("batchItems", batchItems.get());
+        metrics.put("batchParallelism", batchPool.getParallelism());
+        return metrics;
+    }
+    
+    private AnalyzeResponse computeAnalysis(String prompt) {
         AnalyzeResponse response = new AnalyzeResponse();
         List<AnalyzeResponse.Improvement> improvements = new ArrayList<>();
         List<String> strengths = new ArrayList<>();
+        PromptFeatures features = extractFeatures(prompt);
         
         // 各维度分析
         int structureScore = 0;
@@ -71,9 +172,9 @@ public class PromptQualityService {
         int outputScore = 0;
         
         for (QualityAnalyzer analyzer : analyzers) {
-            int score = analyzer.analyze(prompt);
-            analyzer.addImprovement(prompt, score, improvements);
-            analyzer.addStrength(prompt, score, strengths);
+            int score = analyzer.analyze(features);
+            analyzer.addImprovement(features, score, improvements);
+            analyzer.addStrength(features, score, strengths);
             
             switch (analyzer.getDimension()) {
                 case STRUCTURE -> structureScore = score;
@@ -106,11 +207,11 @@ public class PromptQualityService {
     /**
      * 评估长度
      */
-    private int evaluateLength(String prompt) {
+    private int evaluateLength(int length) {
         int score = 0;
-        if (prompt.length() > 50) score += 5;
-        if (prompt.length() > 100) score += 5;
-        if (prompt.length() > 200) score += 5;
+        if (length > 50) score += 5;
+        if (length > 100) score += 5;
+        if (length > 200) score += 5;
         return score;
     }
     
@@ -21,32 +21,44 @@ public interface QualityAnalyzer {
         OUTPUT_FORMAT   // 输出格式
     }
     
+    /**
+     * 关键词组：命中组内任一关键词即加分
+     */
+    record KeywordGroup(String[] keywords, int score) {}
+
     /**
      * 获取分析维度
      * @return 维度类型
      */
     Dimension getDimension();
     
+    /**
+     * 该维度用到的关键词组，由 PromptQualityService 统一编译进共享自动机
+     */
+    default List<KeywordGroup> keywordGroups() {
+        return List.of();
+    }
+
     /**
      * 分析提示词在该维度的得分
-     * @param prompt 提示词内容
+     * @param features 提示词特征
      * @return 得分（0-100）
      */
-    int analyze(String prompt);
+    int analyze(PromptFeatures features);
     
     /**
      * 添加改进建议
-     * @param prompt 提示词内容
+     * @param features 提示词特征
      * @param score 当前得分
      * @param improvements 改进建议列表
      */
-    void addImprovement(String prompt, int score, List<AnalyzeResponse.Improvement> improvements);
+    void addImprovement(PromptFeatures features, int score, List<AnalyzeResponse.Improvement> improvements);
     
     /**
      * 添加优点
-     * @param prompt 提示词内容
+     * @param features 提示词特征
      * @param score 当前得分
      * @param strengths 优点列表
      */
-    void addStrength(String prompt, int score, List<String> strengths);
+    void addStrength(PromptFeatures features, int score, List<String> strengths);
 }
\ No newline at end of file
@@ -9,27 +9,34 @@ import java.util.List;
  */
 public class RoleAnalyzer extends AbstractQualityAnalyzer {
     
+    private static final KeywordGroup[] GROUPS = {
+        // 中文角色关键词
+        new KeywordGroup(new String[]{"你是", "你是一个", "你是一位"}, 20),
+        new KeywordGroup(new String[]{"角色", "身份", "扮演"}, 15),
+        new KeywordGroup(new String[]{"专家", "助手", "顾问", "工程师", "分析师"}, 10),
+        new KeywordGroup(new String[]{"具备", "拥有", "擅长", "精通", "专业"}, 10),
+        // 英文角色关键词
+        new KeywordGroup(new String[]{"you are", "you act as", "act as"}, 20),
+        new KeywordGroup(new String[]{"expert", "assistant", "specialist"}, 10)
+    };
+    
     @Override
     public Dimension getDimension() {
         return Dimension.ROLE;
     }
     
     @Override
-    public int analyze(String prompt) {
-        return calculateKeywordScore(prompt,
-            // 中文角色关键词
-            new KeywordGroup(new String[]{"你是", "你是一个", "你是一位"}, 20),
-            new KeywordGroup(new String[]{"角色", "身份", "扮演"}, 15),
-            new KeywordGroup(new String[]{"专家", "助手", "顾问", "工程师", "分析师"}, 10),
-            new KeywordGroup(new String[]{"具备", "拥有", "擅长", "精通", "专业"}, 10),
-            // 英文角色关键词
-            new KeywordGroup(new String[]{"you are", "you act as", "act as"}, 20),
-            new KeywordGroup(new String[]{"expert", "assistant", "specialist"}, 10)
-        );
+    public List<KeywordGroup> keywordGroups() {
+        return List.of(GROUPS);
+    }
+    
+    @Override
+    public int analyze(PromptFeatures features) {
+        return calculateKeywordScore(features, GROUPS);
     }
     
     @Override
-    public void addImprovement(String prompt, int score, List<AnalyzeResponse.Improvement> improvements) {
+    public void addImprovement(PromptFeatures features, int score, List<AnalyzeResponse.Improvement> improvements) {
         if (score < SCORE_THRESHOLD) {
             improvements.add(new AnalyzeResponse.Improvement(
                 "角色定义",
@@ -41,7 +48,7 @@ public class RoleAnalyzer extends AbstractQualityAnalyzer {
     }
     
     @Override
-    public void addStrength(String prompt, int score, List<String> strengths) {
+    public void addStrength(PromptFeatures features, int score, List<String> strengths) {
         if (score >= STRENGTH_THRESHOLD) {
             strengths.add("✅ 角色定义清晰");
         }
@@ -15,26 +15,27 @@ public class StructureAnalyzer extends AbstractQualityAnalyzer {
     }
     
     @Override
-    public int analyze(String prompt) {
+    public int analyze(PromptFeatures features) {
         int score = 60;
+        int length = features.length();
         
         // 长度检查
-        if (prompt.length() > 50) score += 5;
-        if (prompt.length() > 100) score += 10;
-        if (prompt.length() > 300) score += 10;
-        if (prompt.length() > 500) score += 5;
+        if (length > 50) score += 5;
+        if (length > 100) score += 10;
+        if (length > 300) score += 10;
+        if (length > 500) score += 5;
         
         // 段落分隔检查
-        if (prompt.contains("\n\n") || prompt.contains("。\n")) score += 5;
+        if (features.paragraphBreaks() > 0) score += 5;
         
         // 编号列表检查
-        if (prompt.matches(".*\\d+[.、].*")) score += 5;
+        if (features.numberedItems() > 0) score += 5;
         
         return Math.min(score, 100);
     }
     
     @Override
-    public void addImprovement(String prompt, int score, List<AnalyzeResponse.Improvement> improvements) {
+    public void addImprovement(PromptFeatures features, int score, List<AnalyzeResponse.Improvement> improvements) {
         if (score < SCORE_THRESHOLD) {
             improvements.add(new AnalyzeResponse.Improvement(
                 "结构完整度",
@@ -46,10 +47,10 @@ public class StructureAnalyzer extends AbstractQualityAnalyzer {
     }
     
     @Override
-    public void addStrength(String prompt, int score, List<String> strengths) {
+    public void addStrength(PromptFeatures features, int score, List<String> strengths) {
         if (score >= STRENGTH_THRESHOLD) {
             strengths.add("✅ 结构层次清晰");
-        } else if (prompt.length() > 200) {
+        } else if (features.length() > 200) {
             strengths.add("✅ 内容详实");
         }
     }
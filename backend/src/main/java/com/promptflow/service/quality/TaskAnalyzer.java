@@ -9,27 +9,34 @@ import java.util.List;
  */
 public class TaskAnalyzer extends AbstractQualityAnalyzer {
     
+    private static final KeywordGroup[] GROUPS = {
+        // 中文任务关键词
+        new KeywordGroup(new String[]{"请", "帮我", "需要", "希望"}, 15),
+        new KeywordGroup(new String[]{"任务", "目标", "目的", "需求"}, 10),
+        new KeywordGroup(new String[]{"生成", "创建", "编写", "撰写"}, 10),
+        new KeywordGroup(new String[]{"分析", "处理", "计算", "评估"}, 10),
+        // 英文任务关键词
+        new KeywordGroup(new String[]{"please", "help me", "i need", "i want"}, 15),
+        new KeywordGroup(new String[]{"generate", "create", "write", "produce"}, 10)
+    };
+    
     @Override
     public Dimension getDimension() {
         return Dimension.TASK;
     }
     
     @Override
-    public int analyze(String prompt) {
-        return calculateKeywordScore(prompt,
-            // 中文任务关键词
-            new KeywordGroup(new String[]{"请", "帮我", "需要", "希望"}, 15),
-            new KeywordGroup(new String[]{"任务", "目标", "目的", "需求"}, 10),
-            new KeywordGroup(new String[]{"生成", "创建", "编写", "撰写"}, 10),
-            new KeywordGroup(new String[]{"分析", "处理", "计算", "评估"}, 10),
-            // 英文任务关键词
-            new KeywordGroup(new String[]{"please", "help me", "i need", "i want"}, 15),
-            new KeywordGroup(new String[]{"generate", "create", "write", "produce"}, 10)
-        );
+    public List<KeywordGroup> keywordGroups() {
+        return List.of(GROUPS);
+    }
+    
+    @Override
+    public int analyze(PromptFeatures features) {
+        return calculateKeywordScore(features, GROUPS);
     }
     
     @Override
-    public void addImprovement(String prompt, int score, List<AnalyzeResponse.Improvement> improvements) {
+    public void addImprovement(PromptFeatures features, int score, List<AnalyzeResponse.Improvement> improvements) {
         if (score < SCORE_THRESHOLD) {
             improvements.add(new AnalyzeResponse.Improvement(
                 "任务清晰度",
@@ -41,7 +48,7 @@ public class TaskAnalyzer extends AbstractQualityAnalyzer {
     }
     
     @Override
-    public void addStrength(String prompt, int score, List<String> strengths) {
+    public void addStrength(PromptFeatures features, int score, List<String> strengths) {
         if (score >= STRENGTH_THRESHOLD) {
             strengths.add("✅ 任务描述明确");
         }
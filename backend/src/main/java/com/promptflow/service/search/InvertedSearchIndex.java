@@ -0,0 +1,341 @@
+package com.promptflow.service.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内倒排索引
+ * 每个词一条按内部文档号升序的倒排表（int 数组 + 词频），新文档号递增分配，追加即有序。
+ * 检索时从最短的倒排表出发，其余倒排表用二分前进求交集，BM25 打分后用小顶堆取当前页。
+ * 删除和覆盖只打墓碑，墓碑过多时压缩：按原顺序给存活文档重新编号，倒排表和按文档号存放的数组一并收紧，
+ * 反复覆盖同一文档不会让内存持续增长。读多写少，使用读写锁
+ */
+public class InvertedSearchIndex implements SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** 名称中的词按该倍数计入词频 */
+    private static final int NAME_WEIGHT = 2;
+
+    private static final long NO_CATEGORY = -1L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxIndexedChars;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> docById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private long[] externalIds = new long[INITIAL_CAPACITY];
+    private long[] categories = new long[INITIAL_CAPACITY];
+    private int[] docLengths = new int[INITIAL_CAPACITY];
+    private int nextDoc;
+    private int liveDocs;
+    private long totalLength;
+    private int deletedDocs;
+
+    /**
+     * @param maxIndexedChars 正文参与索引的最大字符数，控制内存占用
+     */
+    public InvertedSearchIndex(int maxIndexedChars) {
+        this.maxIndexedChars = maxIndexedChars;
+    }
+
+    @Override
+    public void index(long id, Long categoryId, String name, String content) {
+        // 分词在锁外完成
+        Map<String, Integer> termFreqs = new HashMap<>();
+        int length = 0;
+        for (String token : SearchTokenizer.tokenize(name)) {
+            termFreqs.merge(token, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        String body = content != null && content.length() > maxIndexedChars
+            ? content.substring(0, maxIndexedChars) : content;
+        for (String token : SearchTokenizer.tokenize(body)) {
+            termFreqs.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int doc = nextDoc++;
+            ensureCapacity(doc + 1);
+            externalIds[doc] = id;
+            categories[doc] = categoryId != null ? categoryId : NO_CATEGORY;
+            docLengths[doc] = length;
+            docById.put(id, doc);
+            liveDocs++;
+            totalLength += length;
+            termFreqs.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, tf));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateCategory(long id, Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docById.get(id);
+            if (doc != null) {
+                categories[doc] = categoryId != null ? categoryId : NO_CATEGORY;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Result search(String query, Long categoryId, int offset, int limit) {
+        Set<String> terms = SearchTokenizer.queryTerms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Result.empty();
+        }
+        offset = Math.max(0, offset);
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    return Result.empty();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+
+            int n = Math.max(1, liveDocs);
+            double avgLength = liveDocs > 0 ? (double) totalLength / liveDocs : 1.0;
+            double[] idf = new double[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                int df = Math.min(lists.get(t).size, n);
+                idf[t] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            }
+
+            long filter = categoryId != null ? categoryId : NO_CATEGORY;
+            // 堆按需增长，不按请求的页位置预分配
+            long keep = Math.min((long) offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<long[]> top = new PriorityQueue<>(InvertedSearchIndex::compareScored);
+            int[] cursors = new int[lists.size()];
+            long total = 0;
+
+            Postings shortest = lists.get(0);
+            candidates:
+            for (int i = 0; i < shortest.size; i++) {
+                int doc = shortest.docs[i];
+                if (deleted.get(doc) || (categoryId != null && categories[doc] != filter)) {
+                    continue;
+                }
+                double score = bm25(shortest.freqs[i], docLengths[doc], avgLength) * idf[0];
+                for (int t = 1; t < lists.size(); t++) {
+                    Postings other = lists.get(t);
+                    int pos = other.seek(cursors[t], doc);
+                    cursors[t] = pos;
+                    if (pos >= other.size || other.docs[pos] != doc) {
+                        continue candidates;
+                    }
+                    score += bm25(other.freqs[pos], docLengths[doc], avgLength) * idf[t];
+                }
+                total++;
+                if (top.size() < keep) {
+                    top.offer(new long[]{Double.doubleToLongBits(score), doc});
+                } else if (score >= Double.longBitsToDouble(top.peek()[0])) {
+                    // 只有进入当前页候选时才入堆，避免为每个命中分配对象
+                    top.offer(new long[]{Double.doubleToLongBits(score), doc});
+                    top.poll();
+                }
+            }
+
+            List<long[]> ranked = new ArrayList<>(top);
+            ranked.sort((a, b) -> compareScored(b, a));
+            List<Hit> hits = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = offset; i < ranked.size(); i++) {
+                long[] entry = ranked.get(i);
+                hits.add(new Hit(externalIds[(int) entry[1]], Double.longBitsToDouble(entry[0])));
+            }
+            return new Result(total, hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docById.clear();
+            deleted.clear();
+            nextDoc = 0;
+            liveDocs = 0;
+            totalLength = 0;
+            deletedDocs = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        liveDocs--;
+        totalLength -= docLengths[doc];
+        deletedDocs++;
+        if (deletedDocs > 1024 && deletedDocs > liveDocs / 4) {
+            compact();
+        }
+    }
+
+    /**
+     * 清除已删除的文档并按原顺序重新编号，倒排表仍保持升序
+     */
+    private void compact() {
+        int[] remap = new int[nextDoc];
+        int live = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = live;
+            externalIds[live] = externalIds[doc];
+            categories[live] = categories[doc];
+            docLengths[live] = docLengths[doc];
+            live++;
+        }
+        Iterator<Postings> it = postings.values().iterator();
+        while (it.hasNext()) {
+            Postings list = it.next();
+            list.remap(remap);
+            if (list.size == 0) {
+                it.remove();
+            }
+        }
+        docById.replaceAll((id, doc) -> remap[doc]);
+        deleted.clear();
+        nextDoc = live;
+        deletedDocs = 0;
+
+        int capacity = Math.max(INITIAL_CAPACITY, live * 2);
+        if (externalIds.length > capacity * 2) {
+            externalIds = Arrays.copyOf(externalIds, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+        }
+    }
+
+    /** 已分配的文档号数（含墓碑） */
+    int allocatedDocs() {
+        lock.readLock().lock();
+        try {
+            return nextDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > externalIds.length) {
+            int newLength = Math.max(capacity, externalIds.length * 2);
+            externalIds = Arrays.copyOf(externalIds, newLength);
+            categories = Arrays.copyOf(categories, newLength);
+            docLengths = Arrays.copyOf(docLengths, newLength);
+        }
+    }
+
+    private static double bm25(int tf, int docLength, double avgLength) {
+        return tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLength / avgLength));
+    }
+
+    /**
+     * 分数升序，同分时文档号小（较早写入）的在前；堆顶先被淘汰，因此同分时保留较新的文档
+     */
+    private static int compareScored(long[] a, long[] b) {
+        int cmp = Double.compare(Double.longBitsToDouble(a[0]), Double.longBitsToDouble(b[0]));
+        return cmp != 0 ? cmp : Long.compare(a[1], b[1]);
+    }
+
+    /**
+     * 单个词的倒排表
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = tf;
+            size++;
+        }
+
+        /**
+         * 从 from 开始找第一个 >= target 的位置
+         */
+        int seek(int from, int target) {
+            if (from >= size || docs[from] >= target) {
+                return from;
+            }
+            int pos = Arrays.binarySearch(docs, from, size, target);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+
+        /**
+         * 按新编号改写文档号，新编号为 -1 的（已删除）移除
+         */
+        void remap(int[] remap) {
+            int write = 0;
+            for (int read = 0; read < size; read++) {
+                int doc = remap[docs[read]];
+                if (doc >= 0) {
+                    docs[write] = doc;
+                    freqs[write] = freqs[read];
+                    write++;
+                }
+            }
+            size = write;
+        }
+    }
+}
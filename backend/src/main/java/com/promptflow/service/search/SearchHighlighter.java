@@ -0,0 +1,92 @@
+package com.promptflow.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 高亮摘要
+ * 以第一个命中的查询片段为中心截取窗口，命中处用 &lt;em&gt; 包裹，其余文本做 HTML 转义
+ */
+public final class SearchHighlighter {
+
+    private static final String PRE_TAG = "<em>";
+    private static final String POST_TAG = "</em>";
+
+    private SearchHighlighter() {
+    }
+
+    /**
+     * @param text 原文
+     * @param query 查询串
+     * @param window 摘要长度（字符数）
+     */
+    public static String snippet(String text, String query, int window) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : SearchTokenizer.segments(query)) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+
+        int first = -1;
+        for (int i = 0; i < text.length() && first < 0; i++) {
+            if (matchAt(text, i, segments) > 0) {
+                first = i;
+            }
+        }
+
+        int start = first < 0 ? 0 : Math.max(0, first - window / 4);
+        int end = Math.min(text.length(), start + window);
+        StringBuilder sb = new StringBuilder(window + 32);
+        if (start > 0) {
+            sb.append("...");
+        }
+        int i = start;
+        while (i < end) {
+            int matched = matchAt(text, i, segments);
+            if (matched > 0) {
+                int stop = Math.min(end, i + matched);
+                sb.append(PRE_TAG);
+                escape(text, i, stop, sb);
+                sb.append(POST_TAG);
+                i = stop;
+            } else {
+                escape(text, i, i + 1, sb);
+                i++;
+            }
+        }
+        if (end < text.length()) {
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 返回在 pos 处命中的最长片段长度，未命中返回 0
+     */
+    private static int matchAt(String text, int pos, List<String> segments) {
+        int best = 0;
+        for (String segment : segments) {
+            if (segment.length() > best && text.regionMatches(true, pos, segment, 0, segment.length())) {
+                best = segment.length();
+            }
+        }
+        return best;
+    }
+
+    private static void escape(String text, int from, int to, StringBuilder sb) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.promptflow.service.search;
+
+import java.util.List;
+
+/**
+ * 全文检索索引接口
+ * 只保存倒排信息和排序所需的统计量，不保存原文；
+ * 命中后由调用方按 id 回表加载当前页并生成高亮摘要
+ */
+public interface SearchIndex {
+
+    /**
+     * 写入或覆盖一条文档
+     * @param id 提示词ID
+     * @param categoryId 分类ID，可为空
+     * @param name 名称（权重高于正文）
+     * @param content 正文
+     */
+    void index(long id, Long categoryId, String name, String content);
+
+    void remove(long id);
+
+    /**
+     * 只更新分类，不重新分词
+     */
+    void updateCategory(long id, Long categoryId);
+
+    /**
+     * 相关度排序的分页检索，所有查询词都必须命中
+     * @param categoryId 分类过滤，为空表示不过滤
+     */
+    Result search(String query, Long categoryId, int offset, int limit);
+
+    int size();
+
+    void clear();
+
+    record Hit(long id, double score) {
+    }
+
+    record Result(long total, List<Hit> hits) {
+        public static Result empty() {
+            return new Result(0, List.of());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.promptflow.service.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 检索分词
+ * 中日韩文字按重叠二元组切分（单字成词时保留单字），字母数字按连续片段成词并转小写，
+ * 其余字符视为分隔符。索引和查询使用同一套规则
+ */
+public final class SearchTokenizer {
+
+    /** 超长的字母数字片段（如 base64、哈希）不入索引 */
+    private static final int MAX_WORD_LENGTH = 40;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 切分文本，保留重复词用于统计词频
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        for (String segment : segments(text)) {
+            if (isCjk(segment.codePointAt(0))) {
+                addBigrams(segment, tokens);
+            } else if (segment.length() <= MAX_WORD_LENGTH) {
+                tokens.add(segment);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 查询词去重
+     */
+    public static Set<String> queryTerms(String query) {
+        return new LinkedHashSet<>(tokenize(query));
+    }
+
+    /**
+     * 按字符类别切分出的连续片段（已转小写），高亮时按片段匹配原文
+     */
+    public static List<String> segments(String text) {
+        List<String> segments = new ArrayList<>();
+        if (text == null) {
+            return segments;
+        }
+        StringBuilder current = new StringBuilder();
+        int currentType = 0;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            int type = isCjk(cp) ? 1 : Character.isLetterOrDigit(cp) ? 2 : 0;
+            if (type != currentType && current.length() > 0) {
+                segments.add(current.toString());
+                current.setLength(0);
+            }
+            currentType = type;
+            if (type != 0) {
+                current.appendCodePoint(Character.toLowerCase(cp));
+            }
+        }
+        if (current.length() > 0) {
+            segments.add(current.toString());
+        }
+        return segments;
+    }
+
+    private static void addBigrams(String segment, List<String> tokens) {
+        int count = segment.codePointCount(0, segment.length());
+        if (count == 1) {
+            tokens.add(segment);
+            return;
+        }
+        int start = 0;
+        int next = segment.offsetByCodePoints(0, 1);
+        while (next < segment.length()) {
+            int end = segment.offsetByCodePoints(next, 1);
+            tokens.add(segment.substring(start, end));
+            start = next;
+            next = end;
+        }
+    }
+
+    static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,185 @@
+package com.promptflow.strategy.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 审计前置闸门
+ * 先用本地规则评分判断草稿：明显合格时跳过 LLM 审计，明显不合格时直接精炼，其余情况照常审计。
+ * 阈值由（本地评分, LLM 审计评分）样本校准：合格阈值取使"本地分 ≥ 阈值"的样本中审计通过比例达到目标精度的最低分，
+ * 不合格阈值同理。样本不足时不做判断；配置了固定阈值时以配置为准。
+ * 即使可以跳过，也按探索比例照常审计，持续补充样本
+ */
+@Component
+public class AuditPreGate {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditPreGate.class);
+
+    public enum Decision {
+        /** 明显合格，跳过审计 */
+        PASS,
+        /** 明显不合格，跳过审计直接精炼 */
+        FAIL,
+        /** 照常审计 */
+        AUDIT
+    }
+
+    private final PipelineConfig config;
+    private final DoubleSupplier random;
+
+    /** 样本环形缓冲：本地评分与审计评分 */
+    private int[] localScores;
+    private int[] auditScores;
+    private int sampleCount;
+    private int nextSlot;
+
+    /** 校准结果缓存，样本变化后失效；-1 表示没有可用阈值 */
+    private int passThreshold = -1;
+    private int failThreshold = -1;
+    private boolean thresholdsDirty = true;
+
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong audited = new AtomicLong();
+    private final AtomicLong explored = new AtomicLong();
+
+    public AuditPreGate(PipelineConfig config) {
+        this(config, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    AuditPreGate(PipelineConfig config, DoubleSupplier random) {
+        this.config = config;
+        this.random = random;
+    }
+
+    /**
+     * 根据本地评分决定是否需要 LLM 审计
+     */
+    public Decision decide(int localScore) {
+        Decision decision = Decision.AUDIT;
+        if (config.isPreGateEnabled()) {
+            int[] thresholds = thresholds();
+            if (thresholds[0] >= 0 && localScore >= thresholds[0]) {
+                decision = Decision.PASS;
+            } else if (thresholds[1] >= 0 && localScore <= thresholds[1]) {
+                decision = Decision.FAIL;
+            }
+            if (decision != Decision.AUDIT && random.getAsDouble() < config.getPreGateExploreRate()) {
+                explored.incrementAndGet();
+                decision = Decision.AUDIT;
+            }
+        }
+        switch (decision) {
+            case PASS -> passed.incrementAndGet();
+            case FAIL -> failed.incrementAndGet();
+            default -> audited.incrementAndGet();
+        }
+        return decision;
+    }
+
+    /**
+     * 记录一次实际审计的评分，用于校准
+     */
+    public synchronized void record(int localScore, int auditScore) {
+        int capacity = Math.max(1, config.getPreGateSampleSize());
+        if (localScores == null || localScores.length != capacity) {
+            localScores = new int[capacity];
+            auditScores = new int[capacity];
+            sampleCount = 0;
+            nextSlot = 0;
+        }
+        localScores[nextSlot] = clamp(localScore);
+        auditScores[nextSlot] = clamp(auditScore);
+        nextSlot = (nextSlot + 1) % capacity;
+        sampleCount = Math.min(sampleCount + 1, capacity);
+        thresholdsDirty = true;
+        log.info("审计校准样本: local={}, audit={}", localScore, auditScore);
+    }
+
+    /**
+     * 当前生效的阈值：[合格阈值, 不合格阈值]，-1 表示不启用该侧
+     */
+    synchronized int[] thresholds() {
+        if (thresholdsDirty) {
+            calibrate();
+            thresholdsDirty = false;
+        }
+        int pass = config.getPreGatePassScore() >= 0 ? config.getPreGatePassScore() : passThreshold;
+        int fail = config.getPreGateFailScore() >= 0 ? config.getPreGateFailScore() : failThreshold;
+        return new int[]{pass, fail};
+    }
+
+    private void calibrate() {
+        // 按本地评分分桶：总数与审计通过数
+        int[] total = new int[101];
+        int[] pass = new int[101];
+        for (int i = 0; i < sampleCount; i++) {
+            total[localScores[i]]++;
+            if (auditScores[i] >= config.getQualityThreshold()) {
+                pass[localScores[i]]++;
+            }
+        }
+        double precision = config.getPreGatePrecision();
+        int minSamples = config.getPreGateMinSamples();
+
+        // 合格阈值：从高分往下累加，取精度仍达标的最低分
+        passThreshold = -1;
+        int count = 0;
+        int hits = 0;
+        for (int score = 100; score >= 0; score--) {
+            count += total[score];
+            hits += pass[score];
+            if (count >= minSamples) {
+                if (hits < precision * count) {
+                    break;
+                }
+                passThreshold = score;
+            }
+        }
+
+        // 不合格阈值：从低分往上累加，取审计不通过比例仍达标的最高分
+        failThreshold = -1;
+        count = 0;
+        hits = 0;
+        for (int score = 0; score <= 100; score++) {
+            count += total[score];
+            hits += total[score] - pass[score];
+            if (count >= minSamples) {
+                if (hits < precision * count) {
+                    break;
+                }
+                failThreshold = score;
+            }
+        }
+        // 两侧重叠说明本地评分区分不开，放弃判断
+        if (passThreshold >= 0 && failThreshold >= passThreshold) {
+            passThreshold = -1;
+            failThreshold = -1;
+        }
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        int[] thresholds = thresholds();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", config.isPreGateEnabled());
+        metrics.put("samples", sampleCount);
+        metrics.put("passThreshold", thresholds[0]);
+        metrics.put("failThreshold", thresholds[1]);
+        metrics.put("skippedPass", passed.get());
+        metrics.put("skippedFail", failed.get());
+        metrics.put("audited", audited.get());
+        metrics.put("explored", explored.get());
+        return metrics;
+    }
+
+    private static int clamp(int score) {
+        return Math.max(0, Math.min(100, score));
+    }
+}
@@ -0,0 +1,269 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.service.quality.PromptQualityService;
+import com.promptflow.strategy.pipeline.impl.DraftGeneratorStage;
+import com.promptflow.strategy.pipeline.impl.QualityAuditStage;
+import com.promptflow.util.CancellationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多候选草稿选择器
+ * 并行发起 N 份草稿请求（按温度/模型错开），先按本地评分排序，再把前 k 份合并为一次 LLM 审计，取审计分最高者。
+ * 胜出候选的审计报告随结果返回，编排器直接用作第 1 轮审计，不再重复调用
+ */
+@Component
+public class DraftCandidateSelector {
+
+    private static final Logger log = LoggerFactory.getLogger(DraftCandidateSelector.class);
+
+    /** 未配置温度列表时，候选温度相对默认温度的错开步长 */
+    private static final double TEMPERATURE_STEP = 0.2;
+    private static final double MAX_TEMPERATURE = 1.5;
+
+    private final LLMClient llmClient;
+    private final PipelineConfig config;
+    private final DraftGeneratorStage draftStage;
+    private final QualityAuditStage auditStage;
+    private final PromptQualityService qualityService;
+
+    private final AtomicLong selections = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong audits = new AtomicLong();
+    private final AtomicLong auditFailures = new AtomicLong();
+    /** 审计结论推翻本地排序（胜出者不是本地评分第一）的次数 */
+    private final AtomicLong auditOverrides = new AtomicLong();
+
+    /**
+     * 候选草稿
+     * @param index 候选编号（0 起，按请求发出顺序）
+     * @param auditScore 未参与审计时为 null
+     */
+    public record Candidate(int index, String model, double temperature, String draft,
+                            int localScore, Integer auditScore) {
+    }
+
+    /**
+     * 选择结果
+     * @param auditReport 胜出候选的单份审计报告，未经 LLM 审计时为 null
+     */
+    public record Selection(Candidate winner, List<Candidate> candidates, String auditReport) {
+    }
+
+    public DraftCandidateSelector(LLMClient llmClient,
+                                  PipelineConfig config,
+                                  DraftGeneratorStage draftStage,
+                                  QualityAuditStage auditStage,
+                                  PromptQualityService qualityService) {
+        this.llmClient = llmClient;
+        this.config = config;
+        this.draftStage = draftStage;
+        this.auditStage = auditStage;
+        this.qualityService = qualityService;
+    }
+
+    /**
+     * 生成候选并选出最优草稿，写入上下文的当前草稿
+     * @throws RuntimeException 所有候选都生成失败
+     * @throws java.util.concurrent.CancellationException 生成期间上下文已取消
+     */
+    public Selection select(PipelineContext ctx) {
+        return select(ctx, ctx.getCancellation());
+    }
+
+    /**
+     * 限时生成候选并择优：令牌取消（时间片到期）时中止未返回的候选请求，只在已返回的候选中选择
+     * @param cancellation 阶段令牌，应随上下文一并取消
+     * @throws RuntimeException 所有候选都生成失败或未在时限内返回
+     * @throws java.util.concurrent.CancellationException 生成期间上下文已取消
+     */
+    public Selection select(PipelineContext ctx, CancellationToken cancellation) {
+        selections.incrementAndGet();
+        int count = Math.max(1, config.getDraftCandidates());
+        LLMRequest base = draftStage.buildRequest(ctx);
+
+        // 1. 并行生成
+        List<LLMRequest> requests = new ArrayList<>(count);
+        List<CompletableFuture<LLMResponse>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LLMRequest request = LLMRequest.builder()
+                .model(modelFor(i, base.getModel()))
+                .messages(base.getMessages())
+                .temperature(temperatureFor(i, base.getTemperature()))
+                .maxTokens(base.getMaxTokens())
+                .extraParams(base.getExtraParams())
+                .stream(false)
+                .build();
+            requests.add(request);
+            futures.add(llmClient.callAsync(request, cancellation));
+        }
+        // 被取消的候选也算结束，失败与取消在下面逐个处理
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        ctx.getCancellation().throwIfCancelled();
+
+        // 2. 本地评分
+        List<Candidate> candidates = new ArrayList<>(count);
+        String lastError = null;
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<LLMResponse> future = futures.get(i);
+            if (future.isCancelled() || future.isCompletedExceptionally()) {
+                failed.incrementAndGet();
+                lastError = "未在时限内返回";
+                continue;
+            }
+            LLMResponse response = future.join();
+            ctx.addTokensSpent(PipelineOrchestrator.tokensOf(requests.get(i), response));
+            String content = response.isSuccess() ? response.getContent() : null;
+            if (content == null || content.isBlank()) {
+                failed.incrementAndGet();
+                lastError = response.getError() != null ? response.getError().getMessage() : "草稿生成结果为空白";
+                continue;
+            }
+            generated.incrementAndGet();
+            String draft = draftStage.cleanDraft(content);
+            LLMRequest request = requests.get(i);
+            candidates.add(new Candidate(i, request.getModel(), request.getTemperature(), draft,
+                qualityService.evaluate(draft), null));
+        }
+        if (candidates.isEmpty()) {
+            throw new RuntimeException("草稿生成失败: " + count + " 份候选均失败，" + lastError);
+        }
+        candidates.sort(Comparator.comparingInt(Candidate::localScore).reversed()
+            .thenComparingInt(Candidate::index));
+
+        // 3. 前 k 份合并审计
+        String auditReport = null;
+        int topK = Math.min(config.getDraftAuditTopK(), candidates.size());
+        if (config.isAuditEnabled() && topK >= 2) {
+            // 候选生成期间客户端已断开时不再发起审计
+            ctx.getCancellation().throwIfCancelled();
+            auditReport = auditTopCandidates(ctx, candidates, topK, cancellation);
+        }
+
+        Candidate winner = candidates.get(0);
+        ctx.setCurrentDraft(winner.draft());
+        ctx.setLocalScore(winner.localScore());
+        ctx.getStageOutputs().put("draftCandidates", summarize(candidates, winner));
+
+        log.info("多候选草稿选择完成: 候选={}/{}, 胜出=#{}(model={}, temperature={}, 本地评分={}, 审计评分={})",
+            candidates.size(), count, winner.index(), winner.model(), winner.temperature(),
+            winner.localScore(), winner.auditScore());
+        return new Selection(winner, List.copyOf(candidates), auditReport);
+    }
+
+    /**
+     * 一次 LLM 调用审计前 k 份候选，按审计分重排候选（审计过的在前），返回胜出者的审计报告
+     * 审计失败或未在时限内返回时保持本地排序，返回 null
+     */
+    private String auditTopCandidates(PipelineContext ctx, List<Candidate> candidates, int topK,
+                                      CancellationToken cancellation) {
+        audits.incrementAndGet();
+        List<Candidate> top = candidates.subList(0, topK);
+        LLMRequest request = auditStage.buildBatchRequest(top.stream().map(Candidate::draft).toList());
+        LLMResponse response;
+        try {
+            response = llmClient.callAsync(request, cancellation).join();
+        } catch (CancellationException e) {
+            ctx.getCancellation().throwIfCancelled();
+            auditFailures.incrementAndGet();
+            log.warn("候选草稿合并审计超时，按本地评分选择");
+            return null;
+        }
+        ctx.addTokensSpent(PipelineOrchestrator.tokensOf(request, response));
+        Map<Integer, PipelineResult> reports = response.isSuccess()
+            ? auditStage.splitBatchReport(response.getContent())
+            : Map.of();
+        if (reports.isEmpty()) {
+            auditFailures.incrementAndGet();
+            log.warn("候选草稿合并审计失败，按本地评分选择: {}",
+                response.getError() != null ? response.getError().getMessage() : "审计结果无法解析");
+            return null;
+        }
+
+        Candidate localBest = top.get(0);
+        Map<Integer, String> reportByCandidate = new HashMap<>();
+        for (int i = 0; i < topK; i++) {
+            PipelineResult report = reports.get(i + 1);
+            if (report != null) {
+                Candidate c = top.get(i);
+                top.set(i, new Candidate(c.index(), c.model(), c.temperature(), c.draft(),
+                    c.localScore(), report.getQualityScore()));
+                reportByCandidate.put(c.index(), report.getContent());
+            }
+        }
+        // 审计分高者优先，未获审计分的排在后面，同分保持本地排序
+        top.sort(Comparator.comparingInt((Candidate c) -> c.auditScore() != null ? c.auditScore() : -1).reversed());
+
+        Candidate winner = top.get(0);
+        if (winner.index() != localBest.index()) {
+            auditOverrides.incrementAndGet();
+        }
+        return reportByCandidate.get(winner.index());
+    }
+
+    private String modelFor(int i, String defaultModel) {
+        List<String> models = config.getDraftModels();
+        if (models == null || models.isEmpty()) {
+            return defaultModel;
+        }
+        String model = models.get(i % models.size());
+        return model == null || model.isBlank() ? defaultModel : model;
+    }
+
+    /**
+     * 候选温度：优先取配置列表；否则第 0 份用默认温度，其余依次 +0.2、-0.2、+0.4、-0.4…
+     */
+    private double temperatureFor(int i, Double defaultTemperature) {
+        List<Double> temperatures = config.getDraftTemperatures();
+        if (temperatures != null && !temperatures.isEmpty()) {
+            return temperatures.get(i % temperatures.size());
+        }
+        double base = defaultTemperature != null ? defaultTemperature : 0.7;
+        double offset = ((i + 1) / 2) * TEMPERATURE_STEP * (i % 2 == 1 ? 1 : -1);
+        return Math.max(0, Math.min(MAX_TEMPERATURE, Math.round((base + offset) * 100) / 100.0));
+    }
+
+    private List<Map<String, Object>> summarize(List<Candidate> candidates, Candidate winner) {
+        List<Map<String, Object>> summary = new ArrayList<>(candidates.size());
+        for (Candidate c : candidates) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("index", c.index());
+            item.put("model", c.model());
+            item.put("temperature", c.temperature());
+            item.put("localScore", c.localScore());
+            item.put("auditScore", c.auditScore());
+            item.put("length", c.draft().length());
+            item.put("winner", c == winner);
+            summary.add(item);
+        }
+        return summary;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("candidates", config.getDraftCandidates());
+        metrics.put("auditTopK", config.getDraftAuditTopK());
+        metrics.put("selections", selections.get());
+        metrics.put("generated", generated.get());
+        metrics.put("failed", failed.get());
+        metrics.put("batchAudits", audits.get());
+        metrics.put("batchAuditFailures", auditFailures.get());
+        metrics.put("auditOverrides", auditOverrides.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,186 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.util.CancellationToken;
+import com.promptflow.util.LatencyRecorder;
+import com.promptflow.util.NamedThreads;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线时间预算
+ * 每次执行有总截止时间，每个阶段分到 min(阶段时限, 剩余预算) 的时间片，流式调用另有首 token 时限。
+ * 到期时取消阶段自己的令牌（中断进行中的上游连接），由编排器改用备用模型重试或跳过该阶段
+ */
+@Component
+public class LatencyBudget {
+
+    /** 阶段到期原因 */
+    public enum Expiry {
+        NONE,
+        /** 首 token 未在时限内到达 */
+        FIRST_TOKEN,
+        /** 阶段时间片用完 */
+        SLICE
+    }
+
+    private static final int LATENCY_SAMPLES = 1000;
+
+    private final PipelineConfig config;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(NamedThreads.daemon("pipeline-budget"));
+
+    private final AtomicLong sliceTimeouts = new AtomicLong();
+    private final AtomicLong firstTokenTimeouts = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong fallbackSuccesses = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    /** 各阶段类型的耗时分布（含超时与备用模型重试） */
+    private final Map<String, LatencyRecorder> stageLatency = new ConcurrentHashMap<>();
+
+    public LatencyBudget(PipelineConfig config) {
+        this.config = config;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 为一次执行设置总截止时间
+     */
+    public void begin(PipelineContext ctx) {
+        ctx.setDeadline(config.getDeadlineMs() > 0 ? System.currentTimeMillis() + config.getDeadlineMs() : 0);
+    }
+
+    /**
+     * 剩余总预算（毫秒），未设置截止时间时为 Long.MAX_VALUE
+     */
+    public long remaining(PipelineContext ctx) {
+        return ctx.getDeadline() > 0 ? ctx.getDeadline() - System.currentTimeMillis() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 阶段时间片：阶段时限与剩余预算取小，都不限时为 Long.MAX_VALUE
+     */
+    public long sliceFor(String stageType, PipelineContext ctx) {
+        Long configured = config.getStageTimeouts() != null ? config.getStageTimeouts().get(stageType) : null;
+        long stageTimeout = configured != null ? configured : config.getStageTimeoutMs();
+        return Math.min(stageTimeout > 0 ? stageTimeout : Long.MAX_VALUE, remaining(ctx));
+    }
+
+    /**
+     * 为一次阶段调用启动计时：时间片到期或首 token 超时都会取消返回的令牌；上下文取消时一并取消
+     * @param firstToken 是否检查首 token 时限（只对流式调用有效）
+     */
+    public StageTimer arm(PipelineContext ctx, long sliceMs, boolean firstToken) {
+        StageTimer stageTimer = new StageTimer(ctx.getCancellation());
+        if (sliceMs < Long.MAX_VALUE) {
+            stageTimer.slice = timer.schedule(() -> stageTimer.expire(Expiry.SLICE), Math.max(0, sliceMs), TimeUnit.MILLISECONDS);
+        }
+        long firstTokenMs = config.getFirstTokenTimeoutMs();
+        if (firstToken && firstTokenMs > 0 && firstTokenMs < sliceMs) {
+            stageTimer.firstToken = timer.schedule(() -> stageTimer.expire(Expiry.FIRST_TOKEN), firstTokenMs, TimeUnit.MILLISECONDS);
+        }
+        return stageTimer;
+    }
+
+    void recordStage(String stageType, long elapsedMs) {
+        stageLatency.computeIfAbsent(stageType, k -> new LatencyRecorder(LATENCY_SAMPLES)).record(elapsedMs);
+    }
+
+    void recordFallback(boolean success) {
+        fallbacks.incrementAndGet();
+        if (success) {
+            fallbackSuccesses.incrementAndGet();
+        }
+    }
+
+    void recordSkip() {
+        skipped.incrementAndGet();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("deadlineMs", config.getDeadlineMs());
+        metrics.put("stageTimeoutMs", config.getStageTimeoutMs());
+        metrics.put("firstTokenTimeoutMs", config.getFirstTokenTimeoutMs());
+        metrics.put("fallbackModel", config.getFallbackModel());
+        metrics.put("sliceTimeouts", sliceTimeouts.get());
+        metrics.put("firstTokenTimeouts", firstTokenTimeouts.get());
+        metrics.put("fallbacks", fallbacks.get());
+        metrics.put("fallbackSuccesses", fallbackSuccesses.get());
+        metrics.put("skippedStages", skipped.get());
+        Map<String, Object> stages = new LinkedHashMap<>();
+        stageLatency.forEach((stage, recorder) -> stages.put(stage, recorder.snapshot()));
+        metrics.put("stageLatency", stages);
+        return metrics;
+    }
+
+    /**
+     * 一次阶段调用的计时器，调用结束后必须关闭
+     */
+    public final class StageTimer implements AutoCloseable {
+
+        private final CancellationToken token = new CancellationToken();
+        private final CancellationToken.Registration parentRegistration;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile ScheduledFuture<?> slice;
+        private volatile ScheduledFuture<?> firstToken;
+        private volatile Expiry expiry = Expiry.NONE;
+
+        private StageTimer(CancellationToken parent) {
+            this.parentRegistration = parent.onCancel(() -> token.cancel(parent.getReason()));
+        }
+
+        /** 阶段调用使用的令牌 */
+        public CancellationToken token() {
+            return token;
+        }
+
+        /** 收到首个输出块 */
+        public void onFirstToken() {
+            ScheduledFuture<?> f = firstToken;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+
+        public Expiry expiry() {
+            return expiry;
+        }
+
+        public long elapsedMs() {
+            return System.currentTimeMillis() - startedAt;
+        }
+
+        /** 按给定原因到期，用于同步调用自行检测到超时的情况 */
+        public void expire(Expiry reason) {
+            synchronized (this) {
+                if (expiry != Expiry.NONE || token.isCancelled()) {
+                    return;
+                }
+                expiry = reason;
+            }
+            (reason == Expiry.FIRST_TOKEN ? firstTokenTimeouts : sliceTimeouts).incrementAndGet();
+            token.cancel(reason == Expiry.FIRST_TOKEN ? "首 token 超时" : "阶段超时");
+        }
+
+        @Override
+        public void close() {
+            if (slice != null) {
+                slice.cancel(false);
+            }
+            onFirstToken();
+            parentRegistration.close();
+        }
+    }
+}
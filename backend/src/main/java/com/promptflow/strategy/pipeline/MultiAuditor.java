@@ -0,0 +1,351 @@
+package com.promptflow.strategy.pipeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.strategy.pipeline.dto.AuditReport;
+import com.promptflow.strategy.pipeline.impl.QualityAuditStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 多审计员并行审计
+ * dimensions 模式按维度（角色、任务、约束、输出格式）各发一次审计，models 模式用 audit-model 中的每个模型各做一次全维度审计，
+ * 全部同时发出，耗时约等于一次审计。评分融合为总分：维度取平均，多模型取中位数以抵消单个模型的偏差；
+ * 问题清单合并去重，描述相近的问题只保留一条并取最高严重级别，融合报告交给审计阶段解析，精炼阶段据此修改
+ */
+@Component
+public class MultiAuditor {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiAuditor.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static final String MODE_DIMENSIONS = "dimensions";
+    public static final String MODE_MODELS = "models";
+
+    /** 问题描述的字符二元组 Jaccard 相似度达到该值视为同一问题 */
+    static final double DUPLICATE_SIMILARITY = 0.5;
+
+    private static final List<String> SEVERITY_ORDER = List.of("critical", "major", "minor", "suggestion");
+
+    /** 维度标识 → [名称, 审查要点]，未列出的维度以标识作名称 */
+    private static final Map<String, String[]> FOCUS = Map.of(
+        "role", new String[]{"角色定义", "角色身份、专业背景、语气与立场是否明确且前后一致"},
+        "task", new String[]{"任务描述", "目标、输入与处理步骤是否清楚，LLM 能否据此准确执行"},
+        "constraints", new String[]{"约束条件", "边界、禁止事项与安全要求是否完整，是否存在相互矛盾的要求"},
+        "output-format", new String[]{"输出格式", "输出结构、格式要求与示例是否明确，结果是否便于解析和复用"});
+
+    private final LLMClient llmClient;
+    private final PipelineConfig config;
+    private final QualityAuditStage auditStage;
+
+    private final AtomicLong audits = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong duplicateIssues = new AtomicLong();
+    /** 各次审计中审计员最高分与最低分之差的累计，用于观察单次审计的波动 */
+    private final AtomicLong scoreSpreadSum = new AtomicLong();
+    private final AtomicLong fusedAudits = new AtomicLong();
+
+    /**
+     * 一位审计员的结果
+     * @param name 维度标识或模型名
+     */
+    record AuditorResult(String name, String model, int score, String summary, List<AuditReport.Issue> issues) {
+    }
+
+    private record Auditor(String name, LLMRequest request) {
+    }
+
+    public MultiAuditor(LLMClient llmClient, PipelineConfig config, QualityAuditStage auditStage) {
+        this.llmClient = llmClient;
+        this.config = config;
+        this.auditStage = auditStage;
+    }
+
+    /**
+     * 是否按并行审计执行：模式为 dimensions / models 且审计员不少于 2 位
+     */
+    public boolean isEnabled() {
+        return auditorNames().size() > 1;
+    }
+
+    private List<String> auditorNames() {
+        if (MODE_DIMENSIONS.equals(config.getAuditMode())) {
+            return config.getAuditDimensions() != null ? config.getAuditDimensions() : List.of();
+        }
+        if (MODE_MODELS.equals(config.getAuditMode())) {
+            return auditStage.auditModels();
+        }
+        return List.of();
+    }
+
+    /**
+     * 并行审计当前草稿，融合结果写入上下文（与单次审计相同）
+     * @throws java.util.concurrent.CancellationException 审计期间上下文已取消
+     */
+    public PipelineResult audit(PipelineContext ctx) {
+        return audit(ctx, Long.MAX_VALUE);
+    }
+
+    /**
+     * 限时并行审计：到时仍未返回的审计员视为失败并取消其请求，只融合已返回的结果
+     * @param timeoutMs 等待时限，Long.MAX_VALUE 表示不限时
+     */
+    public PipelineResult audit(PipelineContext ctx, long timeoutMs) {
+        audits.incrementAndGet();
+        boolean byDimension = MODE_DIMENSIONS.equals(config.getAuditMode());
+        List<Auditor> auditors = new ArrayList<>();
+        for (String name : auditorNames()) {
+            LLMRequest request;
+            if (byDimension) {
+                String[] focus = FOCUS.getOrDefault(name, new String[]{name, name + "是否清晰、完整、可执行"});
+                request = auditStage.buildFocusRequest(ctx, name, focus[0], focus[1]);
+            } else {
+                request = auditStage.buildRequest(ctx, name);
+            }
+            auditors.add(new Auditor(name, request));
+        }
+
+        List<CompletableFuture<LLMResponse>> futures = auditors.stream()
+            .map(a -> llmClient.callAsync(a.request(), ctx.getCancellation()))
+            .toList();
+        calls.addAndGet(futures.size());
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        try {
+            if (timeoutMs == Long.MAX_VALUE) {
+                all.get();
+            } else {
+                all.get(Math.max(0, timeoutMs), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            log.warn("并行审计超时({}ms)，未返回的审计员按失败处理", timeoutMs);
+            // 取消即中止各自的上游请求并归还并发许可
+            futures.forEach(f -> f.cancel(true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new CancellationException("等待并行审计时被中断");
+        } catch (ExecutionException | CancellationException e) {
+            // 单个审计员的异常在下面逐个处理
+        }
+        // 客户端断开时各审计请求已随上下文令牌取消，不再融合
+        ctx.getCancellation().throwIfCancelled();
+
+        List<AuditorResult> results = new ArrayList<>(auditors.size());
+        for (int i = 0; i < auditors.size(); i++) {
+            Auditor auditor = auditors.get(i);
+            CompletableFuture<LLMResponse> future = futures.get(i);
+            if (future.isCancelled() || future.isCompletedExceptionally()) {
+                failures.incrementAndGet();
+                log.warn("审计员 {} 未在时限内返回", auditor.name());
+                continue;
+            }
+            LLMResponse response = future.join();
+            ctx.addTokensSpent(PipelineOrchestrator.tokensOf(auditor.request(), response));
+            AuditorResult result = response.isSuccess()
+                ? parse(auditor.name(), auditor.request().getModel(), response.getContent(), byDimension)
+                : null;
+            if (result == null) {
+                failures.incrementAndGet();
+                log.warn("审计员 {} 失败: {}", auditor.name(),
+                    response.getError() != null ? response.getError().getMessage() : "审计结果无法解析");
+                continue;
+            }
+            results.add(result);
+        }
+        if (results.isEmpty()) {
+            return PipelineResult.error("并行审计全部失败");
+        }
+
+        AuditReport report = fuse(results, !byDimension, config.getQualityThreshold());
+        if (results.size() > 1) {
+            fusedAudits.incrementAndGet();
+            scoreSpreadSum.addAndGet(spread(results));
+        }
+        String content;
+        try {
+            content = objectMapper.writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            return PipelineResult.error("审计报告序列化失败: " + e.getMessage());
+        }
+        log.info("并行审计完成: 模式={}, 审计员={}/{}, 评分={}, 问题={}",
+            config.getAuditMode(), results.size(), auditors.size(), report.getOverallScore(), report.getIssues().size());
+        return auditStage.processResponse(content, ctx);
+    }
+
+    /**
+     * 融合各审计员的结果
+     * @param median true 取中位数（多模型），false 取平均（各维度）
+     */
+    AuditReport fuse(List<AuditorResult> results, boolean median, int threshold) {
+        List<Integer> scores = results.stream().map(AuditorResult::score).sorted().toList();
+        int overall;
+        if (median) {
+            int mid = scores.size() / 2;
+            overall = scores.size() % 2 == 1 ? scores.get(mid)
+                : (int) Math.round((scores.get(mid - 1) + scores.get(mid)) / 2.0);
+        } else {
+            overall = (int) Math.round(scores.stream().mapToInt(Integer::intValue).average().orElse(0));
+        }
+        String summary = results.stream()
+            .map(r -> "[" + r.name() + " " + r.score() + "] " + r.summary())
+            .collect(Collectors.joining("；"));
+
+        AuditReport report = new AuditReport(overall, mergeIssues(results), summary, overall >= threshold);
+        report.setAuditors(results.stream()
+            .map(r -> new AuditReport.AuditorScore(r.name(), r.model(), r.score()))
+            .toList());
+        return report;
+    }
+
+    /**
+     * 合并问题清单：描述相近的问题合为一条，保留最高严重级别和较详细的建议，按严重级别、指出人数排序
+     */
+    List<AuditReport.Issue> mergeIssues(List<AuditorResult> results) {
+        List<AuditReport.Issue> merged = new ArrayList<>();
+        List<Set<String>> grams = new ArrayList<>();
+        for (AuditorResult result : results) {
+            for (AuditReport.Issue issue : result.issues()) {
+                Set<String> g = bigrams(issue.getDescription());
+                int match = -1;
+                for (int i = 0; i < merged.size() && match < 0; i++) {
+                    if (similarity(g, grams.get(i)) >= DUPLICATE_SIMILARITY) {
+                        match = i;
+                    }
+                }
+                if (match < 0) {
+                    merged.add(new AuditReport.Issue(issue.getDimension(), issue.getSeverity(),
+                        issue.getDescription(), issue.getSuggestion()));
+                    grams.add(g);
+                    continue;
+                }
+                duplicateIssues.incrementAndGet();
+                AuditReport.Issue existing = merged.get(match);
+                existing.setReportedBy(existing.getReportedBy() + 1);
+                if (severityRank(issue.getSeverity()) < severityRank(existing.getSeverity())) {
+                    existing.setSeverity(issue.getSeverity());
+                }
+                if (issue.getSuggestion() != null && (existing.getSuggestion() == null
+                        || issue.getSuggestion().length() > existing.getSuggestion().length())) {
+                    existing.setSuggestion(issue.getSuggestion());
+                }
+            }
+        }
+        merged.sort(Comparator.comparingInt((AuditReport.Issue i) -> severityRank(i.getSeverity()))
+            .thenComparing(Comparator.comparingInt(AuditReport.Issue::getReportedBy).reversed()));
+        return merged;
+    }
+
+    /**
+     * 解析单个审计员的 JSON 输出，缺少评分时视为失败返回 null
+     * 按维度审计时，问题缺少维度则归入该审计员的维度
+     */
+    @SuppressWarnings("unchecked")
+    private AuditorResult parse(String name, String model, String content, boolean byDimension) {
+        if (content == null) {
+            return null;
+        }
+        int jsonStart = content.indexOf('{');
+        int jsonEnd = content.lastIndexOf('}');
+        if (jsonStart < 0 || jsonEnd <= jsonStart) {
+            return null;
+        }
+        try {
+            Map<String, Object> report = objectMapper.readValue(content.substring(jsonStart, jsonEnd + 1), Map.class);
+            if (!(report.get("overallScore") instanceof Number score)) {
+                return null;
+            }
+            List<AuditReport.Issue> issues = new ArrayList<>();
+            if (report.get("issues") instanceof List<?> list) {
+                for (Object item : list) {
+                    if (item instanceof Map<?, ?> map && map.get("description") != null) {
+                        Object dimension = map.get("dimension");
+                        issues.add(new AuditReport.Issue(
+                            dimension != null ? dimension.toString() : byDimension ? name : null,
+                            map.get("severity") != null ? map.get("severity").toString() : "suggestion",
+                            map.get("description").toString(),
+                            map.get("suggestion") != null ? map.get("suggestion").toString() : null));
+                    }
+                }
+            }
+            Object summary = report.get("summary");
+            return new AuditorResult(name, model, Math.max(0, Math.min(100, score.intValue())),
+                summary != null ? summary.toString() : "", issues);
+        } catch (Exception e) {
+            log.warn("解析审计员 {} 的JSON失败: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private static int severityRank(String severity) {
+        int rank = SEVERITY_ORDER.indexOf(severity);
+        return rank >= 0 ? rank : SEVERITY_ORDER.size();
+    }
+
+    /**
+     * 去掉空白和标点后的字符二元组
+     */
+    private static Set<String> bigrams(String text) {
+        String normalized = text == null ? "" : text.replaceAll("[\\p{P}\\p{S}\\s]+", "").toLowerCase();
+        Set<String> grams = new HashSet<>();
+        if (normalized.length() < 2) {
+            grams.add(normalized);
+            return grams;
+        }
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String g : a) {
+            if (b.contains(g)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    private static int spread(List<AuditorResult> results) {
+        int max = results.stream().mapToInt(AuditorResult::score).max().orElse(0);
+        int min = results.stream().mapToInt(AuditorResult::score).min().orElse(0);
+        return max - min;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long fused = fusedAudits.get();
+        metrics.put("mode", config.getAuditMode());
+        metrics.put("auditors", auditorNames().size());
+        metrics.put("audits", audits.get());
+        metrics.put("calls", calls.get());
+        metrics.put("failures", failures.get());
+        metrics.put("duplicateIssues", duplicateIssues.get());
+        metrics.put("avgScoreSpread", fused > 0 ? Math.round(scoreSpreadSum.get() * 10.0 / fused) / 10.0 : 0);
+        return metrics;
+    }
+}
@@ -3,6 +3,11 @@ package com.promptflow.strategy.pipeline;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Pipeline 配置
  * 从 application.yml 读取流水线参数
@@ -23,12 +28,81 @@ public class PipelineConfig {
     /** 是否启用精炼阶段 */
     private boolean refineEnabled = true;
 
-    /** 审计模型（默认使用主模型，可单独指定） */
+    /** 审计模型（默认使用主模型，可单独指定；models 审计模式下用逗号分隔多个模型） */
     private String auditModel = "";
 
+    /** 审计模式：single 单次审计；dimensions 按维度并行审计；models 用 audit-model 中的多个模型并行审计 */
+    private String auditMode = "single";
+
+    /** dimensions 模式下的审计维度，每个维度一次审计调用 */
+    private List<String> auditDimensions = new ArrayList<>(List.of("role", "task", "constraints", "output-format"));
+
     /** 精炼模型 */
     private String refineModel = "";
 
+    /** 并行生成的候选草稿数，1 表示只生成一份（不做多选一） */
+    private int draftCandidates = 1;
+
+    /** 候选草稿使用的温度，按候选顺序循环取用；为空时以默认温度为中心上下错开 */
+    private List<Double> draftTemperatures = new ArrayList<>();
+
+    /** 候选草稿使用的模型，按候选顺序循环取用；为空时都用默认模型 */
+    private List<String> draftModels = new ArrayList<>();
+
+    /** 本地评分最高的前 k 份候选合并为一次 LLM 审计，0 表示只按本地评分选择 */
+    private int draftAuditTopK = 2;
+
+    /** 是否启用审计前置闸门：本地评分足够确定时跳过 LLM 审计 */
+    private boolean preGateEnabled = true;
+
+    /** 闸门目标精度：跳过审计的判断与 LLM 审计结论一致的比例下限 */
+    private double preGatePrecision = 0.95;
+
+    /** 每侧阈值至少需要的校准样本数，不足时照常审计 */
+    private int preGateMinSamples = 50;
+
+    /** 保留的校准样本数（最近 N 次审计） */
+    private int preGateSampleSize = 1000;
+
+    /** 可跳过时仍照常审计的比例，用于持续补充校准样本 */
+    private double preGateExploreRate = 0.05;
+
+    /** 固定合格阈值（本地评分 ≥ 该值跳过审计），-1 表示按样本校准 */
+    private int preGatePassScore = -1;
+
+    /** 固定不合格阈值（本地评分 ≤ 该值直接精炼），-1 表示按样本校准 */
+    private int preGateFailScore = -1;
+
+    /** 是否启用投机精炼：LLM 审计的同时以本地分析结果提前发起精炼 */
+    private boolean speculativeRefine = false;
+
+    /** 审计评分与本地评分相差超过该值时放弃投机结果，按审计意见重新精炼 */
+    private int speculativeScoreGap = 15;
+
+    /** 投机精炼专用线程数，全部占用时本轮不投机 */
+    private int speculativeThreads = 4;
+
+    /** 单次流水线的总时间预算（毫秒），0 表示不限 */
+    private long deadlineMs = 180000;
+
+    /** 单个阶段的默认时限（毫秒），0 表示只受总预算限制 */
+    private long stageTimeoutMs = 60000;
+
+    /** 按阶段类型覆盖的时限（毫秒），如 audit: 30000 */
+    private Map<String, Long> stageTimeouts = new HashMap<>();
+
+    /** 流式阶段的首 token 时限（毫秒），0 表示不检查 */
+    private long firstTokenTimeoutMs = 15000;
+
+    /** 阶段超时后重试使用的较快模型，为空时超时直接跳过该阶段 */
+    private String fallbackModel = "";
+
+    /** 流水线拓扑：节点按声明顺序排列，依赖由 after 与阶段的输入/输出推导；为空时使用默认的 草稿 → (审计 → 精炼)* */
+    private List<Node> topology = defaultTopology();
+
+    /** 并行节点共享线程池的线程数 */
+    private int nodeThreads = 16;
+
     // Getters & Setters
     public int getMaxRounds() { return maxRounds; }
     public void setMaxRounds(int maxRounds) { this.maxRounds = maxRounds; }
@@ -45,6 +119,134 @@ public class PipelineConfig {
     public String getAuditModel() { return auditModel; }
     public void setAuditModel(String auditModel) { this.auditModel = auditModel; }
 
+    public String getAuditMode() { return auditMode; }
+    public void setAuditMode(String auditMode) { this.auditMode = auditMode; }
+
+    public List<String> getAuditDimensions() { return auditDimensions; }
+    public void setAuditDimensions(List<String> auditDimensions) { this.auditDimensions = auditDimensions; }
+
     public String getRefineModel() { return refineModel; }
     public void setRefineModel(String refineModel) { this.refineModel = refineModel; }
+
+    public int getDraftCandidates() { return draftCandidates; }
+    public void setDraftCandidates(int draftCandidates) { this.draftCandidates = draftCandidates; }
+
+    public List<Double> getDraftTemperatures() { return draftTemperatures; }
+    public void setDraftTemperatures(List<Double> draftTemperatures) { this.draftTemperatures = draftTemperatures; }
+
+    public List<String> getDraftModels() { return draftModels; }
+    public void setDraftModels(List<String> draftModels) { this.draftModels = draftModels; }
+
+    public int getDraftAuditTopK() { return draftAuditTopK; }
+    public void setDraftAuditTopK(int draftAuditTopK) { this.draftAuditTopK = draftAuditTopK; }
+
+    public boolean isPreGateEnabled() { return preGateEnabled; }
+    public void setPreGateEnabled(boolean preGateEnabled) { this.preGateEnabled = preGateEnabled; }
+
+    public double getPreGatePrecision() { return preGatePrecision; }
+    public void setPreGatePrecision(double preGatePrecision) { this.preGatePrecision = preGatePrecision; }
+
+    public int getPreGateMinSamples() { return preGateMinSamples; }
+    public void setPreGateMinSamples(int preGateMinSamples) { this.preGateMinSamples = preGateMinSamples; }
+
+    public int getPreGateSampleSize() { return preGateSampleSize; }
+    public void setPreGateSampleSize(int preGateSampleSize) { this.preGateSampleSize = preGateSampleSize; }
+
+    public double getPreGateExploreRate() { return preGateExploreRate; }
+    public void setPreGateExploreRate(double preGateExploreRate) { this.preGateExploreRate = preGateExploreRate; }
+
+    public int getPreGatePassScore() { return preGatePassScore; }
+    public void setPreGatePassScore(int preGatePassScore) { this.preGatePassScore = preGatePassScore; }
+
+    public int getPreGateFailScore() { return preGateFailScore; }
+    public void setPreGateFailScore(int preGateFailScore) { this.preGateFailScore = preGateFailScore; }
+
+    public boolean isSpeculativeRefine() { return speculativeRefine; }
+    public void setSpeculativeRefine(boolean speculativeRefine) { this.speculativeRefine = speculativeRefine; }
+
+    public int getSpeculativeScoreGap() { return speculativeScoreGap; }
+    public void setSpeculativeScoreGap(int speculativeScoreGap) { this.speculativeScoreGap = speculativeScoreGap; }
+
+    public int getSpeculativeThreads() { return speculativeThreads; }
+    public void setSpeculativeThreads(int speculativeThreads) { this.speculativeThreads = speculativeThreads; }
+
+    public long getDeadlineMs() { return deadlineMs; }
+    public void setDeadlineMs(long deadlineMs) { this.deadlineMs = deadlineMs; }
+
+    public long getStageTimeoutMs() { return stageTimeoutMs; }
+    public void setStageTimeoutMs(long stageTimeoutMs) { this.stageTimeoutMs = stageTimeoutMs; }
+
+    public Map<String, Long> getStageTimeouts() { return stageTimeouts; }
+    public void setStageTimeouts(Map<String, Long> stageTimeouts) { this.stageTimeouts = stageTimeouts; }
+
+    public long getFirstTokenTimeoutMs() { return firstTokenTimeoutMs; }
+    public void setFirstTokenTimeoutMs(long firstTokenTimeoutMs) { this.firstTokenTimeoutMs = firstTokenTimeoutMs; }
+
+    public String getFallbackModel() { return fallbackModel; }
+    public void setFallbackModel(String fallbackModel) { this.fallbackModel = fallbackModel; }
+
+    public List<Node> getTopology() { return topology; }
+    public void setTopology(List<Node> topology) { this.topology = topology; }
+
+    public int getNodeThreads() { return nodeThreads; }
+    public void setNodeThreads(int nodeThreads) { this.nodeThreads = nodeThreads; }
+
+    /**
+     * 默认拓扑：草稿只执行一次，审计与精炼每轮重复，审计认为需要精炼时才执行精炼
+     */
+    public static List<Node> defaultTopology() {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new Node("draft", "draft", false, Node.ALWAYS));
+        nodes.add(new Node("audit", "audit", true, Node.ALWAYS));
+        nodes.add(new Node("refine", "refine", true, Node.NEEDS_REFINE));
+        return nodes;
+    }
+
+    /**
+     * 拓扑节点声明
+     */
+    public static class Node {
+
+        public static final String ALWAYS = "always";
+        public static final String NEEDS_REFINE = "needs-refine";
+
+        /** 节点标识，拓扑内唯一 */
+        private String id;
+
+        /** 执行的阶段类型（PipelineStage.getStageType） */
+        private String stage;
+
+        /** 显式依赖的节点，只能引用前面声明的节点 */
+        private List<String> after = new ArrayList<>();
+
+        /** 是否每轮重复执行；否则只在第 1 轮执行 */
+        private boolean repeat;
+
+        /** 执行条件：always / needs-refine（最近一次审计认为需要精炼） */
+        private String when = ALWAYS;
+
+        public Node() {}
+
+        public Node(String id, String stage, boolean repeat, String when) {
+            this.id = id;
+            this.stage = stage;
+            this.repeat = repeat;
+            this.when = when;
+        }
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
+        public String getStage() { return stage; }
+        public void setStage(String stage) { this.stage = stage; }
+
+        public List<String> getAfter() { return after; }
+        public void setAfter(List<String> after) { this.after = after; }
+
+        public boolean isRepeat() { return repeat; }
+        public void setRepeat(boolean repeat) { this.repeat = repeat; }
+
+        public String getWhen() { return when; }
+        public void setWhen(String when) { this.when = when; }
+    }
 }
@@ -1,15 +1,19 @@
 package com.promptflow.strategy.pipeline;
 
 import com.promptflow.dto.PromptRequest;
+import com.promptflow.util.CancellationToken;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Pipeline 上下文
  * 承载整个流水线执行过程中的全部数据，在阶段之间传递
+ * 并行节点可能同时读写，运行时状态均为线程安全
  */
 public class PipelineContext {
 
@@ -40,23 +44,38 @@ public class PipelineContext {
     // ========== 运行时状态 ==========
 
     /** 当前最新草稿 */
-    private String currentDraft;
+    private volatile String currentDraft;
 
     /** 最新审计报告文本 */
-    private String auditReportText;
+    private volatile String auditReportText;
 
     /** 审计评分历史（按轮次） */
-    private final List<AuditRound> auditHistory = new ArrayList<>();
+    private final List<AuditRound> auditHistory = Collections.synchronizedList(new ArrayList<>());
 
     /** 当前循环轮次（从 0 开始） */
-    private int currentRound;
+    private volatile int currentRound;
+
+    /** 本轮审计是否认为需要精炼，决定 needs-refine 节点是否执行 */
+    private volatile boolean needsRefine;
 
     /** 各阶段输出归档 key = "stageType_round" */
-    private final Map<String, Object> stageOutputs = new LinkedHashMap<>();
+    private final Map<String, Object> stageOutputs = Collections.synchronizedMap(new LinkedHashMap<>());
 
     /** 是否流式输出 */
     private boolean streamMode;
 
+    /** 当前草稿的本地评分（规则评估，无 LLM 调用），草稿变更即失效，未评分为 -1 */
+    private volatile int localScore = -1;
+
+    /** 取消令牌：流式请求的客户端全部断开时取消，编排器不再启动后续阶段 */
+    private volatile CancellationToken cancellation = CancellationToken.NONE;
+
+    /** 本次执行的截止时间（epoch 毫秒），0 表示不限 */
+    private volatile long deadline;
+
+    /** 各阶段 LLM 调用已消耗的 token（估算，含输入与输出） */
+    private final AtomicLong tokensSpent = new AtomicLong();
+
     // ========== 构造方法 ==========
 
     private PipelineContext() {}
@@ -107,7 +126,10 @@ public class PipelineContext {
     public String getOutputDescription() { return outputDescription; }
 
     public String getCurrentDraft() { return currentDraft; }
-    public void setCurrentDraft(String draft) { this.currentDraft = draft; }
+    public void setCurrentDraft(String draft) {
+        this.currentDraft = draft;
+        this.localScore = -1;
+    }
 
     public String getAuditReportText() { return auditReportText; }
     public void setAuditReportText(String text) { this.auditReportText = text; }
@@ -117,14 +139,41 @@ public class PipelineContext {
     public void setCurrentRound(int round) { this.currentRound = round; }
     public void incrementRound() { this.currentRound++; }
 
+    public boolean isNeedsRefine() { return needsRefine; }
+    public void setNeedsRefine(boolean needsRefine) { this.needsRefine = needsRefine; }
+
     public Map<String, Object> getStageOutputs() { return stageOutputs; }
     public boolean isStreamMode() { return streamMode; }
     public void setStreamMode(boolean streamMode) { this.streamMode = streamMode; }
 
+    public int getLocalScore() { return localScore; }
+    public void setLocalScore(int localScore) { this.localScore = localScore; }
+
+    public CancellationToken getCancellation() { return cancellation; }
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation != null ? cancellation : CancellationToken.NONE;
+    }
+    public boolean isCancelled() { return cancellation.isCancelled(); }
+
+    public long getDeadline() { return deadline; }
+    public void setDeadline(long deadline) { this.deadline = deadline; }
+
+    public long getTokensSpent() { return tokensSpent.get(); }
+    public void addTokensSpent(long tokens) { this.tokensSpent.addAndGet(tokens); }
+
+    /** 获取最新审计记录，无审计记录返回 null */
+    public AuditRound getLatestAudit() {
+        synchronized (auditHistory) {
+            return auditHistory.isEmpty() ? null : auditHistory.get(auditHistory.size() - 1);
+        }
+    }
+
     /** 获取最新审计评分，无审计记录返回 -1 */
     public int getLatestScore() {
-        if (auditHistory.isEmpty()) return -1;
-        return auditHistory.get(auditHistory.size() - 1).getScore();
+        synchronized (auditHistory) {
+            if (auditHistory.isEmpty()) return -1;
+            return auditHistory.get(auditHistory.size() - 1).getScore();
+        }
     }
 
     // ========== Builder ==========
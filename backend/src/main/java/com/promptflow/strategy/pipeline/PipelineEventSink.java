@@ -0,0 +1,37 @@
+package com.promptflow.strategy.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流水线事件出口
+ * 流式执行时写入 SSE，同步执行时丢弃；并行节点的事件先缓存，轮到它时再整体推送，避免与正在推送的节点交错
+ */
+@FunctionalInterface
+public interface PipelineEventSink {
+
+    /** 丢弃所有事件，用于同步执行 */
+    PipelineEventSink NONE = (event, data) -> { };
+
+    void send(String event, String data);
+
+    /**
+     * 缓存事件，稍后按原顺序转发
+     */
+    final class Buffered implements PipelineEventSink {
+
+        private final List<String[]> events = new ArrayList<>();
+
+        @Override
+        public synchronized void send(String event, String data) {
+            events.add(new String[]{event, data});
+        }
+
+        public synchronized void flushTo(PipelineEventSink target) {
+            for (String[] e : events) {
+                target.send(e[0], e[1]);
+            }
+            events.clear();
+        }
+    }
+}
@@ -1,48 +1,103 @@
 package com.promptflow.strategy.pipeline;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.AnalyzeResponse;
 import com.promptflow.dto.llm.LLMRequest;
-import com.promptflow.strategy.pipeline.impl.DraftGeneratorStage;
-import com.promptflow.strategy.pipeline.impl.PromptRefineStage;
+import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.service.StreamExecutionService;
+import com.promptflow.service.quality.IncrementalQualityScorer;
+import com.promptflow.service.quality.PromptQualityService;
+import com.promptflow.strategy.pipeline.PipelineContext.AuditRound;
 import com.promptflow.strategy.pipeline.impl.QualityAuditStage;
+import com.promptflow.util.CancellationToken;
+import com.promptflow.util.LatencyRecorder;
+import com.promptflow.util.TokenEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Pipeline 编排器
- * 编排草稿生成 → 质量审计 → 条件循环精炼的完整流程
+ * 按配置的拓扑（默认 草稿 → 审计 → 条件循环精炼）交给调度器执行，同步与流式共用同一套节点执行逻辑，区别只在事件出口
+ * 配置多份候选草稿时，草稿节点并行生成并择优，胜出草稿的审计结果直接作为第 1 轮审计
+ * 配置并行审计时，审计节点由多位审计员同时审计并融合为一份报告
+ * 开启投机精炼时，审计期间已按本地分析结果在后台精炼，精炼节点视审计结论直接接管或重新精炼
+ * 每个阶段受时间预算约束：超时中断调用，配置了备用模型时改用备用模型重试一次，否则跳过该阶段
+ * 流式执行时客户端全部断开会取消上下文中的令牌：中断进行中的 LLM 调用，不再启动后续节点
  */
 @Component
 public class PipelineOrchestrator {
 
     private static final Logger log = LoggerFactory.getLogger(PipelineOrchestrator.class);
     private static final long SSE_TIMEOUT = 300000L; // 5 分钟
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 多候选择优得到的审计报告，存放在 stageOutputs 中，由第 1 轮审计取用 */
+    private static final String SELECTED_AUDIT = "selectedAudit";
+
+    private static final int LATENCY_SAMPLES = 1000;
 
     private final LLMClient llmClient;
     private final PipelineConfig config;
-    private final DraftGeneratorStage draftStage;
     private final QualityAuditStage auditStage;
-    private final PromptRefineStage refineStage;
+    private final StreamExecutionService streamExecutor;
+    private final PromptQualityService qualityService;
+    private final AuditPreGate auditPreGate;
+    private final DraftCandidateSelector draftSelector;
+    private final MultiAuditor multiAuditor;
+    private final SpeculativeRefiner speculativeRefiner;
+    private final PipelineScheduler scheduler;
+    private final LatencyBudget latencyBudget;
+    private final PipelineTopology topology;
+
+    /** 因客户端断开而取消的流水线数，及这些流水线已消耗的 token（估算） */
+    private final AtomicLong cancelledRuns = new AtomicLong();
+    private final AtomicLong wastedTokens = new AtomicLong();
+
+    /** 成功完成的流水线端到端耗时，按是否开启投机精炼分开统计 */
+    private final LatencyRecorder latency = new LatencyRecorder(LATENCY_SAMPLES);
+    private final LatencyRecorder speculativeLatency = new LatencyRecorder(LATENCY_SAMPLES);
 
     public PipelineOrchestrator(LLMClient llmClient,
                                 PipelineConfig config,
-                                DraftGeneratorStage draftStage,
+                                List<PipelineStage> stages,
                                 QualityAuditStage auditStage,
-                                PromptRefineStage refineStage) {
+                                StreamExecutionService streamExecutor,
+                                PromptQualityService qualityService,
+                                AuditPreGate auditPreGate,
+                                DraftCandidateSelector draftSelector,
+                                MultiAuditor multiAuditor,
+                                SpeculativeRefiner speculativeRefiner,
+                                PipelineScheduler scheduler,
+                                LatencyBudget latencyBudget) {
         this.llmClient = llmClient;
         this.config = config;
-        this.draftStage = draftStage;
         this.auditStage = auditStage;
-        this.refineStage = refineStage;
+        this.streamExecutor = streamExecutor;
+        this.qualityService = qualityService;
+        this.auditPreGate = auditPreGate;
+        this.draftSelector = draftSelector;
+        this.multiAuditor = multiAuditor;
+        this.speculativeRefiner = speculativeRefiner;
+        this.scheduler = scheduler;
+        this.latencyBudget = latencyBudget;
+        this.topology = PipelineTopology.build(config.getTopology(), stages);
+        log.info("流水线拓扑: {}", topology);
     }
 
     /**
@@ -51,130 +106,488 @@ public class PipelineOrchestrator {
      */
     public String execute(PipelineContext ctx) {
         ctx.setStreamMode(false);
+        PipelineScheduler.Outcome outcome = run(ctx, PipelineEventSink.NONE);
+        if (outcome.status() != PipelineScheduler.Status.COMPLETED) {
+            throw new RuntimeException(outcome.error() != null ? outcome.error() : "流水线已取消");
+        }
+        return ctx.getCurrentDraft();
+    }
+
+    /**
+     * 流式执行 Pipeline
+     * 通过 SSE 逐阶段推送流式内容
+     */
+    public SseEmitter executeStream(PipelineContext ctx) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        executeStream(ctx, emitter);
+        return emitter;
+    }
 
-        // S1: 草稿生成
-        PipelineResult draftResult = executeStageSync(draftStage, ctx);
-        if (!draftResult.isSuccess()) {
-            throw new RuntimeException("草稿生成失败: " + draftResult.getError());
+    /**
+     * 流式执行 Pipeline，事件写入调用方提供的 emitter
+     */
+    public void executeStream(PipelineContext ctx, SseEmitter emitter) {
+        ctx.setStreamMode(true);
+
+        streamExecutor.submit(() -> {
+            try {
+                PipelineScheduler.Outcome outcome = run(ctx, (event, data) -> sendEvent(emitter, event, data));
+                switch (outcome.status()) {
+                    case CANCELLED -> finishCancelled(ctx, emitter, outcome.nodeId());
+                    case FAILED -> handleError(emitter, new RuntimeException(outcome.error()));
+                    default -> {
+                        sendEvent(emitter, "done", "{\"done\":true}");
+                        emitter.complete();
+                    }
+                }
+            } catch (Exception e) {
+                if (ctx.isCancelled() || e instanceof CancellationException) {
+                    finishCancelled(ctx, emitter, null);
+                    return;
+                }
+                log.error("Pipeline 流式执行出错", e);
+                handleError(emitter, e);
+            }
+        });
+    }
+
+    /**
+     * 交给调度器执行拓扑，记录耗时，结束后取消未被取用的投机请求
+     */
+    private PipelineScheduler.Outcome run(PipelineContext ctx, PipelineEventSink events) {
+        boolean speculative = config.isSpeculativeRefine();
+        long start = System.currentTimeMillis();
+        latencyBudget.begin(ctx);
+        try {
+            PipelineScheduler.Outcome outcome = scheduler.run(topology, ctx, this::executeNode, events);
+            if (outcome.status() == PipelineScheduler.Status.COMPLETED) {
+                (speculative ? speculativeLatency : latency).record(System.currentTimeMillis() - start);
+            }
+            return outcome;
+        } finally {
+            speculativeRefiner.discard(ctx);
         }
+    }
+
+    /**
+     * 运行时指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("topology", topology.toString());
+        metrics.put("cancelled", cancelledRuns.get());
+        metrics.put("wastedTokens", wastedTokens.get());
+        metrics.put("latency", latency.snapshot());
+        metrics.put("speculativeLatency", speculativeLatency.snapshot());
+        metrics.put("speculation", speculativeRefiner.getMetrics());
+        metrics.put("scheduler", scheduler.getMetrics());
+        metrics.put("budget", latencyBudget.getMetrics());
+        return metrics;
+    }
 
-        // S2→S3 循环
-        for (int round = 0; round < config.getMaxRounds(); round++) {
-            ctx.setCurrentRound(round);
+    // ==================== 私有辅助方法 ====================
 
-            // S2: 审计
-            PipelineResult auditResult = executeStageSync(auditStage, ctx);
-            if (!auditResult.isSuccess()) {
-                log.warn("审计阶段失败(round={})，跳过精炼: {}", round, auditResult.getError());
-                break;
+    /**
+     * 执行一个拓扑节点并推送其 stage-start / stage-complete 事件
+     * 草稿节点在多候选时改为择优，审计节点经前置闸门判断，其余阶段直接调用 LLM
+     */
+    private PipelineResult executeNode(PipelineTopology.Node node, PipelineContext ctx, PipelineEventSink events) {
+        PipelineStage stage = node.stage();
+        String type = stage.getStageType();
+        String head = "{\"stage\":\"" + type + "\",\"node\":\"" + escapeJson(node.id()) + "\"";
+        events.send("stage-start", head + ",\"name\":\"" + stage.getStageName() + "\",\"round\":" + ctx.getCurrentRound() + "}");
+
+        PipelineResult result;
+        boolean skipped = false;
+        SpeculativeRefiner.Speculation speculation;
+        if ("draft".equals(type) && config.getDraftCandidates() > 1) {
+            result = selectDraft(node, ctx, events);
+        } else if ("audit".equals(type)) {
+            Object preAudit = ctx.getStageOutputs().remove(SELECTED_AUDIT);
+            if (preAudit != null) {
+                events.send("message", preAudit.toString());
             }
+            AuditOutcome outcome = audit(ctx, preAudit != null ? preAudit.toString() : null,
+                () -> llmAudit(node, ctx, events));
+            result = outcome.result();
+            skipped = outcome.skipped();
+        } else if ("refine".equals(type) && (speculation = speculativeRefiner.take(ctx)) != null) {
+            result = takeOverSpeculation(speculation, node, ctx, events, head);
+        } else {
+            result = executeStage(node, ctx, events);
+        }
+        if (ctx.isCancelled()) {
+            return result;
+        }
 
-            if (auditResult.isNeedsRefine() && config.isRefineEnabled()) {
-                // S3: 精炼
-                PipelineResult refineResult = executeStageSync(refineStage, ctx);
-                if (!refineResult.isSuccess()) {
-                    log.warn("精炼阶段失败(round={})，使用当前草稿: {}", round, refineResult.getError());
-                    break;
-                }
+        if (!result.isSuccess()) {
+            events.send("stage-complete", head + ",\"status\":\"error\",\"message\":\"" +
+                escapeJson(result.getError()) + "\"}");
+        } else if ("audit".equals(type)) {
+            int score = result.getQualityScore() != null ? result.getQualityScore() : 0;
+            boolean needsRefine = result.isNeedsRefine() && config.isRefineEnabled();
+            // 同一轮有多个审计节点时，任一认为需要精炼即精炼
+            if (needsRefine) {
+                ctx.setNeedsRefine(true);
             } else {
-                log.info("审计通过(评分={})，结束流水线", auditResult.getQualityScore());
-                break;
+                log.info("审计通过(评分={})，无需精炼", score);
             }
+            events.send("stage-complete", head + ",\"status\":\"" + (skipped ? "skipped" : "ok") +
+                "\",\"score\":" + score + ",\"needsRefine\":" + needsRefine + "}");
+        } else {
+            events.send("stage-complete", head + ",\"status\":\"ok\"}");
         }
-
-        return ctx.getCurrentDraft();
+        return result;
     }
 
     /**
-     * 流式执行 Pipeline
-     * 通过 SSE 逐阶段推送流式内容
+     * 调用审计模型（单次或并行审计）；开启投机精炼时，审计期间以本地分析结果在后台提前精炼，审计结束后决定去留
      */
-    public SseEmitter executeStream(PipelineContext ctx) {
-        ctx.setStreamMode(true);
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-        ExecutorService executor = Executors.newSingleThreadExecutor();
+    private PipelineResult llmAudit(PipelineTopology.Node node, PipelineContext ctx, PipelineEventSink events) {
+        SpeculativeRefiner.Speculation speculation = null;
+        if (speculativeRefiner.applies(ctx)) {
+            int localScore = localScore(ctx);
+            speculation = speculativeRefiner.start(ctx, localReport(ctx, localScore, false), localScore);
+        }
+        PipelineResult result = multiAuditor.isEnabled() ? multiAudit(node, ctx, events) : executeStage(node, ctx, events);
+        speculativeRefiner.resolve(speculation, ctx, result);
+        return result;
+    }
 
-        executor.execute(() -> {
+    /**
+     * 精炼节点接管保留的投机精炼：回放已生成的内容并继续推送，失败时按当前审计意见重新精炼
+     * 等待受精炼阶段的时间片约束，到期即中断投机请求并跳过本阶段
+     */
+    private PipelineResult takeOverSpeculation(SpeculativeRefiner.Speculation speculation, PipelineTopology.Node node,
+                                               PipelineContext ctx, PipelineEventSink events, String head) {
+        PipelineStage stage = node.stage();
+        long slice = latencyBudget.sliceFor(stage.getStageType(), ctx);
+        if (slice <= 0) {
+            speculation.cancel("时间预算已用完");
+            return executeStage(node, ctx, events);
+        }
+        QualityProgress progress = ctx.isStreamMode() ? new QualityProgress(stage.getStageType(), ctx, events) : null;
+        String content;
+        LatencyBudget.Expiry expiry;
+        try (LatencyBudget.StageTimer timer = latencyBudget.arm(ctx, slice, false)) {
+            CancellationToken.Registration registration =
+                timer.token().onCancel(() -> speculation.cancel(timer.token().getReason()));
             try {
-                // S1: 草稿生成
-                sendEvent(emitter, "stage-start",
-                    "{\"stage\":\"draft\",\"name\":\"草稿生成\",\"round\":" + ctx.getCurrentRound() + "}");
-
-                executeStageStream(draftStage, ctx, emitter);
-                sendEvent(emitter, "stage-complete",
-                    "{\"stage\":\"draft\",\"status\":\"ok\"}");
-
-                // S2→S3 循环
-                for (int round = 0; round < config.getMaxRounds(); round++) {
-                    ctx.setCurrentRound(round);
-
-                    // S2: 审计
-                    sendEvent(emitter, "stage-start",
-                        "{\"stage\":\"audit\",\"name\":\"质量审查\",\"round\":" + round + "}");
-                    PipelineResult auditResult = executeStageStream(auditStage, ctx, emitter);
-
-                    if (!auditResult.isSuccess()) {
-                        sendEvent(emitter, "stage-complete",
-                            "{\"stage\":\"audit\",\"status\":\"error\",\"message\":\"" +
-                                escapeJson(auditResult.getError()) + "\"}");
-                        break;
+                content = speculation.await(chunk -> {
+                    events.send("message", chunk);
+                    if (progress != null) {
+                        progress.append(chunk);
                     }
+                });
+            } finally {
+                registration.close();
+            }
+            expiry = timer.expiry();
+            long elapsed = timer.elapsedMs();
+            latencyBudget.recordStage(stage.getStageType(), elapsed);
+            sendBudget(node, ctx, events, speculation.model(), elapsed, slice,
+                expiry == LatencyBudget.Expiry.NONE ? "ok" : "timeout", false);
+        }
+        if (content == null) {
+            if (ctx.isCancelled()) {
+                return PipelineResult.error("已取消");
+            }
+            if (expiry != LatencyBudget.Expiry.NONE) {
+                latencyBudget.recordSkip();
+                log.warn("{}超时，已跳过(round={})", stage.getStageName(), ctx.getCurrentRound());
+                return PipelineResult.error(stage.getStageName() + "超时，已跳过");
+            }
+            speculativeRefiner.recordFailure();
+            log.warn("投机精炼未得到结果，按审计意见重新精炼(round={})", ctx.getCurrentRound());
+            // 重新开始本阶段，前端清空已回放的内容
+            events.send("stage-start", head + ",\"name\":\"" + stage.getStageName() + "\",\"round\":" + ctx.getCurrentRound() + "}");
+            return executeStage(node, ctx, events);
+        }
+        if (progress != null) {
+            progress.finish();
+        }
+        return stage.processResponse(content, ctx);
+    }
 
-                    int score = auditResult.getQualityScore() != null ? auditResult.getQualityScore() : 0;
-                    boolean needsRefine = auditResult.isNeedsRefine() && config.isRefineEnabled();
+    /**
+     * 并行审计：各审计员的输出不逐字推送，融合后一次性推送融合报告；到时未返回的审计员按失败处理
+     */
+    private PipelineResult multiAudit(PipelineTopology.Node node, PipelineContext ctx, PipelineEventSink events) {
+        String type = node.stage().getStageType();
+        String models = String.join(",", auditStage.auditModels());
+        long slice = latencyBudget.sliceFor(type, ctx);
+        if (slice <= 0) {
+            latencyBudget.recordSkip();
+            sendBudget(node, ctx, events, models, 0, slice, "skipped", false);
+            return PipelineResult.error(node.stage().getStageName() + "时间预算已用完，已跳过");
+        }
+        long start = System.currentTimeMillis();
+        PipelineResult result = multiAuditor.audit(ctx, slice);
+        long elapsed = System.currentTimeMillis() - start;
+        latencyBudget.recordStage(type, elapsed);
+        sendBudget(node, ctx, events, models, elapsed, slice, elapsed >= slice ? "timeout" : "ok", false);
+        if (result.isSuccess() && result.getContent() != null) {
+            events.send("message", result.getContent());
+        }
+        return result;
+    }
 
-                    sendEvent(emitter, "stage-complete",
-                        "{\"stage\":\"audit\",\"status\":\"ok\",\"score\":" + score +
-                            ",\"needsRefine\":" + needsRefine + "}");
+    /**
+     * 多候选草稿：并行生成后择优，候选不逐字推送，选出后一次性推送胜出草稿
+     * 生成与合并审计共用草稿阶段的时间片，到期时只在已返回的候选中选择
+     */
+    private PipelineResult selectDraft(PipelineTopology.Node node, PipelineContext ctx, PipelineEventSink events) {
+        String type = node.stage().getStageType();
+        String models = config.getDraftModels() != null ? String.join(",", config.getDraftModels()) : null;
+        long slice = latencyBudget.sliceFor(type, ctx);
+        if (slice <= 0) {
+            latencyBudget.recordSkip();
+            sendBudget(node, ctx, events, models, 0, slice, "skipped", false);
+            return PipelineResult.error(node.stage().getStageName() + "时间预算已用完，已跳过");
+        }
+        DraftCandidateSelector.Selection selection;
+        try (LatencyBudget.StageTimer timer = latencyBudget.arm(ctx, slice, false)) {
+            selection = draftSelector.select(ctx, timer.token());
+            long elapsed = timer.elapsedMs();
+            latencyBudget.recordStage(type, elapsed);
+            sendBudget(node, ctx, events, models, elapsed, slice,
+                timer.expiry() == LatencyBudget.Expiry.NONE ? "ok" : "timeout", false);
+        }
+        if (selection.auditReport() != null) {
+            ctx.getStageOutputs().put(SELECTED_AUDIT, selection.auditReport());
+        }
+        try {
+            events.send("draft-candidates", objectMapper.writeValueAsString(Map.of(
+                "winner", selection.winner().index(),
+                "candidates", ctx.getStageOutputs().get("draftCandidates"))));
+        } catch (JsonProcessingException e) {
+            log.warn("候选草稿事件序列化失败: {}", e.getMessage());
+        }
+        events.send("message", ctx.getCurrentDraft());
+        return PipelineResult.ok(ctx.getCurrentDraft());
+    }
 
-                    if (!needsRefine) {
-                        log.info("审计通过(评分={})，结束流水线", score);
-                        break;
-                    }
+    /**
+     * 客户端已断开：记录已消耗的 token，不再启动后续节点，也不再推送事件
+     */
+    private void finishCancelled(PipelineContext ctx, SseEmitter emitter, String nodeId) {
+        cancelledRuns.incrementAndGet();
+        wastedTokens.addAndGet(ctx.getTokensSpent());
+        log.info("流水线已取消({})，停在 {} 节点(round={})，已消耗约 {} token",
+            ctx.getCancellation().getReason(), nodeId, ctx.getCurrentRound(), ctx.getTokensSpent());
+        emitter.complete();
+    }
 
-                    // S3: 精炼
-                    sendEvent(emitter, "stage-start",
-                        "{\"stage\":\"refine\",\"name\":\"精炼优化\",\"round\":" + round + "}");
-                    PipelineResult refineResult = executeStageStream(refineStage, ctx, emitter);
+    /**
+     * 一轮审计的结果
+     * @param skipped 是否由前置闸门按本地评分判定、未调用审计模型
+     */
+    private record AuditOutcome(PipelineResult result, boolean skipped) {
+    }
 
-                    if (!refineResult.isSuccess()) {
-                        sendEvent(emitter, "stage-complete",
-                            "{\"stage\":\"refine\",\"status\":\"error\",\"message\":\"" +
-                                escapeJson(refineResult.getError()) + "\"}");
-                        break;
-                    }
+    /**
+     * 当前草稿的本地评分：流式生成或多候选择优时已算出则直接沿用，否则评估一次并记入上下文
+     */
+    private int localScore(PipelineContext ctx) {
+        int score = ctx.getLocalScore();
+        if (score < 0) {
+            score = qualityService.evaluate(ctx.getCurrentDraft());
+            ctx.setLocalScore(score);
+        }
+        return score;
+    }
 
-                    sendEvent(emitter, "stage-complete",
-                        "{\"stage\":\"refine\",\"status\":\"ok\"}");
-                }
+    /**
+     * 执行一轮审计：已有多候选择优时的审计报告则直接采用，否则经前置闸门判断，必要时调用审计模型
+     */
+    private AuditOutcome audit(PipelineContext ctx, String preAudit, Supplier<PipelineResult> llmAudit) {
+        int localScore = localScore(ctx);
+        if (preAudit != null) {
+            PipelineResult result = auditStage.processResponse(preAudit, ctx);
+            recordCalibration(AuditPreGate.Decision.AUDIT, localScore, result);
+            return new AuditOutcome(result, false);
+        }
+        AuditPreGate.Decision gate = auditPreGate.decide(localScore);
+        PipelineResult result = gate == AuditPreGate.Decision.AUDIT
+            ? llmAudit.get()
+            : localAudit(ctx, localScore, gate);
+        recordCalibration(gate, localScore, result);
+        return new AuditOutcome(result, gate != AuditPreGate.Decision.AUDIT);
+    }
 
-                // 发送完成事件
-                sendEvent(emitter, "done", "{\"done\":true}");
-                emitter.complete();
+    /**
+     * 闸门跳过 LLM 审计时，用本地规则分析生成与审计阶段同格式的报告，供精炼阶段使用
+     */
+    private PipelineResult localAudit(PipelineContext ctx, int localScore, AuditPreGate.Decision gate) {
+        boolean passed = gate == AuditPreGate.Decision.PASS;
+        String content = localReport(ctx, localScore, passed);
+        ctx.setAuditReportText(content);
+        ctx.getAuditHistory().add(new AuditRound(ctx.getCurrentRound(), localScore, content, passed));
+
+        boolean needsRefine = !passed && ctx.getCurrentRound() < config.getMaxRounds() - 1;
+        log.info("审计前置闸门判定{}(本地评分={})，跳过 LLM 审计，需要精炼={}",
+            passed ? "合格" : "不合格", localScore, needsRefine);
+        return PipelineResult.auditResult(content, localScore, needsRefine);
+    }
 
-            } catch (Exception e) {
-                log.error("Pipeline 流式执行出错", e);
-                handleError(emitter, e);
-            } finally {
-                executor.shutdown();
+    /**
+     * 用本地规则分析生成与审计阶段同格式的报告（不修改上下文）
+     */
+    private String localReport(PipelineContext ctx, int localScore, boolean passed) {
+        AnalyzeResponse analysis = qualityService.analyze(ctx.getCurrentDraft());
+
+        List<Map<String, Object>> issues = new ArrayList<>();
+        if (analysis.getImprovements() != null) {
+            for (AnalyzeResponse.Improvement improvement : analysis.getImprovements()) {
+                Map<String, Object> issue = new LinkedHashMap<>();
+                issue.put("severity", switch (improvement.getPriority()) {
+                    case 1 -> "major";
+                    case 2 -> "minor";
+                    default -> "suggestion";
+                });
+                issue.put("dimension", improvement.getCategory());
+                issue.put("description", improvement.getIssue());
+                issue.put("suggestion", improvement.getSuggestion());
+                issues.add(issue);
             }
-        });
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("overallScore", localScore);
+        report.put("summary", "本地规则评估" + (passed ? "合格" : "不合格") + "（" + analysis.getScoreLevel() + "），未调用审计模型");
+        report.put("issues", issues);
+        report.put("source", "local");
 
-        emitter.onCompletion(() -> executor.shutdown());
-        emitter.onTimeout(() -> executor.shutdown());
-        emitter.onError(e -> executor.shutdown());
+        try {
+            return objectMapper.writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            return "{\"overallScore\":" + localScore + "}";
+        }
+    }
 
-        return emitter;
+    /**
+     * 实际执行了 LLM 审计且报告可解析时，记录（本地评分, 审计评分）用于闸门校准
+     */
+    private void recordCalibration(AuditPreGate.Decision gate, int localScore, PipelineResult auditResult) {
+        if (gate == AuditPreGate.Decision.AUDIT && auditResult.isSuccess()
+                && auditResult.getQualityScore() != null
+                && auditResult.getContent() != null && auditResult.getContent().contains("\"overallScore\"")) {
+            auditPreGate.record(localScore, auditResult.getQualityScore());
+        }
     }
 
-    // ==================== 私有辅助方法 ====================
+    /**
+     * 一次限时调用的结果
+     * @param expiry 调用是否因超时被中断
+     */
+    private record StageAttempt(PipelineResult result, LatencyBudget.Expiry expiry) {
+    }
 
     /**
-     * 同步执行单个阶段
+     * 执行单个阶段（流式模式下逐块推送 LLM 输出，否则同步调用），受时间预算约束：
+     * 超时则中断调用，配置了备用模型时改用备用模型重试一次，仍超时或未配置则跳过本阶段
      */
-    private PipelineResult executeStageSync(PipelineStage stage, PipelineContext ctx) {
+    private PipelineResult executeStage(PipelineTopology.Node node, PipelineContext ctx, PipelineEventSink events) {
+        PipelineStage stage = node.stage();
         LLMRequest request = stage.buildRequest(ctx);
-        var response = llmClient.call(request);
+        StageAttempt attempt = timedCall(node, request, ctx, events, false);
+        if (attempt != null && (attempt.expiry() == LatencyBudget.Expiry.NONE || ctx.isCancelled())) {
+            return attempt.result();
+        }
+
+        String fallbackModel = config.getFallbackModel();
+        if (attempt != null && fallbackModel != null && !fallbackModel.isBlank()
+                && !fallbackModel.equals(request.getModel())) {
+            log.warn("{}超时({}, round={})，改用备用模型 {} 重试", stage.getStageName(), attempt.expiry(),
+                ctx.getCurrentRound(), fallbackModel);
+            // 重新开始本阶段，前端清空超时前已推送的内容
+            events.send("stage-start", "{\"stage\":\"" + stage.getStageType() + "\",\"node\":\"" + escapeJson(node.id()) +
+                "\",\"name\":\"" + stage.getStageName() + "\",\"round\":" + ctx.getCurrentRound() + "}");
+            StageAttempt retry = timedCall(node, withModel(request, fallbackModel), ctx, events, true);
+            boolean inTime = retry != null && retry.expiry() == LatencyBudget.Expiry.NONE;
+            latencyBudget.recordFallback(inTime && retry.result().isSuccess());
+            if (inTime) {
+                return retry.result();
+            }
+        }
+        latencyBudget.recordSkip();
+        log.warn("{}{}，已跳过(round={})", stage.getStageName(), attempt == null ? "时间预算已用完" : "超时",
+            ctx.getCurrentRound());
+        return PipelineResult.error(stage.getStageName() + (attempt == null ? "时间预算已用完" : "超时") + "，已跳过");
+    }
+
+    /**
+     * 在阶段时间片内调用一次 LLM，并推送 budget 事件
+     * @return 调用结果；剩余预算已用完、未发起调用时返回 null
+     */
+    private StageAttempt timedCall(PipelineTopology.Node node, LLMRequest request, PipelineContext ctx,
+                                   PipelineEventSink events, boolean fallback) {
+        PipelineStage stage = node.stage();
+        long slice = latencyBudget.sliceFor(stage.getStageType(), ctx);
+        if (slice <= 0) {
+            sendBudget(node, ctx, events, request.getModel(), 0, slice, "skipped", fallback);
+            return null;
+        }
+        try (LatencyBudget.StageTimer timer = latencyBudget.arm(ctx, slice, ctx.isStreamMode())) {
+            PipelineResult result = ctx.isStreamMode()
+                ? executeStageStream(stage, request, ctx, events, timer)
+                : executeStageSync(stage, request, ctx, timer);
+            long elapsed = timer.elapsedMs();
+            latencyBudget.recordStage(stage.getStageType(), elapsed);
+            String status = switch (timer.expiry()) {
+                case NONE -> "ok";
+                case FIRST_TOKEN -> "first-token-timeout";
+                case SLICE -> "timeout";
+            };
+            sendBudget(node, ctx, events, request.getModel(), elapsed, slice, status, fallback);
+            return new StageAttempt(result, timer.expiry());
+        }
+    }
+
+    /**
+     * 推送阶段耗时与剩余预算，未限时的字段为 -1
+     */
+    private void sendBudget(PipelineTopology.Node node, PipelineContext ctx, PipelineEventSink events, String model,
+                            long elapsedMs, long sliceMs, String status, boolean fallback) {
+        long remaining = latencyBudget.remaining(ctx);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("stage", node.stage().getStageType());
+        data.put("node", node.id());
+        data.put("round", ctx.getCurrentRound());
+        data.put("model", model);
+        data.put("elapsedMs", elapsedMs);
+        data.put("sliceMs", sliceMs == Long.MAX_VALUE ? -1 : Math.max(0, sliceMs));
+        data.put("remainingMs", remaining == Long.MAX_VALUE ? -1 : Math.max(0, remaining));
+        data.put("status", status);
+        data.put("fallback", fallback);
+        try {
+            events.send("budget", objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            log.warn("预算事件序列化失败: {}", e.getMessage());
+        }
+    }
+
+    private static LLMRequest withModel(LLMRequest request, String model) {
+        return LLMRequest.builder()
+            .model(model)
+            .messages(request.getMessages())
+            .temperature(request.getTemperature())
+            .maxTokens(request.getMaxTokens())
+            .stream(request.getStream())
+            .extraParams(request.getExtraParams())
+            .build();
+    }
+
+    /**
+     * 同步执行单个阶段，时间片到期时中止上游请求并归还并发许可
+     */
+    private PipelineResult executeStageSync(PipelineStage stage, LLMRequest request, PipelineContext ctx,
+                                            LatencyBudget.StageTimer timer) {
+        LLMResponse response;
+        try {
+            response = llmClient.callAsync(request, timer.token()).join();
+        } catch (CancellationException e) {
+            return PipelineResult.error(ctx.isCancelled() ? "已取消" : stage.getStageName() + "超时");
+        }
         if (!response.isSuccess()) {
             return PipelineResult.error(response.getError() != null
                 ? response.getError().getMessage() : "LLM调用失败");
@@ -184,40 +597,115 @@ public class PipelineOrchestrator {
 
     /**
      * 流式执行单个阶段，将 LLM 输出实时推送给客户端
+     * 草稿和精炼阶段输出的是提示词正文，边生成边本地评分，评分变化时推送 quality-progress 事件
      * @return 阶段处理结果（内含完整内容）
      */
     private PipelineResult executeStageStream(PipelineStage stage,
+                                              LLMRequest request,
                                               PipelineContext ctx,
-                                              SseEmitter emitter) {
-        LLMRequest request = stage.buildRequest(ctx);
+                                              PipelineEventSink events,
+                                              LatencyBudget.StageTimer timer) {
         StringBuilder fullContent = new StringBuilder();
 
+        QualityProgress progress = "audit".equals(stage.getStageType())
+            ? null
+            : new QualityProgress(stage.getStageType(), ctx, events);
+        Consumer<String> sink = chunk -> {
+            events.send("message", chunk);
+            if (progress != null) {
+                progress.append(chunk);
+            }
+        };
+
         // 草稿阶段需要实时过滤模型的前置解释文本
         Consumer<String> contentFilter = "draft".equals(stage.getStageType())
-            ? createDraftContentFilter(emitter, fullContent)
+            ? createDraftContentFilter(sink, fullContent)
             : chunk -> {
                 fullContent.append(chunk);
-                sendEvent(emitter, "message", chunk);
+                sink.accept(chunk);
               };
 
         llmClient.callStream(request,
-            chunk -> contentFilter.accept(chunk),
+            chunk -> {
+                timer.onFirstToken();
+                contentFilter.accept(chunk);
+            },
             () -> {
                 // 流完成，无事
             },
             error -> {
-                log.error("阶段流式调用出错: {}", error.getMessage());
-            }
+                if (!(error instanceof CancellationException)) {
+                    log.error("阶段流式调用出错: {}", error.getMessage());
+                }
+            },
+            timer.token()
         );
 
-        return stage.processResponse(fullContent.toString(), ctx);
+        ctx.addTokensSpent(estimateTokens(request) + TokenEstimator.estimate(fullContent.toString()));
+        if (ctx.isCancelled()) {
+            return PipelineResult.error("已取消");
+        }
+        if (timer.expiry() != LatencyBudget.Expiry.NONE) {
+            return PipelineResult.error(stage.getStageName() + "超时");
+        }
+        int finalScore = progress != null ? progress.finish() : -1;
+        String content = fullContent.toString();
+        PipelineResult result = stage.processResponse(content, ctx);
+        // 草稿就是流式输出原文时沿用最终评分，审计前不再重复评估
+        if (finalScore >= 0 && content.equals(ctx.getCurrentDraft())) {
+            ctx.setLocalScore(finalScore);
+        }
+        return result;
+    }
+
+    /**
+     * 阶段内的实时质量评分：增量更新，只在分数变化时推送，结束时推送一次最终分
+     */
+    private class QualityProgress {
+
+        private final String stageType;
+        private final PipelineContext ctx;
+        private final PipelineEventSink events;
+        private final IncrementalQualityScorer scorer = qualityService.newIncrementalScorer();
+        private int lastScore = -1;
+
+        QualityProgress(String stageType, PipelineContext ctx, PipelineEventSink events) {
+            this.stageType = stageType;
+            this.ctx = ctx;
+            this.events = events;
+        }
+
+        void append(String chunk) {
+            scorer.append(chunk);
+            int score = scorer.score();
+            if (score != lastScore) {
+                lastScore = score;
+                send(score, false);
+            }
+        }
+
+        /**
+         * 推送最终分
+         * @return 完整输出的本地评分
+         */
+        int finish() {
+            int score = scorer.score();
+            send(score, true);
+            return score;
+        }
+
+        private void send(int score, boolean last) {
+            events.send("quality-progress",
+                "{\"stage\":\"" + stageType + "\",\"round\":" + ctx.getCurrentRound() +
+                    ",\"score\":" + score + ",\"length\":" + scorer.length() + ",\"final\":" + last + "}");
+        }
     }
 
     /**
      * 创建草稿阶段的内容过滤器，实时过滤模型在前置解释文本
      * 只从 "# " 标记开始往客户端推送内容
      */
-    private Consumer<String> createDraftContentFilter(SseEmitter emitter,
+    private Consumer<String> createDraftContentFilter(Consumer<String> sink,
                                                        StringBuilder fullContent) {
         StringBuilder pendingBuffer = new StringBuilder();
         AtomicBoolean foundPromptStart = new AtomicBoolean(false);
@@ -251,7 +739,7 @@ public class PipelineOrchestrator {
                         pendingBuffer.append(actualContent);
                         lastSentIndex.set(actualContent.length());
                         if (!actualContent.isEmpty()) {
-                            sendEvent(emitter, "message", actualContent);
+                            sink.accept(actualContent);
                         }
                     }
                 } else {
@@ -262,7 +750,7 @@ public class PipelineOrchestrator {
                         String toSend = newContent.substring(sent);
                         lastSentIndex.set(newContent.length());
                         if (!toSend.isEmpty()) {
-                            sendEvent(emitter, "message", toSend);
+                            sink.accept(toSend);
                         }
                     }
                 }
@@ -270,6 +758,27 @@ public class PipelineOrchestrator {
         };
     }
 
+    /**
+     * 调用消耗的 token：优先取响应中的用量，没有时按请求与输出估算
+     */
+    static long tokensOf(LLMRequest request, LLMResponse response) {
+        if (response.getTotalTokens() != null) {
+            return response.getTotalTokens();
+        }
+        return estimateTokens(request)
+            + (response.getContent() != null ? TokenEstimator.estimate(response.getContent()) : 0);
+    }
+
+    static long estimateTokens(LLMRequest request) {
+        long tokens = 0;
+        if (request.getMessages() != null) {
+            for (LLMRequest.Message message : request.getMessages()) {
+                tokens += TokenEstimator.estimate(message.getContent());
+            }
+        }
+        return tokens;
+    }
+
     private void sendEvent(SseEmitter emitter, String event, String data) {
         try {
             emitter.send(SseEmitter.event()
@@ -0,0 +1,293 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.strategy.pipeline.PipelineTopology.Condition;
+import com.promptflow.strategy.pipeline.PipelineTopology.Node;
+import com.promptflow.util.NamedThreads;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线调度器
+ * 按拓扑逐轮执行节点：依赖全部完成的节点即可启动，互不依赖的节点在共享线程池中并行，只有一个就绪节点时在当前线程直接执行。
+ * 同一时刻只有一个节点直接推送事件，其余并行节点的事件缓存到完成后整体推送，保证前端看到的阶段不交错。
+ * 第 1 轮执行全部节点，之后只执行重复节点；本轮有 needs-refine 节点成功执行时进入下一轮，最多 max-rounds 轮
+ */
+@Component
+public class PipelineScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineScheduler.class);
+
+    /**
+     * 节点执行器：执行节点对应的阶段并推送该节点的事件
+     */
+    @FunctionalInterface
+    public interface NodeExecutor {
+        PipelineResult execute(Node node, PipelineContext ctx, PipelineEventSink events);
+    }
+
+    public enum Status {
+        COMPLETED,
+        /** 只执行一次的节点失败，流水线无法产出结果 */
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * 执行结果
+     * @param nodeId 失败或取消时所在的节点
+     * @param error 失败原因，带阶段名称
+     */
+    public record Outcome(Status status, String nodeId, String error) {
+    }
+
+    private enum State { PENDING, RUNNING, OK, SKIPPED, FAILED, BLOCKED }
+
+    private record Finished(Node node, PipelineResult result, RuntimeException error,
+                            PipelineEventSink.Buffered buffer) {
+    }
+
+    private record RoundResult(Outcome outcome, boolean refined) {
+    }
+
+    private final PipelineConfig config;
+    private final ExecutorService executor;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong nodesExecuted = new AtomicLong();
+    private final AtomicLong nodesSkipped = new AtomicLong();
+    private final AtomicLong nodesFailed = new AtomicLong();
+    /** 与其他节点同时执行的节点数 */
+    private final AtomicLong nodesParallel = new AtomicLong();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    public PipelineScheduler(PipelineConfig config) {
+        this.config = config;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getNodeThreads()),
+            NamedThreads.daemon("pipeline-node"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 执行流水线，在调用线程上阻塞到结束
+     */
+    public Outcome run(PipelineTopology topology, PipelineContext ctx, NodeExecutor nodeExecutor,
+                       PipelineEventSink events) {
+        runs.incrementAndGet();
+        for (int round = 0; round < config.getMaxRounds(); round++) {
+            List<Node> nodes = topology.nodesForRound(round);
+            if (nodes.isEmpty()) {
+                break;
+            }
+            ctx.setCurrentRound(round);
+            ctx.setNeedsRefine(false);
+            RoundResult result = runRound(nodes, ctx, nodeExecutor, events);
+            if (result.outcome() != null) {
+                return result.outcome();
+            }
+            if (!result.refined()) {
+                break;
+            }
+        }
+        return new Outcome(Status.COMPLETED, null, null);
+    }
+
+    /**
+     * 执行一轮
+     * @return outcome 非空表示流水线就此结束；refined 表示有 needs-refine 节点成功执行，应进入下一轮
+     */
+    private RoundResult runRound(List<Node> nodes, PipelineContext ctx, NodeExecutor nodeExecutor,
+                                 PipelineEventSink events) {
+        Map<String, State> states = new HashMap<>();
+        nodes.forEach(n -> states.put(n.id(), State.PENDING));
+        BlockingQueue<Finished> finished = new LinkedBlockingQueue<>();
+        // 直接推送事件的节点；其余节点完成后缓存的事件要等它结束再推送
+        Node liveNode = null;
+        List<PipelineEventSink.Buffered> pendingFlush = new ArrayList<>();
+        int running = 0;
+        boolean refined = false;
+        boolean repeatFailed = false;
+        Outcome outcome = null;
+
+        while (true) {
+            List<Node> ready = outcome != null || ctx.isCancelled() ? List.of() : resolveReady(nodes, states, ctx);
+
+            if (ready.size() == 1 && running == 0) {
+                Node node = ready.get(0);
+                states.put(node.id(), State.RUNNING);
+                Finished f = executeNode(node, ctx, nodeExecutor, events, null);
+                outcome = handle(f, states, ctx, outcome);
+                refined |= isRefined(f, states);
+                repeatFailed |= node.repeat() && states.get(node.id()) == State.FAILED;
+                continue;
+            }
+            for (Node node : ready) {
+                PipelineEventSink.Buffered buffer = null;
+                PipelineEventSink sink = events;
+                if (liveNode == null) {
+                    liveNode = node;
+                } else {
+                    buffer = new PipelineEventSink.Buffered();
+                    sink = buffer;
+                }
+                states.put(node.id(), State.RUNNING);
+                running++;
+                if (running > 1) {
+                    nodesParallel.incrementAndGet();
+                }
+                maxConcurrent.accumulateAndGet(running, Math::max);
+                PipelineEventSink nodeSink = sink;
+                PipelineEventSink.Buffered nodeBuffer = buffer;
+                executor.execute(() -> finished.add(executeNode(node, ctx, nodeExecutor, nodeSink, nodeBuffer)));
+            }
+            if (running == 0) {
+                break;
+            }
+
+            Finished f;
+            try {
+                f = finished.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ctx.getCancellation().cancel("调度线程被中断");
+                return new RoundResult(new Outcome(Status.CANCELLED, liveNode != null ? liveNode.id() : null, null), false);
+            }
+            running--;
+            outcome = handle(f, states, ctx, outcome);
+            refined |= isRefined(f, states);
+            repeatFailed |= f.node().repeat() && states.get(f.node().id()) == State.FAILED;
+
+            if (f.buffer() != null) {
+                pendingFlush.add(f.buffer());
+            } else {
+                liveNode = null;
+            }
+            if (liveNode == null) {
+                pendingFlush.forEach(b -> b.flushTo(events));
+                pendingFlush.clear();
+            }
+        }
+
+        if (outcome == null && ctx.isCancelled()) {
+            String at = nodes.stream()
+                .filter(n -> states.get(n.id()) != State.PENDING)
+                .reduce((a, b) -> b).map(Node::id).orElse(null);
+            outcome = new Outcome(Status.CANCELLED, at, null);
+        }
+        return new RoundResult(outcome, refined && !repeatFailed);
+    }
+
+    /**
+     * 找出本轮依赖已满足的待执行节点；依赖失败的节点标记为阻塞，条件不满足的节点标记为跳过（不影响下游）
+     */
+    private List<Node> resolveReady(List<Node> nodes, Map<String, State> states, PipelineContext ctx) {
+        List<Node> ready = new ArrayList<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Node node : nodes) {
+                if (states.get(node.id()) != State.PENDING || ready.contains(node)) {
+                    continue;
+                }
+                boolean waiting = false;
+                boolean blocked = false;
+                for (String dep : node.dependsOn()) {
+                    State s = states.get(dep);
+                    if (s == null) {
+                        // 不在本轮执行的依赖（只执行一次的节点）已在第 1 轮完成
+                        continue;
+                    }
+                    if (s == State.PENDING || s == State.RUNNING) {
+                        waiting = true;
+                    } else if (s == State.FAILED || s == State.BLOCKED) {
+                        blocked = true;
+                    }
+                }
+                if (blocked) {
+                    states.put(node.id(), State.BLOCKED);
+                    nodesSkipped.incrementAndGet();
+                    changed = true;
+                } else if (!waiting && node.when() == Condition.NEEDS_REFINE && !ctx.isNeedsRefine()) {
+                    states.put(node.id(), State.SKIPPED);
+                    nodesSkipped.incrementAndGet();
+                    changed = true;
+                } else if (!waiting) {
+                    ready.add(node);
+                }
+            }
+        }
+        return ready;
+    }
+
+    private Finished executeNode(Node node, PipelineContext ctx, NodeExecutor nodeExecutor,
+                                 PipelineEventSink sink, PipelineEventSink.Buffered buffer) {
+        nodesExecuted.incrementAndGet();
+        try {
+            return new Finished(node, nodeExecutor.execute(node, ctx, sink), null, buffer);
+        } catch (RuntimeException e) {
+            return new Finished(node, null, e, buffer);
+        }
+    }
+
+    /**
+     * 记录节点结果
+     * @return 流水线就此结束时的结果（取消，或只执行一次的节点失败），已有结果时保持不变
+     */
+    private Outcome handle(Finished f, Map<String, State> states, PipelineContext ctx, Outcome current) {
+        Node node = f.node();
+        boolean ok = f.error() == null && f.result() != null && f.result().isSuccess();
+        states.put(node.id(), ok ? State.OK : State.FAILED);
+        if (ctx.isCancelled() || f.error() instanceof CancellationException) {
+            return current != null ? current : new Outcome(Status.CANCELLED, node.id(), null);
+        }
+        if (ok) {
+            return current;
+        }
+        nodesFailed.incrementAndGet();
+        String error = f.error() != null ? f.error().getMessage()
+            : node.stage().getStageName() + "失败: " + (f.result() != null ? f.result().getError() : "阶段无结果");
+        if (f.error() != null && !node.repeat()) {
+            log.error("流水线节点 {} 执行出错", node.id(), f.error());
+        } else {
+            log.warn("流水线节点 {} 失败(round={}): {}", node.id(), ctx.getCurrentRound(), error);
+        }
+        if (current != null || node.repeat()) {
+            return current;
+        }
+        return new Outcome(Status.FAILED, node.id(), error);
+    }
+
+    private static boolean isRefined(Finished f, Map<String, State> states) {
+        return f.node().when() == Condition.NEEDS_REFINE && states.get(f.node().id()) == State.OK;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", Math.max(1, config.getNodeThreads()));
+        metrics.put("runs", runs.get());
+        metrics.put("nodesExecuted", nodesExecuted.get());
+        metrics.put("nodesSkipped", nodesSkipped.get());
+        metrics.put("nodesFailed", nodesFailed.get());
+        metrics.put("nodesParallel", nodesParallel.get());
+        metrics.put("maxConcurrent", maxConcurrent.get());
+        return metrics;
+    }
+}
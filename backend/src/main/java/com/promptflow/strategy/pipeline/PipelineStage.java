@@ -2,6 +2,8 @@ package com.promptflow.strategy.pipeline;
 
 import com.promptflow.dto.llm.LLMRequest;
 
+import java.util.Set;
+
 /**
  * Pipeline 阶段接口
  * 定义流水线中各阶段的行为契约
@@ -28,6 +30,21 @@ public interface PipelineStage {
         return true;
     }
 
+    /**
+     * 阶段读取的上下文数据，调度器据此推导节点依赖
+     * 约定的数据名："draft"（当前草稿）、"audit"（审计报告与是否需要精炼）
+     */
+    default Set<String> inputs() {
+        return Set.of();
+    }
+
+    /**
+     * 阶段写入的上下文数据，写同一数据的节点不会并行
+     */
+    default Set<String> outputs() {
+        return Set.of();
+    }
+
     /**
      * 构建 LLM 请求
      * @param ctx 流水线上下文（包含当前草稿、审计报告等）
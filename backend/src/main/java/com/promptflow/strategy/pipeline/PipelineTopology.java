@@ -0,0 +1,163 @@
+package com.promptflow.strategy.pipeline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流水线拓扑（有向无环图）
+ * 由配置的节点声明构建：节点依赖 = 显式 after + 按声明顺序从阶段输入/输出推导的依赖
+ * （读依赖最近的写者；写依赖之前的读者与写者），因此读写同一数据的节点不会并行，其余节点可并行
+ */
+public final class PipelineTopology {
+
+    /**
+     * 节点执行条件
+     */
+    public enum Condition {
+        ALWAYS,
+        /** 本轮审计认为需要精炼 */
+        NEEDS_REFINE
+    }
+
+    /**
+     * 已解析的节点
+     * @param dependsOn 本节点依赖的节点 id（只包含前面声明的节点）
+     */
+    public record Node(String id, PipelineStage stage, Set<String> dependsOn, boolean repeat, Condition when) {
+    }
+
+    private final List<Node> nodes;
+
+    private PipelineTopology(List<Node> nodes) {
+        this.nodes = List.copyOf(nodes);
+    }
+
+    /**
+     * 按声明构建拓扑
+     * @param specs 节点声明，为空时使用默认拓扑
+     * @param stages 可用阶段，按 getStageType 查找
+     * @throws IllegalStateException 声明不合法（重复 id、未知阶段、引用后面或不存在的节点、未知条件）
+     */
+    public static PipelineTopology build(List<PipelineConfig.Node> specs, List<? extends PipelineStage> stages) {
+        if (specs == null || specs.isEmpty()) {
+            specs = PipelineConfig.defaultTopology();
+        }
+        Map<String, PipelineStage> stageByType = new HashMap<>();
+        for (PipelineStage stage : stages) {
+            stageByType.put(stage.getStageType(), stage);
+        }
+
+        List<Node> nodes = new ArrayList<>(specs.size());
+        Map<String, Node> byId = new HashMap<>();
+        // 每份数据最近的写者，以及该写者之后的读者
+        Map<String, String> lastWriter = new HashMap<>();
+        Map<String, List<String>> readers = new HashMap<>();
+
+        for (PipelineConfig.Node spec : specs) {
+            String id = spec.getId() != null && !spec.getId().isBlank() ? spec.getId() : spec.getStage();
+            if (id == null || id.isBlank()) {
+                throw new IllegalStateException("流水线节点缺少 id 和 stage");
+            }
+            if (byId.containsKey(id)) {
+                throw new IllegalStateException("流水线节点 id 重复: " + id);
+            }
+            PipelineStage stage = stageByType.get(spec.getStage());
+            if (stage == null) {
+                throw new IllegalStateException("流水线节点 " + id + " 引用了未知阶段: " + spec.getStage());
+            }
+
+            Set<String> deps = new LinkedHashSet<>();
+            if (spec.getAfter() != null) {
+                for (String after : spec.getAfter()) {
+                    if (!byId.containsKey(after)) {
+                        throw new IllegalStateException("流水线节点 " + id + " 的 after 必须引用前面声明的节点: " + after);
+                    }
+                    deps.add(after);
+                }
+            }
+            for (String input : stage.inputs()) {
+                String writer = lastWriter.get(input);
+                if (writer != null) {
+                    deps.add(writer);
+                }
+            }
+            for (String output : stage.outputs()) {
+                String writer = lastWriter.get(output);
+                if (writer != null) {
+                    deps.add(writer);
+                }
+                deps.addAll(readers.getOrDefault(output, List.of()));
+            }
+            // 只在第 1 轮执行的节点不能依赖每轮重复的节点，否则后续轮次无法满足
+            if (!spec.isRepeat()) {
+                for (String dep : deps) {
+                    if (byId.get(dep).repeat()) {
+                        throw new IllegalStateException("流水线节点 " + id + " 只执行一次，不能依赖重复节点: " + dep);
+                    }
+                }
+            }
+
+            Node node = new Node(id, stage, Set.copyOf(deps), spec.isRepeat(), parseCondition(id, spec.getWhen()));
+            nodes.add(node);
+            byId.put(id, node);
+
+            for (String input : stage.inputs()) {
+                readers.computeIfAbsent(input, k -> new ArrayList<>()).add(id);
+            }
+            for (String output : stage.outputs()) {
+                lastWriter.put(output, id);
+                readers.remove(output);
+            }
+        }
+        return new PipelineTopology(nodes);
+    }
+
+    private static Condition parseCondition(String id, String when) {
+        if (when == null || when.isBlank() || PipelineConfig.Node.ALWAYS.equals(when)) {
+            return Condition.ALWAYS;
+        }
+        if (PipelineConfig.Node.NEEDS_REFINE.equals(when)) {
+            return Condition.NEEDS_REFINE;
+        }
+        throw new IllegalStateException("流水线节点 " + id + " 的执行条件未知: " + when);
+    }
+
+    /**
+     * 全部节点，按声明顺序
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 某一轮要执行的节点：第 1 轮执行全部节点，之后只执行重复节点
+     */
+    public List<Node> nodesForRound(int round) {
+        return round == 0 ? nodes : nodes.stream().filter(Node::repeat).toList();
+    }
+
+    /**
+     * 拓扑描述，用于日志：draft → audit[draft] → refine[audit]*
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Node node : nodes) {
+            if (!sb.isEmpty()) {
+                sb.append(" → ");
+            }
+            sb.append(node.id());
+            if (!node.dependsOn().isEmpty()) {
+                sb.append(node.dependsOn().stream().sorted().toList());
+            }
+            if (node.repeat()) {
+                sb.append('*');
+            }
+        }
+        return sb.toString();
+    }
+}
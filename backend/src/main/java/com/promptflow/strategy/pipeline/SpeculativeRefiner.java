@@ -0,0 +1,287 @@
+package com.promptflow.strategy.pipeline;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.strategy.pipeline.impl.PromptRefineStage;
+import com.promptflow.util.NamedThreads;
+import com.promptflow.util.TokenEstimator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 投机精炼
+ * LLM 审计进行的同时，以本地规则分析的问题作为临时审计意见提前发起精炼。审计结束后：
+ * 审计通过则取消投机请求；审计需要精炼且结论与本地判断相近则保留，精炼节点直接接管其输出；
+ * 两者差距过大（评分差超过阈值或审计报告中有 critical 级问题）则取消，由精炼节点按真实审计意见重新精炼。
+ * 投机请求在专用的有界线程池中执行，线程全部占用时本轮直接跳过投机，不与流水线节点争用线程；
+ * 请求受精炼阶段的时间片约束，到期即中断，剩余预算不足一个时间片时同样跳过
+ */
+@Component
+public class SpeculativeRefiner {
+
+    private static final Logger log = LoggerFactory.getLogger(SpeculativeRefiner.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 保留的投机结果存放在 stageOutputs 中，由精炼节点取用 */
+    static final String OUTPUT_KEY = "speculativeRefine";
+
+    private final LLMClient llmClient;
+    private final PipelineConfig config;
+    private final PromptRefineStage refineStage;
+    private final LatencyBudget latencyBudget;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong kept = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong restarted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    /** 保留的投机精炼在审计结束前已运行的时间之和，即节省的等待时间 */
+    private final AtomicLong overlapMillis = new AtomicLong();
+
+    public SpeculativeRefiner(LLMClient llmClient,
+                              PipelineConfig config,
+                              PromptRefineStage refineStage,
+                              LatencyBudget latencyBudget) {
+        this.llmClient = llmClient;
+        this.config = config;
+        this.refineStage = refineStage;
+        this.latencyBudget = latencyBudget;
+        // 不排队：没有空闲线程时拒绝，由 start 跳过本轮投机
+        int threads = Math.max(1, config.getSpeculativeThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), NamedThreads.daemon("pipeline-speculative"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 本轮审计是否值得投机：已开启，且审计后还可能精炼（不是最后一轮）
+     */
+    public boolean applies(PipelineContext ctx) {
+        return config.isSpeculativeRefine() && config.isRefineEnabled()
+            && ctx.getCurrentRound() < config.getMaxRounds() - 1;
+    }
+
+    /**
+     * 以临时审计意见在后台发起精炼
+     * @param provisionalReport 本地规则生成的审计报告 JSON
+     * @return 时间预算已用完或投机线程全部占用时返回 null，本轮不投机
+     */
+    public Speculation start(PipelineContext ctx, String provisionalReport, int localScore) {
+        long slice = latencyBudget.sliceFor(refineStage.getStageType(), ctx);
+        if (slice <= 0) {
+            skipped.incrementAndGet();
+            log.debug("时间预算已用完，本轮不投机(round={})", ctx.getCurrentRound());
+            return null;
+        }
+        LLMRequest request = refineStage.buildRequest(ctx, provisionalReport, localScore);
+        Speculation spec = new Speculation(localScore, request.getModel(), latencyBudget.arm(ctx, slice, true));
+        try {
+            executor.execute(() -> {
+                try {
+                    llmClient.callStream(request, spec::onChunk, () -> { }, spec::onError, spec.timer.token());
+                } catch (RuntimeException e) {
+                    spec.onError(e);
+                } finally {
+                    ctx.addTokensSpent(PipelineOrchestrator.estimateTokens(request) + TokenEstimator.estimate(spec.content()));
+                    spec.finish();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            spec.finish();
+            skipped.incrementAndGet();
+            log.debug("投机线程已满，本轮不投机(round={})", ctx.getCurrentRound());
+            return null;
+        }
+        started.incrementAndGet();
+        log.info("投机精炼已发起(round={}, 本地评分={})", ctx.getCurrentRound(), localScore);
+        return spec;
+    }
+
+    /**
+     * 审计结束后决定投机结果的去留，保留时放入上下文等待精炼节点取用
+     */
+    public void resolve(Speculation spec, PipelineContext ctx, PipelineResult auditResult) {
+        if (spec == null) {
+            return;
+        }
+        String decision;
+        if (!auditResult.isSuccess() || !auditResult.isNeedsRefine()) {
+            spec.cancel(auditResult.isSuccess() ? "审计通过" : "审计失败");
+            cancelled.incrementAndGet();
+            decision = "取消";
+        } else if (diverges(spec, auditResult)) {
+            spec.cancel("审计结论与本地判断差距过大");
+            restarted.incrementAndGet();
+            decision = "重新精炼";
+        } else {
+            kept.incrementAndGet();
+            overlapMillis.addAndGet(System.currentTimeMillis() - spec.startedAt);
+            ctx.getStageOutputs().put(OUTPUT_KEY, spec);
+            decision = "保留";
+        }
+        log.info("投机精炼{}(本地评分={}, 审计评分={})", decision, spec.localScore, auditResult.getQualityScore());
+    }
+
+    private boolean diverges(Speculation spec, PipelineResult auditResult) {
+        int score = auditResult.getQualityScore() != null ? auditResult.getQualityScore() : spec.localScore;
+        return Math.abs(score - spec.localScore) > config.getSpeculativeScoreGap()
+            || hasCriticalIssue(auditResult.getContent());
+    }
+
+    /**
+     * 审计报告的问题清单中是否有 critical 级问题，报告无法解析时按没有处理（仍受评分差约束）
+     */
+    static boolean hasCriticalIssue(String report) {
+        if (report == null) {
+            return false;
+        }
+        int jsonStart = report.indexOf('{');
+        int jsonEnd = report.lastIndexOf('}');
+        if (jsonStart < 0 || jsonEnd <= jsonStart) {
+            return false;
+        }
+        try {
+            JsonNode issues = objectMapper.readTree(report.substring(jsonStart, jsonEnd + 1)).path("issues");
+            for (JsonNode issue : issues) {
+                if ("critical".equalsIgnoreCase(issue.path("severity").asText())) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("解析审计报告失败: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 取出保留的投机结果，没有时返回 null
+     */
+    public Speculation take(PipelineContext ctx) {
+        return (Speculation) ctx.getStageOutputs().remove(OUTPUT_KEY);
+    }
+
+    /**
+     * 流水线结束时取消未被取用的投机请求
+     */
+    public void discard(PipelineContext ctx) {
+        Speculation spec = take(ctx);
+        if (spec != null) {
+            spec.cancel("流水线已结束");
+        }
+    }
+
+    /**
+     * 精炼节点接管的投机结果为空或失败时计数，节点随后按常规方式重新精炼
+     */
+    void recordFailure() {
+        failed.incrementAndGet();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", config.isSpeculativeRefine());
+        metrics.put("started", started.get());
+        metrics.put("kept", kept.get());
+        metrics.put("cancelled", cancelled.get());
+        metrics.put("restarted", restarted.get());
+        metrics.put("failed", failed.get());
+        metrics.put("skipped", skipped.get());
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("overlapMs", overlapMillis.get());
+        return metrics;
+    }
+
+    /**
+     * 进行中的投机精炼：缓存已生成的内容，接管后回放并实时转发后续增量
+     */
+    public static final class Speculation {
+
+        private final int localScore;
+        private final String model;
+        private final long startedAt = System.currentTimeMillis();
+        /** 精炼时间片计时，其令牌随上下文一并取消 */
+        private final LatencyBudget.StageTimer timer;
+        private final StringBuilder content = new StringBuilder();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Consumer<String> listener;
+        private volatile Throwable error;
+
+        Speculation(int localScore, String model, LatencyBudget.StageTimer timer) {
+            this.localScore = localScore;
+            this.model = model;
+            this.timer = timer;
+        }
+
+        synchronized void onChunk(String chunk) {
+            timer.onFirstToken();
+            content.append(chunk);
+            if (listener != null) {
+                listener.accept(chunk);
+            }
+        }
+
+        void onError(Throwable e) {
+            error = e;
+        }
+
+        void finish() {
+            timer.close();
+            done.countDown();
+        }
+
+        synchronized String content() {
+            return content.toString();
+        }
+
+        public void cancel(String reason) {
+            timer.token().cancel(reason);
+        }
+
+        public String model() {
+            return model;
+        }
+
+        /**
+         * 接管输出：已生成的部分立即回放，后续增量实时转发，阻塞到生成结束
+         * @return 完整输出；失败、取消或为空时返回 null
+         */
+        public String await(Consumer<String> consumer) {
+            synchronized (this) {
+                if (!content.isEmpty()) {
+                    consumer.accept(content.toString());
+                }
+                listener = consumer;
+            }
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel("等待投机精炼时被中断");
+                return null;
+            }
+            String result = content();
+            return error == null && !timer.token().isCancelled() && !result.isBlank() ? result : null;
+        }
+    }
+}
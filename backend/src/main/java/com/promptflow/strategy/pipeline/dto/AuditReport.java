@@ -5,7 +5,7 @@ import java.util.List;
 
 /**
  * 审计报告
- * QualityAuditStage 输出的结构化审查结果
+ * QualityAuditStage 输出的结构化审查结果；并行审计时为多位审计员融合后的结果
  */
 public class AuditReport {
 
@@ -21,6 +21,9 @@ public class AuditReport {
     /** 是否通过质量阈值的判定 */
     private boolean passed;
 
+    /** 并行审计时各审计员的评分，单次审计为空 */
+    private List<AuditorScore> auditors = new ArrayList<>();
+
     public AuditReport() {}
 
     public AuditReport(int overallScore, List<Issue> issues, String summary, boolean passed) {
@@ -42,6 +45,34 @@ public class AuditReport {
     public boolean isPassed() { return passed; }
     public void setPassed(boolean passed) { this.passed = passed; }
 
+    public List<AuditorScore> getAuditors() { return auditors; }
+    public void setAuditors(List<AuditorScore> auditors) { this.auditors = auditors; }
+
+    /**
+     * 审计员评分
+     */
+    public static class AuditorScore {
+        /** 审计员：维度标识或模型名 */
+        private String name;
+        private String model;
+        private int score;
+
+        public AuditorScore() {}
+
+        public AuditorScore(String name, String model, int score) {
+            this.name = name;
+            this.model = model;
+            this.score = score;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+        public int getScore() { return score; }
+        public void setScore(int score) { this.score = score; }
+    }
+
     /**
      * 审计问题
      */
@@ -58,6 +89,9 @@ public class AuditReport {
         /** 改进建议 */
         private String suggestion;
 
+        /** 指出该问题的审计员数，合并重复问题时累加 */
+        private int reportedBy = 1;
+
         public Issue() {}
 
         public Issue(String dimension, String severity, String description, String suggestion) {
@@ -75,5 +109,7 @@ public class AuditReport {
         public void setDescription(String description) { this.description = description; }
         public String getSuggestion() { return suggestion; }
         public void setSuggestion(String suggestion) { this.suggestion = suggestion; }
+        public int getReportedBy() { return reportedBy; }
+        public void setReportedBy(int reportedBy) { this.reportedBy = reportedBy; }
     }
 }
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 草稿生成阶段（S1）
@@ -72,6 +73,11 @@ public class DraftGeneratorStage implements PipelineStage {
         return "草稿生成";
     }
 
+    @Override
+    public Set<String> outputs() {
+        return Set.of("draft");
+    }
+
     @Override
     public boolean requiresPreviousResult() {
         return false;
@@ -112,8 +118,18 @@ public class DraftGeneratorStage implements PipelineStage {
         if (content == null || content.trim().isEmpty()) {
             return PipelineResult.error("草稿生成结果为空白");
         }
-        // 过滤模型在正式提示词之前的解释性输出
-        // 查找 "# " 作为真正内容的开始标记
+        String cleanContent = cleanDraft(content);
+
+        // 保存草稿到上下文
+        ctx.setCurrentDraft(cleanContent);
+        return PipelineResult.ok(cleanContent);
+    }
+
+    /**
+     * 过滤模型在正式提示词之前的解释性输出，不修改上下文（多候选草稿也用它清理）
+     * 查找 "# " 作为真正内容的开始标记
+     */
+    public String cleanDraft(String content) {
         String trimmed = content.trim();
         int promptStart = -1;
 
@@ -128,16 +144,10 @@ public class DraftGeneratorStage implements PipelineStage {
             }
         }
 
-        String cleanContent;
         if (promptStart > 0) {
-            cleanContent = trimmed.substring(promptStart);
             log.debug("过滤了 {} 个字符的前置内容", promptStart);
-        } else {
-            cleanContent = trimmed;
+            return trimmed.substring(promptStart);
         }
-
-        // 保存草稿到上下文
-        ctx.setCurrentDraft(cleanContent);
-        return PipelineResult.ok(cleanContent);
+        return trimmed;
     }
 }
@@ -18,6 +18,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -73,37 +74,55 @@ public class PromptRefineStage implements PipelineStage {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
+    public Set<String> inputs() {
+        return Set.of("draft", "audit");
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return Set.of("draft");
+    }
+
+    @Override
     public LLMRequest buildRequest(PipelineContext ctx) {
+        AuditRound latestAudit = ctx.getLatestAudit();
+        return latestAudit != null
+            ? buildRequest(ctx, latestAudit.getReport(), latestAudit.getScore())
+            : buildRequest(ctx, null, 60);
+    }
+
+    /**
+     * 按指定审计报告构建精炼请求（不读取审计历史），用于审计结果出来之前的投机精炼
+     * @param auditReport 审计报告 JSON，可为 null
+     */
+    @SuppressWarnings("unchecked")
+    public LLMRequest buildRequest(PipelineContext ctx, String auditReport, int score) {
         String currentDraft = ctx.getCurrentDraft();
         if (currentDraft == null || currentDraft.trim().isEmpty()) {
             throw new IllegalStateException("精炼阶段缺少提示词草稿");
         }
 
-        AuditRound latestAudit = ctx.getAuditHistory().isEmpty()
-            ? null : ctx.getAuditHistory().get(ctx.getAuditHistory().size() - 1);
-
-        int score = latestAudit != null ? latestAudit.getScore() : 60;
         String summary = "";
         String issues = "";
 
-        if (latestAudit != null && latestAudit.getReport() != null) {
+        if (auditReport != null) {
             try {
-                String report = latestAudit.getReport();
-                int jsonStart = report.indexOf('{');
-                int jsonEnd = report.lastIndexOf('}');
+                int jsonStart = auditReport.indexOf('{');
+                int jsonEnd = auditReport.lastIndexOf('}');
                 if (jsonStart >= 0 && jsonEnd > jsonStart) {
                     Map<String, Object> reportMap = objectMapper.readValue(
-                        report.substring(jsonStart, jsonEnd + 1), Map.class);
+                        auditReport.substring(jsonStart, jsonEnd + 1), Map.class);
                     summary = (String) reportMap.getOrDefault("summary", "");
 
                     List<Map<String, Object>> issueList =
                         (List<Map<String, Object>>) reportMap.get("issues");
                     if (issueList != null) {
                         issues = issueList.stream()
-                            .map(i -> String.format("- [%s][%s] %s → %s",
+                            .map(i -> String.format("- [%s][%s] %s → %s%s",
                                 i.get("severity"), i.get("dimension"),
-                                i.get("description"), i.get("suggestion")))
+                                i.get("description"), i.get("suggestion"),
+                                i.get("reportedBy") instanceof Number n && n.intValue() > 1
+                                    ? "（" + n + " 位审计员指出）" : ""))
                             .collect(Collectors.joining("\n"));
                     }
                 }
@@ -16,8 +16,11 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 质量审计阶段（S2）
@@ -35,6 +38,8 @@ public class QualityAuditStage implements PipelineStage {
     private final PipelineConfig pipelineConfig;
 
     private String auditTemplate;
+    private String batchAuditTemplate;
+    private String focusAuditTemplate;
 
     public QualityAuditStage(PipelineConfig pipelineConfig) {
         this.pipelineConfig = pipelineConfig;
@@ -43,6 +48,8 @@ public class QualityAuditStage implements PipelineStage {
     @PostConstruct
     public void init() {
         this.auditTemplate = loadTemplate("prompts/audit_prompt_template.txt");
+        this.batchAuditTemplate = loadTemplate("prompts/audit_batch_prompt_template.txt");
+        this.focusAuditTemplate = loadTemplate("prompts/audit_focus_prompt_template.txt");
         log.info("QualityAuditStage 模板加载完成");
     }
 
@@ -65,29 +72,139 @@ public class QualityAuditStage implements PipelineStage {
         return "质量审查";
     }
 
+    @Override
+    public Set<String> inputs() {
+        return Set.of("draft");
+    }
+
+    @Override
+    public Set<String> outputs() {
+        return Set.of("audit");
+    }
+
     @Override
     public LLMRequest buildRequest(PipelineContext ctx) {
+        return buildRequest(ctx, auditModel());
+    }
+
+    /**
+     * 使用指定模型构建全维度审计请求，多模型并行审计时每个模型一份
+     */
+    public LLMRequest buildRequest(PipelineContext ctx, String model) {
+        String userPrompt = auditTemplate.replace("{currentDraft}", requireDraft(ctx));
+
+        return LLMRequest.builder()
+            .model(model)
+            .messages(List.of(LLMRequest.Message.user(userPrompt)))
+            .temperature(0.3) // 审计使用较低温度确保一致性
+            .maxTokens(2000)
+            .stream(ctx.isStreamMode())
+            .build();
+    }
+
+    /**
+     * 构建单维度审计请求，按维度并行审计时每个维度一份；输出格式与全维度审计相同
+     * @param focus 维度标识，写入问题的 dimension 字段
+     * @param focusName 维度名称
+     * @param focusDescription 该维度的审查要点
+     */
+    public LLMRequest buildFocusRequest(PipelineContext ctx, String focus, String focusName, String focusDescription) {
+        String userPrompt = focusAuditTemplate
+            .replace("{focusName}", focusName)
+            .replace("{focusDescription}", focusDescription)
+            .replace("{focus}", focus)
+            .replace("{currentDraft}", requireDraft(ctx));
+
+        return LLMRequest.builder()
+            .model(auditModel())
+            .messages(List.of(LLMRequest.Message.user(userPrompt)))
+            .temperature(0.3)
+            .maxTokens(1000)
+            .stream(false)
+            .build();
+    }
+
+    private String requireDraft(PipelineContext ctx) {
         String currentDraft = ctx.getCurrentDraft();
         if (currentDraft == null || currentDraft.trim().isEmpty()) {
             throw new IllegalStateException("审计阶段缺少提示词草稿");
         }
+        return currentDraft;
+    }
 
-        String userPrompt = auditTemplate.replace("{currentDraft}", currentDraft);
-
-        String model = pipelineConfig.getAuditModel();
-        if (model == null || model.isBlank()) {
-            model = defaultModel;
+    /**
+     * 构建多份候选草稿的合并审计请求，一次调用为每份候选给出独立评分
+     * 候选按 1 起编号，与 {@link #splitBatchReport} 返回的下标对应
+     */
+    public LLMRequest buildBatchRequest(List<String> drafts) {
+        StringBuilder candidates = new StringBuilder();
+        for (int i = 0; i < drafts.size(); i++) {
+            candidates.append("### 候选 ").append(i + 1).append("\n\n")
+                .append(drafts.get(i)).append("\n\n");
         }
+        String userPrompt = batchAuditTemplate
+            .replace("{count}", String.valueOf(drafts.size()))
+            .replace("{candidates}", candidates.toString().trim());
 
         return LLMRequest.builder()
-            .model(model)
+            .model(auditModel())
             .messages(List.of(LLMRequest.Message.user(userPrompt)))
-            .temperature(0.3) // 审计使用较低温度确保一致性
-            .maxTokens(2000)
-            .stream(ctx.isStreamMode())
+            .temperature(0.3)
+            .maxTokens(2000 * drafts.size())
+            .stream(false)
             .build();
     }
 
+    /**
+     * 拆分合并审计结果：候选编号（1 起）→ 该候选的评分与单份审计报告 JSON（报告可直接交给 {@link #processResponse}）
+     * 不修改上下文，解析失败返回空 Map
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Integer, PipelineResult> splitBatchReport(String content) {
+        Map<Integer, PipelineResult> reports = new HashMap<>();
+        if (content == null) {
+            return reports;
+        }
+        int jsonStart = content.indexOf('{');
+        int jsonEnd = content.lastIndexOf('}');
+        if (jsonStart < 0 || jsonEnd <= jsonStart) {
+            return reports;
+        }
+        try {
+            Map<String, Object> report = objectMapper.readValue(content.substring(jsonStart, jsonEnd + 1), Map.class);
+            if (report.get("candidates") instanceof List<?> list) {
+                for (Object item : list) {
+                    if (item instanceof Map<?, ?> candidate && candidate.get("index") instanceof Number index
+                            && candidate.get("overallScore") instanceof Number score) {
+                        int overallScore = score.intValue();
+                        reports.put(index.intValue(), PipelineResult.auditResult(
+                            objectMapper.writeValueAsString(candidate), overallScore,
+                            overallScore < pipelineConfig.getQualityThreshold()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("解析合并审计JSON失败: {}", e.getMessage());
+        }
+        return reports;
+    }
+
+    private String auditModel() {
+        return auditModels().get(0);
+    }
+
+    /**
+     * 审计模型列表：audit-model 可用逗号分隔多个模型，单次审计取第一个；未配置时为主模型
+     */
+    public List<String> auditModels() {
+        String models = pipelineConfig.getAuditModel();
+        List<String> list = models == null ? List.of() : Arrays.stream(models.split(","))
+            .map(String::trim)
+            .filter(m -> !m.isEmpty())
+            .toList();
+        return list.isEmpty() ? List.of(defaultModel) : list;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public PipelineResult processResponse(String content, PipelineContext ctx) {
@@ -0,0 +1,159 @@
+package com.promptflow.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 进程内有界缓存
+ * 分段 LRU（SLRU）：新条目进入试用区，再次命中后晋升到保护区，
+ * 一次性的扫描型访问只会淘汰试用区，不会冲掉热点数据。
+ * 同时支持按写入时间过期，并统计命中、未命中和淘汰次数。线程安全
+ */
+public class BoundedCache<K, V> {
+
+    /** 保护区占总容量的比例 */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final int maxSize;
+    private final int protectedMaxSize;
+    private final long ttlMillis;
+
+    /** 访问顺序的 LinkedHashMap，迭代起点即最久未使用的条目 */
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxSize 最大条目数
+     * @param ttlMillis 写入后的存活时间（毫秒），0 表示不过期
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize 必须大于 0");
+        }
+        this.maxSize = maxSize;
+        this.protectedMaxSize = Math.max(1, (int) (maxSize * PROTECTED_RATIO));
+        this.ttlMillis = ttlMillis;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = protectedSegment.get(key);
+        if (entry == null) {
+            entry = probation.get(key);
+            if (entry != null && !isExpired(entry)) {
+                // 试用区再次命中，晋升到保护区
+                probation.remove(key);
+                protectedSegment.put(key, entry);
+                demoteOverflow();
+            }
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry)) {
+            probation.remove(key);
+            protectedSegment.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * 读取缓存，未命中时调用 loader 加载并写入；loader 返回 null 时不缓存
+     * loader 在锁外执行，并发未命中可能重复加载
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis());
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, entry);
+            return;
+        }
+        probation.put(key, entry);
+        while (probation.size() + protectedSegment.size() > maxSize) {
+            LinkedHashMap<K, Entry<V>> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+            Iterator<K> it = victimSegment.keySet().iterator();
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        probation.remove(key);
+        protectedSegment.remove(key);
+    }
+
+    public synchronized void clear() {
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * 统计快照
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long requests = hits + misses;
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", requests > 0 ? Math.round(hits * 1000.0 / requests) / 10.0 : 0.0);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        return stats;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 保护区超出容量时，把最久未使用的条目降回试用区
+     */
+    private void demoteOverflow() {
+        while (protectedSegment.size() > protectedMaxSize) {
+            Iterator<Map.Entry<K, Entry<V>>> it = protectedSegment.entrySet().iterator();
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            it.remove();
+            probation.put(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlMillis > 0 && System.currentTimeMillis() - entry.createdAt > ttlMillis;
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
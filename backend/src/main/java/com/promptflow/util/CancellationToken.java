@@ -0,0 +1,105 @@
+package com.promptflow.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 取消令牌：由持有方（如 SSE 连接）发出取消，执行方在阶段之间检查，或注册回调中断进行中的 I/O
+ * 只能取消一次，取消后注册的回调立即执行。线程安全
+ */
+public final class CancellationToken {
+
+    private static final Logger log = LoggerFactory.getLogger(CancellationToken.class);
+
+    /** 永不取消的令牌，用于不支持取消的调用方 */
+    public static final CancellationToken NONE = new CancellationToken(false);
+
+    private final boolean cancellable;
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private volatile String reason;
+
+    public CancellationToken() {
+        this(true);
+    }
+
+    private CancellationToken(boolean cancellable) {
+        this.cancellable = cancellable;
+    }
+
+    /**
+     * 发出取消并执行已注册的回调
+     * @return 本次调用是否触发了取消（已取消过或不可取消时返回 false）
+     */
+    public boolean cancel(String reason) {
+        if (!cancellable) {
+            return false;
+        }
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (this.reason != null) {
+                return false;
+            }
+            this.reason = reason != null ? reason : "cancelled";
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        toRun.forEach(CancellationToken::runQuietly);
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    /** 取消原因，未取消时为 null */
+    public String getReason() {
+        return reason;
+    }
+
+    public void throwIfCancelled() {
+        if (reason != null) {
+            throw new CancellationException("已取消: " + reason);
+        }
+    }
+
+    /**
+     * 注册取消回调，已取消时在当前线程立即执行
+     * @return 用于注销回调，操作结束后应关闭
+     */
+    public Registration onCancel(Runnable callback) {
+        if (cancellable) {
+            synchronized (this) {
+                if (reason == null) {
+                    callbacks.add(callback);
+                    return () -> {
+                        synchronized (this) {
+                            callbacks.remove(callback);
+                        }
+                    };
+                }
+            }
+            runQuietly(callback);
+        }
+        return () -> { };
+    }
+
+    private static void runQuietly(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            log.warn("取消回调执行失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 回调注册句柄
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -1,6 +1,7 @@
 package com.promptflow.util;
 
 import com.promptflow.dto.PromptRequest;
+import com.promptflow.strategy.pipeline.dto.PipelineRequest;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -28,8 +29,52 @@ public class HashUtil {
         sb.append("|");
         sb.append(nullToEmpty(request.getLength()));
 
-        String input = sb.toString();
+        return md5Hex(sb.toString());
+    }
+
+    /**
+     * Pipeline 请求哈希，字段归一化方式与 {@link #generateRequestHash(PromptRequest)} 一致
+     */
+    public static String generatePipelineRequestHash(PipelineRequest request) {
+        if (request == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(nullToEmpty(request.getPromptType()));
+        sb.append("|");
+        sb.append(nullToEmpty(request.getName()));
+        if ("agent".equals(request.getPromptType())) {
+            sb.append("|");
+            sb.append(nullToEmpty(request.getRoleDescription()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getCapabilities()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getBehaviors()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getCommunicationStyle()));
+        } else {
+            sb.append("|");
+            sb.append(nullToEmpty(request.getDescription()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getSkillType()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getMethod()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getEndpoint()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getParameters()));
+            sb.append("|");
+            sb.append(nullToEmpty(request.getOutputDescription()));
+        }
+
+        return md5Hex(sb.toString());
+    }
 
+    /**
+     * 任意文本的 MD5 哈希
+     */
+    public static String md5Hex(String input) {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
             byte[] hashBytes = md.digest(input.getBytes(StandardCharsets.UTF_8));
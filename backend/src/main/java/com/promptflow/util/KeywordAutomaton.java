@@ -0,0 +1,300 @@
+package com.promptflow.util;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 多关键词匹配自动机（Aho–Corasick），构建一次后线程安全，单次扫描文本即可找出所有关键词的所有出现位置，
+ * 也可通过 {@link #matcher()} 对分块到达的文本增量匹配
+ * 匹配时按字符转小写，不区分大小写；默认以 ASCII 字母数字或下划线开头/结尾的关键词要求该端在文本中处于词边界
+ * （与正则 {@code \b} 一致），中日韩等其他字符的关键词在任意位置匹配；关闭词边界后按子串匹配
+ * @param <V> 关键词关联的值，同一关键词可关联多个值
+ */
+public final class KeywordAutomaton<V> {
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_INTS = new int[0];
+
+    /** 每个状态的出边：按字符升序，用二分查找 */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /** 每个状态命中的关键词下标（含沿失败链可达的后缀关键词） */
+    private final int[][] outputs;
+
+    private final int[] keywordLengths;
+    private final boolean[] boundaryStart;
+    private final boolean[] boundaryEnd;
+    private final List<List<V>> keywordValues;
+    private final int maxKeywordLength;
+
+    private KeywordAutomaton(Builder<V> builder) {
+        List<String> keywords = builder.keywords;
+        int count = keywords.size();
+        keywordLengths = new int[count];
+        boundaryStart = new boolean[count];
+        boundaryEnd = new boolean[count];
+        keywordValues = new ArrayList<>(count);
+        int maxLength = 0;
+
+        // 1. 构建字典树
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(new ArrayList<>());
+        for (int k = 0; k < count; k++) {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = trie.get(state).get(keyword.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(keyword.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    terminal.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            terminal.get(state).add(k);
+            keywordLengths[k] = keyword.length();
+            maxLength = Math.max(maxLength, keyword.length());
+            boundaryStart[k] = builder.asciiWordBoundary && isWordChar(keyword.charAt(0));
+            boundaryEnd[k] = builder.asciiWordBoundary && isWordChar(keyword.charAt(keyword.length() - 1));
+            keywordValues.add(List.copyOf(builder.values.get(keyword)));
+        }
+
+        maxKeywordLength = maxLength;
+
+        int states = trie.size();
+        edgeChars = new char[states][];
+        edgeTargets = new int[states][];
+        for (int s = 0; s < states; s++) {
+            TreeMap<Character, Integer> edges = trie.get(s);
+            edgeChars[s] = edges.isEmpty() ? NO_CHARS : new char[edges.size()];
+            edgeTargets[s] = edges.isEmpty() ? NO_INTS : new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[s][i] = edge.getKey();
+                edgeTargets[s][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // 2. 按层遍历计算失败链接，并合并后缀关键词的输出
+        fail = new int[states];
+        outputs = new int[states][];
+        outputs[0] = toArray(terminal.get(0));
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            outputs[target] = toArray(terminal.get(target));
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int target = edgeTargets[state][i];
+                int f = fail[state];
+                while (f != 0 && next(f, c) < 0) {
+                    f = fail[f];
+                }
+                int fallback = next(f, c);
+                fail[target] = fallback >= 0 ? fallback : 0;
+
+                int[] own = toArray(terminal.get(target));
+                int[] inherited = outputs[fail[target]];
+                int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+                System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+                outputs[target] = merged;
+                queue.add(target);
+            }
+        }
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 扫描文本，每命中一次关键词就对其关联的每个值回调一次
+     */
+    public void scan(CharSequence text, Consumer<? super V> onMatch) {
+        Matcher matcher = matcher();
+        matcher.feed(text, onMatch);
+        matcher.finish(onMatch);
+    }
+
+    /**
+     * 创建增量匹配器，用于分块到达的文本（如流式输出）
+     */
+    public Matcher matcher() {
+        return new Matcher();
+    }
+
+    /**
+     * 增量匹配器：文本可分多次追加，匹配状态跨块保持，每次只处理新增部分，结果与整体扫描一致
+     * 需要结尾词边界的命中要等到下一个字符（或 {@link #finish}）才能确认。非线程安全
+     */
+    public final class Matcher {
+
+        private int state;
+        private long position;
+        /** 最近 maxKeywordLength + 1 个字符，用于检查开头词边界 */
+        private final char[] history = new char[maxKeywordLength + 1];
+        /** 在上一个字符处结束、等待确认结尾词边界的关键词 */
+        private int[] pending = new int[4];
+        private int pendingCount;
+
+        private Matcher() {
+        }
+
+        public Matcher feed(CharSequence chunk, Consumer<? super V> onMatch) {
+            for (int i = 0; i < chunk.length(); i++) {
+                char raw = chunk.charAt(i);
+                if (pendingCount > 0) {
+                    if (!isWordChar(raw)) {
+                        emitPending(onMatch);
+                    }
+                    pendingCount = 0;
+                }
+
+                char c = Character.toLowerCase(raw);
+                int next;
+                while ((next = next(state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                state = Math.max(next, 0);
+                history[(int) (position % history.length)] = raw;
+
+                for (int k : outputs[state]) {
+                    long before = position - keywordLengths[k];
+                    if (boundaryStart[k] && before >= 0 && isWordChar(history[(int) (before % history.length)])) {
+                        continue;
+                    }
+                    if (boundaryEnd[k]) {
+                        addPending(k);
+                    } else {
+                        emit(k, onMatch);
+                    }
+                }
+                position++;
+            }
+            return this;
+        }
+
+        /**
+         * 文本结束：确认等待结尾词边界的命中
+         */
+        public void finish(Consumer<? super V> onMatch) {
+            emitPending(onMatch);
+            pendingCount = 0;
+        }
+
+        /**
+         * 把当前位置视为文本结尾时还会命中的值（不改变状态）
+         */
+        public void forEachPending(Consumer<? super V> onMatch) {
+            emitPending(onMatch);
+        }
+
+        private void addPending(int k) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = k;
+        }
+
+        private void emitPending(Consumer<? super V> onMatch) {
+            for (int i = 0; i < pendingCount; i++) {
+                emit(pending[i], onMatch);
+            }
+        }
+
+        private void emit(int k, Consumer<? super V> onMatch) {
+            for (V value : keywordValues.get(k)) {
+                onMatch.accept(value);
+            }
+        }
+    }
+
+    /**
+     * 统计每个值的命中次数
+     */
+    public Map<V, Integer> countMatches(CharSequence text) {
+        Map<V, Integer> counts = new HashMap<>();
+        scan(text, value -> counts.merge(value, 1, Integer::sum));
+        return counts;
+    }
+
+    public int keywordCount() {
+        return keywordLengths.length;
+    }
+
+    private int next(int state, char c) {
+        int i = Arrays.binarySearch(edgeChars[state], c);
+        return i >= 0 ? edgeTargets[state][i] : -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.isEmpty() ? NO_INTS : list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public static final class Builder<V> {
+
+        private final List<String> keywords = new ArrayList<>();
+        private final Map<String, List<V>> values = new HashMap<>();
+        private boolean asciiWordBoundary = true;
+
+        private Builder() {
+        }
+
+        /**
+         * 是否对 ASCII 关键词要求词边界，默认开启；关闭后所有关键词按子串匹配
+         */
+        public Builder<V> asciiWordBoundary(boolean enabled) {
+            this.asciiWordBoundary = enabled;
+            return this;
+        }
+
+        /**
+         * 添加关键词（转小写），空关键词忽略；同一关键词重复添加时关联多个值
+         */
+        public Builder<V> add(String keyword, V value) {
+            if (keyword == null || keyword.isEmpty()) {
+                return this;
+            }
+            String normalized = toLowerChars(keyword);
+            List<V> list = values.get(normalized);
+            if (list == null) {
+                list = new ArrayList<>();
+                values.put(normalized, list);
+                keywords.add(normalized);
+            }
+            list.add(value);
+            return this;
+        }
+
+        public Builder<V> addAll(Collection<String> keywords, V value) {
+            keywords.forEach(keyword -> add(keyword, value));
+            return this;
+        }
+
+        public KeywordAutomaton<V> build() {
+            return new KeywordAutomaton<>(this);
+        }
+
+        /** 逐字符转小写，保持长度不变，与扫描时一致 */
+        private static String toLowerChars(String s) {
+            char[] chars = s.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+            return new String(chars);
+        }
+    }
+}
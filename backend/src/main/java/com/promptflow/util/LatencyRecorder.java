@@ -0,0 +1,63 @@
+package com.promptflow.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 耗时分布记录
+ * 保留最近 N 个样本（环形缓冲），按最近秩法计算分位数。线程安全
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    /**
+     * @param capacity 保留的样本数
+     */
+    public LatencyRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * 分位数
+     * @param p 0-100
+     * @return 毫秒，没有样本时返回 -1
+     */
+    public long percentile(double p) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("samples", size());
+        snapshot.put("p50Ms", percentile(50));
+        snapshot.put("p95Ms", percentile(95));
+        snapshot.put("maxMs", percentile(100));
+        return snapshot;
+    }
+}
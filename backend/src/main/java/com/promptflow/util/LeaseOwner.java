@@ -0,0 +1,18 @@
+package com.promptflow.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * 任务租约的持有者标识：进程名加随机后缀，写入任务表的 locked_by 列（最长 64 字符）
+ */
+public final class LeaseOwner {
+
+    private LeaseOwner() {
+    }
+
+    public static String newId() {
+        String id = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+}
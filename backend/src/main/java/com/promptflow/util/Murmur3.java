@@ -0,0 +1,143 @@
+package com.promptflow.util;
+
+/**
+ * MurmurHash3 x64 128 位哈希，用于按内容做缓存键（非加密用途，比 MD5 快得多）
+ * 字符串按 UTF-16LE 字节直接计算，不做编码转换也不分配内存
+ */
+public final class Murmur3 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3() {
+    }
+
+    /**
+     * 128 位哈希值，可直接用作 Map 键
+     */
+    public record Hash128(long h1, long h2) {
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", h1, h2);
+        }
+    }
+
+    public static Hash128 hash128(CharSequence text) {
+        return hash128(text, 0);
+    }
+
+    /**
+     * 对字符序列计算哈希，结果等同于对其 UTF-16LE 字节调用 {@link #hash128(byte[], long)}
+     */
+    public static Hash128 hash128(CharSequence text, long seed) {
+        int length = text.length();
+        long h1 = seed;
+        long h2 = seed;
+
+        // 每块 16 字节 = 8 个 char
+        int blocks = length / 8;
+        for (int b = 0; b < blocks; b++) {
+            int i = b * 8;
+            long k1 = packChars(text, i, 4);
+            long k2 = packChars(text, i + 4, 4);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 8;
+        int remaining = length - tail;
+        if (remaining > 4) {
+            h2 ^= mixK2(packChars(text, tail + 4, remaining - 4));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(packChars(text, tail, Math.min(remaining, 4)));
+        }
+        return finish(h1, h2, 2L * length);
+    }
+
+    public static Hash128 hash128(byte[] data, long seed) {
+        int length = data.length;
+        long h1 = seed;
+        long h2 = seed;
+
+        int blocks = length / 16;
+        for (int b = 0; b < blocks; b++) {
+            int i = b * 16;
+            long k1 = packBytes(data, i, 8);
+            long k2 = packBytes(data, i + 8, 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 16;
+        int remaining = length - tail;
+        if (remaining > 8) {
+            h2 ^= mixK2(packBytes(data, tail + 8, remaining - 8));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(packBytes(data, tail, Math.min(remaining, 8)));
+        }
+        return finish(h1, h2, length);
+    }
+
+    private static long packChars(CharSequence text, int offset, int count) {
+        long k = 0;
+        for (int i = 0; i < count; i++) {
+            k |= (long) text.charAt(offset + i) << (16 * i);
+        }
+        return k;
+    }
+
+    private static long packBytes(byte[] data, int offset, int count) {
+        long k = 0;
+        for (int i = 0; i < count; i++) {
+            k |= (data[offset + i] & 0xffL) << (8 * i);
+        }
+        return k;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static Hash128 finish(long h1, long h2, long byteLength) {
+        h1 ^= byteLength;
+        h2 ^= byteLength;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new Hash128(h1, h2);
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
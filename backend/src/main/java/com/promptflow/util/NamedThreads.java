@@ -0,0 +1,22 @@
+package com.promptflow.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台线程工厂：守护线程，按 前缀-序号 命名，便于在线程转储中区分各个池
+ */
+public final class NamedThreads {
+
+    private NamedThreads() {
+    }
+
+    public static ThreadFactory daemon(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
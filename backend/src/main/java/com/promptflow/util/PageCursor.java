@@ -0,0 +1,72 @@
+package com.promptflow.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页的位置标记
+ * 记录上一页最后一行的排序键（可选的主排序值 + created_at + id），
+ * 下一页从该位置之后继续 seek，深翻页不再随 OFFSET 线性变慢。
+ * 对外以 base64url 的不透明字符串传递
+ */
+public final class PageCursor {
+
+    /** 第一页：排在所有真实数据之前的哨兵位置 */
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final Double sortValue;
+    private final LocalDateTime createdAt;
+    private final long id;
+
+    private PageCursor(Double sortValue, LocalDateTime createdAt, long id) {
+        this.sortValue = sortValue;
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static PageCursor of(Double sortValue, LocalDateTime createdAt, long id) {
+        return new PageCursor(sortValue, createdAt, id);
+    }
+
+    public static PageCursor first() {
+        return new PageCursor(null, MAX_TIME, Long.MAX_VALUE);
+    }
+
+    /**
+     * 解析游标，空串表示第一页
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return first();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            Double sortValue = parts[0].isEmpty() ? null : Double.valueOf(parts[0]);
+            LocalDateTime createdAt = parts[1].isEmpty() ? MAX_TIME : LocalDateTime.parse(parts[1]);
+            return new PageCursor(sortValue, createdAt, Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    public String encode() {
+        String raw = (sortValue != null ? sortValue.toString() : "") + "|"
+            + (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Double getSortValue() {
+        return sortValue;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,17 @@
+package com.promptflow.util;
+
+/**
+ * 文本截断等小工具
+ */
+public final class TextUtil {
+
+    private TextUtil() {
+    }
+
+    /**
+     * 截断到最多 maxLength 个字符，用于写入有长度限制的列
+     */
+    public static String truncate(String text, int maxLength) {
+        return text != null && text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+}
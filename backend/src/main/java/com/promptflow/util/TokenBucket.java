@@ -0,0 +1,78 @@
+package com.promptflow.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶限流
+ * 按固定速率补充令牌，桶容量即允许的突发量；速率不大于 0 时不限流
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst 桶容量
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * 有令牌时取走一个并返回 true，否则立即返回 false
+     */
+    public boolean tryAcquire() {
+        return reserve(false) == 0;
+    }
+
+    /**
+     * 阻塞直到取到一个令牌
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve(true);
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * 取令牌；令牌不足且 borrow 为 true 时预支一个，返回需要等待的纳秒数
+     */
+    private synchronized long reserve(boolean borrow) {
+        if (permitsPerNano <= 0) {
+            return 0;
+        }
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        if (!borrow) {
+            return -1;
+        }
+        // 预支后余额为负，后来者排在其后等待更久
+        long wait = (long) Math.ceil((1 - tokens) / permitsPerNano);
+        tokens -= 1;
+        return wait;
+    }
+
+    public synchronized double availableTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,102 @@
+package com.promptflow.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 写回型计数缓冲
+ * 每个 key 一个 LongAdder，累加只在首次出现时进入 map，之后无锁；由单个写回线程定期 drain 后批量落库。
+ * drain 以 sumThenReset 逐个取走增量转入写回批次，与之并发的累加留在计数器中等待下次写回，不会丢失；
+ * 一个写回周期内没有累加的 key 在 drain 时移除，不会长期占用内存。
+ * 写回中的批次在提交前仍计入 {@link #pending(Object)}，不会重复计入；drain 进行中读取可能短暂少计
+ */
+public class WriteBehindCounter<K> {
+
+    private final Map<K, LongAdder> counters = new ConcurrentHashMap<>();
+    private final LongAdder pendingOps = new LongAdder();
+
+    /** 正在写回、尚未提交的批次 */
+    private volatile Map<K, Long> inFlight = Map.of();
+
+    public void add(K key, long delta) {
+        addTo(key, delta);
+        pendingOps.increment();
+    }
+
+    private void addTo(K key, long delta) {
+        LongAdder adder = counters.computeIfAbsent(key, k -> new LongAdder());
+        adder.add(delta);
+        // 计数器已被 drain 移除时，把落在旧计数器上的增量转到新条目
+        while (counters.get(key) != adder) {
+            long residue = adder.sumThenReset();
+            if (residue == 0) {
+                return;
+            }
+            adder = counters.computeIfAbsent(key, k -> new LongAdder());
+            adder.add(residue);
+        }
+    }
+
+    /**
+     * 尚未落库的增量（含写回中的批次）
+     */
+    public long pending(K key) {
+        // 先读批次再读计数器：drain 先清零计数器再放入批次，同一增量不会被读到两次
+        long inFlightDelta = inFlight.getOrDefault(key, 0L);
+        LongAdder adder = counters.get(key);
+        return inFlightDelta + (adder == null ? 0L : adder.sum());
+    }
+
+    /**
+     * 自上次 drain 以来的累加次数，用于判断是否需要提前写回
+     */
+    public long pendingOps() {
+        return pendingOps.sum();
+    }
+
+    /**
+     * 取出当前所有非零增量作为写回批次，必须随后调用 commit 或 rollback
+     */
+    public synchronized Map<K, Long> drain() {
+        pendingOps.reset();
+        Map<K, Long> batch = new ConcurrentHashMap<>();
+        inFlight = batch;
+        counters.forEach((key, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                batch.put(key, delta);
+            } else if (counters.remove(key, adder)) {
+                // 与移除并发的累加由 addTo 或这里转回，不会丢失
+                long residue = adder.sumThenReset();
+                if (residue != 0) {
+                    addTo(key, residue);
+                }
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * 批次已落库
+     */
+    public synchronized void commit() {
+        inFlight = Map.of();
+    }
+
+    /**
+     * 批次写回失败，增量放回缓冲等待下次重试
+     */
+    public synchronized void rollback() {
+        Map<K, Long> batch = inFlight;
+        batch.forEach(this::addTo);
+        inFlight = Map.of();
+    }
+
+    /**
+     * 有未落库增量的 key 数
+     */
+    public int size() {
+        return (int) counters.values().stream().filter(adder -> adder.sum() != 0).count();
+    }
+}
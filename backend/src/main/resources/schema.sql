@@ -50,7 +50,7 @@ CREATE TABLE IF NOT EXISTS prompt_resource (
   -- ========== 作者与统计 ==========
   author_id BIGINT COMMENT '作者ID',
   author_nickname VARCHAR(100) COMMENT '作者昵称',
-  like_count INT DEFAULT 0 COMMENT '点赞数',
+  like_count INT NOT NULL DEFAULT 0 COMMENT '点赞数',
   view_count INT DEFAULT 0 COMMENT '浏览数',
   hit_count INT DEFAULT 0 COMMENT '命中次数',
 
@@ -73,7 +73,7 @@ CREATE TABLE IF NOT EXISTS prompt_resource (
 
   -- ========== 时间戳 ==========
   last_like_time DATETIME COMMENT '最后点赞时间',
-  created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
 
   -- 索引
@@ -81,7 +81,9 @@ CREATE TABLE IF NOT EXISTS prompt_resource (
   INDEX idx_name (name),
   INDEX idx_author_id (author_id),
   INDEX idx_category_id (category_id),
-  INDEX idx_like_count (like_count),
+  INDEX idx_category_created (category_id, created_at),
+  INDEX idx_like_count (like_count, created_at),
+  INDEX idx_average_rating (average_rating, created_at),
   INDEX idx_created_at (created_at),
   INDEX idx_request_hash (request_hash)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='统一提示词资源表';
@@ -145,6 +147,109 @@ CREATE TABLE IF NOT EXISTS shared_prompt (
   INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分享的提示词';
 
+-- ============================================
+-- 统计汇总表（按创建日期 / 按分类，增量维护 + 定期对账）
+-- ============================================
+CREATE TABLE IF NOT EXISTS stats_daily_rollup (
+  stat_date DATE NOT NULL PRIMARY KEY COMMENT '创建日期',
+  prompt_count BIGINT DEFAULT 0 COMMENT '提示词数',
+  like_count BIGINT DEFAULT 0 COMMENT '点赞数',
+  input_tokens BIGINT DEFAULT 0 COMMENT '输入tokens数',
+  output_tokens BIGINT DEFAULT 0 COMMENT '输出tokens数',
+  rating_sum DOUBLE DEFAULT 0 COMMENT '平均评分之和',
+  rated_count BIGINT DEFAULT 0 COMMENT '已评分提示词数',
+  updated_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='每日统计汇总';
+
+CREATE TABLE IF NOT EXISTS stats_category_rollup (
+  category_id BIGINT NOT NULL PRIMARY KEY COMMENT '分类ID',
+  prompt_count BIGINT DEFAULT 0 COMMENT '提示词数',
+  updated_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='分类统计汇总';
+
+-- ============================================
+-- 自动打标签任务队列
+-- ============================================
+CREATE TABLE IF NOT EXISTS tagging_job (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  prompt_id BIGINT NOT NULL COMMENT '提示词ID',
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING/RUNNING/DONE/FAILED',
+  attempts INT DEFAULT 0 COMMENT '已执行次数',
+  next_attempt_at DATETIME COMMENT '最早可执行时间',
+  locked_by VARCHAR(64) COMMENT '领取任务的实例标识',
+  lease_until DATETIME COMMENT '租约到期时间',
+  result_tags JSON COMMENT '生成的标签',
+  last_error VARCHAR(500) COMMENT '最近一次错误',
+  created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  updated_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+  INDEX idx_status_next_attempt (status, next_attempt_at),
+  INDEX idx_prompt_id (prompt_id),
+  INDEX idx_status_lease (status, lease_until)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='自动打标签任务';
+
+CREATE TABLE IF NOT EXISTS backfill_job (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  job_type VARCHAR(30) NOT NULL COMMENT '任务类型',
+  status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' COMMENT '状态: RUNNING/COMPLETED/CANCELLED/FAILED',
+  checkpoint_id BIGINT DEFAULT 0 COMMENT '检查点：已处理的最大记录ID',
+  max_items INT COMMENT '最多处理条数',
+  total_items BIGINT DEFAULT 0 COMMENT '待处理总数（启动时估算）',
+  processed_items BIGINT DEFAULT 0 COMMENT '已处理条数',
+  succeeded_items BIGINT DEFAULT 0 COMMENT '成功条数',
+  failed_items BIGINT DEFAULT 0 COMMENT '失败条数',
+  locked_by VARCHAR(64) COMMENT '执行任务的实例标识',
+  lease_until DATETIME COMMENT '租约到期时间',
+  last_error VARCHAR(500) COMMENT '最近一次错误',
+  created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  updated_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+  finished_at DATETIME COMMENT '结束时间',
+  INDEX idx_status (status),
+  INDEX idx_status_lease (status, lease_until)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='回填任务';
+
+-- ============================================
+-- 已有库升级（可重复执行）
+-- ============================================
+
+-- 游标分页直接比较 created_at、like_count，先回填空值再改为 NOT NULL
+UPDATE prompt_resource SET created_at = COALESCE(updated_at, CURRENT_TIMESTAMP) WHERE created_at IS NULL;
+UPDATE prompt_resource SET like_count = 0 WHERE like_count IS NULL;
+ALTER TABLE prompt_resource
+  MODIFY like_count INT NOT NULL DEFAULT 0 COMMENT '点赞数',
+  MODIFY created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间';
+
+-- 旧版 idx_like_count 只有 like_count 一列，按新定义重建
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'prompt_resource' AND index_name = 'idx_like_count') = 1,
+              'DROP INDEX idx_like_count ON prompt_resource', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'prompt_resource' AND index_name = 'idx_category_created') = 0,
+              'CREATE INDEX idx_category_created ON prompt_resource (category_id, created_at)', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'prompt_resource' AND index_name = 'idx_like_count') = 0,
+              'CREATE INDEX idx_like_count ON prompt_resource (like_count, created_at)', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'prompt_resource' AND index_name = 'idx_average_rating') = 0,
+              'CREATE INDEX idx_average_rating ON prompt_resource (average_rating, created_at)', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- 回填任务按租约领取，多实例下同一任务只在一个实例上执行
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'backfill_job' AND column_name = 'locked_by') = 0,
+              'ALTER TABLE backfill_job ADD COLUMN locked_by VARCHAR(64) COMMENT ''执行任务的实例标识'' AFTER failed_items, ADD COLUMN lease_until DATETIME COMMENT ''租约到期时间'' AFTER locked_by', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'backfill_job' AND index_name = 'idx_status_lease') = 0,
+              'CREATE INDEX idx_status_lease ON backfill_job (status, lease_until)', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
 -- ============================================
 -- 初始化预设分类
 -- ============================================
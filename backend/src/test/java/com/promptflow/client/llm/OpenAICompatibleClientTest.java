@@ -0,0 +1,366 @@
+package com.promptflow.client.llm;
+
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.util.CancellationToken;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OpenAICompatibleClient 单元测试
+ * 使用本地 HttpServer 模拟上游 LLM 服务
+ */
+class OpenAICompatibleClientTest {
+
+    private static final String COMPLETION_JSON =
+        "{\"id\":\"c1\",\"model\":\"m\",\"created\":1,"
+            + "\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"你好\"}}],"
+            + "\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":2,\"total_tokens\":5}}";
+
+    private static final String SSE_BODY =
+        "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"# 标题\"}}]}\n\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"\\n正文\"}}]}\n\n"
+            + "data: [DONE]\n\n";
+
+    private HttpServer server;
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    /** 慢速流在服务端检测到客户端断开 */
+    private final CountDownLatch slowStreamAborted = new CountDownLatch(1);
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private OpenAICompatibleClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/v1/chat/completions", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            boolean stream = body.contains("\"stream\":true");
+            byte[] bytes = (stream ? SSE_BODY : COMPLETION_JSON).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", stream ? "text/event-stream" : "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        // 每 20ms 推送一个增量、持续约 10 秒的慢速流
+        server.createContext("/slow/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                for (int i = 0; i < 500; i++) {
+                    os.write("data: {\"choices\":[{\"delta\":{\"content\":\"字\"}}]}\n\n"
+                        .getBytes(StandardCharsets.UTF_8));
+                    os.flush();
+                    Thread.sleep(20);
+                }
+                os.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                slowStreamAborted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // 发出响应头和部分响应体后停顿 10 秒
+        server.createContext("/stall/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write("{\"id\":".getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                Thread.sleep(10000);
+            } catch (IOException e) {
+                // 客户端已断开
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // 10 秒后才发出响应头
+        server.createContext("/late/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(10000);
+                exchange.sendResponseHeaders(200, 0);
+                exchange.getResponseBody().close();
+            } catch (IOException e) {
+                // 客户端已断开
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        client = new OpenAICompatibleClient(HttpClient.newBuilder().build());
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/");
+        ReflectionTestUtils.setField(client, "defaultModel", "test-model");
+        ReflectionTestUtils.setField(client, "readTimeout", 5000);
+        ReflectionTestUtils.setField(client, "maxRequestsPerHost", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private LLMRequest request() {
+        return LLMRequest.builder()
+            .messages(List.of(LLMRequest.Message.user("hi")))
+            .build();
+    }
+
+    @Test
+    void testCallParsesCompletion() {
+        LLMResponse response = client.call(request());
+        assertTrue(response.isSuccess());
+        assertEquals("你好", response.getContent());
+        assertEquals(5, response.getTotalTokens().intValue());
+    }
+
+    @Test
+    void testSequentialCallsReuseConnection() {
+        // 草稿 → 审计 → 精炼 三次串行调用应复用同一条连接，只握手一次
+        for (int i = 0; i < 3; i++) {
+            assertTrue(client.call(request()).isSuccess());
+        }
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void testCallStreamCollectsDeltas() {
+        StringBuilder content = new StringBuilder();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        boolean[] completed = {false};
+
+        client.callStream(request(), content::append, () -> completed[0] = true, error::set);
+
+        assertNull(error.get());
+        assertTrue(completed[0]);
+        assertEquals("# 标题\n正文", content.toString());
+    }
+
+    @Test
+    void testCancelAbortsInFlightStream() throws Exception {
+        ReflectionTestUtils.setField(client, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/slow/");
+        CancellationToken cancellation = new CancellationToken();
+        CountDownLatch firstDelta = new CountDownLatch(1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        boolean[] completed = {false};
+
+        Thread canceller = new Thread(() -> {
+            try {
+                firstDelta.await();
+                cancellation.cancel("client-gone");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        canceller.start();
+
+        long start = System.nanoTime();
+        client.callStream(request(), chunk -> firstDelta.countDown(),
+            () -> completed[0] = true, error::set, cancellation);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        canceller.join();
+
+        assertFalse(completed[0]);
+        assertInstanceOf(CancellationException.class, error.get());
+        assertTrue(elapsedMs < 5000, "取消后应立即返回，实际 " + elapsedMs + "ms");
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertTrue(slowStreamAborted.await(5, TimeUnit.SECONDS), "上游连接应被断开");
+        assertEquals(1L, client.getMetrics().get("abortedStreams"));
+        assertTrue((Long) client.getMetrics().get("abortedCompletionTokens") > 0);
+
+        // 已取消的令牌不再发起请求
+        client.callStream(request(), chunk -> { }, () -> completed[0] = true, error::set, cancellation);
+        assertFalse(completed[0]);
+    }
+
+    @Test
+    void testCancelBeforeResponseHeadersAndWhileQueued() throws Exception {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        ReflectionTestUtils.setField(client, "baseUrl", base + "/late/");
+        ReflectionTestUtils.setField(client, "maxRequestsPerHost", 1);
+
+        // 等待响应头时取消：中止交换并归还许可
+        CancellationToken waitingHeaders = new CancellationToken();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        cancelAfter(waitingHeaders, 200);
+        long start = System.nanoTime();
+        client.callStream(request(), chunk -> { }, () -> { }, error::set, waitingHeaders);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000, "等待响应头时取消应立即返回");
+        assertInstanceOf(CancellationException.class, error.get());
+        @SuppressWarnings("unchecked")
+        HostRequestLimiter limiter = ((java.util.Map<String, HostRequestLimiter>)
+            ReflectionTestUtils.getField(client, "hostLimiters")).get(base);
+        assertEquals(0, limiter.getInUse());
+
+        // 排队等许可时取消：放弃排队，不占用许可
+        limiter.acquire();
+        CancellationToken queued = new CancellationToken();
+        error.set(null);
+        cancelAfter(queued, 200);
+        start = System.nanoTime();
+        client.callStream(request(), chunk -> { }, () -> { }, error::set, queued);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000, "排队时取消应立即返回");
+        assertInstanceOf(CancellationException.class, error.get());
+        assertEquals(0, limiter.getWaiting());
+        limiter.release();
+        assertEquals(0, limiter.getInUse());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    void testCancelAsyncCallReleasesPermit() throws Exception {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        ReflectionTestUtils.setField(client, "baseUrl", base + "/late/");
+        ReflectionTestUtils.setField(client, "maxRequestsPerHost", 1);
+
+        // 令牌取消：中止等待响应头的交换并归还许可
+        CancellationToken cancellation = new CancellationToken();
+        CompletableFuture<LLMResponse> inFlight = client.callAsync(request(), cancellation);
+        @SuppressWarnings("unchecked")
+        HostRequestLimiter limiter = ((java.util.Map<String, HostRequestLimiter>)
+            ReflectionTestUtils.getField(client, "hostLimiters")).get(base);
+        // 许可被占满，第二个调用排队
+        CompletableFuture<LLMResponse> queued = client.callAsync(request());
+        assertEquals(1, limiter.getWaiting());
+
+        // 直接取消返回的 future：放弃排队
+        queued.cancel(true);
+        assertEquals(0, limiter.getWaiting());
+
+        cancellation.cancel("client-gone");
+        assertTrue(inFlight.isCancelled());
+        long waitUntil = System.currentTimeMillis() + 5000;
+        while (limiter.getInUse() > 0 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, limiter.getInUse(), "取消后应归还许可");
+
+        // 已取消的令牌不再发起请求
+        assertThrows(CancellationException.class, () -> client.callAsync(request(), cancellation).join());
+    }
+
+    private static void cancelAfter(CancellationToken token, long delayMs) {
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(delayMs);
+                token.cancel("client-gone");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Test
+    void testStalledBodyHitsIdleReadTimeout() throws Exception {
+        ReflectionTestUtils.setField(client, "baseUrl",
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/stall/");
+        ReflectionTestUtils.setField(client, "readTimeout", 300);
+
+        long start = System.nanoTime();
+        assertFalse(client.call(request()).isSuccess());
+        assertFalse(client.callAsync(request()).get(5, TimeUnit.SECONDS).isSuccess());
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        client.callStream(request(), chunk -> { }, () -> { }, error::set);
+        assertNotNull(error.get());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs < 5000, "响应体停顿时应在读超时后返回，实际 " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testCallAsyncParsesCompletion() throws Exception {
+        LLMResponse response = client.callAsync(request()).get(5, TimeUnit.SECONDS);
+        assertTrue(response.isSuccess());
+        assertEquals("你好", response.getContent());
+    }
+
+    @Test
+    void testStreamReactiveEmitsDeltas() {
+        List<String> deltas = client.streamReactive(request())
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("# 标题", "\n正文"), deltas);
+    }
+
+    @Test
+    void testStreamReactiveCancelAbortsExchangeAndReleasesPermit() throws Exception {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        ReflectionTestUtils.setField(client, "baseUrl", base + "/slow/");
+
+        // 收到第一个增量后取消订阅
+        String first = client.streamReactive(request()).blockFirst(Duration.ofSeconds(5));
+
+        assertEquals("字", first);
+        assertTrue(slowStreamAborted.await(5, TimeUnit.SECONDS), "上游连接应被断开");
+        @SuppressWarnings("unchecked")
+        HostRequestLimiter limiter = ((java.util.Map<String, HostRequestLimiter>)
+            ReflectionTestUtils.getField(client, "hostLimiters")).get(base);
+        assertEquals(0, limiter.getInUse());
+
+        // 排队时取消订阅：放弃排队，不占用许可
+        for (int i = 0; i < limiter.getMaxRequests(); i++) {
+            limiter.acquire();
+        }
+        Disposable queued = client.streamReactive(request()).subscribe();
+        assertEquals(1, limiter.getWaiting());
+        queued.dispose();
+        assertEquals(0, limiter.getWaiting());
+        for (int i = 0; i < limiter.getMaxRequests(); i++) {
+            limiter.release();
+        }
+        assertEquals(0, limiter.getInUse());
+    }
+
+    @Test
+    void testHostLimiterHandsOffPermit() {
+        HostRequestLimiter limiter = new HostRequestLimiter(1);
+        assertTrue(limiter.acquireAsync().isDone());
+
+        var cancelled = limiter.acquireAsync();
+        var waiting = limiter.acquireAsync();
+        assertFalse(waiting.isDone());
+
+        // 已取消的等待者被跳过，许可直接移交给下一个
+        cancelled.cancel(false);
+        limiter.release();
+        assertTrue(waiting.isDone());
+        assertEquals(1, limiter.getInUse());
+
+        limiter.release();
+        assertEquals(0, limiter.getInUse());
+    }
+}
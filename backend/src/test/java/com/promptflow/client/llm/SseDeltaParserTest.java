@@ -0,0 +1,110 @@
+package com.promptflow.client.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SseDeltaParser 单元测试
+ * 样本为通义千问（兼容模式）和 DeepSeek 的真实流式响应格式
+ */
+class SseDeltaParserTest {
+
+    private static final String DASHSCOPE_STREAM =
+        "data: {\"choices\":[{\"delta\":{\"content\":\"\",\"role\":\"assistant\"},\"index\":0,\"logprobs\":null,\"finish_reason\":null}],\"object\":\"chat.completion.chunk\",\"usage\":null,\"created\":1715931028,\"system_fingerprint\":null,\"model\":\"qwen-plus\",\"id\":\"chatcmpl-3bb05cf5\"}\n\n"
+            + "data: {\"choices\":[{\"finish_reason\":null,\"delta\":{\"content\":\"## 角色\"},\"index\":0,\"logprobs\":null}],\"object\":\"chat.completion.chunk\",\"usage\":null,\"created\":1715931028,\"model\":\"qwen-plus\",\"id\":\"chatcmpl-3bb05cf5\"}\n\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"\\n你是一名资深\\\"产品经理\\\"\"},\"finish_reason\":null,\"index\":0,\"logprobs\":null}],\"object\":\"chat.completion.chunk\",\"usage\":null,\"created\":1715931028,\"model\":\"qwen-plus\",\"id\":\"chatcmpl-3bb05cf5\"}\n\n"
+            + "data: {\"choices\":[{\"finish_reason\":\"stop\",\"delta\":{\"content\":\"\"},\"index\":0,\"logprobs\":null}],\"object\":\"chat.completion.chunk\",\"usage\":null,\"created\":1715931028,\"model\":\"qwen-plus\",\"id\":\"chatcmpl-3bb05cf5\"}\n\n"
+            + "data: {\"choices\":[],\"object\":\"chat.completion.chunk\",\"usage\":{\"prompt_tokens\":57,\"completion_tokens\":12,\"total_tokens\":69},\"created\":1715931028,\"model\":\"qwen-plus\",\"id\":\"chatcmpl-3bb05cf5\"}\n\n"
+            + "data: [DONE]\n\n";
+
+    private static final String DEEPSEEK_STREAM =
+        ": keep-alive\r\n\r\n"
+            + "data:{\"id\":\"d1\",\"object\":\"chat.completion.chunk\",\"model\":\"deepseek-reasoner\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":null,\"reasoning_content\":\"思考\"},\"logprobs\":null,\"finish_reason\":null}]}\r\n\r\n"
+            + "data:{\"id\":\"d1\",\"object\":\"chat.completion.chunk\",\"model\":\"deepseek-reasoner\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"答案\",\"reasoning_content\":null},\"logprobs\":null,\"finish_reason\":null}]}\r\n\r\n"
+            + "data:{\"id\":\"d1\",\"object\":\"chat.completion.chunk\",\"model\":\"deepseek-reasoner\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"\"},\"logprobs\":null,\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":20,\"total_tokens\":30,\"prompt_tokens_details\":{\"cached_tokens\":0}}}\r\n\r\n"
+            + "data:[DONE]\r\n\r\n"
+            + "data:{\"choices\":[{\"delta\":{\"content\":\"DONE 之后的内容\"}}]}\r\n\r\n";
+
+    /** 记录解析结果 */
+    private static class Recorder implements SseDeltaParser.Listener {
+        final List<String> contents = new ArrayList<>();
+        final List<String> reasoning = new ArrayList<>();
+        int totalTokens = -1;
+
+        @Override
+        public void onDelta(String content, String reasoningContent) {
+            if (content != null) {
+                contents.add(content);
+            }
+            if (reasoningContent != null) {
+                reasoning.add(reasoningContent);
+            }
+        }
+
+        @Override
+        public void onUsage(int promptTokens, int completionTokens, int totalTokens) {
+            this.totalTokens = totalTokens;
+        }
+    }
+
+    @Test
+    void testDashScopeStream() throws Exception {
+        Recorder recorder = new Recorder();
+        SseDeltaParser parser = new SseDeltaParser(recorder);
+        parser.readFrom(new ByteArrayInputStream(DASHSCOPE_STREAM.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("", "## 角色", "\n你是一名资深\"产品经理\"", ""), recorder.contents);
+        assertEquals(69, recorder.totalTokens);
+        assertTrue(parser.isDone());
+    }
+
+    @Test
+    void testDeepSeekReasoningStream() throws Exception {
+        Recorder recorder = new Recorder();
+        SseDeltaParser parser = new SseDeltaParser(recorder);
+        parser.readFrom(new ByteArrayInputStream(DEEPSEEK_STREAM.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("答案", ""), recorder.contents);
+        assertEquals(List.of("思考"), recorder.reasoning);
+        assertEquals(30, recorder.totalTokens);
+        // [DONE] 之后的数据被忽略
+        assertTrue(parser.isDone());
+    }
+
+    @Test
+    void testEverySplitPointYieldsSameResult() {
+        byte[] bytes = DASHSCOPE_STREAM.getBytes(StandardCharsets.UTF_8);
+        // 在每个字节位置切分，覆盖半行和被截断的多字节 UTF-8 字符
+        for (int split = 1; split < bytes.length; split++) {
+            Recorder recorder = new Recorder();
+            SseDeltaParser parser = new SseDeltaParser(recorder);
+            parser.feed(ByteBuffer.wrap(bytes, 0, split));
+            parser.feed(ByteBuffer.wrap(bytes, split, bytes.length - split));
+            parser.finish();
+
+            assertEquals("## 角色\n你是一名资深\"产品经理\"", String.join("", recorder.contents), "split=" + split);
+            assertTrue(parser.isDone(), "split=" + split);
+        }
+    }
+
+    @Test
+    void testLastLineWithoutNewlineAndMalformedEvent() {
+        Recorder recorder = new Recorder();
+        SseDeltaParser parser = new SseDeltaParser(recorder);
+        byte[] bytes = ("data: {not json}\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"尾部\"}}]}").getBytes(StandardCharsets.UTF_8);
+        parser.feed(bytes, 0, bytes.length);
+        assertTrue(recorder.contents.isEmpty());
+
+        parser.finish();
+        assertEquals(List.of("尾部"), recorder.contents);
+        assertFalse(parser.isDone());
+    }
+}
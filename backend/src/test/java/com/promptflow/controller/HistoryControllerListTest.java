@@ -0,0 +1,129 @@
+package com.promptflow.controller;
+
+import com.promptflow.dto.HistoryResponse;
+import com.promptflow.dto.HistorySummary;
+import com.promptflow.entity.PromptCategory;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.entity.PromptTag;
+import com.promptflow.repository.PromptCategoryRepository;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.PromptTagRepository;
+import com.promptflow.service.CounterBufferService;
+import com.promptflow.service.HistorySearchService;
+import com.promptflow.service.PromptHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 历史记录列表接口：列表投影 + 批量标签、分类组装响应
+ * 仓库是 mock，这里只验证组装结果和走的是批量方法；实际 SQL 条数需要在真实数据库上观察
+ */
+class HistoryControllerListTest {
+
+    private final PromptResourceRepository resourceRepository = mock(PromptResourceRepository.class);
+    private final PromptTagRepository tagRepository = mock(PromptTagRepository.class);
+    private final PromptCategoryRepository categoryRepository = mock(PromptCategoryRepository.class);
+    private final HistoryController controller = new HistoryController();
+
+    @BeforeEach
+    void setUp() {
+        List<HistorySummary> summaries = List.of(summary(1L), summary(2L));
+        when(resourceRepository.findPageByCreatedAt(any(), any(), any())).thenReturn(summaries);
+        when(resourceRepository.findSummariesByIds(any())).thenReturn(summaries);
+        when(resourceRepository.findContentByIds(any())).thenReturn(List.of(
+            new Object[]{1L, "把中文翻译成英文"}, new Object[]{2L, "把中文翻译成英文"}));
+        when(tagRepository.findTagsByPromptIds(any())).thenReturn(List.of(
+            new Object[]{1L, tag(10L)}, new Object[]{1L, tag(11L)}, new Object[]{2L, tag(20L)}));
+        when(categoryRepository.findAllById(any())).thenReturn(List.of(category(2L), category(1L)));
+
+        CounterBufferService counterBufferService = mock(CounterBufferService.class);
+        when(counterBufferService.mergePromptLikes(any(), any()))
+            .thenAnswer(inv -> inv.getArgument(1) != null ? (Integer) inv.getArgument(1) : 0);
+
+        HistorySearchService searchService = new HistorySearchService(resourceRepository);
+        ReflectionTestUtils.setField(searchService, "maxIndexedChars", 4000);
+        ReflectionTestUtils.setField(searchService, "snippetLength", 120);
+        searchService.initIndex();
+        for (long id = 1; id <= 2; id++) {
+            PromptResource prompt = new PromptResource();
+            prompt.setId(id);
+            prompt.setName("翻译助手" + id);
+            prompt.setGeneratedPrompt("把中文翻译成英文");
+            searchService.onSaved(prompt);
+        }
+        ReflectionTestUtils.setField(searchService, "ready", true);
+
+        PromptHistoryService historyService = new PromptHistoryService();
+        ReflectionTestUtils.setField(historyService, "promptResourceRepository", resourceRepository);
+        ReflectionTestUtils.setField(historyService, "promptTagRepository", tagRepository);
+        ReflectionTestUtils.setField(historyService, "promptCategoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(historyService, "counterBufferService", counterBufferService);
+        ReflectionTestUtils.setField(historyService, "historySearchService", searchService);
+
+        ReflectionTestUtils.setField(controller, "promptHistoryService", historyService);
+        ReflectionTestUtils.setField(controller, "promptResourceRepository", resourceRepository);
+        ReflectionTestUtils.setField(controller, "counterBufferService", counterBufferService);
+        ReflectionTestUtils.setField(controller, "historySearchService", searchService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListResponseUsesBatchedTagsAndPreview() {
+        ResponseEntity<Map<String, Object>> response = controller.getRecentHistory(20, null);
+
+        List<HistoryResponse> data = (List<HistoryResponse>) response.getBody().get("data");
+        assertEquals(2, data.size());
+        HistoryResponse first = data.get(0);
+        assertEquals(2, first.getTags().size());
+        assertEquals("分类2", first.getCategory().getName());
+        assertEquals("x".repeat(50) + "...", first.getGeneratedPrompt());
+        assertEquals(1, data.get(1).getTags().size());
+        verify(tagRepository, times(1)).findTagsByPromptIds(any());
+        verify(categoryRepository, times(1)).findAllById(any());
+        // 列表不会加载实体
+        verify(resourceRepository, never()).findById(any());
+        verify(resourceRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchResponseCarriesHighlights() {
+        ResponseEntity<Map<String, Object>> response = controller.searchHistory("翻译", 1, 20, null);
+
+        assertEquals(2L, response.getBody().get("total"));
+        List<HistoryResponse> data = (List<HistoryResponse>) response.getBody().get("data");
+        assertEquals(2, data.size());
+        assertTrue(data.get(0).getHighlight().contains("<em>翻译</em>"));
+        verify(resourceRepository, times(1)).findContentByIds(any());
+        verify(resourceRepository, never()).findById(any());
+    }
+
+    private static HistorySummary summary(long id) {
+        return new HistorySummary(id, "agent", "翻译助手" + id,
+            "角色", null, null, null, null, null, null, null, null, null,
+            null, "x".repeat(51), LocalDateTime.now().minusMinutes(id),
+            (int) id, 0, id % 2 + 1, true, "[\"翻译\"]", null, null, 4.5, 2);
+    }
+
+    private static PromptTag tag(long id) {
+        PromptTag tag = new PromptTag("标签" + id, "#409EFF");
+        tag.setId(id);
+        return tag;
+    }
+
+    private static PromptCategory category(long id) {
+        PromptCategory category = new PromptCategory("分类" + id, null, null, null, (int) id);
+        category.setId(id);
+        return category;
+    }
+}
@@ -0,0 +1,171 @@
+package com.promptflow.controller;
+
+import com.promptflow.dto.HistoryQueryRequest;
+import com.promptflow.dto.HistoryResponse;
+import com.promptflow.entity.PromptCategory;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.entity.PromptTag;
+import com.promptflow.repository.PromptCategoryRepository;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.PromptTagRepository;
+import com.promptflow.service.CounterBufferService;
+import com.promptflow.service.HistorySearchService;
+import com.promptflow.service.PromptHistoryService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 历史记录列表接口的 SQL 条数：H2 上执行真实查询，以 Hibernate 统计的 prepared statement 数断言
+ * 每页固定为 列表 + 标签 + 分类（检索另加正文高亮，页码分页另加 count），与页内行数无关
+ */
+@DataJpaTest(properties = {
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false"
+})
+class HistoryControllerQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PromptResourceRepository resourceRepository;
+
+    @Autowired
+    private PromptTagRepository tagRepository;
+
+    @Autowired
+    private PromptCategoryRepository categoryRepository;
+
+    private final HistoryController controller = new HistoryController();
+    private Statistics statistics;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        PromptCategory category = entityManager.persist(new PromptCategory("翻译", null, null, null, 1));
+        categoryId = category.getId();
+        PromptTag translate = entityManager.persist(new PromptTag("翻译", "#409EFF"));
+        PromptTag english = entityManager.persist(new PromptTag("英文", "#67C23A"));
+        for (int i = 1; i <= 4; i++) {
+            PromptResource prompt = new PromptResource();
+            prompt.setPromptType("agent");
+            prompt.setName("翻译助手" + i);
+            prompt.setGeneratedPrompt("把中文翻译成英文，保持语气" + i);
+            prompt.setCategoryId(categoryId);
+            prompt.setCreatedAt(LocalDateTime.of(2026, 1, 1, 0, 0).plusHours(i));
+            prompt.setLikeCount(i);
+            prompt.setAverageRating(3.0 + i * 0.5);
+            prompt.setRatingCount(1);
+            prompt.addTag(translate);
+            if (i % 2 == 0) {
+                prompt.addTag(english);
+            }
+            entityManager.persist(prompt);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        CounterBufferService counterBufferService = mock(CounterBufferService.class);
+        when(counterBufferService.mergePromptLikes(any(), any()))
+            .thenAnswer(inv -> inv.getArgument(1) != null ? (Integer) inv.getArgument(1) : 0);
+
+        HistorySearchService searchService = new HistorySearchService(resourceRepository);
+        ReflectionTestUtils.setField(searchService, "maxIndexedChars", 4000);
+        ReflectionTestUtils.setField(searchService, "bootstrapBatchSize", 100);
+        ReflectionTestUtils.setField(searchService, "snippetLength", 120);
+        searchService.initIndex();
+        ReflectionTestUtils.invokeMethod(searchService, "bootstrap");
+        assertTrue(searchService.isReady());
+
+        PromptHistoryService historyService = new PromptHistoryService();
+        ReflectionTestUtils.setField(historyService, "promptResourceRepository", resourceRepository);
+        ReflectionTestUtils.setField(historyService, "promptTagRepository", tagRepository);
+        ReflectionTestUtils.setField(historyService, "promptCategoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(historyService, "counterBufferService", counterBufferService);
+        ReflectionTestUtils.setField(historyService, "historySearchService", searchService);
+
+        ReflectionTestUtils.setField(controller, "promptHistoryService", historyService);
+        ReflectionTestUtils.setField(controller, "promptResourceRepository", resourceRepository);
+        ReflectionTestUtils.setField(controller, "counterBufferService", counterBufferService);
+        ReflectionTestUtils.setField(controller, "historySearchService", searchService);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testPageQueryCount() {
+        HistoryQueryRequest request = new HistoryQueryRequest();
+        request.setPage(1);
+        request.setSize(3);
+        // 列表 + count + 标签 + 分类
+        assertStatements(4, 3, () -> controller.getHistoryPagePost(request));
+
+        request.setCursor("");
+        assertStatements(3, 3, () -> controller.getHistoryPagePost(request));
+    }
+
+    @Test
+    void testRecentQueryCount() {
+        assertStatements(3, 3, () -> controller.getRecentHistory(3, null));
+    }
+
+    @Test
+    void testCategoryQueryCount() {
+        assertStatements(3, 3, () -> controller.getHistoryByCategory(categoryId, "", 3));
+    }
+
+    @Test
+    void testTopLikedQueryCount() {
+        assertStatements(4, 3, () -> controller.getTopLikedPrompts(1, 3, null));
+        assertStatements(3, 3, () -> controller.getTopLikedPrompts(1, 3, ""));
+    }
+
+    @Test
+    void testTopRatedQueryCount() {
+        assertStatements(4, 3, () -> controller.getTopRatedPrompts(1, 3, null));
+        assertStatements(3, 3, () -> controller.getTopRatedPrompts(1, 3, ""));
+    }
+
+    @Test
+    void testSearchQueryCount() {
+        // 按 id 取投影 + 高亮正文 + 标签 + 分类
+        assertStatements(4, 3, () -> controller.searchHistory("翻译", 1, 3, null));
+        assertStatements(4, 3, () -> controller.searchHistory("翻译", 1, 3, ""));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertStatements(long expected, int rows, Supplier<ResponseEntity<Map<String, Object>>> call) {
+        entityManager.clear();
+        statistics.clear();
+
+        Map<String, Object> body = call.get().getBody();
+
+        assertEquals(Boolean.TRUE, body.get("success"));
+        List<HistoryResponse> data = (List<HistoryResponse>) body.get("data");
+        assertEquals(rows, data.size());
+        assertTrue(data.stream().allMatch(item -> !item.getTags().isEmpty() && item.getCategory() != null));
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+}
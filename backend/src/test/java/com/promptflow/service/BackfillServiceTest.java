@@ -0,0 +1,118 @@
+package com.promptflow.service;
+
+import com.promptflow.dto.ClassificationResult;
+import com.promptflow.entity.BackfillJob;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.repository.BackfillJobRepository;
+import com.promptflow.repository.PromptResourceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 回填任务：从检查点继续、分块推进检查点
+ */
+class BackfillServiceTest {
+
+    private final BackfillJobRepository jobRepository = mock(BackfillJobRepository.class);
+    private final PromptResourceRepository promptResourceRepository = mock(PromptResourceRepository.class);
+    private final PromptClassificationService classificationService = mock(PromptClassificationService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final BackfillService service = new BackfillService(
+        jobRepository, promptResourceRepository, classificationService, transactionTemplate);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testResumeFromCheckpoint() throws Exception {
+        ReflectionTestUtils.setField(service, "workers", 2);
+        ReflectionTestUtils.setField(service, "chunkSize", 3);
+        ReflectionTestUtils.setField(service, "sliceSize", 2);
+        ReflectionTestUtils.setField(service, "ratePerSecond", 0.0);
+        ReflectionTestUtils.setField(service, "rateBurst", 1);
+        service.init();
+
+        // 上次进程已处理到 id=10
+        BackfillJob job = new BackfillJob(BackfillService.TYPE_CLASSIFY, null, 10L);
+        job.setId(1L);
+        job.setCheckpointId(10L);
+        job.setProcessedItems(5L);
+        job.setSucceededItems(5L);
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jobRepository.findClaimableIds(any())).thenReturn(List.of(1L));
+        when(jobRepository.claim(eq(1L), anyString(), any(), any())).thenAnswer(inv -> {
+            job.setLockedBy(inv.getArgument(1));
+            return 1;
+        });
+        when(jobRepository.saveProgress(eq(1L), anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any(), any(), any()))
+            .thenReturn(1);
+        when(jobRepository.finish(eq(1L), anyString(), anyString(), any(), any())).thenReturn(1);
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+
+        Map<Long, List<PromptResource>> pages = Map.of(
+            10L, prompts(11, 12, 14),
+            14L, prompts(15, 16));
+        when(promptResourceRepository.findUnTaggedAfter(anyLong(), any(Pageable.class)))
+            .thenAnswer(inv -> pages.getOrDefault(inv.<Long>getArgument(0), List.of()));
+        when(classificationService.classifyForBackfill(anyList(), any())).thenAnswer(inv -> {
+            List<PromptResource> slice = inv.getArgument(0);
+            return slice.stream().collect(Collectors.toMap(PromptResource::getId,
+                p -> new ClassificationResult(1L, "办公效率", List.of(), 0.9)));
+        });
+        // id=12 保存失败，计入失败数但不阻塞检查点
+        when(classificationService.applyClassification(anyLong(), any())).thenAnswer(inv -> !inv.getArgument(0).equals(12L));
+
+        service.resume();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (BackfillJob.RUNNING.equals(job.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(BackfillJob.COMPLETED, job.getStatus());
+        assertEquals(16L, job.getCheckpointId());
+        assertEquals(10L, job.getProcessedItems());
+        assertEquals(9L, job.getSucceededItems());
+        assertEquals(1L, job.getFailedItems());
+        assertNull(job.getLockedBy());
+        verify(promptResourceRepository, never()).findUnTaggedAfter(eq(0L), any(Pageable.class));
+        verify(classificationService, times(5)).applyClassification(anyLong(), any());
+    }
+
+    @Test
+    void testSkipJobClaimedByAnotherInstance() {
+        ReflectionTestUtils.setField(service, "workers", 1);
+        ReflectionTestUtils.setField(service, "rateBurst", 1);
+        service.init();
+        when(jobRepository.findClaimableIds(any())).thenReturn(List.of(1L));
+        when(transactionTemplate.execute(any())).thenReturn(0);
+
+        service.resume();
+
+        verify(jobRepository, never()).findById(anyLong());
+        assertTrue(((List<?>) service.getMetrics().get("activeJobs")).isEmpty());
+    }
+
+    private static List<PromptResource> prompts(long... ids) {
+        List<PromptResource> list = new ArrayList<>();
+        for (long id : ids) {
+            PromptResource prompt = new PromptResource();
+            prompt.setId(id);
+            list.add(prompt);
+        }
+        return list;
+    }
+}
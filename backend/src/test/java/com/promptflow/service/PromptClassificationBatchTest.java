@@ -0,0 +1,54 @@
+package com.promptflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.dto.ClassificationResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量分类打包与解析测试
+ */
+class PromptClassificationBatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testPackBatchesRespectsCountAndTokenBudget() {
+        List<Integer> costs = List.of(100, 100, 100, 500, 100, 100, 100, 100);
+        List<List<Integer>> batches = PromptClassificationService.packBatches(costs, c -> c, 3, 400);
+        assertEquals(List.of(
+            List.of(100, 100, 100),
+            List.of(500),
+            List.of(100, 100, 100),
+            List.of(100)), batches);
+    }
+
+    @Test
+    void testParseSkipsInvalidEntries() {
+        String content = "好的，结果如下：\n[" +
+            "{\"id\": 1, \"categoryId\": 2, \"tags\": [\"代码\", \"审查\"], \"confidence\": 0.9}," +
+            "{\"id\": 2, \"categoryId\": 99, \"tags\": [], \"confidence\": 0.8}," +
+            "{\"categoryId\": 1, \"tags\": []}]";
+        Map<Long, ClassificationResult> results = PromptClassificationService.parseBatchClassificationResult(
+            content, Map.of(1L, "内容创作", 2L, "代码开发"), objectMapper);
+
+        assertEquals(1, results.size());
+        ClassificationResult first = results.get(1L);
+        assertEquals(2L, first.getCategoryId());
+        assertEquals("代码开发", first.getCategoryName());
+        assertEquals(List.of("代码", "审查"), first.getTags());
+        assertEquals(0.9, first.getConfidence(), 1e-9);
+    }
+
+    @Test
+    void testParseMalformedReturnsEmpty() {
+        assertTrue(PromptClassificationService.parseBatchClassificationResult(
+            "[{\"id\": 1, \"categoryId\": ", Map.of(1L, "内容创作"), objectMapper).isEmpty());
+        assertTrue(PromptClassificationService.parseBatchClassificationResult(
+            "无法分类", Map.of(1L, "内容创作"), objectMapper).isEmpty());
+    }
+}
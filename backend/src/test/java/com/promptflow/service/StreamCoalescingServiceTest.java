@@ -0,0 +1,104 @@
+package com.promptflow.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 共享流的分发：慢订阅者不阻塞生产者和其他订阅者
+ */
+class StreamCoalescingServiceTest {
+
+    private final ExecutorService fanout = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        fanout.shutdownNow();
+    }
+
+    /** 记录收到的事件 */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<Set<DataWithMediaType>> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(Set<DataWithMediaType> event) {
+            events.add(event);
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+
+    /** 每次写入都阻塞到放行为止 */
+    private class BlockedEmitter extends RecordingEmitter {
+        @Override
+        public void send(Set<DataWithMediaType> event) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.send(event);
+        }
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotBlockOthers() throws Exception {
+        StreamCoalescingService.SharedStream stream = new StreamCoalescingService.SharedStream(true, 100, fanout, null);
+        RecordingEmitter slow = new BlockedEmitter();
+        RecordingEmitter fast = new RecordingEmitter();
+        assertTrue(stream.subscribe(slow));
+        assertTrue(stream.subscribe(fast));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            stream.send(SseEmitter.event().name("message").data("块" + i));
+        }
+        stream.complete();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000, "生产者不应等待慢订阅者");
+
+        assertTrue(fast.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(3, fast.events.size());
+        assertTrue(slow.events.isEmpty());
+
+        // 放行后慢订阅者按顺序收到全部事件
+        release.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(fast.events, slow.events);
+    }
+
+    @Test
+    void testLateSubscriberReplaysHistory() throws IOException, InterruptedException {
+        StreamCoalescingService.SharedStream stream = new StreamCoalescingService.SharedStream(true, 100, fanout, null);
+        RecordingEmitter first = new RecordingEmitter();
+        stream.subscribe(first);
+        stream.send(SseEmitter.event().data("a"));
+
+        RecordingEmitter late = new RecordingEmitter();
+        assertTrue(stream.subscribe(late));
+        stream.send(SseEmitter.event().data("b"));
+        stream.complete();
+
+        assertTrue(late.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(first.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, late.events.size());
+        assertEquals(first.events, late.events);
+        assertFalse(stream.subscribe(new RecordingEmitter()));
+    }
+}
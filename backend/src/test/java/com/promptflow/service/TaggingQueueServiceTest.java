@@ -0,0 +1,121 @@
+package com.promptflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.entity.PromptResource;
+import com.promptflow.entity.TaggingJob;
+import com.promptflow.repository.PromptResourceRepository;
+import com.promptflow.repository.TaggingJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 打标签任务：租约校验、完成与写标签同事务、上游错误记录
+ */
+class TaggingQueueServiceTest {
+
+    private static final List<String> TAGS = List.of("翻译", "写作", "英语", "效率", "办公");
+
+    private final TaggingJobRepository jobRepository = mock(TaggingJobRepository.class);
+    private final PromptResourceRepository promptResourceRepository = mock(PromptResourceRepository.class);
+    private final PromptClassificationService classificationService = mock(PromptClassificationService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final TaggingQueueService service = new TaggingQueueService(
+        jobRepository, promptResourceRepository, classificationService, transactionTemplate, new ObjectMapper());
+
+    private final TaggingJob job = new TaggingJob(7L);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "workers", 1);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoff", 1000L);
+        ReflectionTestUtils.setField(service, "ratePerSecond", 100.0);
+        ReflectionTestUtils.setField(service, "rateBurst", 10);
+        service.init();
+
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        job.setId(1L);
+        job.setStatus(TaggingJob.RUNNING);
+        job.setAttempts(1);
+        job.setLockedBy((String) ReflectionTestUtils.getField(service, "owner"));
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+        PromptResource prompt = new PromptResource();
+        prompt.setId(7L);
+        when(promptResourceRepository.findById(7L)).thenReturn(Optional.of(prompt));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testTagsAndCompletionCommitTogether() {
+        when(classificationService.generateFiveTags(any())).thenReturn(TAGS);
+        when(classificationService.applyGeneratedTags(7L, TAGS)).thenReturn(true);
+
+        service.process(1L);
+
+        verify(classificationService, times(1)).applyGeneratedTags(7L, TAGS);
+        verify(transactionTemplate, times(1)).execute(any());
+        assertEquals(TaggingJob.DONE, job.getStatus());
+        assertNull(job.getLockedBy());
+        assertNull(job.getLeaseUntil());
+    }
+
+    @Test
+    void testLostLeaseDiscardsResult() {
+        when(classificationService.generateFiveTags(any())).thenReturn(TAGS);
+        job.setLockedBy("other-instance");
+
+        service.process(1L);
+
+        verify(classificationService, never()).applyGeneratedTags(any(), any());
+        verify(jobRepository, never()).save(any());
+        assertEquals(TaggingJob.RUNNING, job.getStatus());
+    }
+
+    @Test
+    void testUpstreamErrorIsRecorded() {
+        when(classificationService.generateFiveTags(any())).thenThrow(new IllegalStateException("上游返回 503"));
+        when(jobRepository.scheduleRetry(eq(1L), eq(job.getLockedBy()), any(), eq("上游返回 503"), any())).thenReturn(1);
+
+        service.process(1L);
+
+        verify(classificationService, never()).applyGeneratedTags(any(), any());
+        // 以持有者为条件更新，不回写读到的实体
+        verify(jobRepository, times(1)).scheduleRetry(eq(1L), eq(job.getLockedBy()), any(), eq("上游返回 503"), any());
+        verify(jobRepository, never()).save(any());
+        assertEquals(1L, service.getMetrics().get("retried"));
+    }
+
+    @Test
+    void testLastAttemptFailsOnlyWhileHoldingLease() {
+        when(classificationService.generateFiveTags(any())).thenThrow(new IllegalStateException("上游返回 503"));
+        job.setAttempts(3);
+
+        // 租约已被其他实例接手：条件更新未命中，不覆盖、不通知
+        service.process(1L);
+        verify(jobRepository, times(1)).markFailed(eq(1L), eq(job.getLockedBy()), eq("上游返回 503"), any());
+        assertEquals(TaggingJob.RUNNING, job.getStatus());
+        assertEquals(0L, service.getMetrics().get("failed"));
+
+        when(jobRepository.markFailed(eq(1L), eq(job.getLockedBy()), eq("上游返回 503"), any())).thenReturn(1);
+        service.process(1L);
+        assertEquals(TaggingJob.FAILED, job.getStatus());
+        assertEquals(1L, service.getMetrics().get("failed"));
+        verify(jobRepository, never()).save(any());
+    }
+}
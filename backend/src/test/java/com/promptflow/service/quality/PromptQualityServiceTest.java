@@ -0,0 +1,107 @@
+package com.promptflow.service.quality;
+
+import com.promptflow.dto.AnalyzeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提示词特征提取与评分测试
+ */
+class PromptQualityServiceTest {
+
+    private final PromptQualityService service = new PromptQualityService();
+
+    @Test
+    void testFeaturesOnMultiLinePrompt() {
+        String prompt = "你是一位资深工程师。\n请按以下步骤处理：\n1. 阅读代码\n2、找出问题\n\n输出 JSON 格式";
+        PromptFeatures features = service.extractFeatures(prompt);
+
+        assertEquals(prompt.length(), features.length());
+        assertEquals(6, features.lineCount());
+        assertEquals(2, features.paragraphBreaks());
+        // 多行文本中的编号也能识别
+        assertEquals(2, features.numberedItems());
+    }
+
+    @Test
+    void testKeywordGroupsCaseInsensitiveSubstring() {
+        AnalyzeResponse response = service.analyze("You Are an EXPERT. Please WRITE a summary and return it as Markdown.");
+        // 40 + you are(20) + expert(10)
+        assertEquals(70, response.getRoleScore());
+        // 40 + please(15) + write(10)
+        assertEquals(65, response.getTaskScore());
+    }
+
+    @Test
+    void testLargePromptScoredInLinearTime() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            sb.append("内容").append(i % 10).append(' ');
+        }
+        String prompt = sb.toString();
+        long start = System.nanoTime();
+        int score = service.evaluate(prompt);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(score > 0 && score <= 100);
+        assertTrue(elapsedMillis < 2000, "耗时 " + elapsedMillis + "ms");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAnalysisCachedByContent() {
+        String prompt = "你是一位翻译专家，请把下面的内容翻译成英文，输出 Markdown 表格";
+        AnalyzeResponse first = service.analyze(prompt);
+        int score = service.evaluate(prompt);
+        // 内容相同的新字符串也命中缓存
+        assertSame(first, service.analyze(new String(prompt.toCharArray())));
+        assertEquals(score, service.evaluate(prompt));
+
+        Map<String, Object> cache = (Map<String, Object>) service.getMetrics().get("cache");
+        assertEquals(1L, ((Number) cache.get("misses")).longValue());
+        assertEquals(3L, ((Number) cache.get("hits")).longValue());
+    }
+
+    @Test
+    void testBatchKeepsInputOrder() {
+        List<String> prompts = List.of(
+            "你是一位专家",
+            "请生成一份周报",
+            "输出 JSON 格式，必须包含 id 字段",
+            "你是一位专家");
+        List<AnalyzeResponse> results = service.analyzeBatch(prompts);
+
+        assertEquals(prompts.size(), results.size());
+        for (int i = 0; i < prompts.size(); i++) {
+            assertEquals(service.analyze(prompts.get(i)).getTotalScore(), results.get(i).getTotalScore());
+        }
+    }
+
+    @Test
+    void testIncrementalScoreMatchesFullEvaluation() {
+        String prompt = "# 代码审查助手\n\n你是一位资深 Java 工程师。\n请按以下步骤处理：\n1. 阅读代码\n2. 找出问题\n\n"
+            + "必须给出修改建议，不要改动接口。输出 Markdown 表格，包含问题、位置、建议三列。";
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++) {
+            IncrementalQualityScorer scorer = service.newIncrementalScorer();
+            int from = 0;
+            while (from < prompt.length()) {
+                int to = Math.min(prompt.length(), from + 1 + random.nextInt(8));
+                scorer.append(prompt.substring(from, to));
+                // 每个前缀的增量评分都与整体评分一致
+                assertEquals(service.evaluate(prompt.substring(0, to)), scorer.score());
+                from = to;
+            }
+            assertEquals(prompt.length(), scorer.length());
+        }
+
+        IncrementalQualityScorer blank = service.newIncrementalScorer();
+        blank.append("  \n ");
+        assertEquals(0, blank.score());
+    }
+}
@@ -0,0 +1,91 @@
+package com.promptflow.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InvertedSearchIndex 单元测试
+ */
+class InvertedSearchIndexTest {
+
+    @Test
+    void testTokenizerCjkBigramsAndWords() {
+        assertEquals(List.of("提示", "示词", "json", "格式"), SearchTokenizer.tokenize("提示词，JSON格式"));
+        assertEquals(List.of("写"), SearchTokenizer.tokenize("写"));
+    }
+
+    @Test
+    void testRankedAndPaginated() {
+        InvertedSearchIndex index = new InvertedSearchIndex(4000);
+        index.index(1L, 1L, "翻译助手", "把中文翻译成英文");
+        index.index(2L, 2L, "代码审查", "审查代码并给出建议，必要时翻译注释");
+        index.index(3L, 1L, "周报生成", "根据要点生成周报");
+
+        SearchIndex.Result result = index.search("翻译", null, 0, 10);
+        assertEquals(2, result.total());
+        // 名称命中的权重更高
+        assertEquals(List.of(1L, 2L), ids(result));
+
+        SearchIndex.Result second = index.search("翻译", null, 1, 1);
+        assertEquals(2, second.total());
+        assertEquals(List.of(2L), ids(second));
+
+        assertEquals(List.of(2L), ids(index.search("翻译", 2L, 0, 10)));
+        assertEquals(0, index.search("不存在的词", null, 0, 10).total());
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        InvertedSearchIndex index = new InvertedSearchIndex(4000);
+        index.index(1L, null, "Email writer", "draft a polite email");
+        index.index(1L, null, "Email writer", "draft a formal letter");
+        assertEquals(1, index.size());
+        assertEquals(0, index.search("polite", null, 0, 10).total());
+        assertEquals(List.of(1L), ids(index.search("FORMAL letter", null, 0, 10)));
+
+        index.updateCategory(1L, 5L);
+        assertEquals(1, index.search("letter", 5L, 0, 10).total());
+
+        index.remove(1L);
+        assertEquals(0, index.size());
+        assertEquals(0, index.search("letter", null, 0, 10).total());
+    }
+
+    @Test
+    void testOutOfRangeOffsetReturnsEmptyPage() {
+        InvertedSearchIndex index = new InvertedSearchIndex(4000);
+        index.index(1L, null, "翻译助手", "把中文翻译成英文");
+
+        SearchIndex.Result far = index.search("翻译", null, Integer.MAX_VALUE - 5, 100);
+        assertEquals(1, far.total());
+        assertTrue(far.hits().isEmpty());
+        assertEquals(List.of(1L), ids(index.search("翻译", null, -20, 10)));
+    }
+
+    @Test
+    void testRepeatedUpdatesReuseDocSlots() {
+        InvertedSearchIndex index = new InvertedSearchIndex(4000);
+        index.index(1L, 1L, "周报生成", "根据要点生成周报");
+        for (int i = 0; i < 5000; i++) {
+            index.index(2L, 2L, "翻译助手", "第" + i + "版 翻译");
+        }
+        assertEquals(2, index.size());
+        assertTrue(index.allocatedDocs() < 2100, "压缩后文档号应被回收");
+        assertEquals(List.of(2L), ids(index.search("翻译", 2L, 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("周报", 1L, 0, 10)));
+    }
+
+    @Test
+    void testHighlightEscapesAndMarksMatches() {
+        String snippet = SearchHighlighter.snippet("使用<b>JSON</b>格式输出", "json 格式", 50);
+        assertEquals("使用&lt;b&gt;<em>JSON</em>&lt;/b&gt;<em>格式</em>输出", snippet);
+    }
+
+    private static List<Long> ids(SearchIndex.Result result) {
+        return result.hits().stream().map(SearchIndex.Hit::id).collect(Collectors.toList());
+    }
+}
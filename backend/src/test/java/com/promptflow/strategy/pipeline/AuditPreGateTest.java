@@ -0,0 +1,76 @@
+package com.promptflow.strategy.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计前置闸门校准测试
+ */
+class AuditPreGateTest {
+
+    private PipelineConfig config() {
+        PipelineConfig config = new PipelineConfig();
+        config.setPreGateMinSamples(20);
+        config.setPreGatePrecision(0.9);
+        config.setPreGateExploreRate(0);
+        return config;
+    }
+
+    @Test
+    void testAuditsUntilEnoughSamples() {
+        AuditPreGate gate = new AuditPreGate(config());
+        for (int i = 0; i < 10; i++) {
+            gate.record(95, 90);
+        }
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(95));
+        assertEquals(-1, gate.thresholds()[0]);
+    }
+
+    @Test
+    void testCalibratesBothThresholds() {
+        AuditPreGate gate = new AuditPreGate(config());
+        // 本地 ≥ 70 几乎都通过，≤ 40 几乎都不通过，中间一半一半
+        for (int i = 0; i < 40; i++) {
+            gate.record(70 + i % 30, 85);
+            gate.record(10 + i % 30, 50);
+            gate.record(50 + i % 10, i % 2 == 0 ? 85 : 60);
+        }
+        gate.record(75, 60);
+
+        int[] thresholds = gate.thresholds();
+        assertTrue(thresholds[0] >= 60 && thresholds[0] <= 70, "pass=" + thresholds[0]);
+        assertTrue(thresholds[1] >= 39 && thresholds[1] < 55, "fail=" + thresholds[1]);
+
+        assertEquals(AuditPreGate.Decision.PASS, gate.decide(90));
+        assertEquals(AuditPreGate.Decision.FAIL, gate.decide(20));
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(55));
+    }
+
+    @Test
+    void testUninformativeScoresNeverGate() {
+        AuditPreGate gate = new AuditPreGate(config());
+        for (int i = 0; i < 200; i++) {
+            gate.record(i % 100, i % 2 == 0 ? 90 : 40);
+        }
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(99));
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(0));
+    }
+
+    @Test
+    void testFixedThresholdsAndExploration() {
+        PipelineConfig config = config();
+        config.setPreGatePassScore(85);
+        config.setPreGateExploreRate(0.5);
+        AuditPreGate gate = new AuditPreGate(config, () -> 0.3);
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(90));
+
+        config.setPreGateExploreRate(0.1);
+        assertEquals(AuditPreGate.Decision.PASS, gate.decide(90));
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(60));
+        assertEquals(1L, gate.getMetrics().get("explored"));
+
+        config.setPreGateEnabled(false);
+        assertEquals(AuditPreGate.Decision.AUDIT, gate.decide(90));
+    }
+}
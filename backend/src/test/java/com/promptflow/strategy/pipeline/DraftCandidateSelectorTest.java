@@ -0,0 +1,159 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.service.quality.PromptQualityService;
+import com.promptflow.strategy.pipeline.impl.DraftGeneratorStage;
+import com.promptflow.strategy.pipeline.impl.QualityAuditStage;
+import com.promptflow.util.CancellationToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 多候选草稿：并行生成、本地排序、前 k 份合并审计择优
+ */
+class DraftCandidateSelectorTest {
+
+    private static final String RICH = "# 翻译助手\n你是一位专业的翻译专家。\n\n## 任务\n请帮我把用户输入翻译成英文。\n\n"
+        + "## 约束\n1. 不要添加解释\n2. 必须保留原文格式\n\n## 输出格式\n以 Markdown 列表输出译文";
+    private static final String MEDIUM = "# 翻译助手\n你是一位翻译。\n\n请帮我翻译用户输入。";
+    private static final String POOR = "# 翻译\n翻译一下";
+
+    private final LLMClient llmClient = mock(LLMClient.class);
+    private final PipelineConfig config = new PipelineConfig();
+    private final PromptQualityService qualityService = new PromptQualityService();
+    private DraftCandidateSelector selector;
+    /** 合并审计请求的回复 */
+    private LLMResponse batchAudit = LLMResponse.error("rate limited");
+
+    @BeforeEach
+    void setUp() {
+        DraftGeneratorStage draftStage = new DraftGeneratorStage();
+        ReflectionTestUtils.setField(draftStage, "defaultModel", "base-model");
+        ReflectionTestUtils.setField(draftStage, "defaultTemperature", 0.7);
+        ReflectionTestUtils.setField(draftStage, "defaultMaxTokens", 1000);
+        draftStage.init();
+        QualityAuditStage auditStage = new QualityAuditStage(config);
+        ReflectionTestUtils.setField(auditStage, "defaultModel", "base-model");
+        auditStage.init();
+        selector = new DraftCandidateSelector(llmClient, config, draftStage, auditStage, qualityService);
+        config.setDraftCandidates(3);
+    }
+
+    private PipelineContext context() {
+        return PipelineContext.builder()
+            .promptType("agent")
+            .agentFields("翻译助手", "翻译", "中译英", "", "")
+            .build();
+    }
+
+    private void draftsByTemperature(Map<Double, String> drafts) {
+        when(llmClient.callAsync(any(LLMRequest.class), any(CancellationToken.class))).thenAnswer(inv -> {
+            LLMRequest request = inv.getArgument(0);
+            if (request.getMessages().stream().anyMatch(m -> m.getContent().contains("### 候选 1"))) {
+                return CompletableFuture.completedFuture(batchAudit);
+            }
+            String draft = drafts.get(request.getTemperature());
+            return CompletableFuture.completedFuture(draft != null
+                ? LLMResponse.success("好的，以下是提示词：\n" + draft)
+                : LLMResponse.error("timeout"));
+        });
+    }
+
+    @Test
+    void testBatchAuditOverridesLocalRanking() {
+        // 温度依次为 0.7、0.9、0.5
+        draftsByTemperature(Map.of(0.7, MEDIUM, 0.9, POOR, 0.5, RICH));
+        assertTrue(qualityService.evaluate(RICH) > qualityService.evaluate(MEDIUM));
+        assertTrue(qualityService.evaluate(MEDIUM) > qualityService.evaluate(POOR));
+        // 本地前 2 名依次为 RICH、MEDIUM，审计认为 MEDIUM 更好
+        batchAudit = LLMResponse.success(
+            "```json\n{\"candidates\":[{\"index\":1,\"overallScore\":70,\"summary\":\"一般\",\"issues\":[]},"
+                + "{\"index\":2,\"overallScore\":88,\"summary\":\"良好\",\"issues\":[]}]}\n```");
+
+        PipelineContext ctx = context();
+        DraftCandidateSelector.Selection selection = selector.select(ctx);
+
+        assertEquals(0, selection.winner().index());
+        assertEquals(MEDIUM, ctx.getCurrentDraft());
+        assertEquals(88, selection.winner().auditScore());
+        assertTrue(selection.auditReport().contains("\"overallScore\":88"));
+        assertEquals(3, selection.candidates().size());
+        // 3 份候选 + 1 次合并审计
+        verify(llmClient, times(4)).callAsync(any(), any());
+        assertEquals(1L, selector.getMetrics().get("batchAudits"));
+        assertEquals(1L, selector.getMetrics().get("auditOverrides"));
+    }
+
+    @Test
+    void testFallsBackToLocalRankingWhenAuditFails() {
+        draftsByTemperature(Map.of(0.7, POOR, 0.5, RICH));
+
+        PipelineContext ctx = context();
+        DraftCandidateSelector.Selection selection = selector.select(ctx);
+
+        assertEquals(2, selection.winner().index());
+        assertEquals(RICH, ctx.getCurrentDraft());
+        assertNull(selection.auditReport());
+        assertEquals(2, selection.candidates().size());
+        assertEquals(1L, selector.getMetrics().get("failed"));
+        assertEquals(1L, selector.getMetrics().get("batchAuditFailures"));
+    }
+
+    @Test
+    void testLocalOnlySelection() {
+        config.setDraftAuditTopK(0);
+        config.setDraftTemperatures(List.of(0.2, 1.0));
+        draftsByTemperature(Map.of(0.2, MEDIUM, 1.0, RICH));
+
+        DraftCandidateSelector.Selection selection = selector.select(context());
+
+        assertEquals(1, selection.winner().index());
+        assertNull(selection.winner().auditScore());
+        verify(llmClient, times(3)).callAsync(any(), any());
+        assertEquals(0L, selector.getMetrics().get("batchAudits"));
+    }
+
+    @Test
+    void testSelectsAmongCandidatesReturnedInTime() {
+        // 只有温度 0.7 的候选按时返回，其余候选在令牌取消前不返回
+        when(llmClient.callAsync(any(LLMRequest.class), any(CancellationToken.class))).thenAnswer(inv -> {
+            LLMRequest request = inv.getArgument(0);
+            if (request.getTemperature() == 0.7) {
+                return CompletableFuture.completedFuture(LLMResponse.success(RICH));
+            }
+            CompletableFuture<LLMResponse> pending = new CompletableFuture<>();
+            CancellationToken token = inv.getArgument(1);
+            token.onCancel(() -> pending.cancel(true));
+            return pending;
+        });
+        PipelineContext ctx = context();
+        ctx.setCancellation(new CancellationToken());
+        CancellationToken stage = new CancellationToken();
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> stage.cancel("阶段超时"));
+
+        DraftCandidateSelector.Selection selection = selector.select(ctx, stage);
+
+        assertEquals(0, selection.winner().index());
+        assertEquals(1, selection.candidates().size());
+        assertEquals(RICH, ctx.getCurrentDraft());
+        assertEquals(2L, selector.getMetrics().get("failed"));
+    }
+
+    @Test
+    void testAllCandidatesFail() {
+        draftsByTemperature(Map.of());
+        assertThrows(RuntimeException.class, () -> selector.select(context()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.util.CancellationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间预算：阶段时间片、首 token 时限与到期取消
+ */
+class LatencyBudgetTest {
+
+    private final PipelineConfig config = new PipelineConfig();
+    private final LatencyBudget budget = new LatencyBudget(config);
+
+    @AfterEach
+    void tearDown() {
+        budget.shutdown();
+    }
+
+    @Test
+    void testSliceIsStageTimeoutCappedByRemainingBudget() {
+        config.setStageTimeoutMs(60000);
+        config.setStageTimeouts(Map.of("audit", 20000L));
+        config.setDeadlineMs(30000);
+        PipelineContext ctx = PipelineContext.builder().build();
+        budget.begin(ctx);
+
+        assertEquals(20000, budget.sliceFor("audit", ctx));
+        long draftSlice = budget.sliceFor("draft", ctx);
+        assertTrue(draftSlice <= 30000 && draftSlice > 25000);
+
+        ctx.setDeadline(System.currentTimeMillis() - 1);
+        assertTrue(budget.sliceFor("draft", ctx) <= 0);
+    }
+
+    @Test
+    void testUnlimitedWhenDisabled() {
+        config.setStageTimeoutMs(0);
+        config.setDeadlineMs(0);
+        PipelineContext ctx = PipelineContext.builder().build();
+        budget.begin(ctx);
+
+        assertEquals(Long.MAX_VALUE, budget.remaining(ctx));
+        assertEquals(Long.MAX_VALUE, budget.sliceFor("refine", ctx));
+    }
+
+    @Test
+    void testFirstTokenTimeoutCancelsStageToken() throws Exception {
+        config.setFirstTokenTimeoutMs(50);
+        PipelineContext ctx = PipelineContext.builder().build();
+
+        try (LatencyBudget.StageTimer timer = budget.arm(ctx, 5000, true)) {
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while (!timer.token().isCancelled() && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            assertTrue(timer.token().isCancelled());
+            assertEquals(LatencyBudget.Expiry.FIRST_TOKEN, timer.expiry());
+        }
+        assertFalse(ctx.isCancelled());
+        assertEquals(1L, budget.getMetrics().get("firstTokenTimeouts"));
+
+        // 首个输出块到达后只受时间片约束
+        try (LatencyBudget.StageTimer timer = budget.arm(ctx, 5000, true)) {
+            timer.onFirstToken();
+            Thread.sleep(150);
+            assertEquals(LatencyBudget.Expiry.NONE, timer.expiry());
+        }
+    }
+
+    @Test
+    void testContextCancellationIsNotCountedAsTimeout() {
+        PipelineContext ctx = PipelineContext.builder().build();
+        ctx.setCancellation(new CancellationToken());
+        try (LatencyBudget.StageTimer timer = budget.arm(ctx, 5000, false)) {
+            ctx.getCancellation().cancel("客户端断开");
+            assertTrue(timer.token().isCancelled());
+            timer.expire(LatencyBudget.Expiry.SLICE);
+            assertEquals(LatencyBudget.Expiry.NONE, timer.expiry());
+        }
+        assertEquals(0L, budget.getMetrics().get("sliceTimeouts"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.promptflow.strategy.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.dto.llm.LLMResponse;
+import com.promptflow.strategy.pipeline.dto.AuditReport;
+import com.promptflow.strategy.pipeline.impl.QualityAuditStage;
+import com.promptflow.util.CancellationToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 并行审计：评分融合与问题去重
+ */
+class MultiAuditorTest {
+
+    private final LLMClient llmClient = mock(LLMClient.class);
+    private final PipelineConfig config = new PipelineConfig();
+    private MultiAuditor auditor;
+
+    @BeforeEach
+    void setUp() {
+        QualityAuditStage auditStage = new QualityAuditStage(config);
+        ReflectionTestUtils.setField(auditStage, "defaultModel", "base-model");
+        auditStage.init();
+        auditor = new MultiAuditor(llmClient, config, auditStage);
+    }
+
+    private PipelineContext context() {
+        PipelineContext ctx = PipelineContext.builder().promptType("agent").build();
+        ctx.setCurrentDraft("# 翻译助手\n你是一位翻译。");
+        return ctx;
+    }
+
+    private static String report(int score, String issues) {
+        return "```json\n{\"overallScore\":" + score + ",\"summary\":\"s\",\"issues\":[" + issues + "]}\n```";
+    }
+
+    private static String issue(String dimension, String severity, String description) {
+        return "{\"dimension\":\"" + dimension + "\",\"severity\":\"" + severity
+            + "\",\"description\":\"" + description + "\",\"suggestion\":\"补充\"}";
+    }
+
+    @Test
+    void testDimensionAuditAveragesScoresAndMergesIssues() throws Exception {
+        config.setAuditMode(MultiAuditor.MODE_DIMENSIONS);
+        config.setAuditDimensions(List.of("role", "task", "output-format"));
+        Map<String, String> byFocus = Map.of(
+            "角色定义", report(90, ""),
+            "任务描述", report(60, issue("task", "minor", "没有说明输出格式，结果难以解析")),
+            "输出格式", report(45, issue("output-format", "major", "没有说明输出格式，结果难以被解析")
+                + "," + issue("output-format", "minor", "缺少示例")));
+        when(llmClient.callAsync(any(LLMRequest.class), any(CancellationToken.class))).thenAnswer(inv -> {
+            String prompt = ((LLMRequest) inv.getArgument(0)).getMessages().get(0).getContent();
+            String content = byFocus.entrySet().stream()
+                .filter(e -> prompt.contains("**" + e.getKey() + "**"))
+                .map(Map.Entry::getValue).findFirst().orElseThrow();
+            return CompletableFuture.completedFuture(LLMResponse.success(content));
+        });
+
+        assertTrue(auditor.isEnabled());
+        PipelineContext ctx = context();
+        PipelineResult result = auditor.audit(ctx);
+
+        assertEquals(65, result.getQualityScore());
+        assertTrue(result.isNeedsRefine());
+        assertEquals(65, ctx.getLatestScore());
+        verify(llmClient, times(3)).callAsync(any(), any());
+
+        AuditReport fused = new ObjectMapper().readValue(result.getContent(), AuditReport.class);
+        assertEquals(2, fused.getIssues().size());
+        AuditReport.Issue merged = fused.getIssues().get(0);
+        assertEquals("major", merged.getSeverity());
+        assertEquals(2, merged.getReportedBy());
+        assertEquals(3, fused.getAuditors().size());
+        assertEquals(1L, auditor.getMetrics().get("duplicateIssues"));
+    }
+
+    @Test
+    void testModelAuditTakesMedianAndSkipsFailedAuditors() {
+        config.setAuditMode(MultiAuditor.MODE_MODELS);
+        config.setAuditModel("model-a, model-b,model-c");
+        Map<String, LLMResponse> byModel = Map.of(
+            "model-a", LLMResponse.success(report(95, "")),
+            "model-b", LLMResponse.success(report(70, "")),
+            "model-c", LLMResponse.error("timeout"));
+        when(llmClient.callAsync(any(LLMRequest.class), any(CancellationToken.class))).thenAnswer(inv ->
+            CompletableFuture.completedFuture(byModel.get(((LLMRequest) inv.getArgument(0)).getModel())));
+
+        PipelineResult result = auditor.audit(context());
+
+        assertTrue(result.isSuccess());
+        assertEquals(83, result.getQualityScore());
+        assertEquals(1L, auditor.getMetrics().get("failures"));
+        assertEquals(25.0, auditor.getMetrics().get("avgScoreSpread"));
+    }
+
+    @Test
+    void testSingleModeAndAllFailures() {
+        assertFalse(auditor.isEnabled());
+
+        config.setAuditMode(MultiAuditor.MODE_MODELS);
+        config.setAuditModel("model-a,model-b");
+        when(llmClient.callAsync(any(LLMRequest.class), any(CancellationToken.class)))
+            .thenReturn(CompletableFuture.completedFuture(LLMResponse.success("无法给出评分")));
+        assertFalse(auditor.audit(context()).isSuccess());
+    }
+
+    @Test
+    void testClientDisconnectCancelsAuditRequests() {
+        config.setAuditMode(MultiAuditor.MODE_MODELS);
+        config.setAuditModel("model-a,model-b");
+        List<CompletableFuture<LLMResponse>> pending = new CopyOnWriteArrayList<>();
+        when(llmClient.callAsync(any(LLMRequest.class), any(CancellationToken.class))).thenAnswer(inv -> {
+            CompletableFuture<LLMResponse> future = new CompletableFuture<>();
+            CancellationToken token = inv.getArgument(1);
+            token.onCancel(() -> future.cancel(true));
+            pending.add(future);
+            return future;
+        });
+        PipelineContext ctx = context();
+        ctx.setCancellation(new CancellationToken());
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> ctx.getCancellation().cancel("客户端断开"));
+
+        assertThrows(CancellationException.class, () -> auditor.audit(ctx));
+        assertEquals(2, pending.size());
+        assertTrue(pending.stream().allMatch(CompletableFuture::isCancelled));
+    }
+}
@@ -110,6 +110,12 @@ class PipelineCoreTest {
         ctx.setCurrentDraft("草稿内容");
         assertEquals("草稿内容", ctx.getCurrentDraft());
 
+        // 本地评分随草稿失效
+        ctx.setLocalScore(80);
+        assertEquals(80, ctx.getLocalScore());
+        ctx.setCurrentDraft("精炼后的草稿");
+        assertEquals(-1, ctx.getLocalScore());
+
         ctx.setCurrentRound(1);
         ctx.incrementRound();
         assertEquals(2, ctx.getCurrentRound());
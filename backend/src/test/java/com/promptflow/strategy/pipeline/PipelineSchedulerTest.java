@@ -0,0 +1,164 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.dto.llm.LLMRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 拓扑构建与调度：依赖推导、并行执行、轮次循环、失败传播
+ */
+class PipelineSchedulerTest {
+
+    private final PipelineConfig config = new PipelineConfig();
+    private final PipelineScheduler scheduler = new PipelineScheduler(config);
+
+    private final List<PipelineStage> stages = List.of(
+        new FakeStage("draft", Set.of(), Set.of("draft")),
+        new FakeStage("audit", Set.of("draft"), Set.of("audit")),
+        new FakeStage("refine", Set.of("draft", "audit"), Set.of("draft")),
+        new FakeStage("format", Set.of("draft"), Set.of("format")));
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    private static PipelineConfig.Node node(String id, String stage, boolean repeat, String when) {
+        return new PipelineConfig.Node(id, stage, repeat, when);
+    }
+
+    private static PipelineContext context() {
+        return PipelineContext.builder().promptType("agent").build();
+    }
+
+    @Test
+    void testDerivesDependenciesFromInputsAndOutputs() {
+        List<PipelineConfig.Node> specs = new ArrayList<>(PipelineConfig.defaultTopology());
+        specs.add(node("format", "format", true, PipelineConfig.Node.ALWAYS));
+        PipelineTopology topology = PipelineTopology.build(specs, stages);
+
+        List<PipelineTopology.Node> nodes = topology.getNodes();
+        assertEquals(Set.of(), nodes.get(0).dependsOn());
+        assertEquals(Set.of("draft"), nodes.get(1).dependsOn());
+        // 精炼写草稿：依赖草稿的写者和此前的读者（审计）
+        assertEquals(Set.of("draft", "audit"), nodes.get(2).dependsOn());
+        assertEquals(Set.of("refine"), nodes.get(3).dependsOn());
+        assertEquals(List.of("audit", "refine", "format"),
+            topology.nodesForRound(1).stream().map(PipelineTopology.Node::id).toList());
+    }
+
+    @Test
+    void testRejectsInvalidTopology() {
+        assertThrows(IllegalStateException.class, () -> PipelineTopology.build(
+            List.of(node("x", "translate", false, PipelineConfig.Node.ALWAYS)), stages));
+        assertThrows(IllegalStateException.class, () -> PipelineTopology.build(
+            List.of(node("audit", "audit", true, PipelineConfig.Node.ALWAYS),
+                node("draft", "draft", false, PipelineConfig.Node.ALWAYS)), stages));
+        PipelineConfig.Node forward = node("draft", "draft", false, PipelineConfig.Node.ALWAYS);
+        forward.setAfter(List.of("audit"));
+        assertThrows(IllegalStateException.class, () -> PipelineTopology.build(List.of(forward), stages));
+    }
+
+    @Test
+    void testLoopsWhileRefineIsNeeded() {
+        config.setMaxRounds(3);
+        PipelineTopology topology = PipelineTopology.build(null, stages);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        PipelineScheduler.Outcome outcome = scheduler.run(topology, context(), (node, ctx, events) -> {
+            order.add(node.id() + ctx.getCurrentRound());
+            if (node.id().equals("audit")) {
+                ctx.setNeedsRefine(ctx.getCurrentRound() == 0);
+            }
+            return PipelineResult.ok(node.id());
+        }, PipelineEventSink.NONE);
+
+        assertEquals(PipelineScheduler.Status.COMPLETED, outcome.status());
+        assertEquals(List.of("draft0", "audit0", "refine0", "audit1"), order);
+    }
+
+    @Test
+    void testIndependentNodesRunConcurrentlyWithoutInterleavingEvents() {
+        List<PipelineConfig.Node> specs = List.of(
+            node("draft", "draft", false, PipelineConfig.Node.ALWAYS),
+            node("audit", "audit", false, PipelineConfig.Node.ALWAYS),
+            node("format", "format", false, PipelineConfig.Node.ALWAYS));
+        PipelineTopology topology = PipelineTopology.build(specs, stages);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        PipelineScheduler.Outcome outcome = scheduler.run(topology, context(), (node, ctx, sink) -> {
+            sink.send("stage-start", node.id());
+            if (!node.id().equals("draft")) {
+                bothStarted.countDown();
+                try {
+                    // 两个节点都已启动才能继续，串行执行时会超时
+                    assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            sink.send("stage-complete", node.id());
+            return PipelineResult.ok(node.id());
+        }, (event, data) -> events.add(event + ":" + data));
+
+        assertEquals(PipelineScheduler.Status.COMPLETED, outcome.status());
+        assertEquals(List.of("stage-start:draft", "stage-complete:draft",
+            "stage-start:audit", "stage-complete:audit",
+            "stage-start:format", "stage-complete:format"), events);
+        assertEquals(1L, scheduler.getMetrics().get("nodesParallel"));
+    }
+
+    @Test
+    void testFailurePropagation() {
+        PipelineTopology topology = PipelineTopology.build(null, stages);
+
+        PipelineScheduler.Outcome failed = scheduler.run(topology, context(),
+            (node, ctx, events) -> PipelineResult.error("timeout"), PipelineEventSink.NONE);
+        assertEquals(PipelineScheduler.Status.FAILED, failed.status());
+        assertEquals("draft", failed.nodeId());
+        assertEquals("draft失败: timeout", failed.error());
+
+        // 重复节点失败：下游跳过，流水线照常结束
+        List<String> order = new ArrayList<>();
+        PipelineScheduler.Outcome completed = scheduler.run(topology, context(), (node, ctx, events) -> {
+            order.add(node.id());
+            ctx.setNeedsRefine(true);
+            return node.id().equals("audit") ? PipelineResult.error("bad json") : PipelineResult.ok("x");
+        }, PipelineEventSink.NONE);
+        assertEquals(PipelineScheduler.Status.COMPLETED, completed.status());
+        assertEquals(List.of("draft", "audit"), order);
+    }
+
+    private record FakeStage(String type, Set<String> inputs, Set<String> outputs) implements PipelineStage {
+
+        @Override
+        public String getStageType() {
+            return type;
+        }
+
+        @Override
+        public String getStageName() {
+            return type;
+        }
+
+        @Override
+        public LLMRequest buildRequest(PipelineContext ctx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PipelineResult processResponse(String content, PipelineContext ctx) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.promptflow.strategy.pipeline;
+
+import com.promptflow.client.llm.LLMClient;
+import com.promptflow.dto.llm.LLMRequest;
+import com.promptflow.strategy.pipeline.impl.PromptRefineStage;
+import com.promptflow.util.CancellationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 投机精炼：与审计重叠执行，按审计结论保留、取消或重新精炼
+ */
+class SpeculativeRefinerTest {
+
+    private final LLMClient llmClient = mock(LLMClient.class);
+    private final PipelineConfig config = new PipelineConfig();
+    private final LatencyBudget budget = new LatencyBudget(config);
+    private SpeculativeRefiner refiner;
+
+    /** 放行模拟流的后半段输出 */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch firstChunkSent = new CountDownLatch(1);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        PromptRefineStage refineStage = new PromptRefineStage(config);
+        ReflectionTestUtils.setField(refineStage, "defaultModel", "base-model");
+        refineStage.init();
+        config.setSpeculativeRefine(true);
+        config.setSpeculativeThreads(1);
+        refiner = new SpeculativeRefiner(llmClient, config, refineStage, budget);
+
+        doAnswer(inv -> {
+            Consumer<String> onContent = inv.getArgument(1);
+            Consumer<Throwable> onError = inv.getArgument(3);
+            CancellationToken token = inv.getArgument(4);
+            onContent.accept("# 翻译助手\n");
+            firstChunkSent.countDown();
+            while (!release.await(10, TimeUnit.MILLISECONDS)) {
+                if (token.isCancelled()) {
+                    onError.accept(new CancellationException(token.getReason()));
+                    return null;
+                }
+            }
+            onContent.accept("你是一位专业的翻译专家。");
+            return null;
+        }).when(llmClient).callStream(any(LLMRequest.class), any(), any(), any(), any(CancellationToken.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        refiner.shutdown();
+        budget.shutdown();
+    }
+
+    private PipelineContext context() {
+        PipelineContext ctx = PipelineContext.builder().promptType("agent").build();
+        ctx.setCurrentDraft("# 翻译\n翻译一下");
+        return ctx;
+    }
+
+    @Test
+    void testKeptSpeculationReplaysAndStreamsRemainder() throws Exception {
+        PipelineContext ctx = context();
+        assertTrue(refiner.applies(ctx));
+        SpeculativeRefiner.Speculation spec = refiner.start(ctx, "{\"overallScore\":40,\"issues\":[]}", 40);
+        assertTrue(firstChunkSent.await(5, TimeUnit.SECONDS));
+
+        refiner.resolve(spec, ctx, PipelineResult.auditResult("{\"overallScore\":50}", 50, true));
+        SpeculativeRefiner.Speculation taken = refiner.take(ctx);
+        assertSame(spec, taken);
+
+        List<String> received = new ArrayList<>();
+        release.countDown();
+        String content = taken.await(received::add);
+
+        assertEquals("# 翻译助手\n你是一位专业的翻译专家。", content);
+        assertEquals(content, String.join("", received));
+        assertEquals(1L, refiner.getMetrics().get("kept"));
+        assertTrue(ctx.getTokensSpent() > 0);
+    }
+
+    @Test
+    void testCancelledWhenAuditPasses() throws Exception {
+        PipelineContext ctx = context();
+        SpeculativeRefiner.Speculation spec = refiner.start(ctx, "{}", 40);
+        assertTrue(firstChunkSent.await(5, TimeUnit.SECONDS));
+
+        refiner.resolve(spec, ctx, PipelineResult.auditResult("{\"overallScore\":90}", 90, false));
+
+        assertNull(refiner.take(ctx));
+        assertNull(spec.await(chunk -> { }));
+        assertEquals(1L, refiner.getMetrics().get("cancelled"));
+    }
+
+    @Test
+    void testRestartsWhenAuditDivergesSharply() throws Exception {
+        PipelineContext ctx = context();
+        SpeculativeRefiner.Speculation spec = refiner.start(ctx, "{}", 75);
+        assertTrue(firstChunkSent.await(5, TimeUnit.SECONDS));
+
+        refiner.resolve(spec, ctx, PipelineResult.auditResult("{\"overallScore\":40}", 40, true));
+
+        assertNull(refiner.take(ctx));
+        assertEquals(1L, refiner.getMetrics().get("restarted"));
+    }
+
+    @Test
+    void testRestartsOnCriticalIssueSeverityOnly() {
+        assertTrue(SpeculativeRefiner.hasCriticalIssue(
+            "审计结果：{\"overallScore\":45,\"issues\":[{\"severity\":\"critical\",\"description\":\"缺少角色\"}]}"));
+        // 其他字段里出现 "critical" 不算
+        assertFalse(SpeculativeRefiner.hasCriticalIssue(
+            "{\"overallScore\":45,\"issues\":[{\"dimension\":\"critical\",\"severity\":\"minor\"}]}"));
+        assertFalse(SpeculativeRefiner.hasCriticalIssue("不是 JSON"));
+    }
+
+    @Test
+    void testSkippedWhenNoSpeculativeThreadIsFree() throws Exception {
+        PipelineContext ctx = context();
+        SpeculativeRefiner.Speculation first = refiner.start(ctx, "{}", 40);
+        assertNotNull(first);
+        assertTrue(firstChunkSent.await(5, TimeUnit.SECONDS));
+
+        assertNull(refiner.start(context(), "{}", 40));
+        assertEquals(1L, refiner.getMetrics().get("skipped"));
+        assertEquals(1L, refiner.getMetrics().get("started"));
+        first.cancel("测试结束");
+    }
+
+    @Test
+    void testInterruptedWhenRefineSliceExpires() throws Exception {
+        config.setStageTimeouts(Map.of("refine", 100L));
+        PipelineContext ctx = context();
+        SpeculativeRefiner.Speculation spec = refiner.start(ctx, "{}", 40);
+        assertTrue(firstChunkSent.await(5, TimeUnit.SECONDS));
+
+        // 不放行后半段：时间片到期后投机请求被中断
+        assertNull(spec.await(chunk -> { }));
+        assertEquals(1L, budget.getMetrics().get("sliceTimeouts"));
+
+        // 预算已用完时不再投机
+        ctx.setDeadline(System.currentTimeMillis() - 1);
+        assertNull(refiner.start(ctx, "{}", 40));
+        assertEquals(1L, refiner.getMetrics().get("skipped"));
+    }
+
+    @Test
+    void testNotAppliedOnLastRoundOrWhenDisabled() {
+        PipelineContext ctx = context();
+        ctx.setCurrentRound(config.getMaxRounds() - 1);
+        assertFalse(refiner.applies(ctx));
+
+        config.setSpeculativeRefine(false);
+        assertFalse(refiner.applies(context()));
+    }
+}
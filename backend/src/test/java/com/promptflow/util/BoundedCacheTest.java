@@ -0,0 +1,59 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BoundedCache 单元测试
+ */
+class BoundedCacheTest {
+
+    @Test
+    void testHitMissAndStats() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 0);
+        assertNull(cache.get("a"));
+        cache.put("a", "A");
+        assertEquals("A", cache.get("a"));
+
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        assertEquals(50.0, cache.stats().get("hitRate"));
+    }
+
+    @Test
+    void testScanDoesNotEvictHotEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(5, 0);
+        cache.put("hot", "H");
+        cache.get("hot"); // 晋升到保护区
+
+        // 一次性扫描大量新 key，只淘汰试用区
+        for (int i = 0; i < 100; i++) {
+            cache.put("scan" + i, "S");
+        }
+
+        assertEquals("H", cache.get("hot"));
+        assertEquals(5, cache.size());
+        assertEquals(96L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void testTtlExpiry() throws Exception {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 20);
+        cache.put("a", "A");
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(1L, cache.stats().get("expirations"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLoaderCachesNonNull() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 0);
+        assertEquals("v", cache.get("k", k -> "v"));
+        assertEquals("v", cache.get("k", k -> "other"));
+        assertNull(cache.get("n", k -> null));
+        assertEquals(1, cache.size());
+    }
+}
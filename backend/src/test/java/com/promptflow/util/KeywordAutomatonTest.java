@@ -0,0 +1,107 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KeywordAutomaton 单元测试
+ */
+class KeywordAutomatonTest {
+
+    @Test
+    void testOverlappingAndSharedKeywords() {
+        KeywordAutomaton<String> automaton = KeywordAutomaton.<String>builder()
+            .addAll(List.of("写", "写作", "作文"), "创作")
+            .add("写作", "语言")
+            .add("人工智能", "AI")
+            .build();
+
+        Map<String, Integer> counts = automaton.countMatches("帮我写作一篇作文，主题是人工智能");
+        // 写、写作、作文 各一次；写作同时计入“语言”
+        assertEquals(3, counts.get("创作"));
+        assertEquals(1, counts.get("语言"));
+        assertEquals(1, counts.get("AI"));
+    }
+
+    @Test
+    void testAsciiWordBoundaryAndCaseInsensitive() {
+        KeywordAutomaton<String> automaton = KeywordAutomaton.<String>builder()
+            .add("java", "Java")
+            .add("js", "JavaScript")
+            .add("ai", "AI")
+            .add("sql", "SQL")
+            .build();
+
+        Map<String, Integer> counts = automaton.countMatches("JavaScript 与 Java，写 SQL 和 json；email 里提到 AI助手");
+        assertEquals(1, counts.get("Java"));
+        assertNull(counts.get("JavaScript"));
+        assertEquals(1, counts.get("SQL"));
+        // 与中文相邻不算词内字符
+        assertEquals(1, counts.get("AI"));
+    }
+
+    @Test
+    void testMatchesRegexWordBoundaryForAsciiKeywords() {
+        List<String> keywords = List.of("a", "ab", "bab", "abc", "c_1", "ca");
+        KeywordAutomaton.Builder<String> builder = KeywordAutomaton.builder();
+        keywords.forEach(k -> builder.add(k, k));
+        KeywordAutomaton<String> automaton = builder.build();
+
+        Random random = new Random(42);
+        // 只用 ASCII：JDK 17 的 \b 把中文当作词内字符，这正是自动机有意不同的地方
+        String alphabet = "abc_1 .-";
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 60; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            Map<String, Integer> expected = new HashMap<>();
+            for (String keyword : keywords) {
+                Matcher matcher = Pattern.compile("\\b" + keyword + "\\b").matcher(text);
+                int count = 0;
+                int from = 0;
+                // 逐位置查找以包含重叠出现
+                while (matcher.find(from)) {
+                    count++;
+                    from = matcher.start() + 1;
+                }
+                if (count > 0) {
+                    expected.put(keyword, count);
+                }
+            }
+            assertEquals(expected, automaton.countMatches(text), text.toString());
+        }
+    }
+
+    @Test
+    void testChunkedFeedMatchesWholeScan() {
+        KeywordAutomaton<String> automaton = KeywordAutomaton.<String>builder()
+            .add("java", "Java")
+            .add("js", "JavaScript")
+            .add("ai", "AI")
+            .add("人工智能", "AI")
+            .add("写作", "创作")
+            .build();
+        String text = "Java 与 javascript、js 写作；AI 和人工智能，email 与 ai_x 以及 java";
+        Map<String, Integer> expected = automaton.countMatches(text);
+
+        Random random = new Random(7);
+        for (int round = 0; round < 100; round++) {
+            Map<String, Integer> counts = new HashMap<>();
+            KeywordAutomaton<String>.Matcher matcher = automaton.matcher();
+            int from = 0;
+            while (from < text.length()) {
+                int to = Math.min(text.length(), from + 1 + random.nextInt(5));
+                matcher.feed(text.subSequence(from, to), v -> counts.merge(v, 1, Integer::sum));
+                from = to;
+            }
+            matcher.finish(v -> counts.merge(v, 1, Integer::sum));
+            assertEquals(expected, counts);
+        }
+    }
+}
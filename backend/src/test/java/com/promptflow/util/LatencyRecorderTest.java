@@ -0,0 +1,38 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LatencyRecorder 单元测试
+ */
+class LatencyRecorderTest {
+
+    @Test
+    void testPercentiles() {
+        LatencyRecorder recorder = new LatencyRecorder(100);
+        assertEquals(-1, recorder.percentile(50));
+
+        for (int i = 100; i >= 1; i--) {
+            recorder.record(i * 10L);
+        }
+        assertEquals(500, recorder.percentile(50));
+        assertEquals(950, recorder.percentile(95));
+        assertEquals(1000, recorder.percentile(100));
+        assertEquals(10, recorder.percentile(0));
+    }
+
+    @Test
+    void testKeepsOnlyRecentSamples() {
+        LatencyRecorder recorder = new LatencyRecorder(3);
+        recorder.record(5000);
+        recorder.record(10);
+        recorder.record(20);
+        recorder.record(30);
+
+        assertEquals(3, recorder.size());
+        assertEquals(30, recorder.percentile(100));
+        assertEquals(20L, recorder.snapshot().get("p50Ms"));
+    }
+}
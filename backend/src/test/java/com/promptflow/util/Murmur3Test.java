@@ -0,0 +1,35 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Murmur3 单元测试
+ */
+class Murmur3Test {
+
+    @Test
+    void testReferenceVectors() {
+        assertEquals("00000000000000000000000000000000", Murmur3.hash128(new byte[0], 0).toString());
+        assertEquals("cbd8a7b341bd9b025b1e906a48ae1d19",
+            Murmur3.hash128("hello".getBytes(StandardCharsets.UTF_8), 0).toString());
+        assertEquals("e34bbc7bbc071b6c7a433ca9c49a9347",
+            Murmur3.hash128("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0).toString());
+    }
+
+    @Test
+    void testCharSequenceMatchesUtf16LeBytes() {
+        assertEquals("0c25a174b09e4de3777166dd399ee02b", Murmur3.hash128("abc").toString());
+        assertEquals("f734ffd10491569fd8a4166e8176220a", Murmur3.hash128("你是一位资深工程师，请审查代码").toString());
+
+        StringBuilder sb = new StringBuilder();
+        for (int length = 0; length < 40; length++) {
+            String text = sb.toString();
+            assertEquals(Murmur3.hash128(text.getBytes(StandardCharsets.UTF_16LE), 7), Murmur3.hash128(text, 7), text);
+            sb.append((char) ('a' + length % 26)).append(length % 3 == 0 ? "中" : "");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PageCursor 单元测试
+ */
+class PageCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 4, 16, 47, 49);
+        PageCursor decoded = PageCursor.decode(PageCursor.of(4.5, createdAt, 42L).encode());
+
+        assertEquals(4.5, decoded.getSortValue());
+        assertEquals(createdAt, decoded.getCreatedAt());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    void testBlankIsFirstPage() {
+        PageCursor first = PageCursor.decode("");
+        assertNull(first.getSortValue());
+        assertEquals(Long.MAX_VALUE, first.getId());
+        assertTrue(first.getCreatedAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void testMalformedCursorRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not-a-cursor"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenBucket 单元测试
+ */
+class TokenBucketTest {
+
+    @Test
+    void testBurstThenRefill() {
+        long[] now = {0};
+        TokenBucket bucket = new TokenBucket(2, 3, () -> now[0]);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // 每秒 2 个，半秒补 1 个
+        now[0] += TimeUnit.MILLISECONDS.toNanos(500);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // 长时间空闲也不超过桶容量
+        now[0] += TimeUnit.SECONDS.toNanos(60);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void testUnlimitedWhenRateNotPositive() throws Exception {
+        TokenBucket bucket = new TokenBucket(0, 1);
+        for (int i = 0; i < 100; i++) {
+            bucket.acquire();
+        }
+        assertTrue(bucket.tryAcquire());
+    }
+}
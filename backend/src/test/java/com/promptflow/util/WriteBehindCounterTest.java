@@ -0,0 +1,90 @@
+package com.promptflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WriteBehindCounter 单元测试
+ */
+class WriteBehindCounterTest {
+
+    @Test
+    void testPendingIncludesInFlightBatch() {
+        WriteBehindCounter<Long> counter = new WriteBehindCounter<>();
+        counter.add(1L, 1);
+        counter.add(1L, 1);
+        counter.add(2L, -1);
+
+        Map<Long, Long> batch = counter.drain();
+        assertEquals(Map.of(1L, 2L, 2L, -1L), batch);
+
+        // 写回尚未提交时，读取仍能看到增量
+        counter.add(1L, 1);
+        assertEquals(3L, counter.pending(1L));
+
+        counter.commit();
+        assertEquals(1L, counter.pending(1L));
+    }
+
+    @Test
+    void testRollbackRestoresDeltas() {
+        WriteBehindCounter<String> counter = new WriteBehindCounter<>();
+        counter.add("h", 5);
+        counter.drain();
+        counter.rollback();
+
+        assertEquals(5L, counter.pending("h"));
+        assertEquals(Map.of("h", 5L), counter.drain());
+    }
+
+    @Test
+    void testIdleKeysAreEvicted() {
+        WriteBehindCounter<String> counter = new WriteBehindCounter<>();
+        counter.add("h", 1);
+        assertEquals(Map.of("h", 1L), counter.drain());
+        counter.commit();
+
+        // 一个周期内没有累加，下一次 drain 移除该 key
+        assertTrue(counter.drain().isEmpty());
+        counter.commit();
+        assertEquals(0, counter.size());
+
+        counter.add("h", 2);
+        assertEquals(2L, counter.pending("h"));
+        assertEquals(Map.of("h", 2L), counter.drain());
+    }
+
+    @Test
+    void testConcurrentAddsAreNotLost() throws Exception {
+        WriteBehindCounter<Long> counter = new WriteBehindCounter<>();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        long[] flushed = {0};
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.add(7L, 1);
+                }
+            });
+        }
+        // 写回与累加并发进行
+        for (int i = 0; i < 50; i++) {
+            flushed[0] += counter.drain().getOrDefault(7L, 0L);
+            counter.commit();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        // 收尾：取走累加结束后剩余的增量
+        for (int i = 0; i < 2; i++) {
+            flushed[0] += counter.drain().getOrDefault(7L, 0L);
+            counter.commit();
+        }
+
+        assertEquals(80_000L, flushed[0]);
+    }
+}
@@ -1,5 +1,11 @@
 import request from './request';
-import type { ApiResponse, PromptRecord, PagedResult, HistoryQueryRequest } from '@/types';
+import type { ApiResponse, PromptRecord, PagedResult, CursorPage, HistoryQueryRequest } from '@/types';
+
+const toCursorPage = (result: any): CursorPage<PromptRecord> => ({
+  list: result.data,
+  nextCursor: result.nextCursor,
+  hasMore: result.hasMore
+});
 
 export const historyApi = {
   // 根据ID获取单条记录
@@ -22,23 +28,25 @@ export const historyApi = {
       });
   },
 
-  // 获取所有历史记录
-  getAll(): Promise<PromptRecord[]> {
-    return request.get<ApiResponse<PromptRecord[]>>('/history/all')
-      .then(res => res.data.data);
+  // 按游标分页获取历史记录，第一页传空串
+  getAll(cursor: string = '', size: number = 20): Promise<CursorPage<PromptRecord>> {
+    return request.get<ApiResponse<any>>('/history/all', {
+      params: { cursor, size }
+    }).then(res => toCursorPage(res.data));
   },
 
   // 获取最近历史记录
   getRecent(limit: number = 20): Promise<PromptRecord[]> {
     return request.get<ApiResponse<PromptRecord[]>>('/history/recent', {
-      params: { limit }
+      params: { limit, cursor: '' }
     }).then(res => res.data.data);
   },
 
-  // 根据分类查询
-  getByCategory(categoryId: number): Promise<PromptRecord[]> {
-    return request.get<ApiResponse<PromptRecord[]>>(`/history/category/${categoryId}`)
-      .then(res => res.data.data);
+  // 按游标分页查询分类下的记录，第一页传空串
+  getByCategory(categoryId: number, cursor: string = '', size: number = 20): Promise<CursorPage<PromptRecord>> {
+    return request.get<ApiResponse<any>>(`/history/category/${categoryId}`, {
+      params: { cursor, size }
+    }).then(res => toCursorPage(res.data));
   },
 
   // 搜索历史记录
@@ -37,24 +37,69 @@ export interface PipelineRequest {
 }
 
 /** Pipeline SSE 事件类型 */
+// stage 为阶段类型，node 为拓扑节点 id（自定义拓扑中同一阶段可对应多个节点）
 export interface PipelineStageEvent {
-  stage: 'draft' | 'audit' | 'refine';
+  stage: 'draft' | 'audit' | 'refine' | string;
+  node: string;
   name: string;
   round: number;
 }
 
 export interface PipelineStageCompleteEvent {
-  stage: 'draft' | 'audit' | 'refine';
-  status: 'ok' | 'error';
+  stage: 'draft' | 'audit' | 'refine' | string;
+  node: string;
+  // skipped：审计前置闸门按本地评分跳过了审计模型，score 为本地评分
+  status: 'ok' | 'error' | 'skipped';
   score?: number;
   needsRefine?: boolean;
   message?: string;
 }
 
+// 草稿/精炼阶段生成过程中的本地实时评分
+export interface PipelineQualityProgressEvent {
+  stage: 'draft' | 'refine';
+  round: number;
+  score: number;
+  length: number;
+  final: boolean;
+}
+
+// 多候选草稿择优结果（pipeline.draft-candidates > 1 时推送）
+export interface PipelineDraftCandidate {
+  index: number;
+  model: string;
+  temperature: number;
+  localScore: number;
+  auditScore: number | null;
+  length: number;
+  winner: boolean;
+}
+
+export interface PipelineDraftCandidatesEvent {
+  winner: number;
+  candidates: PipelineDraftCandidate[];
+}
+
+// 阶段耗时与剩余时间预算（未限时的字段为 -1）
+export interface PipelineBudgetEvent {
+  stage: string;
+  node: string;
+  round: number;
+  model: string;
+  elapsedMs: number;
+  sliceMs: number;
+  remainingMs: number;
+  status: 'ok' | 'first-token-timeout' | 'timeout' | 'skipped';
+  fallback: boolean;
+}
+
 export interface PipelineStreamCallbacks {
   onStageStart: (event: PipelineStageEvent) => void;
   onMessage: (content: string) => void;
   onStageComplete: (event: PipelineStageCompleteEvent) => void;
+  onQualityProgress?: (event: PipelineQualityProgressEvent) => void;
+  onDraftCandidates?: (event: PipelineDraftCandidatesEvent) => void;
+  onBudget?: (event: PipelineBudgetEvent) => void;
   onDone: (fullContent: string) => void;
   onError: (error: string) => void;
 }
@@ -489,6 +534,12 @@ export const promptApi = {
           callbacks.onMessage(currentEventData);
         } else if (currentEventName === 'stage-complete') {
           callbacks.onStageComplete(parsed as PipelineStageCompleteEvent);
+        } else if (currentEventName === 'quality-progress') {
+          callbacks.onQualityProgress?.(parsed as PipelineQualityProgressEvent);
+        } else if (currentEventName === 'draft-candidates') {
+          callbacks.onDraftCandidates?.(parsed as PipelineDraftCandidatesEvent);
+        } else if (currentEventName === 'budget') {
+          callbacks.onBudget?.(parsed as PipelineBudgetEvent);
         } else if (currentEventName === 'error') {
           callbacks.onError(parsed.error || currentEventData);
         }
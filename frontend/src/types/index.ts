@@ -66,6 +66,13 @@ export interface PagedResult<T> {
   size: number;
 }
 
+// 游标分页结果
+export interface CursorPage<T> {
+  list: T[];
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
 // 历史记录查询请求
 export interface HistoryQueryRequest {
   page?: number;